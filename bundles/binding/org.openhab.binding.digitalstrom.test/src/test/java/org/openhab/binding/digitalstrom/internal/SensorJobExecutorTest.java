@@ -0,0 +1,191 @@
+/**
+ * Copyright (c) 2010-2016 by the respective copyright holders.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.binding.digitalstrom.internal;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Test;
+import org.openhab.binding.digitalstrom.internal.DigitalSTROMBinding.SensorJobExecutor;
+import org.openhab.binding.digitalstrom.internal.client.DigitalSTROMAPI;
+import org.openhab.binding.digitalstrom.internal.client.entity.DSID;
+import org.openhab.binding.digitalstrom.internal.client.job.SensorJob;
+
+import junit.framework.Assert;
+
+/**
+ * Runs stub sensor jobs, which record when they were executed, on the
+ * {@link SensorJobExecutor}.
+ *
+ * @author Alexander Betker
+ * @since 1.9.0
+ */
+public class SensorJobExecutorTest {
+
+    private static final DSID METER = new DSID("00001001");
+
+    private static final DSID OTHER_METER = new DSID("00001002");
+
+    private final List<StubJob> executed = new CopyOnWriteArrayList<StubJob>();
+
+    private CountDownLatch done;
+
+    private final SensorJobExecutor executor = new SensorJobExecutor() {
+        @Override
+        void executeJob(SensorJob job) {
+            job.execute(null, null);
+        }
+    };
+
+    @After
+    public void tearDown() {
+        executor.shutdown();
+    }
+
+    @Test
+    public void testEqualJobsAreMerged() throws InterruptedException {
+        done = new CountDownLatch(2);
+        executor.addJob(new StubJob("00000001", METER, 0), SensorJobExecutor.HIGH_PRIORITY);
+        executor.addJob(new StubJob("00000001", METER, 0), SensorJobExecutor.HIGH_PRIORITY);
+        // the same job for another dSM isn't merged
+        executor.addJob(new StubJob("00000001", OTHER_METER, 0), SensorJobExecutor.HIGH_PRIORITY);
+        executor.start(1000);
+
+        Assert.assertTrue(done.await(5, TimeUnit.SECONDS));
+        Thread.sleep(300);
+        Assert.assertEquals(2, executed.size());
+        Assert.assertTrue(executor.getStatistics(), executor.getStatistics().contains("collapsed=1,"));
+        Assert.assertTrue(executor.getStatistics(), executor.getStatistics().startsWith("circuits=2,"));
+    }
+
+    @Test
+    public void testJobsOfDSMRunByPriority() throws InterruptedException {
+        done = new CountDownLatch(4);
+        StubJob low = new StubJob("00000001", METER, 0);
+        StubJob medium = new StubJob("00000002", METER, 0);
+        StubJob firstHigh = new StubJob("00000003", METER, 0);
+        StubJob secondHigh = new StubJob("00000004", METER, 0);
+        executor.addJob(low, SensorJobExecutor.LOW_PRIORITY);
+        executor.addJob(medium, SensorJobExecutor.MEDIUM_PRIORITY);
+        executor.addJob(firstHigh, SensorJobExecutor.HIGH_PRIORITY);
+        executor.addJob(secondHigh, SensorJobExecutor.HIGH_PRIORITY);
+        executor.start(1000);
+
+        Assert.assertTrue(done.await(5, TimeUnit.SECONDS));
+        Assert.assertSame(firstHigh, executed.get(0));
+        Assert.assertSame(secondHigh, executed.get(1));
+        Assert.assertSame(medium, executed.get(2));
+        Assert.assertSame(low, executed.get(3));
+    }
+
+    @Test
+    public void testPauseFollowsLatency() throws InterruptedException {
+        done = new CountDownLatch(2);
+        StubJob slow = new StubJob("00000001", METER, 300);
+        StubJob next = new StubJob("00000002", METER, 0);
+        executor.addJob(slow, SensorJobExecutor.HIGH_PRIORITY);
+        executor.addJob(next, SensorJobExecutor.HIGH_PRIORITY);
+        executor.start(1000);
+
+        Assert.assertTrue(done.await(5, TimeUnit.SECONDS));
+        long pause = next.start - slow.end;
+        Assert.assertTrue("pause " + pause + "ms", pause >= 250);
+    }
+
+    @Test
+    public void testPauseIsLimitedByMaxPause() throws InterruptedException {
+        done = new CountDownLatch(2);
+        StubJob slow = new StubJob("00000001", METER, 600);
+        StubJob next = new StubJob("00000002", METER, 0);
+        executor.addJob(slow, SensorJobExecutor.HIGH_PRIORITY);
+        executor.addJob(next, SensorJobExecutor.HIGH_PRIORITY);
+        executor.start(150);
+
+        Assert.assertTrue(done.await(5, TimeUnit.SECONDS));
+        long pause = next.start - slow.end;
+        Assert.assertTrue("pause " + pause + "ms", pause >= 100 && pause < 500);
+    }
+
+    @Test
+    public void testDSMsRunInParallel() throws InterruptedException {
+        done = new CountDownLatch(2);
+        StubJob first = new StubJob("00000001", METER, 300);
+        StubJob second = new StubJob("00000002", OTHER_METER, 300);
+        executor.addJob(first, SensorJobExecutor.HIGH_PRIORITY);
+        executor.addJob(second, SensorJobExecutor.HIGH_PRIORITY);
+        executor.start(1000);
+
+        Assert.assertTrue(done.await(5, TimeUnit.SECONDS));
+        Assert.assertTrue(second.start < first.end);
+        Assert.assertTrue(first.start < second.end);
+    }
+
+    /**
+     * A job which takes the given time, equal to the jobs of the same device
+     * and dSM.
+     */
+    private class StubJob implements SensorJob {
+
+        private final DSID dsid;
+
+        private final DSID meterDSID;
+
+        private final long duration;
+
+        private volatile long start;
+
+        private volatile long end;
+
+        public StubJob(String dsid, DSID meterDSID, long duration) {
+            this.dsid = new DSID(dsid);
+            this.meterDSID = meterDSID;
+            this.duration = duration;
+        }
+
+        @Override
+        public DSID getDsid() {
+            return dsid;
+        }
+
+        @Override
+        public DSID getMeterDSID() {
+            return meterDSID;
+        }
+
+        @Override
+        public void execute(DigitalSTROMAPI digitalSTROM, String token) {
+            start = System.currentTimeMillis();
+            try {
+                Thread.sleep(duration);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            end = System.currentTimeMillis();
+            executed.add(this);
+            done.countDown();
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof StubJob)) {
+                return false;
+            }
+            StubJob other = (StubJob) obj;
+            return dsid.equals(other.dsid) && meterDSID.equals(other.meterDSID);
+        }
+
+        @Override
+        public int hashCode() {
+            return dsid.hashCode();
+        }
+    }
+}
@@ -13,10 +13,14 @@ import java.util.Collections;
 import java.util.Dictionary;
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 
 import org.apache.commons.lang.StringUtils;
 import org.json.simple.JSONArray;
@@ -144,11 +148,12 @@ public class DigitalSTROMBinding extends AbstractActiveBinding<DigitalSTROMBindi
 
     private List<String> echoBox = Collections.synchronizedList(new LinkedList<String>());
 
-    private List<SensorJob> highPrioritySensorJobs = Collections.synchronizedList(new LinkedList<SensorJob>());
-    private List<SensorJob> mediumPrioritySensorJobs = Collections.synchronizedList(new LinkedList<SensorJob>());
-    private List<SensorJob> lowPrioritySensorJobs = Collections.synchronizedList(new LinkedList<SensorJob>());
-
-    private SensorJobExecutor sensorJobExecutor = null;
+    private final SensorJobExecutor sensorJobExecutor = new SensorJobExecutor() {
+        @Override
+        void executeJob(SensorJob job) {
+            job.execute(digitalSTROM, getSessionToken());
+        }
+    };
 
     public DigitalSTROMBinding() {
     }
@@ -168,10 +173,7 @@ public class DigitalSTROMBinding extends AbstractActiveBinding<DigitalSTROMBindi
             digitalSTROMEventListener = null;
         }
 
-        if (sensorJobExecutor != null) {
-            sensorJobExecutor.shutdown();
-            sensorJobExecutor = null;
-        }
+        sensorJobExecutor.shutdown();
 
         removeAllDeviceListener();
         deallocateResources();
@@ -1367,95 +1369,23 @@ public class DigitalSTROMBinding extends AbstractActiveBinding<DigitalSTROMBindi
     }
 
     private void addHighPriorityJob(DeviceOutputValueSensorJob deviceOutputValueSensorJob) {
-        synchronized (highPrioritySensorJobs) {
-            if (!highPrioritySensorJobs.contains(deviceOutputValueSensorJob)) {
-                highPrioritySensorJobs.add(deviceOutputValueSensorJob);
-            }
-        }
+        sensorJobExecutor.addJob(deviceOutputValueSensorJob, SensorJobExecutor.HIGH_PRIORITY);
     }
 
     private void addHighPriorityJob(DeviceSensorValueJob deviceSensorValueJob) {
-        synchronized (highPrioritySensorJobs) {
-            if (!highPrioritySensorJobs.contains(deviceSensorValueJob)) {
-                highPrioritySensorJobs.add(deviceSensorValueJob);
-            }
-        }
+        sensorJobExecutor.addJob(deviceSensorValueJob, SensorJobExecutor.HIGH_PRIORITY);
     }
 
     private void addMediumPriorityJob(SceneOutputValueSensorJob sceneOutputValueSensorJob) {
-        synchronized (mediumPrioritySensorJobs) {
-            if (!mediumPrioritySensorJobs.contains(sceneOutputValueSensorJob)) {
-                mediumPrioritySensorJobs.add(sceneOutputValueSensorJob);
-            }
-        }
+        sensorJobExecutor.addJob(sceneOutputValueSensorJob, SensorJobExecutor.MEDIUM_PRIORITY);
     }
 
     private void addLowPriorityJob(DeviceConsumptionSensorJob deviceConsumptionSensorJob) {
-        synchronized (lowPrioritySensorJobs) {
-            if (!lowPrioritySensorJobs.contains(deviceConsumptionSensorJob)) {
-                lowPrioritySensorJobs.add(deviceConsumptionSensorJob);
-            }
-        }
-    }
-
-    private SensorJob getLowPriorityJob() {
-        SensorJob job = null;
-        synchronized (lowPrioritySensorJobs) {
-            if (lowPrioritySensorJobs.size() > 0) {
-                job = lowPrioritySensorJobs.get(0);
-                lowPrioritySensorJobs.remove(job);
-            }
-        }
-        return job;
-    }
-
-    private SensorJob getMediumPriorityJob() {
-        SensorJob job = null;
-        synchronized (mediumPrioritySensorJobs) {
-            if (mediumPrioritySensorJobs.size() > 0) {
-                job = mediumPrioritySensorJobs.get(0);
-                mediumPrioritySensorJobs.remove(job);
-            }
-        }
-        return job;
-    }
-
-    private SensorJob getHighPriorityJob() {
-        SensorJob job = null;
-        synchronized (highPrioritySensorJobs) {
-            if (highPrioritySensorJobs.size() > 0) {
-                job = highPrioritySensorJobs.get(0);
-                highPrioritySensorJobs.remove(job);
-            }
-        }
-        return job;
+        sensorJobExecutor.addJob(deviceConsumptionSensorJob, SensorJobExecutor.LOW_PRIORITY);
     }
 
     private void removeSensorJobs(DSID dsid) {
-        synchronized (lowPrioritySensorJobs) {
-            for (Iterator<SensorJob> iter = lowPrioritySensorJobs.iterator(); iter.hasNext();) {
-                SensorJob job = iter.next();
-                if (job.getDsid().equals(dsid)) {
-                    iter.remove();
-                }
-            }
-        }
-        synchronized (mediumPrioritySensorJobs) {
-            for (Iterator<SensorJob> iter = mediumPrioritySensorJobs.iterator(); iter.hasNext();) {
-                SensorJob job = iter.next();
-                if (job.getDsid().equals(dsid)) {
-                    iter.remove();
-                }
-            }
-        }
-        synchronized (highPrioritySensorJobs) {
-            for (Iterator<SensorJob> iter = highPrioritySensorJobs.iterator(); iter.hasNext();) {
-                SensorJob job = iter.next();
-                if (job.getDsid().equals(dsid)) {
-                    iter.remove();
-                }
-            }
-        }
+        sensorJobExecutor.removeJobs(dsid);
     }
 
     private void login() {
@@ -1498,8 +1428,8 @@ public class DigitalSTROMBinding extends AbstractActiveBinding<DigitalSTROMBindi
     }
 
     private void startSensorJobExecutor() {
-        this.sensorJobExecutor = new SensorJobExecutor();
-        this.sensorJobExecutor.start();
+        this.sensorJobExecutor.shutdown();
+        this.sensorJobExecutor.start(readTimeout);
     }
 
     private void registerDigitalSTROMEventListener() {
@@ -1511,46 +1441,210 @@ public class DigitalSTROMBinding extends AbstractActiveBinding<DigitalSTROMBindi
     }
 
     /**
-     * In order to avoid many sensor readings in a time, this thread starts the
-     * jobs, after the old one is finished
+     * In order to avoid many sensor readings in a time, the jobs are queued per
+     * dSM (circuit) and a job starts after the previous job of the same dSM is
+     * finished. Different dSMs are read in parallel. The pause between two jobs
+     * of a dSM follows the response time of its last readings, so a slow or
+     * overloaded dSM is given more time to recover.
      *
      * @author Alexander Betker
      * @since 1.3.0
      *
      */
-    private class SensorJobExecutor extends Thread {
+    abstract static class SensorJobExecutor {
 
-        private boolean shutdown = false;
+        static final int HIGH_PRIORITY = 0;
+        static final int MEDIUM_PRIORITY = 1;
+        static final int LOW_PRIORITY = 2;
 
-        private final int sleepTime = readTimeout;
+        /** maximum number of dSMs which are read at the same time */
+        private static final int MAX_PARALLEL_CIRCUITS = 8;
 
-        @Override
-        public void run() {
+        /** minimum pause in milliseconds between two jobs of the same dSM */
+        private static final int MIN_PAUSE = 100;
 
-            while (!this.shutdown) {
-                SensorJob job = getHighPriorityJob();
+        /** queue for the jobs of devices whose dSM is unknown */
+        private static final String UNKNOWN_CIRCUIT = "unknown";
 
-                if (job == null) {
-                    job = getMediumPriorityJob();
-                    if (job == null) {
-                        job = getLowPriorityJob();
+        private final Map<String, CircuitJobQueue> circuits = new HashMap<String, CircuitJobQueue>();
+
+        private ScheduledExecutorService scheduler = null;
+
+        private int maxPause = ConnectionConfig.DEFAULT_READ_TIMEOUT;
+
+        private long executed = 0;
+        private long collapsed = 0;
+        private long failed = 0;
+        private long totalLatency = 0;
+        private long maxLatency = 0;
+
+        public synchronized void start(int maxPause) {
+            if (scheduler != null) {
+                return;
+            }
+            this.maxPause = Math.max(MIN_PAUSE, maxPause);
+            scheduler = Executors.newScheduledThreadPool(MAX_PARALLEL_CIRCUITS);
+            for (CircuitJobQueue queue : circuits.values()) {
+                // jobs of a stopped scheduler are discarded
+                queue.busy = false;
+                schedule(queue, 0);
+            }
+        }
+
+        public void shutdown() {
+            ScheduledExecutorService stopped;
+            synchronized (this) {
+                stopped = scheduler;
+                scheduler = null;
+            }
+            if (stopped != null) {
+                stopped.shutdownNow();
+                logger.debug("Sensor job executor stopped: {}", getStatistics());
+            }
+        }
+
+        /**
+         * Queues a job, unless an equal job is already waiting.
+         */
+        public synchronized void addJob(SensorJob job, int priority) {
+            DSID meterDSID = job.getMeterDSID();
+            String circuit = meterDSID != null ? meterDSID.getValue() : UNKNOWN_CIRCUIT;
+
+            CircuitJobQueue queue = circuits.get(circuit);
+            if (queue == null) {
+                queue = new CircuitJobQueue();
+                circuits.put(circuit, queue);
+            }
+
+            if (!queue.jobs[priority].add(job)) {
+                collapsed++;
+                return;
+            }
+            schedule(queue, queue.nextRun - System.currentTimeMillis());
+        }
+
+        public synchronized void removeJobs(DSID dsid) {
+            for (CircuitJobQueue queue : circuits.values()) {
+                for (Set<SensorJob> jobs : queue.jobs) {
+                    for (Iterator<SensorJob> iter = jobs.iterator(); iter.hasNext();) {
+                        if (iter.next().getDsid().equals(dsid)) {
+                            iter.remove();
+                        }
                     }
                 }
-                if (job != null) {
-                    job.execute(digitalSTROM, getSessionToken());
+            }
+        }
+
+        public synchronized String getStatistics() {
+            return "circuits=" + circuits.size() + ", executed=" + executed + ", collapsed=" + collapsed
+                    + ", failed=" + failed + ", avgLatency=" + (executed > 0 ? totalLatency / executed : 0)
+                    + "ms, maxLatency=" + maxLatency + "ms";
+        }
+
+        /**
+         * Schedules the next job of the given dSM, if there is one and none of
+         * its jobs is scheduled or running. Must be called while holding the
+         * monitor of this executor.
+         */
+        private void schedule(final CircuitJobQueue queue, long delay) {
+            if (scheduler == null || queue.busy || queue.isEmpty()) {
+                return;
+            }
+            queue.busy = true;
+            final ScheduledExecutorService owner = scheduler;
+            scheduler.schedule(new Runnable() {
+                @Override
+                public void run() {
+                    runNext(queue, owner);
                 }
+            }, Math.max(0, delay), TimeUnit.MILLISECONDS);
+        }
 
-                try {
-                    sleep(this.sleepTime);
-                } catch (InterruptedException e) {
-                    this.shutdown();
-                    logger.error("InterruptedException in SensorJobExecutor Thread ... " + e.getStackTrace());
+        private void runNext(CircuitJobQueue queue, ScheduledExecutorService owner) {
+            SensorJob job;
+            synchronized (this) {
+                if (scheduler != owner) {
+                    return;
+                }
+                job = queue.poll();
+                if (job == null) {
+                    queue.busy = false;
+                    return;
+                }
+            }
+
+            long start = System.currentTimeMillis();
+            boolean success = false;
+            try {
+                executeJob(job);
+                success = true;
+            } catch (RuntimeException e) {
+                logger.error("Sensor job for dsid " + job.getDsid() + " failed", e);
+            } finally {
+                long latency = System.currentTimeMillis() - start;
+                synchronized (this) {
+                    executed++;
+                    if (!success) {
+                        failed++;
+                    }
+                    totalLatency += latency;
+                    maxLatency = Math.max(maxLatency, latency);
+
+                    queue.latency = queue.latency == 0 ? latency : (3 * queue.latency + latency) / 4;
+                    long pause = Math.min(maxPause, Math.max(MIN_PAUSE, queue.latency));
+                    queue.nextRun = System.currentTimeMillis() + pause;
+                    if (scheduler == owner) {
+                        queue.busy = false;
+                        schedule(queue, pause);
+                    }
                 }
             }
         }
 
-        public synchronized void shutdown() {
-            this.shutdown = true;
+        /**
+         * Executes a job on the thread of its dSM.
+         */
+        abstract void executeJob(SensorJob job);
+    }
+
+    /**
+     * The waiting sensor jobs of one dSM, guarded by the monitor of the
+     * {@link SensorJobExecutor}.
+     */
+    private static class CircuitJobQueue {
+
+        @SuppressWarnings("unchecked")
+        final Set<SensorJob>[] jobs = new Set[] { new LinkedHashSet<SensorJob>(), new LinkedHashSet<SensorJob>(),
+                new LinkedHashSet<SensorJob>() };
+
+        /** true while a job of this dSM is scheduled or running */
+        boolean busy = false;
+
+        /** earliest start of the next job */
+        long nextRun = 0;
+
+        /** smoothed response time of the last jobs in milliseconds */
+        long latency = 0;
+
+        boolean isEmpty() {
+            for (Set<SensorJob> set : jobs) {
+                if (!set.isEmpty()) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        SensorJob poll() {
+            for (Set<SensorJob> set : jobs) {
+                Iterator<SensorJob> iter = set.iterator();
+                if (iter.hasNext()) {
+                    SensorJob job = iter.next();
+                    iter.remove();
+                    return job;
+                }
+            }
+            return null;
         }
     }
 
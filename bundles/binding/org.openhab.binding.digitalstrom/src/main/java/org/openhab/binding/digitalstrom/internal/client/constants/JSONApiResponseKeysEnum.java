@@ -107,6 +107,7 @@ public enum JSONApiResponseKeysEnum {
     DEVICE_ZONE_ID("zoneID"),
     DEVICE_ZONE_ID_QUERY("ZoneID"),
     DEVICE_GROUPS("groups"),
+    DEVICE_METER_ID("meterDSID"),
 
     // DeviceSpec
     DEVICE_SPEC_FUNCTION_ID("functionID"),
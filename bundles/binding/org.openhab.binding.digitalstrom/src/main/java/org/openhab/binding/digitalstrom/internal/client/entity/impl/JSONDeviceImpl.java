@@ -41,6 +41,8 @@ public class JSONDeviceImpl implements Device {
 
     private int zoneId = 0;
 
+    private DSID meterDSID = null;
+
     private boolean isPresent = false;
 
     private boolean isOn = false;
@@ -101,6 +103,10 @@ public class JSONDeviceImpl implements Device {
                     .equals("true");
         }
 
+        if (object.get(JSONApiResponseKeysEnum.DEVICE_METER_ID.getKey()) != null) {
+            this.meterDSID = new DSID(object.get(JSONApiResponseKeysEnum.DEVICE_METER_ID.getKey()).toString());
+        }
+
         String zoneStr = null;
         if (object.get(JSONApiResponseKeysEnum.DEVICE_ZONE_ID.getKey()) != null) {
             zoneStr = object.get(JSONApiResponseKeysEnum.DEVICE_ZONE_ID.getKey()).toString();
@@ -198,6 +204,11 @@ public class JSONDeviceImpl implements Device {
         return zoneId;
     }
 
+    @Override
+    public DSID getMeterDSID() {
+        return meterDSID;
+    }
+
     @Override
     public boolean isPresent() {
         return isPresent;
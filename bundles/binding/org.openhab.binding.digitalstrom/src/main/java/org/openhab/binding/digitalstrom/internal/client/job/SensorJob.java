@@ -19,6 +19,11 @@ import org.openhab.binding.digitalstrom.internal.client.entity.DSID;
 public interface SensorJob {
     public DSID getDsid();
 
+    /**
+     * @return dsid of the dSM which answers this job or null, if unknown
+     */
+    public DSID getMeterDSID();
+
     public void execute(DigitalSTROMAPI digitalSTROM, String token);
 
 }
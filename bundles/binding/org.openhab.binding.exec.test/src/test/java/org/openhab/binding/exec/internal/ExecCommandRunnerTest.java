@@ -0,0 +1,221 @@
+/**
+ * Copyright (c) 2010-2016 by the respective copyright holders.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.binding.exec.internal;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.commons.exec.ExecuteWatchdog;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.openhab.binding.exec.internal.ExecCommandRunner.ResponseListener;
+
+import junit.framework.Assert;
+
+/**
+ * Runs the command lines in a stub instead of a process, so the tests don't
+ * depend on the platform or on timing.
+ *
+ * @author Thomas.Eichstaedt-Engelen
+ * @since 1.9.0
+ */
+public class ExecCommandRunnerTest {
+
+    private static final int MAX_PROCESSES = 4;
+
+    private ExecCommandRunner runner;
+
+    private List<String> responses;
+
+    private CountDownLatch done;
+
+    /** counted down by every command line which is executed */
+    private CountDownLatch started;
+
+    /** the command lines wait for it before they return */
+    private CountDownLatch release;
+
+    private AtomicInteger executions;
+
+    @Before
+    public void init() {
+        responses = new CopyOnWriteArrayList<String>();
+        started = new CountDownLatch(MAX_PROCESSES);
+        release = new CountDownLatch(0);
+        executions = new AtomicInteger();
+        runner = new ExecCommandRunner(MAX_PROCESSES) {
+
+            @Override
+            String executeCommandLine(String commandLine, ExecuteWatchdog watchdog) throws Exception {
+                executions.incrementAndGet();
+                started.countDown();
+                if (!release.await(10, TimeUnit.SECONDS)) {
+                    return null;
+                }
+                if (commandLine.startsWith("fail")) {
+                    throw new IllegalStateException(commandLine);
+                }
+                return commandLine.substring(commandLine.indexOf(' ') + 1);
+            }
+        };
+    }
+
+    @After
+    public void shutdown() {
+        runner.shutdown();
+    }
+
+    @Test
+    public void testCommandsRunInParallel() throws InterruptedException {
+        // every command waits until all of them have been started
+        release = started;
+        done = new CountDownLatch(MAX_PROCESSES);
+        for (int i = 0; i < MAX_PROCESSES; i++) {
+            runner.execute("echo", "echo " + i, 5000, listener);
+        }
+
+        Assert.assertTrue(done.await(10, TimeUnit.SECONDS));
+        Assert.assertEquals(MAX_PROCESSES, responses.size());
+        Assert.assertFalse(responses.contains("null"));
+    }
+
+    @Test
+    public void testRunningCommandIsNotStartedAgain() throws InterruptedException {
+        started = new CountDownLatch(1);
+        release = new CountDownLatch(1);
+        done = new CountDownLatch(2);
+        runner.execute("echo", "echo 42", 5000, listener);
+        Assert.assertTrue(started.await(10, TimeUnit.SECONDS));
+        runner.execute("echo", "echo 42", 5000, listener);
+        release.countDown();
+
+        Assert.assertTrue(done.await(10, TimeUnit.SECONDS));
+        Assert.assertEquals(1, executions.get());
+        Assert.assertEquals("42", responses.get(0));
+        Assert.assertEquals("42", responses.get(1));
+    }
+
+    @Test
+    public void testCompletedCommandIsStartedAgain() throws InterruptedException {
+        done = new CountDownLatch(1);
+        runner.execute("echo", "echo 42", 5000, listener);
+        Assert.assertTrue(done.await(10, TimeUnit.SECONDS));
+
+        done = new CountDownLatch(1);
+        runner.execute("echo", "echo 42", 5000, listener);
+        Assert.assertTrue(done.await(10, TimeUnit.SECONDS));
+
+        Assert.assertEquals(2, executions.get());
+        Assert.assertEquals(2, responses.size());
+    }
+
+    @Test
+    public void testFailedCommandRespondsNull() throws InterruptedException {
+        done = new CountDownLatch(1);
+        runner.execute("fail", "fail 42", 5000, listener);
+
+        Assert.assertTrue(done.await(10, TimeUnit.SECONDS));
+        Assert.assertEquals("null", responses.get(0));
+    }
+
+    @Test
+    public void testCommandIsDroppedAfterShutdown() {
+        done = new CountDownLatch(1);
+        runner.shutdown();
+        runner.execute("echo", "echo 42", 5000, listener);
+
+        Assert.assertEquals(0, executions.get());
+        // the listener is told right away, so the item isn't left pending
+        Assert.assertEquals(0, done.getCount());
+        Assert.assertEquals("null", responses.get(0));
+    }
+
+    @Test
+    public void testTimedOutCommandRespondsPartialOutput() throws InterruptedException {
+        runner.shutdown();
+        runner = new ExecCommandRunner(MAX_PROCESSES) {
+
+            @Override
+            String executeCommandLine(String commandLine, ExecuteWatchdog watchdog) throws Exception {
+                // the watchdog kills the process before it has written all of its output
+                StubProcess process = new StubProcess();
+                watchdog.start(process);
+                process.awaitDestroy();
+                return "partial";
+            }
+        };
+        done = new CountDownLatch(1);
+        runner.execute("sleep", "sleep 42", 100, listener);
+
+        Assert.assertTrue(done.await(10, TimeUnit.SECONDS));
+        Assert.assertEquals("partial", responses.get(0));
+        Assert.assertTrue(runner.getStatistics(), runner.getStatistics().contains("timeouts=1"));
+    }
+
+    /**
+     * A process which runs until it is destroyed.
+     */
+    private static class StubProcess extends Process {
+
+        private final CountDownLatch destroyed = new CountDownLatch(1);
+
+        void awaitDestroy() throws InterruptedException {
+            Assert.assertTrue(destroyed.await(10, TimeUnit.SECONDS));
+        }
+
+        @Override
+        public OutputStream getOutputStream() {
+            return null;
+        }
+
+        @Override
+        public InputStream getInputStream() {
+            return null;
+        }
+
+        @Override
+        public InputStream getErrorStream() {
+            return null;
+        }
+
+        @Override
+        public int waitFor() throws InterruptedException {
+            destroyed.await();
+            return exitValue();
+        }
+
+        @Override
+        public int exitValue() {
+            if (destroyed.getCount() > 0) {
+                throw new IllegalThreadStateException("process hasn't exited");
+            }
+            return 143;
+        }
+
+        @Override
+        public void destroy() {
+            destroyed.countDown();
+        }
+    }
+
+    private final ResponseListener listener = new ResponseListener() {
+
+        @Override
+        public void responseReceived(String response) {
+            responses.add(String.valueOf(response));
+            done.countDown();
+        }
+    };
+}
@@ -8,26 +8,20 @@
  */
 package org.openhab.binding.exec.internal;
 
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.util.Arrays;
 import java.util.Calendar;
 import java.util.Dictionary;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
-import org.apache.commons.exec.CommandLine;
-import org.apache.commons.exec.DefaultExecuteResultHandler;
-import org.apache.commons.exec.DefaultExecutor;
-import org.apache.commons.exec.ExecuteException;
-import org.apache.commons.exec.ExecuteWatchdog;
-import org.apache.commons.exec.Executor;
-import org.apache.commons.exec.PumpStreamHandler;
 import org.apache.commons.lang.StringUtils;
 import org.openhab.binding.exec.ExecBindingProvider;
+import org.openhab.binding.exec.internal.ExecCommandRunner.ResponseListener;
 import org.openhab.core.binding.AbstractActiveBinding;
 import org.openhab.core.library.types.StringType;
 import org.openhab.core.transform.TransformationException;
@@ -69,7 +63,15 @@ public class ExecBinding extends AbstractActiveBinding<ExecBindingProvider>imple
     /** the interval to find new refresh candidates (defaults to 1000 milliseconds) */
     private int granularity = 1000;
 
-    private Map<String, Long> lastUpdateMap = new HashMap<String, Long>();
+    /** the maximum number of commands running at the same time (defaults to 4) */
+    private int maxProcesses = 4;
+
+    private Map<String, Long> lastUpdateMap = new ConcurrentHashMap<String, Long>();
+
+    /** items whose command is running and the listener waiting for its response */
+    private ConcurrentMap<String, ItemUpdater> pendingItems = new ConcurrentHashMap<String, ItemUpdater>();
+
+    private ExecCommandRunner commandRunner;
 
     /** RegEx to extract a parse a function String <code>'(.*?)\((.*)\)'</code> */
     private static final Pattern EXTRACT_FUNCTION_PATTERN = Pattern.compile("(.*?)\\((.*)\\)");
@@ -90,8 +92,35 @@ public class ExecBinding extends AbstractActiveBinding<ExecBindingProvider>imple
         setProperlyConfigured(true);
     }
 
+    @Override
+    public void deactivate() {
+        super.deactivate();
+        stopCommandRunner();
+    }
+
+    /**
+     * Stops the running commands and drops the waiting ones. Their items are
+     * no longer pending, so the next refresh starts them again.
+     */
+    private void stopCommandRunner() {
+        synchronized (this) {
+            if (commandRunner != null) {
+                logger.debug("Exec statistics: {}", commandRunner.getStatistics());
+                commandRunner.shutdown();
+                commandRunner = null;
+            }
+        }
+        pendingItems.clear();
+    }
+
+    /**
+     * Starts the command lines of all items which are due for a refresh. The
+     * commands run in parallel, an item is not refreshed again while its
+     * command is still running.
+     */
     @Override
     public void execute() {
+        ExecCommandRunner runner = getCommandRunner();
         for (ExecBindingProvider provider : providers) {
             for (String itemName : provider.getInBindingItemNames()) {
 
@@ -108,39 +137,81 @@ public class ExecBinding extends AbstractActiveBinding<ExecBindingProvider>imple
                 long age = System.currentTimeMillis() - lastUpdateTimeStamp;
                 boolean needsUpdate = age >= refreshInterval;
 
-                if (needsUpdate) {
+                if (needsUpdate && !pendingItems.containsKey(itemName)) {
 
                     logger.debug("item '{}' is about to be refreshed now", itemName);
 
-                    commandLine = String.format(commandLine, Calendar.getInstance().getTime(), "", itemName);
-
-                    String response = executeCommandAndWaitResponse(commandLine);
-
-                    if (response == null) {
-                        logger.error("No response received from command '{}'", commandLine);
-                        lastUpdateMap.put(itemName, System.currentTimeMillis());
-                        continue;
+                    String formattedCommandLine = commandLine;
+                    if (commandLine.indexOf('%') >= 0) {
+                        formattedCommandLine = String.format(commandLine, Calendar.getInstance().getTime(), "",
+                                itemName);
                     }
 
-                    String transformedResponse = response;
-                    // If transformation is needed
-                    if (transformation.length() > 0) {
-                        transformedResponse = transformResponse(response, transformation);
+                    ItemUpdater updater = new ItemUpdater(provider, itemName, formattedCommandLine, transformation);
+                    if (pendingItems.putIfAbsent(itemName, updater) == null) {
+                        runner.execute(commandLine, formattedCommandLine, timeout, updater);
                     }
+                }
+            }
+        }
+    }
 
-                    List<Class<? extends State>> acceptedDataTypes = provider.getAcceptedDataTypes(itemName);
-                    State state = null;
-                    if (acceptedDataTypes != null) {
-                        state = TypeParser.parseState(acceptedDataTypes, transformedResponse);
-                    }
-                    if (state != null) {
-                        eventPublisher.postUpdate(itemName, state);
-                    } else {
-                        logger.debug("Couldn't create state for value '{}'", transformedResponse);
-                    }
+    private synchronized ExecCommandRunner getCommandRunner() {
+        if (commandRunner == null) {
+            commandRunner = new ExecCommandRunner(maxProcesses);
+        }
+        return commandRunner;
+    }
+
+    /**
+     * Posts the response of a command as the new state of an item.
+     */
+    private class ItemUpdater implements ResponseListener {
+
+        private final ExecBindingProvider provider;
+
+        private final String itemName;
+
+        private final String commandLine;
 
-                    lastUpdateMap.put(itemName, System.currentTimeMillis());
+        private final String transformation;
+
+        public ItemUpdater(ExecBindingProvider provider, String itemName, String commandLine,
+                String transformation) {
+            this.provider = provider;
+            this.itemName = itemName;
+            this.commandLine = commandLine;
+            this.transformation = transformation;
+        }
+
+        @Override
+        public void responseReceived(String response) {
+            try {
+                if (response == null) {
+                    logger.error("No response received from command '{}'", commandLine);
+                    return;
+                }
+
+                String transformedResponse = response;
+                // If transformation is needed
+                if (transformation.length() > 0) {
+                    transformedResponse = transformResponse(response, transformation);
                 }
+
+                List<Class<? extends State>> acceptedDataTypes = provider.getAcceptedDataTypes(itemName);
+                State state = null;
+                if (acceptedDataTypes != null) {
+                    state = TypeParser.parseState(acceptedDataTypes, transformedResponse);
+                }
+                if (state != null) {
+                    eventPublisher.postUpdate(itemName, state);
+                } else {
+                    logger.debug("Couldn't create state for value '{}'", transformedResponse);
+                }
+            } finally {
+                lastUpdateMap.put(itemName, System.currentTimeMillis());
+                // a command of a stopped runner must not release the command started by the next runner
+                pendingItems.remove(itemName, this);
             }
         }
     }
@@ -298,75 +369,6 @@ public class ExecBinding extends AbstractActiveBinding<ExecBindingProvider>imple
         }
     }
 
-    /**
-     * <p>
-     * Executes <code>commandLine</code>. Sometimes (especially observed on
-     * MacOS) the commandLine isn't executed properly. In that cases another
-     * exec-method is to be used. To accomplish this please use the special
-     * delimiter '<code>@@</code>'. If <code>commandLine</code> contains this
-     * delimiter it is split into a String[] array and the special exec-method
-     * is used.
-     * </p>
-     * <p>
-     * A possible {@link IOException} gets logged but no further processing is
-     * done.
-     * </p>
-     *
-     * @param commandLine the command line to execute
-     * @return response data from executed command line
-     */
-    private String executeCommandAndWaitResponse(String commandLine) {
-        String retval = null;
-
-        CommandLine cmdLine = null;
-
-        if (commandLine.contains(CMD_LINE_DELIMITER)) {
-            String[] cmdArray = commandLine.split(CMD_LINE_DELIMITER);
-            cmdLine = new CommandLine(cmdArray[0]);
-
-            for (int i = 1; i < cmdArray.length; i++) {
-                cmdLine.addArgument(cmdArray[i], false);
-            }
-        } else {
-            cmdLine = CommandLine.parse(commandLine);
-        }
-
-        DefaultExecuteResultHandler resultHandler = new DefaultExecuteResultHandler();
-
-        ExecuteWatchdog watchdog = new ExecuteWatchdog(timeout);
-        Executor executor = new DefaultExecutor();
-
-        ByteArrayOutputStream stdout = new ByteArrayOutputStream();
-        PumpStreamHandler streamHandler = new PumpStreamHandler(stdout);
-
-        executor.setExitValue(1);
-        executor.setStreamHandler(streamHandler);
-        executor.setWatchdog(watchdog);
-
-        try {
-            executor.execute(cmdLine, resultHandler);
-            logger.debug("executed commandLine '{}'", commandLine);
-        } catch (ExecuteException e) {
-            logger.error("couldn't execute commandLine '" + commandLine + "'", e);
-        } catch (IOException e) {
-            logger.error("couldn't execute commandLine '" + commandLine + "'", e);
-        }
-
-        // some time later the result handler callback was invoked so we
-        // can safely request the exit code
-        try {
-            resultHandler.waitFor();
-            int exitCode = resultHandler.getExitValue();
-            retval = StringUtils.chomp(stdout.toString());
-            logger.debug("exit code '{}', result '{}'", exitCode, retval);
-
-        } catch (InterruptedException e) {
-            logger.error("Timeout occured when executing commandLine '" + commandLine + "'", e);
-        }
-
-        return retval;
-    }
-
     @Override
     @SuppressWarnings("rawtypes")
     public void updated(Dictionary config) throws ConfigurationException {
@@ -381,6 +383,14 @@ public class ExecBinding extends AbstractActiveBinding<ExecBindingProvider>imple
             if (StringUtils.isNotBlank(granularityString)) {
                 granularity = Integer.parseInt(granularityString);
             }
+
+            String maxProcessesString = (String) config.get("maxProcesses");
+            if (StringUtils.isNotBlank(maxProcessesString)) {
+                maxProcesses = Integer.parseInt(maxProcessesString);
+            }
+
+            // the new maxProcesses applies to the next runner
+            stopCommandRunner();
         }
 
     }
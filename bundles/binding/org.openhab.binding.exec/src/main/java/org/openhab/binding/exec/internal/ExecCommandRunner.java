@@ -0,0 +1,310 @@
+/**
+ * Copyright (c) 2010-2016 by the respective copyright holders.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.binding.exec.internal;
+
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.commons.exec.CommandLine;
+import org.apache.commons.exec.DefaultExecutor;
+import org.apache.commons.exec.ExecuteWatchdog;
+import org.apache.commons.exec.Executor;
+import org.apache.commons.exec.PumpStreamHandler;
+import org.apache.commons.lang.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Runs the command lines of the Exec binding on a fixed number of threads.
+ *
+ * Every run is killed when it exceeds its timeout, so a hanging command only
+ * blocks one thread for that time. A command line is never started again
+ * while it is still running, further requests for it receive the response of
+ * the running command instead. Parsed command lines are cached.
+ *
+ * @author Thomas.Eichstaedt-Engelen
+ * @since 1.9.0
+ */
+public class ExecCommandRunner {
+
+    private static final Logger logger = LoggerFactory.getLogger(ExecCommandRunner.class);
+
+    private static final String CMD_LINE_DELIMITER = "@@";
+
+    /** Maximum number of parsed command lines which are cached */
+    private static final int MAX_CACHED_COMMAND_LINES = 256;
+
+    /**
+     * Receives the response of a command line.
+     */
+    public interface ResponseListener {
+
+        /**
+         * @param response the output of the command, or <code>null</code> if
+         *            it couldn't be executed. A command which timed out
+         *            responds with the output it wrote before it was killed.
+         */
+        void responseReceived(String response);
+    }
+
+    private final ExecutorService executor;
+
+    private final Map<String, Run> runs = new HashMap<String, Run>();
+
+    private final Map<String, CommandStatistics> statistics = new LinkedHashMap<String, CommandStatistics>();
+
+    private final Map<String, CommandLine> parsedCommandLines = new LinkedHashMap<String, CommandLine>(16, 0.75f,
+            true) {
+
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, CommandLine> eldest) {
+            return size() > MAX_CACHED_COMMAND_LINES;
+        }
+    };
+
+    public ExecCommandRunner(int maxProcesses) {
+        final AtomicInteger threadCount = new AtomicInteger();
+        executor = Executors.newFixedThreadPool(Math.max(1, maxProcesses), new ThreadFactory() {
+
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread thread = new Thread(r, "Exec runner-" + threadCount.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+    }
+
+    /**
+     * Runs a command line unless it is already running.
+     *
+     * @param name the name the runtime of the command is reported for, usually
+     *            the configured command line
+     * @param commandLine the command line to execute
+     * @param timeout the time in milliseconds after which the command is killed
+     * @param listener receives the output of the command, or <code>null</code>
+     *            if the runner has been shut down
+     */
+    public void execute(String name, final String commandLine, final int timeout, ResponseListener listener) {
+        synchronized (this) {
+            CommandStatistics commandStatistics = getCommandStatistics(name);
+
+            Run run = runs.get(commandLine);
+            if (run != null) {
+                commandStatistics.coalesced++;
+                run.listeners.add(listener);
+                logger.debug("commandLine '{}' is still running", commandLine);
+                return;
+            }
+
+            final Run newRun = new Run(commandLine, commandStatistics);
+            newRun.listeners.add(listener);
+            try {
+                executor.execute(new Runnable() {
+
+                    @Override
+                    public void run() {
+                        execute(newRun, timeout);
+                    }
+                });
+                runs.put(commandLine, newRun);
+                return;
+            } catch (RejectedExecutionException e) {
+                logger.debug("Exec runner has been shut down, dropping commandLine '{}'", commandLine);
+            }
+        }
+
+        // the listener is called outside the lock, just like for a completed run
+        notifyListener(listener, commandLine, null);
+    }
+
+    /**
+     * Returns the number of runs, timeouts and the runtime of every command.
+     */
+    public synchronized String getStatistics() {
+        StringBuilder sb = new StringBuilder();
+        for (Map.Entry<String, CommandStatistics> entry : statistics.entrySet()) {
+            sb.append("\n'").append(entry.getKey()).append("': ").append(entry.getValue());
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Stops the runner. Running commands are interrupted, waiting commands are
+     * dropped.
+     */
+    public void shutdown() {
+        executor.shutdownNow();
+        synchronized (this) {
+            runs.clear();
+        }
+    }
+
+    private CommandStatistics getCommandStatistics(String name) {
+        CommandStatistics commandStatistics = statistics.get(name);
+        if (commandStatistics == null) {
+            commandStatistics = new CommandStatistics();
+            statistics.put(name, commandStatistics);
+        }
+        return commandStatistics;
+    }
+
+    private void execute(Run run, int timeout) {
+        long start = System.currentTimeMillis();
+        ExecuteWatchdog watchdog = new ExecuteWatchdog(timeout);
+        String response = null;
+        boolean failed = false;
+        try {
+            response = executeCommandLine(run.commandLine, watchdog);
+            logger.debug("executed commandLine '{}'", run.commandLine);
+        } catch (Exception e) {
+            failed = true;
+            logger.error("couldn't execute commandLine '" + run.commandLine + "'", e);
+        }
+        long time = System.currentTimeMillis() - start;
+
+        boolean timedOut = watchdog.killedProcess();
+        if (timedOut) {
+            logger.warn("Timeout occured when executing commandLine '{}'", run.commandLine);
+        }
+
+        List<ResponseListener> listeners;
+        synchronized (this) {
+            CommandStatistics commandStatistics = run.statistics;
+            commandStatistics.runs++;
+            commandStatistics.totalTime += time;
+            commandStatistics.lastTime = time;
+            commandStatistics.maxTime = Math.max(commandStatistics.maxTime, time);
+            if (timedOut) {
+                commandStatistics.timeouts++;
+            }
+            if (failed) {
+                commandStatistics.failures++;
+            }
+            runs.remove(run.commandLine);
+            listeners = new ArrayList<ResponseListener>(run.listeners);
+            logger.debug("commandLine '{}' took {} ms ({})", run.commandLine, time, commandStatistics);
+        }
+
+        for (ResponseListener listener : listeners) {
+            notifyListener(listener, run.commandLine, response);
+        }
+    }
+
+    private void notifyListener(ResponseListener listener, String commandLine, String response) {
+        try {
+            listener.responseReceived(response);
+        } catch (RuntimeException e) {
+            logger.error("Unable to process the response of commandLine '" + commandLine + "'", e);
+        }
+    }
+
+    /**
+     * Executes <code>commandLine</code> on the calling thread and returns its
+     * output. The exit value of the command is ignored.
+     */
+    String executeCommandLine(String commandLine, ExecuteWatchdog watchdog) throws Exception {
+        return executeCommandAndWaitResponse(getCommandLine(commandLine), watchdog);
+    }
+
+    private String executeCommandAndWaitResponse(CommandLine cmdLine, ExecuteWatchdog watchdog) throws Exception {
+        Executor executor = new DefaultExecutor();
+
+        ByteArrayOutputStream stdout = new ByteArrayOutputStream();
+        PumpStreamHandler streamHandler = new PumpStreamHandler(stdout);
+
+        executor.setExitValues(null);
+        executor.setStreamHandler(streamHandler);
+        executor.setWatchdog(watchdog);
+
+        int exitCode = executor.execute(cmdLine);
+        String retval = StringUtils.chomp(stdout.toString());
+        logger.debug("exit code '{}', result '{}'", exitCode, retval);
+        return retval;
+    }
+
+    /**
+     * Returns the parsed command line. Sometimes (especially observed on MacOS)
+     * the commandLine isn't executed properly. In that cases the special
+     * delimiter '<code>@@</code>' can be used to split the command line into
+     * its arguments.
+     */
+    private synchronized CommandLine getCommandLine(String commandLine) {
+        CommandLine cmdLine = parsedCommandLines.get(commandLine);
+        if (cmdLine == null) {
+            if (commandLine.contains(CMD_LINE_DELIMITER)) {
+                String[] cmdArray = commandLine.split(CMD_LINE_DELIMITER);
+                cmdLine = new CommandLine(cmdArray[0]);
+
+                for (int i = 1; i < cmdArray.length; i++) {
+                    cmdLine.addArgument(cmdArray[i], false);
+                }
+            } else {
+                cmdLine = CommandLine.parse(commandLine);
+            }
+            parsedCommandLines.put(commandLine, cmdLine);
+        }
+        return cmdLine;
+    }
+
+    /**
+     * A running command line and the listeners waiting for its response.
+     */
+    private static class Run {
+
+        private final String commandLine;
+
+        private final CommandStatistics statistics;
+
+        private final List<ResponseListener> listeners = new ArrayList<ResponseListener>(1);
+
+        public Run(String commandLine, CommandStatistics statistics) {
+            this.commandLine = commandLine;
+            this.statistics = statistics;
+        }
+    }
+
+    /**
+     * The runtime of a command, guarded by the runner.
+     */
+    private static class CommandStatistics {
+
+        private long runs;
+
+        private long timeouts;
+
+        private long failures;
+
+        private long coalesced;
+
+        private long totalTime;
+
+        private long lastTime;
+
+        private long maxTime;
+
+        @Override
+        public String toString() {
+            return "runs=" + runs + ", timeouts=" + timeouts + ", failures=" + failures + ", coalesced=" + coalesced
+                    + ", avgTime=" + (runs == 0 ? 0 : totalTime / runs) + " ms, lastTime=" + lastTime + " ms, maxTime="
+                    + maxTime + " ms";
+        }
+    }
+}
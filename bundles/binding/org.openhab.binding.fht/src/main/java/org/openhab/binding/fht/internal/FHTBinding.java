@@ -33,6 +33,7 @@ import org.openhab.io.transport.cul.CULLifecycleListener;
 import org.openhab.io.transport.cul.CULLifecycleManager;
 import org.openhab.io.transport.cul.CULListener;
 import org.openhab.io.transport.cul.CULMode;
+import org.openhab.io.transport.cul.CULPriority;
 import org.osgi.service.cm.ConfigurationException;
 import org.osgi.service.cm.ManagedService;
 import org.quartz.CronScheduleBuilder;
@@ -557,6 +558,14 @@ public class FHTBinding extends AbstractActiveBinding<FHTBindingProvider>impleme
                 new WriteRegisterCommand("60", Utils.convertDecimalStringToHexString(rawDateValues[4])));
     }
 
+    /**
+     * Writes a register with low priority, a write which is still waiting for
+     * transmit credit is replaced by this one.
+     *
+     * @param device
+     * @param register
+     * @param value
+     */
     private void writeRegister(String device, String register, String value) {
         StringBuffer sendBuffer = new StringBuffer(8);
         sendBuffer.append('F');
@@ -564,7 +573,7 @@ public class FHTBinding extends AbstractActiveBinding<FHTBindingProvider>impleme
         sendBuffer.append(register); // register to write
         sendBuffer.append(value);
         try {
-            culHandlerLifecycle.getCul().send(sendBuffer.toString());
+            culHandlerLifecycle.getCul().send(sendBuffer.toString(), CULPriority.LOW);
         } catch (CULCommunicationException e) {
             logger.error("Error while writing register " + register + " on device " + device);
         }
@@ -572,7 +581,8 @@ public class FHTBinding extends AbstractActiveBinding<FHTBindingProvider>impleme
 
     /**
      * It possible to chain up to 8 commands together to send to the CUL. Lists
-     * with more than 8 commands will be discarded silently.
+     * with more than 8 commands will be discarded silently. The commands are
+     * sent with low priority, like {@link #writeRegister(String, String, String)}.
      *
      * @param deviceAddress
      * @param commands
@@ -594,7 +604,7 @@ public class FHTBinding extends AbstractActiveBinding<FHTBindingProvider>impleme
             sendBuffer.append(command.value);
         }
         try {
-            culHandlerLifecycle.getCul().send(sendBuffer.toString());
+            culHandlerLifecycle.getCul().send(sendBuffer.toString(), CULPriority.LOW);
         } catch (CULCommunicationException e) {
             logger.error("Error while writing multiple write register commands to the CUL", e);
         }
@@ -0,0 +1,99 @@
+/**
+ * Copyright (c) 2010-2016 by the respective copyright holders.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.binding.homematic.test.binrpc;
+
+import java.io.ByteArrayInputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+import org.openhab.binding.homematic.internal.binrpc.BinRpcDecoder;
+import org.openhab.binding.homematic.internal.binrpc.BinRpcEventVisitor;
+import org.openhab.binding.homematic.internal.binrpc.BinRpcRequest;
+import org.openhab.binding.homematic.internal.binrpc.BinRpcResponse;
+
+import junit.framework.Assert;
+
+/**
+ * Testcases for encoding and decoding BIN-RPC messages.
+ *
+ * @author Gerhard Riegler
+ * @since 1.9.0
+ */
+public class BinRpcCodecTest {
+
+    @Test
+    public void testRoundTrip() throws Exception {
+        Map<String, Object> struct = new LinkedHashMap<String, Object>();
+        struct.put("VALUE", 21.5d);
+        struct.put("NAME", "K\u00fcche");
+
+        BinRpcRequest request = new BinRpcRequest("setValue");
+        request.addArg("KEQ0123456:1");
+        request.addArg(Integer.valueOf(-42));
+        request.addArg(Boolean.TRUE);
+        request.addArg(0.123456789d);
+        request.addArg(-3.0d);
+        request.addArg(Arrays.asList("a", "b"));
+        request.addArg(struct);
+
+        BinRpcResponse response = new BinRpcResponse(new ByteArrayInputStream(request.createMessage()), true);
+        Assert.assertEquals("setValue", response.getMethodName());
+
+        Object[] data = response.getResponseData();
+        Assert.assertEquals(7, data.length);
+        Assert.assertEquals("KEQ0123456:1", data[0]);
+        Assert.assertEquals(-42, data[1]);
+        Assert.assertEquals(Boolean.TRUE, data[2]);
+        Assert.assertEquals(0.123457d, data[3]);
+        Assert.assertEquals(-3.0d, data[4]);
+        Assert.assertTrue(Arrays.equals(new Object[] { "a", "b" }, (Object[]) data[5]));
+        Assert.assertEquals(struct, data[6]);
+    }
+
+    @Test
+    public void testMulticallEvents() throws Exception {
+        List<Object> calls = new ArrayList<Object>();
+        calls.add(createCall("event", "BidCos-RF", "KEQ0123456:1", "STATE", Boolean.TRUE));
+        calls.add(createCall("event", "BidCos-RF", "KEQ0123456:2", "LEVEL", 0.5d));
+        calls.add(createCall("newDevices", "BidCos-RF"));
+
+        BinRpcRequest request = new BinRpcRequest("system.multicall");
+        request.addArg(calls);
+
+        final List<String> received = new ArrayList<String>();
+        BinRpcDecoder decoder = new BinRpcDecoder(
+                BinRpcDecoder.readMessage(new ByteArrayInputStream(request.createMessage())));
+        String methodName = decoder.decodeMethodCall(new BinRpcEventVisitor() {
+            @Override
+            public void event(String interfaceId, String address, String attribute, Object value) {
+                received.add(interfaceId + " " + address + " " + attribute + "=" + value);
+            }
+
+            @Override
+            public void methodCall(String methodName, Object[] params) {
+                received.add(methodName + Arrays.toString(params));
+            }
+        });
+
+        Assert.assertEquals("system.multicall", methodName);
+        Assert.assertEquals(Arrays.asList("BidCos-RF KEQ0123456:1 STATE=true", "BidCos-RF KEQ0123456:2 LEVEL=0.5",
+                "newDevices[BidCos-RF]"), received);
+    }
+
+    private Map<String, Object> createCall(String methodName, Object... params) {
+        Map<String, Object> call = new LinkedHashMap<String, Object>();
+        call.put("methodName", methodName);
+        call.put("params", Arrays.asList(params));
+        return call;
+    }
+}
@@ -0,0 +1,106 @@
+/**
+ * Copyright (c) 2010-2016 by the respective copyright holders.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.binding.homematic.test.binrpc;
+
+import java.io.ByteArrayInputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+import org.openhab.binding.homematic.internal.binrpc.BinRpcDecoder;
+import org.openhab.binding.homematic.internal.binrpc.BinRpcEventVisitor;
+import org.openhab.binding.homematic.internal.binrpc.BinRpcRequest;
+import org.openhab.binding.homematic.internal.binrpc.BinRpcResponse;
+
+import junit.framework.Assert;
+
+/**
+ * Decodes a system.multicall with 50 events, as the CCU sends it after a
+ * burst of device activity, and prints the time per message of the streaming
+ * event decoder and of the generic decoder which builds the whole tree.
+ *
+ * @author Gerhard Riegler
+ * @since 1.9.0
+ */
+public class BinRpcDecoderBenchmarkTest {
+
+    private static final int EVENTS = 50;
+
+    private static final int WARMUP = 2000;
+
+    private static final int MESSAGES = 20000;
+
+    @Test
+    public void testDecodeMulticall() throws Exception {
+        byte[] message = createMulticall();
+        CountingVisitor visitor = new CountingVisitor();
+
+        for (int i = 0; i < WARMUP; i++) {
+            decodeEvents(message, visitor);
+            new BinRpcResponse(new ByteArrayInputStream(message), true);
+        }
+        visitor.events = 0;
+
+        long start = System.nanoTime();
+        for (int i = 0; i < MESSAGES; i++) {
+            decodeEvents(message, visitor);
+        }
+        long streaming = System.nanoTime() - start;
+        Assert.assertEquals(MESSAGES * EVENTS, visitor.events);
+
+        start = System.nanoTime();
+        for (int i = 0; i < MESSAGES; i++) {
+            BinRpcResponse response = new BinRpcResponse(new ByteArrayInputStream(message), true);
+            Assert.assertEquals(EVENTS, ((Object[]) response.getResponseData()[0]).length);
+        }
+        long generic = System.nanoTime() - start;
+
+        System.out.println("Decoding " + MESSAGES + " multicalls of " + EVENTS + " events (" + message.length
+                + " bytes): event decoder " + streaming / MESSAGES / 1000 + " us per message, generic decoder "
+                + generic / MESSAGES / 1000 + " us per message");
+    }
+
+    private static void decodeEvents(byte[] message, BinRpcEventVisitor visitor) throws Exception {
+        BinRpcDecoder decoder = new BinRpcDecoder(BinRpcDecoder.readMessage(new ByteArrayInputStream(message)));
+        decoder.decodeMethodCall(visitor);
+    }
+
+    private static byte[] createMulticall() {
+        List<Object> calls = new ArrayList<Object>();
+        for (int i = 0; i < EVENTS; i++) {
+            String address = "KEQ" + (1000000 + i / 4) + ":" + (i % 4 + 1);
+            Object value = i % 3 == 0 ? Boolean.valueOf(i % 2 == 0) : (i % 3 == 1 ? Double.valueOf(i / 10d) : i);
+            String attribute = i % 3 == 0 ? "STATE" : (i % 3 == 1 ? "LEVEL" : "RSSI_DEVICE");
+            Map<String, Object> call = new LinkedHashMap<String, Object>();
+            call.put("methodName", "event");
+            call.put("params", Arrays.asList("BidCos-RF", address, attribute, value));
+            calls.add(call);
+        }
+        BinRpcRequest request = new BinRpcRequest("system.multicall");
+        request.addArg(calls);
+        return request.createMessage();
+    }
+
+    private static class CountingVisitor implements BinRpcEventVisitor {
+        private int events;
+
+        @Override
+        public void event(String interfaceId, String address, String attribute, Object value) {
+            events++;
+        }
+
+        @Override
+        public void methodCall(String methodName, Object[] params) {
+            Assert.fail("unexpected method call " + methodName);
+        }
+    }
+}
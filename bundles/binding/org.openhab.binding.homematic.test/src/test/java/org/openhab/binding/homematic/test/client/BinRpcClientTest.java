@@ -0,0 +1,196 @@
+/**
+ * Copyright (c) 2010-2016 by the respective copyright holders.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.binding.homematic.test.client;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Test;
+import org.openhab.binding.homematic.internal.communicator.client.BinRpcClient;
+import org.openhab.binding.homematic.internal.communicator.client.BinRpcConnectionPool;
+import org.openhab.binding.homematic.internal.communicator.client.HomematicClientException;
+import org.openhab.binding.homematic.internal.model.HmInterface;
+
+import junit.framework.Assert;
+
+/**
+ * Testcases for combining concurrent setValue calls of the
+ * {@link BinRpcClient} into a system.multicall.
+ *
+ * @author Gerhard Riegler
+ * @since 1.9.0
+ */
+public class BinRpcClientTest {
+
+    private static final String SET_VALUE = "setValue";
+
+    private static final String MULTICALL = "system.multicall";
+
+    private final CountDownLatch firstSetValue = new CountDownLatch(1);
+
+    private final CountDownLatch release = new CountDownLatch(1);
+
+    private BinRpcTestServer server;
+
+    private BinRpcClient client;
+
+    @After
+    public void tearDown() throws Exception {
+        client.shutdown();
+        server.close();
+    }
+
+    @Test
+    public void testWaitingSetValuesAreCombined() throws Exception {
+        start(Arrays.asList("", "", ""));
+
+        List<SetValueThread> threads = sendWhileFirstIsPending(3);
+
+        Assert.assertEquals(Arrays.asList(SET_VALUE, MULTICALL), server.getMethodNames());
+        Object[] calls = (Object[]) server.getParams(1)[0];
+        Assert.assertEquals(3, calls.length);
+        for (int i = 0; i < calls.length; i++) {
+            Map<?, ?> call = (Map<?, ?>) calls[i];
+            Assert.assertEquals(SET_VALUE, call.get("methodName"));
+            Assert.assertEquals(threads.get(i + 1).address, ((Object[]) call.get("params"))[0]);
+        }
+        for (SetValueThread thread : threads) {
+            Assert.assertNull(thread.exception);
+        }
+    }
+
+    @Test
+    public void testFaultOfOneCallFailsOnlyThisSetValue() throws Exception {
+        start(Arrays.asList("", fault(-5, "Unknown paramset"), ""));
+
+        List<SetValueThread> threads = sendWhileFirstIsPending(3);
+
+        Assert.assertEquals(Arrays.asList(SET_VALUE, MULTICALL), server.getMethodNames());
+        Assert.assertNull(threads.get(1).exception);
+        Assert.assertNotNull(threads.get(2).exception);
+        Assert.assertTrue(threads.get(2).exception.getMessage().contains("Unknown paramset"));
+        Assert.assertNull(threads.get(3).exception);
+    }
+
+    @Test
+    public void testUnknownMulticallFallsBackToSingleSetValues() throws Exception {
+        start(fault(-32601, "Requested method not found"));
+
+        List<SetValueThread> threads = sendWhileFirstIsPending(3);
+
+        Assert.assertEquals(Arrays.asList(SET_VALUE, MULTICALL, SET_VALUE, SET_VALUE, SET_VALUE),
+                server.getMethodNames());
+        for (SetValueThread thread : threads) {
+            Assert.assertNull(thread.exception);
+        }
+    }
+
+    @Test
+    public void testOtherMulticallFaultFailsTheBatch() throws Exception {
+        start(fault(-1, "Failure"));
+
+        List<SetValueThread> threads = sendWhileFirstIsPending(3);
+
+        Assert.assertEquals(Arrays.asList(SET_VALUE, MULTICALL), server.getMethodNames());
+        Assert.assertNull(threads.get(0).exception);
+        for (SetValueThread thread : threads.subList(1, 4)) {
+            Assert.assertNotNull(thread.exception);
+            Assert.assertTrue(thread.exception.getMessage().contains("Failure"));
+        }
+    }
+
+    /**
+     * Starts a server which blocks the first setValue until the test releases
+     * it and answers a system.multicall with the given result.
+     */
+    private void start(final Object multicallResult) throws Exception {
+        server = new BinRpcTestServer(new BinRpcTestServer.Handler() {
+            @Override
+            public Object handle(String methodName, Object[] params) throws Exception {
+                if (MULTICALL.equals(methodName)) {
+                    return multicallResult;
+                }
+                if (firstSetValue.getCount() > 0) {
+                    firstSetValue.countDown();
+                    Assert.assertTrue(release.await(5, TimeUnit.SECONDS));
+                }
+                return "";
+            }
+        });
+        client = new BinRpcClient() {
+            @Override
+            protected BinRpcConnectionPool createConnectionPool(HmInterface hmInterface) {
+                return server.createConnectionPool(hmInterface);
+            }
+        };
+        client.start();
+    }
+
+    /**
+     * Sends a setValue and then the given number of further setValues while
+     * the first one waits for its answer.
+     */
+    private List<SetValueThread> sendWhileFirstIsPending(int waiting) throws Exception {
+        List<SetValueThread> threads = new ArrayList<SetValueThread>();
+        SetValueThread first = new SetValueThread("KEQ0000000:1");
+        first.start();
+        threads.add(first);
+        Assert.assertTrue(firstSetValue.await(5, TimeUnit.SECONDS));
+
+        for (int i = 1; i <= waiting; i++) {
+            SetValueThread thread = new SetValueThread("KEQ000000" + i + ":1");
+            thread.start();
+            threads.add(thread);
+            // the setValue is queued when the thread waits for the one in progress
+            long deadline = System.currentTimeMillis() + 5000;
+            while (thread.getState() != Thread.State.BLOCKED && System.currentTimeMillis() < deadline) {
+                Thread.sleep(1);
+            }
+            Assert.assertEquals(Thread.State.BLOCKED, thread.getState());
+        }
+
+        release.countDown();
+        for (SetValueThread thread : threads) {
+            thread.join(5000);
+            Assert.assertFalse(thread.isAlive());
+        }
+        return threads;
+    }
+
+    private static Map<String, Object> fault(int faultCode, String faultString) {
+        Map<String, Object> fault = new HashMap<String, Object>();
+        fault.put("faultCode", faultCode);
+        fault.put("faultString", faultString);
+        return fault;
+    }
+
+    private class SetValueThread extends Thread {
+        private final String address;
+        private HomematicClientException exception;
+
+        public SetValueThread(String address) {
+            this.address = address;
+        }
+
+        @Override
+        public void run() {
+            try {
+                client.setDatapointValue(HmInterface.RF, address, "STATE", Boolean.TRUE);
+            } catch (HomematicClientException e) {
+                exception = e;
+            }
+        }
+    }
+}
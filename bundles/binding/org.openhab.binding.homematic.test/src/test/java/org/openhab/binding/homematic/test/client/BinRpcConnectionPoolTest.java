@@ -0,0 +1,163 @@
+/**
+ * Copyright (c) 2010-2016 by the respective copyright holders.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.binding.homematic.test.client;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Test;
+import org.openhab.binding.homematic.internal.binrpc.BinRpcRequest;
+import org.openhab.binding.homematic.internal.binrpc.BinRpcResponse;
+import org.openhab.binding.homematic.internal.communicator.client.BinRpcConnectionPool;
+import org.openhab.binding.homematic.internal.model.HmInterface;
+
+import junit.framework.Assert;
+
+/**
+ * Testcases for reusing and renewing the connections of the
+ * {@link BinRpcConnectionPool}.
+ *
+ * @author Gerhard Riegler
+ * @since 1.9.0
+ */
+public class BinRpcConnectionPoolTest {
+
+    private BinRpcTestServer server;
+
+    private BinRpcConnectionPool pool;
+
+    @After
+    public void tearDown() throws IOException {
+        pool.close();
+        server.close();
+    }
+
+    @Test
+    public void testConnectionIsReused() throws Exception {
+        start(new BinRpcTestServer.Handler() {
+            @Override
+            public Object handle(String methodName, Object[] params) {
+                return params[0];
+            }
+        });
+
+        for (int i = 0; i < 3; i++) {
+            Assert.assertEquals("KEQ000000" + i, send("getDeviceDescription", "KEQ000000" + i).getResponseData()[0]);
+        }
+        Assert.assertEquals(1, server.getConnections());
+        Assert.assertTrue(pool.getStatistics().contains("requests=3, errors=0, reconnects=0"));
+    }
+
+    @Test
+    public void testRequestIsSentAgainIfWriteFails() throws Exception {
+        start(new BinRpcTestServer.Handler() {
+            @Override
+            public Object handle(String methodName, Object[] params) {
+                return "";
+            }
+        });
+
+        send("setValue", "KEQ0000001:1");
+        server.resetConnections();
+        Thread.sleep(100);
+        send("setValue", "KEQ0000001:1");
+
+        Assert.assertEquals(2, server.getMethodNames().size());
+        Assert.assertEquals(2, server.getConnections());
+        Assert.assertTrue(pool.getStatistics().contains("requests=2, errors=0, reconnects=1"));
+    }
+
+    @Test
+    public void testWrittenRequestIsNotSentAgain() throws Exception {
+        final AtomicInteger calls = new AtomicInteger();
+        start(new BinRpcTestServer.Handler() {
+            @Override
+            public Object handle(String methodName, Object[] params) {
+                return calls.incrementAndGet() == 2 ? BinRpcTestServer.CLOSE : "";
+            }
+        });
+
+        send("setValue", "KEQ0000001:1");
+        try {
+            send("setValue", "KEQ0000001:2");
+            Assert.fail("the connection was closed without an answer");
+        } catch (IOException e) {
+            // expected
+        }
+        Assert.assertEquals(2, server.getMethodNames().size());
+        Assert.assertEquals(1, server.getConnections());
+
+        // the next request opens a new connection
+        send("setValue", "KEQ0000001:3");
+        Assert.assertEquals(3, server.getMethodNames().size());
+        Assert.assertEquals(2, server.getConnections());
+        Assert.assertTrue(pool.getStatistics().contains("requests=3, errors=1, reconnects=0"));
+    }
+
+    @Test
+    public void testConcurrentRequestsShareTwoConnections() throws Exception {
+        final AtomicInteger running = new AtomicInteger();
+        final AtomicInteger maxRunning = new AtomicInteger();
+        start(new BinRpcTestServer.Handler() {
+            @Override
+            public Object handle(String methodName, Object[] params) throws InterruptedException {
+                int now = running.incrementAndGet();
+                synchronized (maxRunning) {
+                    maxRunning.set(Math.max(maxRunning.get(), now));
+                }
+                Thread.sleep(20);
+                running.decrementAndGet();
+                return "";
+            }
+        });
+
+        final List<Exception> errors = new ArrayList<Exception>();
+        List<Thread> threads = new ArrayList<Thread>();
+        for (int i = 0; i < 6; i++) {
+            Thread thread = new Thread() {
+                @Override
+                public void run() {
+                    try {
+                        for (int j = 0; j < 5; j++) {
+                            send("setValue", getName());
+                        }
+                    } catch (Exception e) {
+                        synchronized (errors) {
+                            errors.add(e);
+                        }
+                    }
+                }
+            };
+            threads.add(thread);
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join(10000);
+        }
+
+        Assert.assertTrue(errors.toString(), errors.isEmpty());
+        Assert.assertEquals(30, server.getMethodNames().size());
+        Assert.assertEquals(2, maxRunning.get());
+        Assert.assertEquals(2, server.getConnections());
+    }
+
+    private void start(BinRpcTestServer.Handler handler) throws IOException {
+        server = new BinRpcTestServer(handler);
+        pool = server.createConnectionPool(HmInterface.RF);
+    }
+
+    private BinRpcResponse send(String methodName, String address) throws Exception {
+        BinRpcRequest request = new BinRpcRequest(methodName);
+        request.addArg(address);
+        return pool.send(request);
+    }
+}
@@ -0,0 +1,161 @@
+/**
+ * Copyright (c) 2010-2016 by the respective copyright holders.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.binding.homematic.test.client;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.openhab.binding.homematic.internal.binrpc.BinRpcRequest;
+import org.openhab.binding.homematic.internal.binrpc.BinRpcResponse;
+import org.openhab.binding.homematic.internal.communicator.client.BinRpcConnectionPool;
+import org.openhab.binding.homematic.internal.model.HmInterface;
+
+/**
+ * A BIN-RPC server on the loopback interface which records the requests it
+ * receives and answers them with the results of a {@link Handler}.
+ *
+ * @author Gerhard Riegler
+ * @since 1.9.0
+ */
+public class BinRpcTestServer {
+
+    /**
+     * Returned by a Handler to close the connection without answering the request.
+     */
+    public static final Object CLOSE = new Object();
+
+    /**
+     * Answers the requests received by the server.
+     */
+    public interface Handler {
+        Object handle(String methodName, Object[] params) throws Exception;
+    }
+
+    private final ServerSocket serverSocket;
+    private final Handler handler;
+    private final List<String> methodNames = new ArrayList<String>();
+    private final List<Object[]> params = new ArrayList<Object[]>();
+    private final List<Socket> sockets = new ArrayList<Socket>();
+
+    public BinRpcTestServer(Handler handler) throws IOException {
+        this.handler = handler;
+        serverSocket = new ServerSocket(0, 10, InetAddress.getLoopbackAddress());
+        Thread acceptor = new Thread("BinRpcTestServer") {
+            @Override
+            public void run() {
+                try {
+                    while (true) {
+                        final Socket socket = serverSocket.accept();
+                        synchronized (BinRpcTestServer.this) {
+                            sockets.add(socket);
+                        }
+                        Thread connection = new Thread("BinRpcTestServer connection") {
+                            @Override
+                            public void run() {
+                                serve(socket);
+                            }
+                        };
+                        connection.setDaemon(true);
+                        connection.start();
+                    }
+                } catch (IOException e) {
+                    // server closed
+                }
+            }
+        };
+        acceptor.setDaemon(true);
+        acceptor.start();
+    }
+
+    /**
+     * Creates a pool of connections to this server.
+     */
+    public BinRpcConnectionPool createConnectionPool(HmInterface hmInterface) {
+        return new BinRpcConnectionPool(hmInterface) {
+            @Override
+            protected Socket openSocket() throws IOException {
+                Socket socket = new Socket(serverSocket.getInetAddress(), serverSocket.getLocalPort());
+                socket.setSoTimeout(5000);
+                return socket;
+            }
+        };
+    }
+
+    /**
+     * Returns the names of the received methods in the order they were received.
+     */
+    public synchronized List<String> getMethodNames() {
+        return new ArrayList<String>(methodNames);
+    }
+
+    /**
+     * Returns the parameters of the request with the given index.
+     */
+    public synchronized Object[] getParams(int index) {
+        return params.get(index);
+    }
+
+    /**
+     * Returns the number of connections accepted so far.
+     */
+    public synchronized int getConnections() {
+        return sockets.size();
+    }
+
+    /**
+     * Resets all open connections, as a server does which drops idle connections.
+     */
+    public synchronized void resetConnections() throws IOException {
+        for (Socket socket : sockets) {
+            if (!socket.isClosed()) {
+                socket.setSoLinger(true, 0);
+                socket.close();
+            }
+        }
+    }
+
+    public synchronized void close() throws IOException {
+        serverSocket.close();
+        for (Socket socket : sockets) {
+            socket.close();
+        }
+    }
+
+    private void serve(Socket socket) {
+        try {
+            InputStream in = socket.getInputStream();
+            while (true) {
+                BinRpcResponse request = new BinRpcResponse(in, true);
+                synchronized (this) {
+                    methodNames.add(request.getMethodName());
+                    params.add(request.getResponseData());
+                }
+                Object result = handler.handle(request.getMethodName(), request.getResponseData());
+                if (result == CLOSE) {
+                    socket.close();
+                    return;
+                }
+                BinRpcRequest response = new BinRpcRequest(null);
+                response.addArg(result);
+                socket.getOutputStream().write(response.createMessage());
+            }
+        } catch (Exception e) {
+            try {
+                socket.close();
+            } catch (IOException ex) {
+                // ignore
+            }
+        }
+    }
+}
@@ -0,0 +1,279 @@
+/**
+ * Copyright (c) 2010-2016 by the respective copyright holders.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.binding.homematic.test.server;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.lang.reflect.FieldUtils;
+import org.junit.After;
+import org.junit.Test;
+import org.openhab.binding.homematic.internal.common.HomematicContext;
+import org.openhab.binding.homematic.internal.communicator.HomematicCallbackReceiver;
+import org.openhab.binding.homematic.internal.communicator.server.BinRpcEventDispatcher;
+
+import junit.framework.Assert;
+
+/**
+ * Testcases for the order, conflation and batching of the events passed by
+ * the {@link BinRpcEventDispatcher}.
+ *
+ * @author Gerhard Riegler
+ * @since 1.9.0
+ */
+public class BinRpcEventDispatcherTest {
+
+    private static final String INTERFACE = "BidCos-RF";
+
+    private static final long TIMEOUT = 5000;
+
+    private final RecordingReceiver receiver = new RecordingReceiver();
+
+    private BinRpcEventDispatcher dispatcher;
+
+    @After
+    public void tearDown() throws Exception {
+        receiver.release();
+        dispatcher.shutdown();
+        setDatapointReloadInProgress(false);
+    }
+
+    @Test
+    public void testEventsOfADeviceArePassedInOrder() throws Exception {
+        dispatcher = new BinRpcEventDispatcher(receiver, false);
+        receiver.release();
+
+        for (int i = 0; i < 300; i++) {
+            for (int device = 0; device < 8; device++) {
+                dispatcher.event(INTERFACE, "KEQ000000" + device + ":" + (i % 3 + 1), "LEVEL", i);
+            }
+        }
+        receiver.awaitEvents(2400);
+
+        for (int device = 0; device < 8; device++) {
+            List<Object> values = receiver.getValues("KEQ000000" + device);
+            Assert.assertEquals(300, values.size());
+            for (int i = 0; i < 300; i++) {
+                Assert.assertEquals(i, values.get(i));
+            }
+        }
+        Assert.assertFalse(receiver.concurrentEventsOfDevice);
+        Assert.assertEquals(0, dispatcher.getPending());
+        Assert.assertTrue(dispatcher.getStatistics().startsWith("received=2400, conflated=0, dropped=0"));
+    }
+
+    @Test
+    public void testBlockedDeviceDoesNotDelayOtherDevices() throws Exception {
+        dispatcher = new BinRpcEventDispatcher(receiver, false);
+        receiver.block("KEQ0000001");
+
+        dispatcher.event(INTERFACE, "KEQ0000001:1", "STATE", true);
+        receiver.awaitBlocked();
+        dispatcher.event(INTERFACE, "KEQ0000001:1", "STATE", false);
+        dispatcher.event(INTERFACE, "KEQ0000002:1", "STATE", true);
+        receiver.awaitEvents(1);
+
+        Assert.assertEquals(Arrays.<Object> asList(true), receiver.getValues("KEQ0000002"));
+        Assert.assertEquals(1, dispatcher.getPending());
+
+        receiver.release();
+        receiver.awaitEvents(3);
+        Assert.assertEquals(Arrays.<Object> asList(true, false), receiver.getValues("KEQ0000001"));
+    }
+
+    @Test
+    public void testWaitingEventsAreConflatedDuringReload() throws Exception {
+        dispatcher = new BinRpcEventDispatcher(receiver, true);
+        receiver.block("KEQ0000001");
+        setDatapointReloadInProgress(true);
+
+        dispatcher.event(INTERFACE, "KEQ0000001:1", "WORKING", true);
+        receiver.awaitBlocked();
+        dispatcher.event(INTERFACE, "KEQ0000001:1", "LEVEL", 0.1d);
+        dispatcher.event(INTERFACE, "KEQ0000001:1", "STATE", true);
+        dispatcher.event(INTERFACE, "KEQ0000001:1", "LEVEL", 0.2d);
+        dispatcher.event(INTERFACE, "KEQ0000001:2", "LEVEL", 0.5d);
+        dispatcher.event(INTERFACE, "KEQ0000001:1", "LEVEL", 0.3d);
+        Assert.assertEquals(3, dispatcher.getPending());
+
+        receiver.release();
+        receiver.awaitEvents(4);
+        Assert.assertEquals(Arrays.asList("KEQ0000001:1 WORKING=true", "KEQ0000001:1 LEVEL=0.3",
+                "KEQ0000001:1 STATE=true", "KEQ0000001:2 LEVEL=0.5"), receiver.getEvents("KEQ0000001"));
+        Assert.assertTrue(dispatcher.getStatistics().startsWith("received=6, conflated=2,"));
+    }
+
+    @Test
+    public void testNoConflationWithoutReload() throws Exception {
+        dispatcher = new BinRpcEventDispatcher(receiver, true);
+        receiver.block("KEQ0000001");
+
+        dispatcher.event(INTERFACE, "KEQ0000001:1", "WORKING", true);
+        receiver.awaitBlocked();
+        dispatcher.event(INTERFACE, "KEQ0000001:1", "LEVEL", 0.1d);
+        dispatcher.event(INTERFACE, "KEQ0000001:1", "LEVEL", 0.2d);
+
+        receiver.release();
+        receiver.awaitEvents(3);
+        Assert.assertEquals(Arrays.asList("KEQ0000001:1 WORKING=true", "KEQ0000001:1 LEVEL=0.1",
+                "KEQ0000001:1 LEVEL=0.2"), receiver.getEvents("KEQ0000001"));
+    }
+
+    @Test
+    public void testDeviceGivesUpThreadAfterBatch() throws Exception {
+        dispatcher = new BinRpcEventDispatcher(receiver, false);
+        int threads = ((ThreadPoolExecutor) FieldUtils.readField(dispatcher, "executor", true)).getCorePoolSize();
+
+        // all threads but one wait for a blocked device
+        for (int i = 0; i < threads - 1; i++) {
+            receiver.block("KEQ100000" + i);
+            dispatcher.event(INTERFACE, "KEQ100000" + i + ":1", "STATE", true);
+            receiver.awaitBlocked();
+        }
+        // the last thread waits until the events are queued
+        receiver.block("KEQ0000000");
+        dispatcher.event(INTERFACE, "KEQ0000000:1", "STATE", true);
+        receiver.awaitBlocked();
+        for (int i = 0; i < 120; i++) {
+            dispatcher.event(INTERFACE, "KEQ0000001:1", "LEVEL", i);
+        }
+        dispatcher.event(INTERFACE, "KEQ0000002:1", "STATE", true);
+
+        receiver.unblock("KEQ0000000");
+        receiver.awaitEvents(122);
+
+        List<String> order = receiver.getDeviceOrder();
+        int other = order.indexOf("KEQ0000002");
+        int first = order.indexOf("KEQ0000001");
+        Assert.assertEquals(50, other - first);
+        Assert.assertEquals(120, receiver.getValues("KEQ0000001").size());
+    }
+
+    private void setDatapointReloadInProgress(boolean reloading) throws Exception {
+        FieldUtils.writeField(HomematicContext.getInstance().getStateHolder(), "datapointReloadInProgress", reloading,
+                true);
+    }
+
+    /**
+     * Records the passed events. The events of blocked devices wait until the
+     * device is unblocked.
+     */
+    private static class RecordingReceiver implements HomematicCallbackReceiver {
+        private final Map<String, CountDownLatch> blocked = new HashMap<String, CountDownLatch>();
+        private final Set<String> running = new HashSet<String>();
+        private final List<String> events = new ArrayList<String>();
+        private final List<String> deviceOrder = new ArrayList<String>();
+        private final Map<String, List<Object>> values = new HashMap<String, List<Object>>();
+        private int waiting = 0;
+        private volatile boolean concurrentEventsOfDevice = false;
+
+        @Override
+        public void event(String interfaceId, String address, String parameterKey, Object value) {
+            String device = address.substring(0, address.indexOf(':'));
+            CountDownLatch latch;
+            synchronized (this) {
+                if (!running.add(device)) {
+                    concurrentEventsOfDevice = true;
+                }
+                latch = blocked.get(device);
+                if (latch != null) {
+                    waiting++;
+                    notifyAll();
+                }
+            }
+            try {
+                if (latch != null) {
+                    latch.await(TIMEOUT, TimeUnit.MILLISECONDS);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            synchronized (this) {
+                running.remove(device);
+                events.add(address + " " + parameterKey + "=" + value);
+                deviceOrder.add(device);
+                List<Object> deviceValues = values.get(device);
+                if (deviceValues == null) {
+                    deviceValues = new ArrayList<Object>();
+                    values.put(device, deviceValues);
+                }
+                deviceValues.add(value);
+                notifyAll();
+            }
+        }
+
+        @Override
+        public void newDevices(String interfaceId, Object[] deviceDescriptions) {
+        }
+
+        public synchronized void block(String device) {
+            blocked.put(device, new CountDownLatch(1));
+        }
+
+        public synchronized void unblock(String device) {
+            CountDownLatch latch = blocked.remove(device);
+            if (latch != null) {
+                latch.countDown();
+            }
+        }
+
+        public synchronized void release() {
+            for (String device : new ArrayList<String>(blocked.keySet())) {
+                unblock(device);
+            }
+        }
+
+        /**
+         * Waits until one more event waits for its device to be unblocked.
+         */
+        public synchronized void awaitBlocked() throws InterruptedException {
+            long deadline = System.currentTimeMillis() + TIMEOUT;
+            while (waiting == 0 && System.currentTimeMillis() < deadline) {
+                wait(10);
+            }
+            Assert.assertTrue("no event is waiting", waiting > 0);
+            waiting--;
+        }
+
+        public synchronized void awaitEvents(int count) throws InterruptedException {
+            long deadline = System.currentTimeMillis() + TIMEOUT;
+            while (events.size() < count && System.currentTimeMillis() < deadline) {
+                wait(10);
+            }
+            Assert.assertEquals(count, events.size());
+        }
+
+        public synchronized List<Object> getValues(String device) {
+            List<Object> deviceValues = values.get(device);
+            return deviceValues == null ? new ArrayList<Object>() : new ArrayList<Object>(deviceValues);
+        }
+
+        public synchronized List<String> getEvents(String device) {
+            List<String> result = new ArrayList<String>();
+            for (String event : events) {
+                if (event.startsWith(device + ":")) {
+                    result.add(event);
+                }
+            }
+            return result;
+        }
+
+        public synchronized List<String> getDeviceOrder() {
+            return new ArrayList<String>(deviceOrder);
+        }
+    }
+}
@@ -0,0 +1,165 @@
+/**
+ * Copyright (c) 2010-2016 by the respective copyright holders.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.binding.homematic.test.server;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.nio.channels.ServerSocketChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.lang.reflect.FieldUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.openhab.binding.homematic.internal.binrpc.BinRpcDecoder;
+import org.openhab.binding.homematic.internal.binrpc.BinRpcRequest;
+import org.openhab.binding.homematic.internal.common.HomematicConfig;
+import org.openhab.binding.homematic.internal.common.HomematicContext;
+import org.openhab.binding.homematic.internal.communicator.HomematicCallbackReceiver;
+import org.openhab.binding.homematic.internal.communicator.server.BinRpcEventDispatcher;
+import org.openhab.binding.homematic.internal.communicator.server.BinRpcNetworkService;
+
+import junit.framework.Assert;
+
+/**
+ * Testcases for pausing the {@link BinRpcNetworkService} while too many
+ * events are waiting in the {@link BinRpcEventDispatcher}.
+ *
+ * @author Gerhard Riegler
+ * @since 1.9.0
+ */
+public class BinRpcNetworkServiceTest {
+
+    private static final int TIMEOUT = 5000;
+
+    private final CountDownLatch release = new CountDownLatch(1);
+
+    private final List<String> addresses = new ArrayList<String>();
+
+    private Object callbackPort;
+
+    private BinRpcNetworkService service;
+
+    private Thread serviceThread;
+
+    private int port;
+
+    @Before
+    public void setUp() throws Exception {
+        HomematicConfig config = HomematicContext.getInstance().getConfig();
+        callbackPort = FieldUtils.readField(config, "callbackPort", true);
+        FieldUtils.writeField(config, "callbackPort", 0, true);
+
+        service = new BinRpcNetworkService(new HomematicCallbackReceiver() {
+            @Override
+            public void event(String interfaceId, String address, String parameterKey, Object value) {
+                try {
+                    release.await(TIMEOUT, TimeUnit.MILLISECONDS);
+                } catch (InterruptedException e) {
+                    return;
+                }
+                synchronized (addresses) {
+                    addresses.add(address);
+                    addresses.notifyAll();
+                }
+            }
+
+            @Override
+            public void newDevices(String interfaceId, Object[] deviceDescriptions) {
+            }
+        });
+        port = ((ServerSocketChannel) FieldUtils.readField(service, "serverChannel", true)).socket().getLocalPort();
+        serviceThread = new Thread(service);
+        serviceThread.start();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        release.countDown();
+        service.shutdown();
+        serviceThread.join(TIMEOUT);
+        FieldUtils.writeField(HomematicContext.getInstance().getConfig(), "callbackPort", callbackPort, true);
+    }
+
+    @Test
+    public void testReadingPausesWhileTooManyEventsAreWaiting() throws Exception {
+        // the first event of the device is passed and waits, the others fill the dispatcher
+        Socket first = send(createEvents("KEQ0000001:1", BinRpcEventDispatcher.MAX_PENDING + 1));
+        Assert.assertTrue(readResponse(first));
+
+        Socket second = send(createEvents("KEQ0000002:1", 1));
+        second.setSoTimeout(500);
+        Assert.assertFalse("message read while paused", readResponse(second));
+        synchronized (addresses) {
+            Assert.assertTrue(addresses.isEmpty());
+        }
+
+        release.countDown();
+        second.setSoTimeout(TIMEOUT);
+        Assert.assertTrue(readResponse(second));
+        synchronized (addresses) {
+            long deadline = System.currentTimeMillis() + TIMEOUT;
+            while (!addresses.contains("KEQ0000002:1") && System.currentTimeMillis() < deadline) {
+                addresses.wait(10);
+            }
+            Assert.assertTrue(addresses.contains("KEQ0000002:1"));
+        }
+    }
+
+    @Test
+    public void testReadingContinuesBelowLimit() throws Exception {
+        Socket first = send(createEvents("KEQ0000001:1", BinRpcEventDispatcher.MAX_PENDING - 1));
+        Assert.assertTrue(readResponse(first));
+
+        Socket second = send(createEvents("KEQ0000002:1", 1));
+        second.setSoTimeout(TIMEOUT);
+        Assert.assertTrue(readResponse(second));
+    }
+
+    private byte[] createEvents(String address, int count) {
+        List<Object> calls = new ArrayList<Object>();
+        for (int i = 0; i < count; i++) {
+            Map<String, Object> call = new HashMap<String, Object>();
+            call.put("methodName", "event");
+            call.put("params", Arrays.asList("BidCos-RF", address, "LEVEL", i));
+            calls.add(call);
+        }
+        BinRpcRequest request = new BinRpcRequest("system.multicall");
+        request.addArg(calls);
+        return request.createMessage();
+    }
+
+    private Socket send(byte[] message) throws IOException {
+        Socket socket = new Socket(InetAddress.getLoopbackAddress(), port);
+        socket.setSoTimeout(TIMEOUT);
+        socket.getOutputStream().write(message);
+        return socket;
+    }
+
+    /**
+     * Returns true if the response has been received, false if none was received within the timeout.
+     */
+    private boolean readResponse(Socket socket) throws IOException {
+        try {
+            BinRpcDecoder.readMessage(socket.getInputStream());
+            socket.close();
+            return true;
+        } catch (SocketTimeoutException e) {
+            return false;
+        }
+    }
+}
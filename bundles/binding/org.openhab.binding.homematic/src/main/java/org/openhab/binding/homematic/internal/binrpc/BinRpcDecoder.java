@@ -0,0 +1,300 @@
+/**
+ * Copyright (c) 2010-2016 by the respective copyright holders.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.binding.homematic.internal.binrpc;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UnsupportedEncodingException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.text.ParseException;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Decodes the values of a BIN-RPC message directly from a ByteBuffer.
+ *
+ * Method calls can be decoded with a {@link BinRpcEventVisitor}: events are handed to the visitor as soon as they
+ * are read, also within a system.multicall, without building the intermediate arrays and structs.
+ *
+ * @author Gerhard Riegler
+ * @since 1.9.0
+ */
+public class BinRpcDecoder {
+    public static final int TYPE_INTEGER = 1;
+    public static final int TYPE_BOOLEAN = 2;
+    public static final int TYPE_STRING = 3;
+    public static final int TYPE_DOUBLE = 4;
+    public static final int TYPE_DATE = 5;
+    public static final int TYPE_ARRAY = 0x100;
+    public static final int TYPE_STRUCT = 0x101;
+
+    static final Charset CHARSET = Charset.forName("ISO-8859-1");
+
+    private static final Object[] NO_VALUES = new Object[0];
+
+    /**
+     * Messages up to this size are read into a buffer which is reused by the thread
+     */
+    private static final int MAX_REUSED_BUFFER_SIZE = 64 * 1024;
+
+    private static final ThreadLocal<byte[]> readBuffers = new ThreadLocal<byte[]>() {
+        @Override
+        protected byte[] initialValue() {
+            return new byte[1024];
+        }
+    };
+
+    private final ByteBuffer buffer;
+
+    /**
+     * Creates a decoder for the data of a message, positioned after the header.
+     */
+    public BinRpcDecoder(ByteBuffer buffer) {
+        this.buffer = buffer;
+    }
+
+    /**
+     * Reads a BIN-RPC message from the InputStream and returns its data without the header.
+     * The returned buffer is reused for the next message read by the same thread, so it must be decoded before.
+     */
+    public static ByteBuffer readMessage(InputStream is) throws IOException {
+        byte[] header = new byte[8];
+        readFully(is, header, 8, "header");
+        if (header[0] != 'B' || header[1] != 'i' || header[2] != 'n') {
+            throw new UnsupportedEncodingException("No BinX signature");
+        }
+        int datasize = ByteBuffer.wrap(header, 4, 4).getInt();
+        if (datasize < 0) {
+            throw new IOException("Invalid message length " + datasize);
+        }
+
+        byte[] data = readBuffers.get();
+        if (data.length < datasize) {
+            data = new byte[datasize];
+            if (datasize <= MAX_REUSED_BUFFER_SIZE) {
+                readBuffers.set(data);
+            }
+        }
+        readFully(is, data, datasize, "data");
+        return ByteBuffer.wrap(data, 0, datasize);
+    }
+
+    private static void readFully(InputStream is, byte[] data, int length, String part) throws IOException {
+        int offset = 0;
+        while (offset < length) {
+            int r = is.read(data, offset, length - offset);
+            if (r < 0) {
+                throw new EOFException("Only " + offset + " bytes received reading " + part);
+            }
+            offset += r;
+        }
+    }
+
+    /**
+     * Returns true if there are values left to decode.
+     */
+    public boolean hasRemaining() {
+        return buffer.hasRemaining();
+    }
+
+    /**
+     * Decodes the method header, the name and the number of parameters.
+     */
+    public String readMethodName() throws ParseException {
+        String methodName = readString();
+        readInt();
+        return methodName;
+    }
+
+    /**
+     * Decodes all remaining values.
+     */
+    public Object[] readValues() throws ParseException {
+        if (!buffer.hasRemaining()) {
+            return NO_VALUES;
+        }
+        Object[] values = new Object[4];
+        int count = 0;
+        while (buffer.hasRemaining()) {
+            if (count == values.length) {
+                Object[] newValues = new Object[count * 2];
+                System.arraycopy(values, 0, newValues, 0, count);
+                values = newValues;
+            }
+            values[count++] = readValue();
+        }
+        if (count == values.length) {
+            return values;
+        }
+        Object[] result = new Object[count];
+        System.arraycopy(values, 0, result, 0, count);
+        return result;
+    }
+
+    /**
+     * Decodes a method call and hands it to the visitor.
+     *
+     * @return the name of the called method
+     */
+    public String decodeMethodCall(BinRpcEventVisitor visitor) throws ParseException {
+        String methodName = readMethodName();
+        if ("event".equals(methodName)) {
+            visitor.event(readValue().toString(), readValue().toString(), readValue().toString(), readValue());
+        } else if ("system.multicall".equals(methodName) && peekInt() == TYPE_ARRAY) {
+            readInt();
+            int calls = readInt();
+            while (calls-- > 0) {
+                decodeCall(visitor);
+            }
+        } else {
+            visitor.methodCall(methodName, readValues());
+        }
+        return methodName;
+    }
+
+    /**
+     * Decodes a struct with methodName and params of a system.multicall.
+     */
+    private void decodeCall(BinRpcEventVisitor visitor) throws ParseException {
+        int type = readInt();
+        if (type != TYPE_STRUCT) {
+            throw new ParseException("Call of system.multicall is not a struct, but type " + type, buffer.position());
+        }
+        int fields = readInt();
+        String methodName = null;
+        Object[] params = null;
+        while (fields-- > 0) {
+            String key = readString();
+            if ("methodName".equals(key)) {
+                methodName = readValue().toString();
+            } else if ("params".equals(key)) {
+                type = readInt();
+                if (type != TYPE_ARRAY) {
+                    throw new ParseException("Params of system.multicall are not an array, but type " + type,
+                            buffer.position());
+                }
+                int count = readInt();
+                if ("event".equals(methodName) && count == 4) {
+                    visitor.event(readValue().toString(), readValue().toString(), readValue().toString(),
+                            readValue());
+                    methodName = null;
+                } else {
+                    params = readArray(count);
+                }
+            } else {
+                readValue();
+            }
+        }
+        if (methodName != null) {
+            if ("event".equals(methodName) && params != null && params.length == 4) {
+                visitor.event(params[0].toString(), params[1].toString(), params[2].toString(), params[3]);
+            } else {
+                visitor.methodCall(methodName, params == null ? NO_VALUES : params);
+            }
+        }
+    }
+
+    /**
+     * Decodes the next value.
+     */
+    public Object readValue() throws ParseException {
+        int type = readInt();
+        switch (type) {
+            case TYPE_INTEGER:
+                return Integer.valueOf(readInt());
+            case TYPE_BOOLEAN:
+                return get() != 0 ? Boolean.TRUE : Boolean.FALSE;
+            case TYPE_STRING:
+                return readString();
+            case TYPE_DOUBLE:
+                int mantissa = readInt();
+                int exponent = readInt();
+                return Double.valueOf(toDouble(mantissa, exponent));
+            case TYPE_DATE:
+                return new Date(readInt() * 1000L);
+            case TYPE_ARRAY:
+                return readArray(readInt());
+            case TYPE_STRUCT:
+                int numElements = readInt();
+                Map<String, Object> struct = new HashMap<String, Object>((int) (numElements / 0.75f) + 1);
+                while (numElements-- > 0) {
+                    String name = readString();
+                    struct.put(name, readValue());
+                }
+                return struct;
+            default:
+                throw new ParseException("Unknown data type " + type, buffer.position() - 4);
+        }
+    }
+
+    private Object[] readArray(int numElements) throws ParseException {
+        if (numElements == 0) {
+            return NO_VALUES;
+        }
+        Object[] array = new Object[numElements];
+        for (int i = 0; i < numElements; i++) {
+            array[i] = readValue();
+        }
+        return array;
+    }
+
+    /**
+     * Converts the mantissa and exponent to a double rounded half down to six decimals.
+     * mantissa * 10^6 has at most 51 bits, so the rounding is calculated exactly.
+     */
+    static double toDouble(int mantissa, int exponent) {
+        double scaled = Math.scalb(mantissa * 1e6, exponent - 30);
+        if (Double.isInfinite(scaled)) {
+            return Math.scalb((double) mantissa, exponent - 30);
+        }
+        double rounded = Math.floor(scaled);
+        double fraction = scaled - rounded;
+        if (fraction > 0.5 || (fraction == 0.5 && scaled < 0)) {
+            rounded += 1;
+        }
+        return rounded / 1e6;
+    }
+
+    private String readString() throws ParseException {
+        int len = readInt();
+        if (len < 0 || len > buffer.remaining()) {
+            throw new ParseException("Invalid string length " + len, buffer.position() - 4);
+        }
+        String s = new String(buffer.array(), buffer.arrayOffset() + buffer.position(), len, CHARSET);
+        buffer.position(buffer.position() + len);
+        return s;
+    }
+
+    private int readInt() throws ParseException {
+        try {
+            return buffer.getInt();
+        } catch (BufferUnderflowException e) {
+            throw new ParseException("Unexpected end of data", buffer.position());
+        }
+    }
+
+    private int peekInt() throws ParseException {
+        if (buffer.remaining() < 4) {
+            throw new ParseException("Unexpected end of data", buffer.position());
+        }
+        return buffer.getInt(buffer.position());
+    }
+
+    private byte get() throws ParseException {
+        try {
+            return buffer.get();
+        } catch (BufferUnderflowException e) {
+            throw new ParseException("Unexpected end of data", buffer.position());
+        }
+    }
+}
@@ -0,0 +1,28 @@
+/**
+ * Copyright (c) 2010-2016 by the respective copyright holders.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.binding.homematic.internal.binrpc;
+
+/**
+ * Receives the method calls decoded from a BIN-RPC message by the {@link BinRpcDecoder}.
+ *
+ * @author Gerhard Riegler
+ * @since 1.9.0
+ */
+public interface BinRpcEventVisitor {
+
+    /**
+     * Called for every event, also for the events contained in a system.multicall.
+     */
+    public void event(String interfaceId, String address, String attribute, Object value);
+
+    /**
+     * Called for every other method, also for the calls contained in a system.multicall.
+     */
+    public void methodCall(String methodName, Object[] params);
+}
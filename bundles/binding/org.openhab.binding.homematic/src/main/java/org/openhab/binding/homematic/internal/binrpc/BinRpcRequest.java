@@ -8,11 +8,10 @@
  */
 package org.openhab.binding.homematic.internal.binrpc;
 
-import java.io.UnsupportedEncodingException;
 import java.math.BigInteger;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.Collection;
-import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 
@@ -26,8 +25,6 @@ import org.apache.commons.lang.builder.ToStringStyle;
  * @since 1.5.0
  */
 public class BinRpcRequest {
-    private byte data[];
-    private int dataoffset;
     private String methodName;
     private Collection<Object> args = new ArrayList<Object>();
 
@@ -50,117 +47,114 @@ public class BinRpcRequest {
     }
 
     /**
-     * Generates the binrpc data.
+     * Generates the binrpc data. The size of the message is calculated first, so the data is written into a single
+     * array without copying.
      */
     public byte[] createMessage() {
-        data = new byte[256];
+        int datasize = sizeOfList(args);
         if (methodName != null) {
-            addInt(methodName.length());
-            addString(methodName);
-            addInt(args.size());
+            datasize += 8 + methodName.length();
         }
 
-        addList(args);
-
-        byte fullreq[] = new byte[dataoffset + 8];
-        System.arraycopy(data, 0, fullreq, 8, dataoffset);
-        fullreq[0] = 'B';
-        fullreq[1] = 'i';
-        fullreq[2] = 'n';
-        addInt(dataoffset);
-        System.arraycopy(data, dataoffset - 4, fullreq, 4, 4);
-        return fullreq;
+        ByteBuffer buffer = ByteBuffer.allocate(datasize + 8);
+        buffer.put((byte) 'B').put((byte) 'i').put((byte) 'n').put((byte) 0);
+        buffer.putInt(datasize);
+        if (methodName != null) {
+            addString(buffer, methodName);
+            buffer.putInt(args.size());
+        }
+        addList(buffer, args);
+        return buffer.array();
     }
 
-    private void addByte(byte b) {
-        if (dataoffset == data.length) {
-            byte newdata[] = new byte[data.length * 2];
-            System.arraycopy(data, 0, newdata, 0, data.length);
-            data = newdata;
+    private static int sizeOfList(Collection<?> args) {
+        int size = 0;
+        for (Object o : args) {
+            size += sizeOf(o);
         }
-        data[dataoffset++] = b;
+        return size;
     }
 
-    private void addInt(int n) {
-        byte d[] = BigInteger.valueOf(n).toByteArray();
-        for (int c = 0; c < 4 - d.length; c++) {
-            addByte(n < 0 ? (byte) 0xFF : (byte) 0);
-        }
-        for (byte s : d) {
-            addByte(s);
+    private static int sizeOf(Object o) {
+        if (o.getClass() == String.class) {
+            return 8 + ((String) o).length();
+        } else if (o.getClass() == Boolean.class) {
+            return 5;
+        } else if (o.getClass() == Integer.class) {
+            return 8;
+        } else if (o.getClass() == Double.class || o.getClass() == BigInteger.class) {
+            return 12;
+        } else if (o instanceof List<?>) {
+            return 8 + sizeOfList((List<?>) o);
+        } else if (o instanceof Map<?, ?>) {
+            int size = 8;
+            for (Map.Entry<?, ?> me : ((Map<?, ?>) o).entrySet()) {
+                size += 4 + ((String) me.getKey()).length() + sizeOf(me.getValue());
+            }
+            return size;
         }
+        return 0;
     }
 
-    private void addDouble(double v) {
-        double tmp = Math.abs(v);
+    private static void addDouble(ByteBuffer buffer, double v) {
         int exp = 0;
-        if (tmp != 0 && tmp < 0.5) {
-            while (tmp < 0.5) {
-                tmp *= 2;
-                exp--;
-            }
-        } else {
-            while (tmp >= 1) {
-                tmp /= 2;
-                exp++;
-            }
+        int mantissa = 0;
+        if (v != 0) {
+            // scale to 0.5 <= |v| < 1
+            exp = Math.getExponent(v) + 1;
+            mantissa = (int) Math.round(Math.scalb(v, -exp) * 0x40000000);
         }
-        if (v < 0) {
-            tmp *= -1;
-        }
-        int mantissa = (int) Math.round(tmp * 0x40000000);
-        addInt(mantissa);
-        addInt(exp);
+        buffer.putInt(mantissa);
+        buffer.putInt(exp);
     }
 
-    private void addString(String s) {
-        byte sd[];
-        try {
-            sd = s.getBytes("ISO-8859-1");
-        } catch (UnsupportedEncodingException use) {
-            // Really shouldn't happen, fall back silently to platform encoding
-            sd = s.getBytes();
+    /**
+     * Adds the length and the ISO-8859-1 encoded characters of the string, unmappable characters are sent as '?'.
+     */
+    private static void addString(ByteBuffer buffer, String s) {
+        int len = s.length();
+        buffer.putInt(len);
+        for (int i = 0; i < len; i++) {
+            char ch = s.charAt(i);
+            buffer.put(ch > 0xFF ? (byte) '?' : (byte) ch);
         }
-        for (byte ch : sd) {
-            addByte(ch);
+    }
+
+    private static void addValue(ByteBuffer buffer, Object o) {
+        if (o.getClass() == String.class) {
+            buffer.putInt(3);
+            addString(buffer, (String) o);
+        } else if (o.getClass() == Boolean.class) {
+            buffer.putInt(2);
+            buffer.put(((Boolean) o).booleanValue() ? (byte) 1 : (byte) 0);
+        } else if (o.getClass() == Integer.class) {
+            buffer.putInt(1);
+            buffer.putInt(((Integer) o).intValue());
+        } else if (o.getClass() == Double.class) {
+            buffer.putInt(4);
+            addDouble(buffer, ((Double) o).doubleValue());
+        } else if (o.getClass() == BigInteger.class) {
+            buffer.putInt(4);
+            addDouble(buffer, ((BigInteger) o).doubleValue());
+        } else if (o instanceof List<?>) {
+            Collection<?> l = (Collection<?>) o;
+            buffer.putInt(0x100);
+            buffer.putInt(l.size());
+            addList(buffer, l);
+        } else if (o instanceof Map<?, ?>) {
+            Map<?, ?> l = (Map<?, ?>) o;
+            buffer.putInt(0x101);
+            buffer.putInt(l.size());
+            for (Map.Entry<?, ?> me : l.entrySet()) {
+                addString(buffer, (String) me.getKey());
+                addValue(buffer, me.getValue());
+            }
         }
     }
 
-    private void addList(Collection<?> args) {
+    private static void addList(ByteBuffer buffer, Collection<?> args) {
         for (Object o : args) {
-            if (o.getClass() == String.class) {
-                addInt(3);
-                String s = (String) o;
-                addInt(s.length());
-                addString(s);
-            } else if (o.getClass() == Boolean.class) {
-                addInt(2);
-                addByte(((Boolean) o).booleanValue() ? (byte) 1 : (byte) 0);
-            } else if (o.getClass() == Integer.class) {
-                addInt(1);
-                addInt(((Integer) o).intValue());
-            } else if (o.getClass() == Double.class) {
-                addInt(4);
-                addDouble(((Double) o).doubleValue());
-            } else if (o.getClass() == BigInteger.class) {
-                addInt(4);
-                addDouble(((BigInteger) o).doubleValue());
-            } else if (o instanceof List<?>) {
-                Collection<?> l = (Collection<?>) o;
-                addInt(0x100);
-                addInt(l.size());
-                addList(l);
-            } else if (o instanceof Map<?, ?>) {
-                Map<?, ?> l = (Map<?, ?>) o;
-                addInt(0x101);
-                addInt(l.size());
-                for (Map.Entry<?, ?> me : l.entrySet()) {
-                    String key = (String) me.getKey();
-                    addInt(key.length());
-                    addString(key);
-                    addList(Collections.singleton(me.getValue()));
-                }
-            }
+            addValue(buffer, o);
         }
     }
 
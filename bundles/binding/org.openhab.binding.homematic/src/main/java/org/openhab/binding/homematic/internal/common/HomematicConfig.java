@@ -38,6 +38,10 @@ import org.osgi.service.cm.ConfigurationException;
  * # Port number for the callback server. (optional, default is 9123)
  * # homematic:callback.port=
  *
+ * # Keep only the latest value of a datapoint from the events which are waiting to be processed
+ * # while the datapoints are reloaded from the Homematic server (optional, default is false)
+ * # homematic:callback.conflate=
+ *
  * # The interval in seconds to check if the communication with the Homematic server is still alive.
  * # If no message receives from the Homematic server, the binding restarts. (optional, default is 300)
  * # homematic:alive.interval=
@@ -58,6 +62,7 @@ public class HomematicConfig {
     private static final String CONFIG_KEY_HOMEMATIC_HOST_TIMEOUT = "host.timeout";
     private static final String CONFIG_KEY_CALLBACK_HOST = "callback.host";
     private static final String CONFIG_KEY_CALLBACK_PORT = "callback.port";
+    private static final String CONFIG_KEY_CALLBACK_CONFLATE = "callback.conflate";
     private static final String CONFIG_KEY_ALIVE_INTERVAL = "alive.interval";
     private static final String CONFIG_KEY_RECONNECT_INTERVAL = "reconnect.interval";
 
@@ -70,6 +75,7 @@ public class HomematicConfig {
     private Integer timeout;
     private String callbackHost;
     private Integer callbackPort;
+    private boolean callbackConflate;
     private Integer aliveInterval;
     private Integer reconnectInterval;
 
@@ -93,6 +99,7 @@ public class HomematicConfig {
         }
 
         callbackPort = parseInt(properties, CONFIG_KEY_CALLBACK_PORT, DEFAULT_CALLBACK_PORT);
+        callbackConflate = Boolean.parseBoolean((String) properties.get(CONFIG_KEY_CALLBACK_CONFLATE));
         aliveInterval = parseInt(properties, CONFIG_KEY_ALIVE_INTERVAL, DEFAULT_ALIVE_INTERVAL);
         reconnectInterval = parseInt(properties, CONFIG_KEY_RECONNECT_INTERVAL, null);
         valid = true;
@@ -145,6 +152,13 @@ public class HomematicConfig {
         return callbackPort;
     }
 
+    /**
+     * Returns true if events waiting during a datapoint reload should be conflated.
+     */
+    public boolean isCallbackConflate() {
+        return callbackConflate;
+    }
+
     /**
      * Returns the alive interval.
      */
@@ -184,6 +198,7 @@ public class HomematicConfig {
     public String toString() {
         return new ToStringBuilder(this, ToStringStyle.SHORT_PREFIX_STYLE).append("host", host)
                 .append("timeout", timeout).append("callbackHost", callbackHost).append("callbackPort", callbackPort)
+                .append("callbackConflate", callbackConflate)
                 .append("aliveInterval", reconnectInterval == null ? aliveInterval : "disabled")
                 .append("reconnectInterval", reconnectInterval == null ? "disabled" : reconnectInterval).toString();
     }
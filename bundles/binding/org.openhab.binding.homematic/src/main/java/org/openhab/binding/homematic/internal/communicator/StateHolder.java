@@ -41,7 +41,7 @@ public class StateHolder {
 
     private ExecutorService reloadExecutorPool;
 
-    private boolean datapointReloadInProgress = false;
+    private volatile boolean datapointReloadInProgress = false;
     private Map<HomematicBindingConfig, Object> refreshCache = new HashMap<HomematicBindingConfig, Object>();
     private Map<HomematicBindingConfig, HmValueItem> datapoints = new HashMap<HomematicBindingConfig, HmValueItem>();
     private Map<HomematicBindingConfig, HmValueItem> variables = new HashMap<HomematicBindingConfig, HmValueItem>();
@@ -10,9 +10,14 @@ package org.openhab.binding.homematic.internal.communicator.client;
 
 import java.io.IOException;
 import java.net.ConnectException;
-import java.net.Socket;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
 
 import org.openhab.binding.homematic.internal.binrpc.BinRpcRequest;
 import org.openhab.binding.homematic.internal.binrpc.BinRpcResponse;
@@ -27,6 +32,11 @@ import org.slf4j.LoggerFactory;
  * Client implementation for sending messages via BIN-RPC to the Homematic
  * server.
  *
+ * Every interface has its own pool of connections, so requests to different
+ * interfaces are sent concurrently. setValue calls which are waiting while
+ * another setValue is sent to the same interface are combined into a single
+ * system.multicall.
+ *
  * @author Gerhard Riegler
  * @since 1.5.0
  */
@@ -35,6 +45,10 @@ public class BinRpcClient implements RpcClient {
     private final static boolean TRACE_ENABLED = logger.isTraceEnabled();
 
     private HomematicContext context = HomematicContext.getInstance();
+    private final Map<HmInterface, BinRpcConnectionPool> connectionPools = new EnumMap<HmInterface, BinRpcConnectionPool>(
+            HmInterface.class);
+    private final Map<HmInterface, SetValueQueue> setValueQueues = new EnumMap<HmInterface, SetValueQueue>(
+            HmInterface.class);
 
     /**
      * {@inheritDoc}
@@ -49,7 +63,13 @@ public class BinRpcClient implements RpcClient {
      */
     @Override
     public void shutdown() throws HomematicClientException {
-        // nothing todo
+        synchronized (connectionPools) {
+            for (BinRpcConnectionPool connectionPool : connectionPools.values()) {
+                logger.debug("BIN-RPC statistics: {}", connectionPool.getStatistics());
+                connectionPool.close();
+            }
+            connectionPools.clear();
+        }
     }
 
     /**
@@ -80,7 +100,11 @@ public class BinRpcClient implements RpcClient {
     public Object[] getAllValues(HmInterface hmInterface) throws HomematicClientException {
         BinRpcRequest request = new BinRpcRequest("getAllValues");
         request.addArg(Boolean.TRUE);
-        return (Object[]) sendMessage(hmInterface, request)[0];
+        Object[] result = (Object[]) sendMessage(hmInterface, request)[0];
+        if (logger.isDebugEnabled()) {
+            logger.debug("BIN-RPC statistics: {}", getConnectionPool(hmInterface).getStatistics());
+        }
+        return result;
     }
 
     /**
@@ -153,11 +177,22 @@ public class BinRpcClient implements RpcClient {
     @Override
     public void setDatapointValue(HmInterface hmInterface, String address, String datapointName, Object value)
             throws HomematicClientException {
-        BinRpcRequest request = new BinRpcRequest("setValue");
-        request.addArg(address);
-        request.addArg(datapointName);
-        request.addArg(value);
-        sendMessage(hmInterface, request);
+        SetValueQueue queue = getSetValueQueue(hmInterface);
+        SetValue setValue = new SetValue(address, datapointName, value);
+        queue.pending.add(setValue);
+        synchronized (queue) {
+            if (!setValue.done) {
+                List<SetValue> batch = new ArrayList<SetValue>();
+                SetValue next;
+                while ((next = queue.pending.poll()) != null) {
+                    batch.add(next);
+                }
+                sendSetValues(hmInterface, queue, batch);
+            }
+        }
+        if (setValue.exception != null) {
+            throw setValue.exception;
+        }
     }
 
     /**
@@ -181,37 +216,106 @@ public class BinRpcClient implements RpcClient {
         sendMessage(hmInterface, request);
     }
 
+    /**
+     * Sends the setValue calls, combined into a system.multicall if there is
+     * more than one and the interface supports it.
+     */
+    private void sendSetValues(HmInterface hmInterface, SetValueQueue queue, List<SetValue> batch) {
+        if (batch.size() == 1 || !queue.multicallSupported) {
+            for (SetValue setValue : batch) {
+                try {
+                    sendMessage(hmInterface, setValue.createRequest());
+                } catch (HomematicClientException ex) {
+                    setValue.exception = ex;
+                }
+                setValue.done = true;
+            }
+            return;
+        }
+
+        List<Object> calls = new ArrayList<Object>(batch.size());
+        for (SetValue setValue : batch) {
+            Map<String, Object> call = new HashMap<String, Object>();
+            call.put("methodName", "setValue");
+            call.put("params", Arrays.asList(setValue.address, setValue.datapointName, setValue.value));
+            calls.add(call);
+        }
+        BinRpcRequest request = new BinRpcRequest("system.multicall");
+        request.addArg(calls);
+
+        Object[] results = null;
+        try {
+            Object[] data = sendRequest(hmInterface, request);
+            if (data != null) {
+                String fault = getFault(data[0]);
+                if (fault != null && isMethodNotFound(data[0])) {
+                    logger.info("Interface {} does not support system.multicall ({}), sending setValue one by one",
+                            hmInterface, fault);
+                    queue.multicallSupported = false;
+                    sendSetValues(hmInterface, queue, batch);
+                    return;
+                } else if (fault != null) {
+                    for (SetValue setValue : batch) {
+                        setValue.exception = new HomematicClientException(fault + " (sending " + request + ")");
+                        setValue.done = true;
+                    }
+                    return;
+                }
+                results = data[0] instanceof Object[] ? (Object[]) data[0] : new Object[0];
+            }
+        } catch (HomematicClientException ex) {
+            for (SetValue setValue : batch) {
+                setValue.exception = ex;
+                setValue.done = true;
+            }
+            return;
+        }
+
+        logger.debug("Sent {} setValue calls to interface {} in one system.multicall", batch.size(), hmInterface);
+        for (int i = 0; i < batch.size(); i++) {
+            SetValue setValue = batch.get(i);
+            if (results != null) {
+                String fault = i < results.length ? getFault(results[i]) : "No result";
+                if (fault != null) {
+                    setValue.exception = new HomematicClientException(
+                            fault + " (sending " + setValue.createRequest() + ")");
+                }
+            }
+            setValue.done = true;
+        }
+    }
+
     /**
      * Sends a BIN-RPC message and parses the response to see if there was an
      * error.
      */
-    private synchronized Object[] sendMessage(HmInterface hmInterface, BinRpcRequest request)
-            throws HomematicClientException {
-        Socket socket = null;
+    private Object[] sendMessage(HmInterface hmInterface, BinRpcRequest request) throws HomematicClientException {
+        Object[] data = sendRequest(hmInterface, request);
+        if (data != null) {
+            String fault = getFault(data[0]);
+            if (fault != null) {
+                throw new HomematicClientException(fault + " (sending " + request + ")");
+            }
+        }
+        return data;
+    }
+
+    /**
+     * Sends a BIN-RPC message and returns the response, or null if the
+     * interface is not available.
+     */
+    private Object[] sendRequest(HmInterface hmInterface, BinRpcRequest request) throws HomematicClientException {
         try {
             if (TRACE_ENABLED) {
                 logger.trace("Client BinRpcRequest {}", request);
             }
-            socket = new Socket(context.getConfig().getHost(), hmInterface.getPort());
-            socket.setSoTimeout(context.getConfig().getTimeout() * 1000);
-            socket.getOutputStream().write(request.createMessage());
-            BinRpcResponse resp = new BinRpcResponse(socket.getInputStream(), false);
+            BinRpcResponse resp = getConnectionPool(hmInterface).send(request);
 
             if (TRACE_ENABLED) {
                 logger.trace("Client BinRpcResponse: {}", resp.toString());
             }
             Object[] data = resp.getResponseData();
             if (data != null && data.length > 0) {
-                Object responseData = data[0];
-                if (responseData instanceof Map) {
-                    @SuppressWarnings("unchecked")
-                    Map<String, Object> map = (Map<String, Object>) responseData;
-                    if (map.containsKey("faultCode")) {
-                        Object faultCode = map.get("faultCode");
-                        Object faultString = map.get("faultString");
-                        throw new IOException(faultCode + " " + faultString);
-                    }
-                }
                 return data;
             }
             throw new IOException("Unknown Result: " + data);
@@ -224,14 +328,99 @@ public class BinRpcClient implements RpcClient {
                     cex);
         } catch (Exception ex) {
             throw new HomematicClientException(ex.getMessage() + " (sending " + request + ")", ex);
-        } finally {
-            try {
-                if (socket != null) {
-                    socket.close();
-                }
-            } catch (IOException ex) {
-                // ignore
+        }
+    }
+
+    /**
+     * Returns the fault code and string if the result is a fault.
+     */
+    private String getFault(Object result) {
+        if (result instanceof Map) {
+            Map<?, ?> map = (Map<?, ?>) result;
+            if (map.containsKey("faultCode")) {
+                return map.get("faultCode") + " " + map.get("faultString");
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Returns true if the fault says that the server does not know the called method. Homegear answers with the
+     * code -32601, xmlrpc-c based servers with -506, others only say so in the faultString.
+     */
+    private boolean isMethodNotFound(Object result) {
+        Map<?, ?> map = (Map<?, ?>) result;
+        Object faultCode = map.get("faultCode");
+        if (faultCode instanceof Integer) {
+            int code = (Integer) faultCode;
+            if (code == -32601 || code == -506) {
+                return true;
+            }
+        }
+        String faultString = String.valueOf(map.get("faultString")).toLowerCase();
+        return faultString.contains("method") && (faultString.contains("not found")
+                || faultString.contains("unknown") || faultString.contains("not defined"));
+    }
+
+    /**
+     * Creates the pool of connections to the interface.
+     */
+    protected BinRpcConnectionPool createConnectionPool(HmInterface hmInterface) {
+        return new BinRpcConnectionPool(hmInterface);
+    }
+
+    private BinRpcConnectionPool getConnectionPool(HmInterface hmInterface) {
+        synchronized (connectionPools) {
+            BinRpcConnectionPool connectionPool = connectionPools.get(hmInterface);
+            if (connectionPool == null) {
+                connectionPool = createConnectionPool(hmInterface);
+                connectionPools.put(hmInterface, connectionPool);
+            }
+            return connectionPool;
+        }
+    }
+
+    private SetValueQueue getSetValueQueue(HmInterface hmInterface) {
+        synchronized (setValueQueues) {
+            SetValueQueue queue = setValueQueues.get(hmInterface);
+            if (queue == null) {
+                queue = new SetValueQueue();
+                setValueQueues.put(hmInterface, queue);
             }
+            return queue;
+        }
+    }
+
+    /**
+     * The setValue calls waiting to be sent to an interface.
+     */
+    private static class SetValueQueue {
+        private final Queue<SetValue> pending = new ConcurrentLinkedQueue<SetValue>();
+        private volatile boolean multicallSupported = true;
+    }
+
+    /**
+     * A setValue call and its result, guarded by the lock of its SetValueQueue.
+     */
+    private static class SetValue {
+        private final String address;
+        private final String datapointName;
+        private final Object value;
+        private boolean done;
+        private HomematicClientException exception;
+
+        public SetValue(String address, String datapointName, Object value) {
+            this.address = address;
+            this.datapointName = datapointName;
+            this.value = value;
+        }
+
+        public BinRpcRequest createRequest() {
+            BinRpcRequest request = new BinRpcRequest("setValue");
+            request.addArg(address);
+            request.addArg(datapointName);
+            request.addArg(value);
+            return request;
         }
     }
 
@@ -0,0 +1,208 @@
+/**
+ * Copyright (c) 2010-2016 by the respective copyright holders.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.binding.homematic.internal.communicator.client;
+
+import java.io.IOException;
+import java.net.Socket;
+import java.text.ParseException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.Semaphore;
+
+import org.openhab.binding.homematic.internal.binrpc.BinRpcRequest;
+import org.openhab.binding.homematic.internal.binrpc.BinRpcResponse;
+import org.openhab.binding.homematic.internal.common.HomematicContext;
+import org.openhab.binding.homematic.internal.model.HmInterface;
+
+/**
+ * Keeps the connections to one interface of the Homematic server open between requests. At most
+ * {@link #MAX_CONNECTIONS} requests are sent to the interface at the same time, further requests wait for a free
+ * connection.
+ *
+ * The server may close a connection while it is idle. If writing a request to a reused connection fails, it is sent
+ * again on a new connection. A request which has been written is never sent again, because the server may already
+ * have executed it.
+ *
+ * @author Gerhard Riegler
+ * @since 1.9.0
+ */
+public class BinRpcConnectionPool {
+    private static final int MAX_CONNECTIONS = 2;
+
+    /**
+     * Connections are closed after this time in milliseconds, even if they are still working
+     */
+    private static final long MAX_ALIVE = 900000;
+
+    private HomematicContext context = HomematicContext.getInstance();
+
+    private final HmInterface hmInterface;
+    private final Semaphore permits = new Semaphore(MAX_CONNECTIONS, true);
+    private final Deque<Connection> idle = new ArrayDeque<Connection>();
+    private boolean closed = false;
+
+    private long requests = 0;
+    private long errors = 0;
+    private long reconnects = 0;
+    private long totalLatency = 0;
+    private long maxLatency = 0;
+
+    public BinRpcConnectionPool(HmInterface hmInterface) {
+        this.hmInterface = hmInterface;
+    }
+
+    /**
+     * Sends the request and returns the decoded response.
+     */
+    public BinRpcResponse send(BinRpcRequest request) throws IOException, ParseException {
+        byte[] message = request.createMessage();
+        long start = System.currentTimeMillis();
+        try {
+            permits.acquire();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for a connection to interface " + hmInterface);
+        }
+        try {
+            Connection connection = borrow();
+            boolean reused = connection != null;
+            if (connection == null) {
+                connection = new Connection();
+            }
+            BinRpcResponse result;
+            try {
+                result = connection.send(message);
+            } catch (IOException ex) {
+                if (!reused || connection.written) {
+                    throw ex;
+                }
+                synchronized (this) {
+                    reconnects++;
+                }
+                connection = new Connection();
+                result = connection.send(message);
+            }
+            giveBack(connection);
+            recordLatency(System.currentTimeMillis() - start, false);
+            return result;
+        } catch (IOException ex) {
+            recordLatency(System.currentTimeMillis() - start, true);
+            throw ex;
+        } catch (ParseException ex) {
+            recordLatency(System.currentTimeMillis() - start, true);
+            throw ex;
+        } finally {
+            permits.release();
+        }
+    }
+
+    /**
+     * Closes all idle connections, connections in use are closed when their request has finished.
+     */
+    public synchronized void close() {
+        closed = true;
+        for (Connection connection : idle) {
+            connection.close();
+        }
+        idle.clear();
+    }
+
+    /**
+     * Returns the number of requests and their latency.
+     */
+    public synchronized String getStatistics() {
+        return hmInterface + "[requests=" + requests + ", errors=" + errors + ", reconnects=" + reconnects
+                + ", avgLatency=" + (requests == 0 ? 0 : totalLatency / requests) + "ms, maxLatency=" + maxLatency
+                + "ms]";
+    }
+
+    /**
+     * Opens a new socket to the interface.
+     */
+    protected Socket openSocket() throws IOException {
+        Socket socket = new Socket(context.getConfig().getHost(), hmInterface.getPort());
+        socket.setSoTimeout(context.getConfig().getTimeout() * 1000);
+        socket.setTcpNoDelay(true);
+        socket.setKeepAlive(true);
+        return socket;
+    }
+
+    private synchronized Connection borrow() {
+        long now = System.currentTimeMillis();
+        Connection connection;
+        while ((connection = idle.pollFirst()) != null) {
+            if (now - connection.opened < MAX_ALIVE) {
+                return connection;
+            }
+            connection.close();
+        }
+        return null;
+    }
+
+    private synchronized void giveBack(Connection connection) {
+        if (closed) {
+            connection.close();
+        } else {
+            idle.addFirst(connection);
+        }
+    }
+
+    private synchronized void recordLatency(long latency, boolean error) {
+        requests++;
+        if (error) {
+            errors++;
+        }
+        totalLatency += latency;
+        maxLatency = Math.max(maxLatency, latency);
+    }
+
+    /**
+     * A socket to the interface.
+     */
+    private class Connection {
+        private final long opened = System.currentTimeMillis();
+        private Socket socket;
+
+        /**
+         * True if the last message has been written completely
+         */
+        private boolean written;
+
+        /**
+         * Sends the message and reads the response, the connection is closed if this fails.
+         */
+        public BinRpcResponse send(byte[] message) throws IOException, ParseException {
+            written = false;
+            try {
+                if (socket == null) {
+                    socket = openSocket();
+                }
+                socket.getOutputStream().write(message);
+                written = true;
+                return new BinRpcResponse(socket.getInputStream(), false);
+            } catch (IOException ex) {
+                close();
+                throw ex;
+            } catch (ParseException ex) {
+                close();
+                throw ex;
+            }
+        }
+
+        public void close() {
+            try {
+                if (socket != null) {
+                    socket.close();
+                }
+            } catch (IOException ex) {
+                // ignore
+            }
+        }
+    }
+}
@@ -8,23 +8,23 @@
  */
 package org.openhab.binding.homematic.internal.communicator.server;
 
-import java.io.EOFException;
-import java.io.IOException;
-import java.net.Socket;
-import java.util.Map;
+import java.nio.ByteBuffer;
+import java.text.ParseException;
 
-import org.openhab.binding.homematic.internal.binrpc.BinRpcResponse;
+import org.openhab.binding.homematic.internal.binrpc.BinRpcDecoder;
+import org.openhab.binding.homematic.internal.binrpc.BinRpcEventVisitor;
 import org.openhab.binding.homematic.internal.communicator.HomematicCallbackReceiver;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 /**
- * Reads a BIN-RPC message from the socket and handles the method call.
+ * Handles the method call of a BIN-RPC message. Events are passed to the callbackReceiver while the message is
+ * decoded.
  *
  * @author Gerhard Riegler
  * @since 1.5.0
  */
-public class BinRpcCallbackHandler implements Runnable {
+public class BinRpcCallbackHandler implements BinRpcEventVisitor {
     private static final Logger logger = LoggerFactory.getLogger(BinRpcCallbackHandler.class);
     private final static boolean TRACE_ENABLED = logger.isTraceEnabled();
 
@@ -36,66 +36,32 @@ public class BinRpcCallbackHandler implements Runnable {
             0, 0, 3, 0, 0, 0, 16, 's', 'y', 's', 't', 'e', 'm', '.', 'm', 'u', 'l', 't', 'i', 'c', 'a', 'l', 'l', 0, 0,
             0, 3, 0, 0, 0, 5, 'e', 'v', 'e', 'n', 't' };
 
-    private Socket socket;
     private HomematicCallbackReceiver callbackReceiver;
 
-    public BinRpcCallbackHandler(Socket socket, HomematicCallbackReceiver callbackReceiver) {
-        this.socket = socket;
+    public BinRpcCallbackHandler(HomematicCallbackReceiver callbackReceiver) {
         this.callbackReceiver = callbackReceiver;
     }
 
     /**
-     * Reads the event from the Homematic server and handles the method call.
+     * Decodes the message data without the header, handles the method call and returns the response.
      */
-    @Override
-    public void run() {
-        try {
-            BinRpcResponse response = new BinRpcResponse(socket.getInputStream(), true);
-            if (TRACE_ENABLED) {
-                logger.trace("Event BinRpcResponse: {}", response.toString());
-            }
-            byte[] returnValue = handleMethodCall(response.getMethodName(), response.getResponseData());
-            if (returnValue != null) {
-                socket.getOutputStream().write(returnValue);
-            }
-        } catch (EOFException eof) {
-            // ignore
-        } catch (Exception e) {
-            logger.error(e.getMessage(), e);
-        } finally {
-            try {
-                socket.close();
-            } catch (IOException ex) {
-                // ignore
-            }
-        }
+    public byte[] handleMessage(ByteBuffer data) throws ParseException {
+        String methodName = new BinRpcDecoder(data).decodeMethodCall(this);
+        return getReturnValue(methodName);
     }
 
     /**
      * Returns a valid result of the method called by the Homematic server.
      */
-    private byte[] handleMethodCall(String methodName, Object[] responseData) throws Exception {
+    private byte[] getReturnValue(String methodName) {
         if ("event".equals(methodName)) {
-            handleEvent(responseData);
             return BIN_EMPTY_STRING;
         } else if ("listDevices".equals(methodName) || "deleteDevices".equals(methodName)
-                || "updateDevice".equals(methodName)) {
-            return BIN_EMPTY_ARRAY;
-        } else if ("newDevices".equals(methodName)) {
-            callbackReceiver.newDevices(null, null);
+                || "updateDevice".equals(methodName) || "newDevices".equals(methodName)) {
             return BIN_EMPTY_ARRAY;
         } else if ("system.listMethods".equals(methodName)) {
             return BIN_LIST_METHODS_RESPONSE;
-        } else if ("system.multicall".equals(methodName)) {
-            for (Object o : (Object[]) responseData[0]) {
-                Map<?, ?> call = (Map<?, ?>) o;
-                String method = call.get("methodName").toString();
-                Object[] data = (Object[]) call.get("params");
-                handleMethodCall(method, data);
-            }
-            return BIN_EMPTY_EVENT_LIST;
         } else {
-            logger.warn("Unknown method called by Homematic server: " + methodName);
             return BIN_EMPTY_EVENT_LIST;
         }
     }
@@ -103,13 +69,29 @@ public class BinRpcCallbackHandler implements Runnable {
     /**
      * Populates the extracted event to the callbackReceiver.
      */
-    private void handleEvent(Object[] parms) {
-        String interfaceId = parms[0].toString();
-        String address = parms[1].toString();
-        String attribute = parms[2].toString();
-        Object value = parms[3];
-
+    @Override
+    public void event(String interfaceId, String address, String attribute, Object value) {
+        if (TRACE_ENABLED) {
+            logger.trace("Event BinRpc: {} {} {}={}", interfaceId, address, attribute, value);
+        }
         callbackReceiver.event(interfaceId, address, attribute, value);
     }
 
+    /**
+     * Handles the methods called by the Homematic server, except events.
+     */
+    @Override
+    public void methodCall(String methodName, Object[] params) {
+        if (TRACE_ENABLED) {
+            logger.trace("Event BinRpc method: {}", methodName);
+        }
+        if ("newDevices".equals(methodName)) {
+            callbackReceiver.newDevices(null, null);
+        } else if (!"listDevices".equals(methodName) && !"deleteDevices".equals(methodName)
+                && !"updateDevice".equals(methodName) && !"system.listMethods".equals(methodName)
+                && !"system.multicall".equals(methodName)) {
+            logger.warn("Unknown method called by Homematic server: " + methodName);
+        }
+    }
+
 }
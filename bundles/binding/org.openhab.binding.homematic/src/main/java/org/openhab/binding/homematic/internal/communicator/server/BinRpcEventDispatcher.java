@@ -0,0 +1,264 @@
+/**
+ * Copyright (c) 2010-2016 by the respective copyright holders.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.binding.homematic.internal.communicator.server;
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.openhab.binding.homematic.internal.common.HomematicContext;
+import org.openhab.binding.homematic.internal.communicator.HomematicCallbackReceiver;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Passes the events received from the Homematic server to the callbackReceiver on a fixed number of threads.
+ *
+ * The events of a device are passed in the order they were received, one after another. Events of different devices
+ * are passed concurrently. If conflation is enabled, an event which is still waiting during a datapoint reload is
+ * replaced by a newer event of the same datapoint.
+ *
+ * @author Gerhard Riegler
+ * @since 1.9.0
+ */
+public class BinRpcEventDispatcher implements HomematicCallbackReceiver {
+    private static final Logger logger = LoggerFactory.getLogger(BinRpcEventDispatcher.class);
+
+    /**
+     * Number of waiting events from which the callback server stops reading
+     */
+    public static final int MAX_PENDING = 2000;
+
+    /**
+     * Events which are passed later than this time in milliseconds after they were received are counted as late
+     */
+    private static final long LATE_THRESHOLD = 5000;
+
+    /**
+     * Events of a device passed in one go before the thread is given to other devices
+     */
+    private static final int BATCH_SIZE = 50;
+
+    private static final String NEW_DEVICES_KEY = "";
+
+    private HomematicContext context = HomematicContext.getInstance();
+
+    private final HomematicCallbackReceiver callbackReceiver;
+    private final boolean conflate;
+    private final ExecutorService executor;
+    private final Map<String, DeviceQueue> deviceQueues = new HashMap<String, DeviceQueue>();
+    private int pending = 0;
+
+    private long received = 0;
+    private long conflated = 0;
+    private long dropped = 0;
+    private long late = 0;
+    private long maxDelay = 0;
+
+    public BinRpcEventDispatcher(HomematicCallbackReceiver callbackReceiver, boolean conflate) {
+        this.callbackReceiver = callbackReceiver;
+        this.conflate = conflate;
+
+        int threads = Math.max(2, Math.min(4, Runtime.getRuntime().availableProcessors()));
+        final AtomicInteger threadCount = new AtomicInteger();
+        executor = Executors.newFixedThreadPool(threads, new ThreadFactory() {
+
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread thread = new Thread(r, "Homematic callback-" + threadCount.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+    }
+
+    /**
+     * Queues the event behind the waiting events of the same device.
+     */
+    @Override
+    public void event(String interfaceId, String address, String parameterKey, Object value) {
+        add(new PendingEvent(interfaceId, address, parameterKey, value));
+    }
+
+    /**
+     * Queues the notification about new devices, it is passed in order with other new devices notifications.
+     */
+    @Override
+    public void newDevices(String interfaceId, Object[] deviceDescriptions) {
+        add(new PendingEvent(interfaceId, deviceDescriptions));
+    }
+
+    /**
+     * Returns the number of events waiting to be passed to the callbackReceiver.
+     */
+    public synchronized int getPending() {
+        return pending;
+    }
+
+    /**
+     * Stops the threads, events which are still waiting are dropped.
+     */
+    public void shutdown() {
+        executor.shutdownNow();
+        synchronized (this) {
+            for (DeviceQueue deviceQueue : deviceQueues.values()) {
+                dropped += deviceQueue.events.size();
+            }
+            deviceQueues.clear();
+            pending = 0;
+        }
+        logger.debug("Callback statistics: {}", getStatistics());
+    }
+
+    /**
+     * Returns the number of received, conflated, dropped, late and waiting events and the longest dispatch delay.
+     */
+    public synchronized String getStatistics() {
+        return "received=" + received + ", conflated=" + conflated + ", dropped=" + dropped + ", late=" + late
+                + ", pending=" + pending + ", maxDelay=" + maxDelay + "ms";
+    }
+
+    private synchronized void add(PendingEvent event) {
+        received++;
+        String key = event.getDeviceKey();
+        DeviceQueue deviceQueue = deviceQueues.get(key);
+        if (deviceQueue == null) {
+            deviceQueue = new DeviceQueue(key);
+            deviceQueues.put(key, deviceQueue);
+        }
+
+        if (conflate && event.parameterKey != null && context.getStateHolder() != null
+                && context.getStateHolder().isDatapointReloadInProgress()) {
+            for (PendingEvent waiting : deviceQueue.events) {
+                if (waiting.isSameDatapoint(event)) {
+                    waiting.value = event.value;
+                    conflated++;
+                    return;
+                }
+            }
+        }
+
+        deviceQueue.events.add(event);
+        pending++;
+        if (!deviceQueue.scheduled) {
+            schedule(deviceQueue);
+        }
+    }
+
+    private void schedule(DeviceQueue deviceQueue) {
+        try {
+            executor.execute(deviceQueue);
+            deviceQueue.scheduled = true;
+        } catch (RejectedExecutionException ex) {
+            dropped += deviceQueue.events.size();
+            pending -= deviceQueue.events.size();
+            deviceQueue.events.clear();
+            deviceQueues.remove(deviceQueue.key);
+        }
+    }
+
+    private synchronized PendingEvent next(DeviceQueue deviceQueue, int count) {
+        PendingEvent event = count < BATCH_SIZE ? deviceQueue.events.poll() : null;
+        if (event != null) {
+            pending--;
+            long delay = System.currentTimeMillis() - event.received;
+            maxDelay = Math.max(maxDelay, delay);
+            if (delay > LATE_THRESHOLD) {
+                late++;
+            }
+            return event;
+        }
+        deviceQueue.scheduled = false;
+        if (deviceQueue.events.isEmpty()) {
+            deviceQueues.remove(deviceQueue.key);
+        } else {
+            // give the thread to other devices, continue later
+            schedule(deviceQueue);
+        }
+        return null;
+    }
+
+    /**
+     * The waiting events of a device.
+     */
+    private class DeviceQueue implements Runnable {
+        private final String key;
+        private final ArrayDeque<PendingEvent> events = new ArrayDeque<PendingEvent>();
+        private boolean scheduled;
+
+        public DeviceQueue(String key) {
+            this.key = key;
+        }
+
+        @Override
+        public void run() {
+            int count = 0;
+            PendingEvent event;
+            while ((event = next(this, count++)) != null) {
+                try {
+                    if (event.parameterKey == null) {
+                        callbackReceiver.newDevices(event.interfaceId, event.deviceDescriptions);
+                    } else {
+                        callbackReceiver.event(event.interfaceId, event.address, event.parameterKey, event.value);
+                    }
+                } catch (RuntimeException ex) {
+                    logger.error(ex.getMessage(), ex);
+                }
+            }
+        }
+    }
+
+    /**
+     * A received event, the value is guarded by the dispatcher.
+     */
+    private static class PendingEvent {
+        private final long received = System.currentTimeMillis();
+        private final String interfaceId;
+        private final String address;
+        private final String parameterKey;
+        private Object value;
+        private final Object[] deviceDescriptions;
+
+        public PendingEvent(String interfaceId, String address, String parameterKey, Object value) {
+            this.interfaceId = interfaceId;
+            this.address = address;
+            this.parameterKey = parameterKey;
+            this.value = value;
+            this.deviceDescriptions = null;
+        }
+
+        public PendingEvent(String interfaceId, Object[] deviceDescriptions) {
+            this.interfaceId = interfaceId;
+            this.address = null;
+            this.parameterKey = null;
+            this.deviceDescriptions = deviceDescriptions;
+        }
+
+        /**
+         * Returns the device address without the channel.
+         */
+        public String getDeviceKey() {
+            if (address == null) {
+                return NEW_DEVICES_KEY;
+            }
+            int channelSeparator = address.indexOf(':');
+            return channelSeparator < 0 ? address : address.substring(0, channelSeparator);
+        }
+
+        public boolean isSameDatapoint(PendingEvent other) {
+            return parameterKey != null && parameterKey.equals(other.parameterKey) && address.equals(other.address)
+                    && (interfaceId == null ? other.interfaceId == null : interfaceId.equals(other.interfaceId));
+        }
+    }
+}
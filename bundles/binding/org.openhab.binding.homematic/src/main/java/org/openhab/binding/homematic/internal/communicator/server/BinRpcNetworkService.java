@@ -9,10 +9,14 @@
 package org.openhab.binding.homematic.internal.communicator.server;
 
 import java.io.IOException;
-import java.net.ServerSocket;
-import java.net.Socket;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.Iterator;
 
 import org.openhab.binding.homematic.internal.common.HomematicConfig;
 import org.openhab.binding.homematic.internal.common.HomematicContext;
@@ -21,8 +25,13 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 /**
- * Waits for a message from the Homematic server and starts the
- * BinRpcCallbackHandler to handle the message.
+ * Waits for messages from the Homematic server on a single thread and hands
+ * them to the BinRpcCallbackHandler as soon as they are complete.
+ *
+ * The events are passed to the callbackReceiver by the BinRpcEventDispatcher.
+ * While too many events are waiting there, no more messages are read. As the
+ * Homematic server waits for the response of a message before it sends the
+ * next one, this slows down the server instead of queuing up events.
  *
  * @author Gerhard Riegler
  * @since 1.5.0
@@ -30,35 +39,75 @@ import org.slf4j.LoggerFactory;
 public class BinRpcNetworkService implements Runnable {
     private static final Logger logger = LoggerFactory.getLogger(BinRpcNetworkService.class);
 
-    private ServerSocket serverSocket;
-    private final ExecutorService pool = Executors.newCachedThreadPool();
-    private boolean accept = true;
-    private HomematicCallbackReceiver callbackReceiver;
+    private static final int MAX_MESSAGE_SIZE = 16 * 1024 * 1024;
+
+    /**
+     * Interval in milliseconds to check if reading can be resumed
+     */
+    private static final long PAUSE_CHECK_INTERVAL = 100;
+
+    private final Selector selector;
+    private final ServerSocketChannel serverChannel;
+    private final BinRpcEventDispatcher dispatcher;
+    private final BinRpcCallbackHandler callbackHandler;
+    private volatile boolean accept = true;
+    private boolean paused = false;
 
     /**
      * Creates the socket for listening to events from the Homematic server.
      */
     public BinRpcNetworkService(HomematicCallbackReceiver callbackReceiver) throws Exception {
-        this.callbackReceiver = callbackReceiver;
-
         HomematicConfig config = HomematicContext.getInstance().getConfig();
-        serverSocket = new ServerSocket(config.getCallbackPort());
-        serverSocket.setReuseAddress(true);
+        dispatcher = new BinRpcEventDispatcher(callbackReceiver, config.isCallbackConflate());
+        callbackHandler = new BinRpcCallbackHandler(dispatcher);
+
+        selector = Selector.open();
+        serverChannel = ServerSocketChannel.open();
+        serverChannel.socket().setReuseAddress(true);
+        serverChannel.socket().bind(new InetSocketAddress(config.getCallbackPort()));
+        serverChannel.configureBlocking(false);
+        serverChannel.register(selector, SelectionKey.OP_ACCEPT);
     }
 
     /**
-     * Listening for events and starts the callbackHandler if a event received.
+     * Listening for events and handles the messages when they are received.
      */
     @Override
     public void run() {
-        while (accept) {
-            try {
-                Socket cs = serverSocket.accept();
-                BinRpcCallbackHandler rpcHandler = new BinRpcCallbackHandler(cs, callbackReceiver);
-                pool.execute(rpcHandler);
-            } catch (IOException ex) {
-                // ignore
+        try {
+            while (accept) {
+                updateReading();
+                selector.select(paused ? PAUSE_CHECK_INTERVAL : 0);
+
+                Iterator<SelectionKey> it = selector.selectedKeys().iterator();
+                while (it.hasNext()) {
+                    SelectionKey key = it.next();
+                    it.remove();
+                    try {
+                        if (!key.isValid()) {
+                            continue;
+                        }
+                        if (key.isAcceptable()) {
+                            acceptConnection();
+                        } else {
+                            if (key.isReadable()) {
+                                read(key);
+                            }
+                            if (key.isValid() && key.isWritable()) {
+                                write(key);
+                            }
+                        }
+                    } catch (IOException ex) {
+                        close(key);
+                    }
+                }
             }
+        } catch (ClosedSelectorException ex) {
+            // shutdown
+        } catch (IOException ex) {
+            logger.error(ex.getMessage(), ex);
+        } finally {
+            closeAll();
         }
     }
 
@@ -68,12 +117,137 @@ public class BinRpcNetworkService implements Runnable {
     public void shutdown() {
         logger.debug("Shutting down {}", this.getClass().getSimpleName());
         accept = false;
+        selector.wakeup();
+        dispatcher.shutdown();
+    }
+
+    private void acceptConnection() throws IOException {
+        SocketChannel channel = serverChannel.accept();
+        if (channel != null) {
+            channel.configureBlocking(false);
+            channel.register(selector, paused ? 0 : SelectionKey.OP_READ, new Connection());
+        }
+    }
+
+    /**
+     * Reads from the connection until a message is complete, handles it and
+     * starts writing the response.
+     */
+    private void read(SelectionKey key) throws IOException {
+        SocketChannel channel = (SocketChannel) key.channel();
+        Connection connection = (Connection) key.attachment();
+        while (connection.response == null) {
+            ByteBuffer buffer = connection.data == null ? connection.header : connection.data;
+            int read = channel.read(buffer);
+            if (read < 0) {
+                close(key);
+                return;
+            }
+            if (buffer.hasRemaining()) {
+                return;
+            }
+
+            if (connection.data == null) {
+                connection.data = allocateData(connection.header);
+            } else {
+                connection.data.flip();
+                try {
+                    connection.response = ByteBuffer.wrap(callbackHandler.handleMessage(connection.data));
+                } catch (Exception ex) {
+                    logger.error(ex.getMessage(), ex);
+                    close(key);
+                    return;
+                }
+                connection.data = null;
+                write(key);
+            }
+        }
+    }
+
+    private ByteBuffer allocateData(ByteBuffer header) throws IOException {
+        header.flip();
+        if (header.get() != 'B' || header.get() != 'i' || header.get() != 'n') {
+            throw new IOException("No BinX signature");
+        }
+        header.get();
+        int datasize = header.getInt();
+        if (datasize < 0 || datasize > MAX_MESSAGE_SIZE) {
+            throw new IOException("Invalid message length " + datasize);
+        }
+        return ByteBuffer.allocate(datasize);
+    }
+
+    /**
+     * Writes the response and closes the connection when it has been sent.
+     */
+    private void write(SelectionKey key) throws IOException {
+        SocketChannel channel = (SocketChannel) key.channel();
+        Connection connection = (Connection) key.attachment();
+        channel.write(connection.response);
+        if (connection.response.hasRemaining()) {
+            key.interestOps(SelectionKey.OP_WRITE);
+        } else {
+            close(key);
+        }
+    }
+
+    /**
+     * Stops reading while too many events are waiting in the dispatcher and
+     * resumes when half of them are passed.
+     */
+    private void updateReading() {
+        int pending = dispatcher.getPending();
+        if (!paused && pending >= BinRpcEventDispatcher.MAX_PENDING) {
+            paused = true;
+            logger.debug("{} events waiting, pausing callback server. {}", pending, dispatcher.getStatistics());
+            setReadInterest(false);
+        } else if (paused && pending < BinRpcEventDispatcher.MAX_PENDING / 2) {
+            paused = false;
+            logger.debug("Resuming callback server. {}", dispatcher.getStatistics());
+            setReadInterest(true);
+        }
+    }
+
+    private void setReadInterest(boolean reading) {
+        for (SelectionKey key : selector.keys()) {
+            if (key.isValid() && key.attachment() instanceof Connection
+                    && ((Connection) key.attachment()).response == null) {
+                key.interestOps(reading ? SelectionKey.OP_READ : 0);
+            }
+        }
+    }
+
+    private void close(SelectionKey key) {
+        key.cancel();
         try {
-            serverSocket.close();
-        } catch (IOException ioe) {
+            key.channel().close();
+        } catch (IOException ex) {
             // ignore
         }
-        pool.shutdownNow();
     }
 
+    private void closeAll() {
+        try {
+            for (SelectionKey key : selector.keys()) {
+                close(key);
+            }
+            selector.close();
+        } catch (Exception ex) {
+            // ignore
+        }
+        try {
+            serverChannel.close();
+        } catch (IOException ex) {
+            // ignore
+        }
+    }
+
+    /**
+     * The message which is currently read from a connection and its response.
+     */
+    private static class Connection {
+        private final ByteBuffer header = ByteBuffer.allocate(8);
+        private ByteBuffer data;
+        private ByteBuffer response;
+    }
 }
@@ -0,0 +1,194 @@
+/**
+ * Copyright (c) 2010-2016 by the respective copyright holders.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.binding.http.internal;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.Hashtable;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.openhab.binding.http.internal.HttpBinding.CacheConfig;
+import org.osgi.service.cm.ConfigurationException;
+
+import junit.framework.Assert;
+
+/**
+ * Refreshes a cache from a loopback server which answers with scripted
+ * responses and records the conditional request headers it receives.
+ *
+ * @author Thomas.Eichstaedt-Engelen
+ * @since 1.9.0
+ */
+public class HttpBindingCacheTest {
+
+    private static final String CACHE_ID = "weather";
+
+    private ServerSocket serverSocket;
+
+    private Thread serverThread;
+
+    private final Queue<String> responses = new ConcurrentLinkedQueue<String>();
+
+    private final List<List<String>> requests = new ArrayList<List<String>>();
+
+    private HttpBinding binding;
+
+    @Before
+    public void setUp() throws IOException, ConfigurationException {
+        serverSocket = new ServerSocket(0, 10, InetAddress.getLoopbackAddress());
+        serverThread = new Thread() {
+            @Override
+            public void run() {
+                while (!serverSocket.isClosed()) {
+                    try {
+                        serve(serverSocket.accept());
+                    } catch (IOException e) {
+                        // closed
+                    }
+                }
+            }
+        };
+        serverThread.start();
+
+        Hashtable<String, Object> config = new Hashtable<String, Object>();
+        config.put(CACHE_ID + ".url", "http://127.0.0.1:" + serverSocket.getLocalPort() + "/weather");
+        config.put(CACHE_ID + ".updateInterval", "0");
+        binding = new HttpBinding();
+        binding.updated(config);
+    }
+
+    @After
+    public void tearDown() throws IOException, InterruptedException {
+        serverSocket.close();
+        serverThread.join();
+    }
+
+    @Test
+    public void testNotModifiedKeepsData() {
+        responses.add(ok("ETag: \"v1\"\r\n", "sunny"));
+        responses.add("HTTP/1.0 304 Not Modified\r\nETag: \"v1\"\r\nConnection: close\r\n\r\n");
+
+        Assert.assertEquals("sunny", binding.getCacheData(CACHE_ID));
+        Assert.assertEquals("sunny", binding.getCacheData(CACHE_ID));
+
+        CacheConfig cacheConfig = binding.getCacheConfig(CACHE_ID);
+        Assert.assertFalse(getRequestHeaders(0).contains("if-none-match: \"v1\""));
+        Assert.assertTrue(getRequestHeaders(1).toString(), getRequestHeaders(1).contains("if-none-match: \"v1\""));
+        Assert.assertEquals(2, cacheConfig.requests);
+        Assert.assertEquals(1, cacheConfig.notModified);
+        Assert.assertEquals(1, cacheConfig.changed);
+        Assert.assertEquals(1, cacheConfig.version);
+    }
+
+    @Test
+    public void testLastModifiedIsSentBack() {
+        String lastModified = "Wed, 21 Oct 2015 07:28:00 GMT";
+        responses.add(ok("Last-Modified: " + lastModified + "\r\n", "sunny"));
+        responses.add(ok("Last-Modified: " + lastModified + "\r\n", "rainy"));
+
+        binding.getCacheData(CACHE_ID);
+        Assert.assertEquals("rainy", binding.getCacheData(CACHE_ID));
+
+        Assert.assertTrue(getRequestHeaders(1).toString(),
+                getRequestHeaders(1).contains("if-modified-since: " + lastModified.toLowerCase()));
+        Assert.assertEquals(2, binding.getCacheConfig(CACHE_ID).version);
+    }
+
+    @Test
+    public void testUnchangedContentKeepsVersion() {
+        responses.add(ok("", "sunny"));
+        responses.add(ok("", "sunny"));
+        responses.add(ok("", "rainy"));
+
+        binding.getCacheData(CACHE_ID);
+        binding.getCacheData(CACHE_ID);
+        CacheConfig cacheConfig = binding.getCacheConfig(CACHE_ID);
+        Assert.assertEquals(1, cacheConfig.unchanged);
+        Assert.assertEquals(1, cacheConfig.version);
+
+        Assert.assertEquals("rainy", binding.getCacheData(CACHE_ID));
+        Assert.assertEquals(2, cacheConfig.changed);
+        Assert.assertEquals(2, cacheConfig.version);
+    }
+
+    @Test
+    public void testItemSkipsProcessedVersion() {
+        responses.add(ok("", "sunny"));
+        responses.add(ok("", "sunny"));
+        responses.add(ok("", "rainy"));
+        CacheConfig cacheConfig = binding.getCacheConfig(CACHE_ID);
+
+        binding.getCacheData(CACHE_ID);
+        Assert.assertEquals("sunny", binding.getUnprocessedCacheData("Weather1", cacheConfig));
+        Assert.assertEquals("sunny", binding.getUnprocessedCacheData("Weather2", cacheConfig));
+
+        binding.getCacheData(CACHE_ID);
+        Assert.assertNull(binding.getUnprocessedCacheData("Weather1", cacheConfig));
+        Assert.assertNull(binding.getUnprocessedCacheData("Weather2", cacheConfig));
+        Assert.assertEquals(2, cacheConfig.skippedUpdates);
+
+        binding.getCacheData(CACHE_ID);
+        Assert.assertEquals("rainy", binding.getUnprocessedCacheData("Weather1", cacheConfig));
+    }
+
+    @Test
+    public void testFailedRefreshDropsValidators() {
+        responses.add(ok("ETag: \"v1\"\r\n", "sunny"));
+
+        binding.getCacheData(CACHE_ID);
+        // nothing scripted, the connection is closed without a response
+        Assert.assertNull(binding.getCacheData(CACHE_ID));
+
+        CacheConfig cacheConfig = binding.getCacheConfig(CACHE_ID);
+        Assert.assertNull(cacheConfig.etag);
+        Assert.assertNull(cacheConfig.hash);
+    }
+
+    private static String ok(String headers, String body) {
+        return "HTTP/1.0 200 OK\r\nContent-Type: text/plain\r\nContent-Length: " + body.length() + "\r\n" + headers
+                + "Connection: close\r\n\r\n" + body;
+    }
+
+    private synchronized List<String> getRequestHeaders(int index) {
+        return requests.get(index);
+    }
+
+    private void serve(Socket socket) throws IOException {
+        try {
+            BufferedReader reader = new BufferedReader(new InputStreamReader(socket.getInputStream(), "ISO-8859-1"));
+            List<String> headers = new ArrayList<String>();
+            String line;
+            while ((line = reader.readLine()) != null && !line.isEmpty()) {
+                headers.add(line.toLowerCase());
+            }
+            synchronized (this) {
+                requests.add(headers);
+            }
+            String response = responses.poll();
+            if (response != null) {
+                OutputStream out = socket.getOutputStream();
+                out.write(response.getBytes("ISO-8859-1"));
+                out.flush();
+            }
+        } finally {
+            socket.close();
+        }
+    }
+}
@@ -0,0 +1,159 @@
+/**
+ * Copyright (c) 2010-2016 by the respective copyright holders.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.binding.http.internal;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.openhab.binding.http.internal.HttpPollingEngine.ResponseListener;
+
+import junit.framework.Assert;
+
+/**
+ * Polls 500 items from a loopback server which answers every request after
+ * 10 ms and prints the total cycle time. The requests go through the real
+ * HttpUtil, so this also covers the connection handling of a whole cycle.
+ *
+ * @author Thomas.Eichstaedt-Engelen
+ * @since 1.9.0
+ */
+public class HttpPollingEngineBenchmarkTest {
+
+    private static final int ITEMS = 500;
+
+    private static final int MAX_REQUESTS_PER_HOST = 4;
+
+    private ServerSocket serverSocket;
+    private ExecutorService serverThreads;
+    private final AtomicInteger running = new AtomicInteger();
+    private final AtomicInteger maxRunning = new AtomicInteger();
+    private final AtomicInteger served = new AtomicInteger();
+
+    @Before
+    public void startServer() throws IOException {
+        serverSocket = new ServerSocket(0);
+        serverThreads = Executors.newCachedThreadPool();
+        serverThreads.execute(new Runnable() {
+            @Override
+            public void run() {
+                while (!serverSocket.isClosed()) {
+                    try {
+                        final Socket socket = serverSocket.accept();
+                        serverThreads.execute(new Runnable() {
+                            @Override
+                            public void run() {
+                                serve(socket);
+                            }
+                        });
+                    } catch (IOException e) {
+                        // closed
+                    }
+                }
+            }
+        });
+    }
+
+    @After
+    public void stopServer() throws IOException {
+        serverSocket.close();
+        serverThreads.shutdownNow();
+    }
+
+    @Test
+    public void testCycleTimeDistinctUrls() throws Exception {
+        long cycleTime = poll(ITEMS);
+        System.out.println("HTTP polling of " + ITEMS + " items with distinct urls took " + cycleTime + " ms");
+
+        Assert.assertEquals(ITEMS, served.get());
+        Assert.assertTrue(maxRunning.get() <= MAX_REQUESTS_PER_HOST);
+    }
+
+    @Test
+    public void testCycleTimeSharedUrls() throws Exception {
+        long cycleTime = poll(10);
+        System.out.println("HTTP polling of " + ITEMS + " items sharing 10 urls took " + cycleTime + " ms, "
+                + served.get() + " requests sent");
+
+        Assert.assertTrue(served.get() < ITEMS);
+        Assert.assertTrue(maxRunning.get() <= MAX_REQUESTS_PER_HOST);
+    }
+
+    private long poll(int urls) throws InterruptedException {
+        HttpPollingEngine engine = new HttpPollingEngine(10, MAX_REQUESTS_PER_HOST);
+        final CountDownLatch done = new CountDownLatch(ITEMS);
+        final AtomicInteger failed = new AtomicInteger();
+        long start = System.currentTimeMillis();
+        for (int i = 0; i < ITEMS; i++) {
+            String url = "http://127.0.0.1:" + serverSocket.getLocalPort() + "/item" + (i % urls);
+            engine.requestUrl(url, null, 5000, new ResponseListener() {
+                @Override
+                public void responseReceived(String response) {
+                    if (!"42".equals(response)) {
+                        failed.incrementAndGet();
+                    }
+                    done.countDown();
+                }
+            });
+        }
+        Assert.assertTrue(done.await(60, TimeUnit.SECONDS));
+        long cycleTime = System.currentTimeMillis() - start;
+        engine.shutdown();
+
+        Assert.assertEquals(0, failed.get());
+        return cycleTime;
+    }
+
+    private void serve(Socket socket) {
+        int current = running.incrementAndGet();
+        int max;
+        while (current > (max = maxRunning.get()) && !maxRunning.compareAndSet(max, current)) {
+            // retry
+        }
+        boolean answered = false;
+        try {
+            BufferedReader reader = new BufferedReader(new InputStreamReader(socket.getInputStream(), "ISO-8859-1"));
+            String line;
+            while ((line = reader.readLine()) != null && !line.isEmpty()) {
+                // skip the request headers
+            }
+            Thread.sleep(10);
+            served.incrementAndGet();
+            // the client may send the next request as soon as it has the response
+            running.decrementAndGet();
+            answered = true;
+            OutputStream out = socket.getOutputStream();
+            out.write("HTTP/1.0 200 OK\r\nContent-Type: text/plain\r\nContent-Length: 2\r\nConnection: close\r\n\r\n42"
+                    .getBytes("ISO-8859-1"));
+            out.flush();
+        } catch (Exception e) {
+            // the client gave up
+        } finally {
+            if (!answered) {
+                running.decrementAndGet();
+            }
+            try {
+                socket.close();
+            } catch (IOException e) {
+                // ignore
+            }
+        }
+    }
+}
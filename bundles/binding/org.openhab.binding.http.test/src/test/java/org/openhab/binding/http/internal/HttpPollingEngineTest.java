@@ -0,0 +1,184 @@
+/**
+ * Copyright (c) 2010-2016 by the respective copyright holders.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.binding.http.internal;
+
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.openhab.binding.http.internal.HttpPollingEngine.ResponseListener;
+
+import junit.framework.Assert;
+
+/**
+ * Runs requests whose responses are released by the test, so no server is
+ * needed and the tests don't depend on timing.
+ *
+ * @author Thomas.Eichstaedt-Engelen
+ * @since 1.9.0
+ */
+public class HttpPollingEngineTest {
+
+    private HttpPollingEngine engine;
+
+    private List<String> responses;
+
+    private CountDownLatch done;
+
+    @Before
+    public void init() {
+        engine = new HttpPollingEngine(4, 1);
+        responses = new CopyOnWriteArrayList<String>();
+    }
+
+    @After
+    public void shutdown() {
+        engine.shutdown();
+    }
+
+    @Test
+    public void testRunningRequestIsCollapsed() throws InterruptedException {
+        Fetch fetch = new Fetch("42");
+        done = new CountDownLatch(2);
+        engine.request("url", "host", fetch, listener);
+        Assert.assertTrue(fetch.started.await(10, TimeUnit.SECONDS));
+        engine.request("url", "host", fetch, listener);
+        fetch.release.countDown();
+
+        Assert.assertTrue(done.await(10, TimeUnit.SECONDS));
+        Assert.assertEquals(1, fetch.calls.get());
+        Assert.assertEquals("42", responses.get(0));
+        Assert.assertEquals("42", responses.get(1));
+    }
+
+    @Test
+    public void testAnsweredRequestIsCollapsedWithinPollWindow() throws InterruptedException {
+        Fetch fetch = new Fetch("42");
+        fetch.release.countDown();
+        done = new CountDownLatch(1);
+        engine.startPollWindow();
+        engine.request("url", "host", fetch, listener);
+        Assert.assertTrue(done.await(10, TimeUnit.SECONDS));
+
+        // answered from the poll window, without a request
+        done = new CountDownLatch(1);
+        engine.request("url", "host", fetch, listener);
+        Assert.assertEquals(0, done.getCount());
+        Assert.assertEquals(1, fetch.calls.get());
+
+        engine.startPollWindow();
+        done = new CountDownLatch(1);
+        engine.request("url", "host", fetch, listener);
+        Assert.assertTrue(done.await(10, TimeUnit.SECONDS));
+        Assert.assertEquals(2, fetch.calls.get());
+        Assert.assertEquals(3, responses.size());
+    }
+
+    @Test
+    public void testFailedRequestIsSentAgain() throws InterruptedException {
+        Fetch fetch = new Fetch(null);
+        fetch.release.countDown();
+        done = new CountDownLatch(1);
+        engine.request("url", "host", fetch, listener);
+        Assert.assertTrue(done.await(10, TimeUnit.SECONDS));
+
+        done = new CountDownLatch(1);
+        engine.request("url", "host", fetch, listener);
+        Assert.assertTrue(done.await(10, TimeUnit.SECONDS));
+        Assert.assertEquals(2, fetch.calls.get());
+        Assert.assertEquals("null", responses.get(1));
+    }
+
+    @Test
+    public void testRequestsToOneHostAreLimited() throws InterruptedException {
+        Fetch first = new Fetch("1");
+        Fetch second = new Fetch("2");
+        second.release.countDown();
+        done = new CountDownLatch(2);
+        engine.request("url1", "host", first, listener);
+        engine.request("url2", "host", second, listener);
+        Assert.assertTrue(first.started.await(10, TimeUnit.SECONDS));
+        Assert.assertEquals(0, second.calls.get());
+
+        first.release.countDown();
+        Assert.assertTrue(done.await(10, TimeUnit.SECONDS));
+        Assert.assertEquals("1", responses.get(0));
+        Assert.assertEquals("2", responses.get(1));
+    }
+
+    @Test
+    public void testRequestsToDifferentHostsRunInParallel() throws InterruptedException {
+        Fetch first = new Fetch("1");
+        Fetch second = new Fetch("2");
+        done = new CountDownLatch(2);
+        engine.request("url1", "host1", first, listener);
+        engine.request("url2", "host2", second, listener);
+
+        Assert.assertTrue(first.started.await(10, TimeUnit.SECONDS));
+        Assert.assertTrue(second.started.await(10, TimeUnit.SECONDS));
+        first.release.countDown();
+        second.release.countDown();
+        Assert.assertTrue(done.await(10, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testRejectedRequestFails() throws InterruptedException {
+        Fetch fetch = new Fetch("42");
+        fetch.release.countDown();
+        engine.shutdown();
+
+        done = new CountDownLatch(1);
+        engine.request("url", "host", fetch, listener);
+        Assert.assertEquals(0, done.getCount());
+        Assert.assertEquals("null", responses.get(0));
+        Assert.assertEquals(0, fetch.calls.get());
+        Assert.assertTrue(engine.getStatistics(), engine.getStatistics().contains("waiting=0"));
+    }
+
+    private final ResponseListener listener = new ResponseListener() {
+
+        @Override
+        public void responseReceived(String response) {
+            responses.add(String.valueOf(response));
+            done.countDown();
+        }
+    };
+
+    /**
+     * Returns a fixed response as soon as it is released.
+     */
+    private static class Fetch implements Callable<String> {
+
+        private final String response;
+
+        private final CountDownLatch started = new CountDownLatch(1);
+
+        private final CountDownLatch release = new CountDownLatch(1);
+
+        private final AtomicInteger calls = new AtomicInteger();
+
+        public Fetch(String response) {
+            this.response = response;
+        }
+
+        @Override
+        public String call() throws Exception {
+            calls.incrementAndGet();
+            started.countDown();
+            release.await(10, TimeUnit.SECONDS);
+            return response;
+        }
+    }
+}
@@ -0,0 +1,251 @@
+/**
+ * Copyright (c) 2010-2016 by the respective copyright holders.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.binding.http.internal;
+
+import static org.apache.commons.lang.StringUtils.isNotBlank;
+
+import java.io.IOException;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.util.Properties;
+
+import org.apache.commons.httpclient.Credentials;
+import org.apache.commons.httpclient.DefaultHttpMethodRetryHandler;
+import org.apache.commons.httpclient.Header;
+import org.apache.commons.httpclient.HttpClient;
+import org.apache.commons.httpclient.HttpMethod;
+import org.apache.commons.httpclient.HttpMethodBase;
+import org.apache.commons.httpclient.HttpStatus;
+import org.apache.commons.httpclient.NTCredentials;
+import org.apache.commons.httpclient.UsernamePasswordCredentials;
+import org.apache.commons.httpclient.auth.AuthScope;
+import org.apache.commons.httpclient.params.HttpMethodParams;
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.lang.StringUtils;
+import org.openhab.io.net.http.HttpUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Sends a GET request with the If-None-Match and If-Modified-Since headers,
+ * set up like the requests of {@link HttpUtil#executeUrl}: proxy, credentials,
+ * timeout and retries are handled the same way. HttpUtil only returns the
+ * body of a response, a conditional request also needs its status and its
+ * ETag and Last-Modified headers.
+ *
+ * @author Thomas.Eichstaedt-Engelen
+ * @since 1.9.0
+ */
+public class ConditionalGet {
+
+    private static final Logger logger = LoggerFactory.getLogger(ConditionalGet.class);
+
+    /**
+     * The status, body and validators of a response.
+     */
+    public static class Response {
+
+        /** HTTP status code */
+        public final int statusCode;
+
+        /** The body, empty if the content is not modified */
+        public final byte[] body;
+
+        /** The charset of the body */
+        public final String charset;
+
+        /** ETag header or <code>null</code> */
+        public final String etag;
+
+        /** Last-Modified header or <code>null</code> */
+        public final String lastModified;
+
+        Response(int statusCode, byte[] body, String charset, String etag, String lastModified) {
+            this.statusCode = statusCode;
+            this.body = body;
+            this.charset = charset;
+            this.etag = etag;
+            this.lastModified = lastModified;
+        }
+
+        /**
+         * @return true if the server answered with 304 Not Modified
+         */
+        public boolean isNotModified() {
+            return statusCode == HttpStatus.SC_NOT_MODIFIED;
+        }
+    }
+
+    /**
+     * Requests the url, conditionally if an ETag or a Last-Modified value is
+     * given.
+     *
+     * @param url the url to request, may contain user info for authentication
+     * @param httpHeaders further headers to send, may be <code>null</code>
+     * @param etag the ETag of the cached content or <code>null</code>
+     * @param lastModified the Last-Modified value of the cached content or
+     *            <code>null</code>
+     * @param timeout the socket and connection timeout in milliseconds
+     * @return the response
+     * @throws IOException if the request failed
+     */
+    public static Response execute(String url, Properties httpHeaders, String etag, String lastModified, int timeout)
+            throws IOException {
+        HttpClient client = new HttpClient();
+        HttpMethod method = HttpUtil.createHttpMethod("GET", url);
+        method.getParams().setSoTimeout(timeout);
+        method.getParams().setParameter(HttpMethodParams.RETRY_HANDLER, new DefaultHttpMethodRetryHandler(3, false));
+        client.getHttpConnectionManager().getParams().setConnectionTimeout(timeout);
+
+        configureProxy(client, url);
+
+        Credentials credentials = extractCredentials(url);
+        if (credentials != null) {
+            client.getParams().setAuthenticationPreemptive(true);
+            client.getState().setCredentials(AuthScope.ANY, credentials);
+        }
+
+        if (httpHeaders != null) {
+            for (String name : httpHeaders.stringPropertyNames()) {
+                method.addRequestHeader(name, httpHeaders.getProperty(name));
+            }
+        }
+        if (etag != null) {
+            method.addRequestHeader("If-None-Match", etag);
+        }
+        if (lastModified != null) {
+            method.addRequestHeader("If-Modified-Since", lastModified);
+        }
+
+        try {
+            int statusCode = client.executeMethod(method);
+            if (statusCode == HttpStatus.SC_NOT_MODIFIED) {
+                return new Response(statusCode, new byte[0], null, etag, lastModified);
+            }
+            if (statusCode != HttpStatus.SC_OK) {
+                logger.warn("Method failed: {}", method.getStatusLine());
+            }
+
+            byte[] body = IOUtils.toByteArray(method.getResponseBodyAsStream());
+            return new Response(statusCode, body, ((HttpMethodBase) method).getResponseCharSet(),
+                    getHeader(method, "ETag"), getHeader(method, "Last-Modified"));
+        } finally {
+            method.releaseConnection();
+        }
+    }
+
+    private static String getHeader(HttpMethod method, String name) {
+        Header header = method.getResponseHeader(name);
+        return header == null ? null : header.getValue();
+    }
+
+    /**
+     * Configures the proxy given by the <code>http.proxy*</code> system
+     * properties, the same way as {@link HttpUtil} does: the proxy is only
+     * used if <code>http.proxySet</code> is true and the host of the url is not
+     * matched by <code>http.nonProxyHosts</code>.
+     *
+     * @param client
+     * @param url
+     */
+    private static void configureProxy(HttpClient client, String url) {
+        if (!"true".equalsIgnoreCase(System.getProperty("http.proxySet"))) {
+            return;
+        }
+        String proxyHost = System.getProperty("http.proxyHost");
+        if (StringUtils.isBlank(proxyHost) || !shouldUseProxy(url, System.getProperty("http.nonProxyHosts"))) {
+            return;
+        }
+
+        int proxyPort = 80;
+        String proxyPortString = System.getProperty("http.proxyPort");
+        if (isNotBlank(proxyPortString)) {
+            try {
+                proxyPort = Integer.parseInt(proxyPortString);
+            } catch (NumberFormatException e) {
+                logger.warn("'{}' is not a valid proxy port - using port 80 instead", proxyPortString);
+            }
+        }
+        client.getHostConfiguration().setProxy(proxyHost, proxyPort);
+
+        String proxyUser = System.getProperty("http.proxyUser");
+        if (isNotBlank(proxyUser)) {
+            client.getState().setProxyCredentials(AuthScope.ANY,
+                    new UsernamePasswordCredentials(proxyUser, System.getProperty("http.proxyPassword")));
+        }
+    }
+
+    /**
+     * Checks the host of a url against the <code>|</code> separated host
+     * patterns of <code>http.nonProxyHosts</code>, which may start or end
+     * with <code>*</code>.
+     *
+     * @param url
+     * @param nonProxyHosts
+     * @return false if the url must be requested without the proxy
+     */
+    static boolean shouldUseProxy(String url, String nonProxyHosts) {
+        if (StringUtils.isBlank(nonProxyHosts)) {
+            return true;
+        }
+        String host;
+        try {
+            host = new URL(url).getHost().toLowerCase();
+        } catch (MalformedURLException e) {
+            return true;
+        }
+        for (String pattern : nonProxyHosts.toLowerCase().split("\\|")) {
+            pattern = pattern.trim();
+            if (pattern.isEmpty()) {
+                continue;
+            }
+            boolean matches;
+            if (pattern.startsWith("*")) {
+                matches = host.endsWith(pattern.substring(1));
+            } else if (pattern.endsWith("*")) {
+                matches = host.startsWith(pattern.substring(0, pattern.length() - 1));
+            } else {
+                matches = host.equals(pattern);
+            }
+            if (matches) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Extracts the user name and password from the user info of a url. A user
+     * name which starts with a domain, separated by a backslash, is used for
+     * NTLM authentication.
+     *
+     * @param url
+     * @return the credentials or <code>null</code> if the url contains none
+     */
+    static Credentials extractCredentials(String url) {
+        try {
+            URL parsedUrl = new URL(url);
+            String userInfo = parsedUrl.getUserInfo();
+            if (isNotBlank(userInfo)) {
+                String[] parts = userInfo.split(":", 2);
+                String username = parts[0];
+                String password = parts.length > 1 ? parts[1] : "";
+                int domainEnd = username.indexOf('\\');
+                if (domainEnd > 0) {
+                    return new NTCredentials(username.substring(domainEnd + 1), password, parsedUrl.getHost(),
+                            username.substring(0, domainEnd));
+                }
+                return new UsernamePasswordCredentials(username, password);
+            }
+        } catch (MalformedURLException e) {
+            // no credentials
+        }
+        return null;
+    }
+}
@@ -11,18 +11,26 @@ package org.openhab.binding.http.internal;
 import static org.apache.commons.lang.StringUtils.isNotBlank;
 import static org.openhab.binding.http.internal.HttpGenericBindingProvider.CHANGED_COMMAND_KEY;
 
+import java.security.MessageDigest;
+import java.util.Arrays;
 import java.util.Calendar;
+import java.util.Collections;
 import java.util.Dictionary;
 import java.util.Enumeration;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 import org.apache.commons.lang.StringUtils;
 import org.openhab.binding.http.HttpBindingProvider;
+import org.openhab.binding.http.internal.HttpPollingEngine.ResponseListener;
 import org.openhab.core.binding.AbstractActiveBinding;
+import org.openhab.core.binding.BindingProvider;
 import org.openhab.core.items.Item;
 import org.openhab.core.library.items.ContactItem;
 import org.openhab.core.library.items.DateTimeItem;
@@ -65,6 +73,8 @@ public class HttpBinding extends AbstractActiveBinding<HttpBindingProvider>imple
     protected static final String CONFIG_TIMEOUT = "timeout";
     protected static final String CONFIG_GRANULARITY = "granularity";
     protected static final String CONFIG_FORMAT = "format";
+    protected static final String CONFIG_MAX_REQUESTS = "maxRequests";
+    protected static final String CONFIG_MAX_REQUESTS_PER_HOST = "maxRequestsPerHost";
 
     /** the timeout to use for connecting to a given host (defaults to 5000 milliseconds) */
     private int timeout = 5000;
@@ -75,7 +85,24 @@ public class HttpBinding extends AbstractActiveBinding<HttpBindingProvider>imple
     /** whether to substitute time and/or state into the URL */
     private boolean format = true;
 
-    private Map<String, Long> lastUpdateMap = new HashMap<String, Long>();
+    /** the number of requests running at the same time (defaults to 10) */
+    private int maxRequests = 10;
+
+    /** the number of requests running at the same time to one host (defaults to 2) */
+    private int maxRequestsPerHost = 2;
+
+    private Map<String, Long> lastUpdateMap = new ConcurrentHashMap<String, Long>();
+
+    /** items whose request is waiting or running */
+    private Set<String> pendingItems = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+
+    /** version of the cache content last processed per item */
+    private Map<String, Long> cacheVersions = new ConcurrentHashMap<String, Long>();
+
+    /** parsed transformation and resolved service per item */
+    private Map<String, ItemTransformation> itemTransformations = new ConcurrentHashMap<String, ItemTransformation>();
+
+    private HttpPollingEngine pollingEngine;
 
     /** RegEx to extract a parse a function String <code>'(.*?)\((.*)\)'</code> */
     private static final Pattern EXTRACT_FUNCTION_PATTERN = Pattern.compile("(.*?)\\((.*)\\)");
@@ -112,6 +139,19 @@ public class HttpBinding extends AbstractActiveBinding<HttpBindingProvider>imple
         setProperlyConfigured(true);
     }
 
+    @Override
+    public void deactivate() {
+        super.deactivate();
+        synchronized (this) {
+            if (pollingEngine != null) {
+                logger.debug("HTTP polling statistics: {}", pollingEngine.getStatistics());
+                pollingEngine.shutdown();
+                pollingEngine = null;
+            }
+        }
+        pendingItems.clear();
+    }
+
     protected void addBindingProvider(HttpBindingProvider bindingProvider) {
         super.addBindingProvider(bindingProvider);
     }
@@ -120,6 +160,26 @@ public class HttpBinding extends AbstractActiveBinding<HttpBindingProvider>imple
         super.removeBindingProvider(bindingProvider);
     }
 
+    /**
+     * @{inheritDoc}
+     */
+    @Override
+    public void bindingChanged(BindingProvider provider, String itemName) {
+        itemTransformations.remove(itemName);
+        cacheVersions.remove(itemName);
+        super.bindingChanged(provider, itemName);
+    }
+
+    /**
+     * @{inheritDoc}
+     */
+    @Override
+    public void allBindingsChanged(BindingProvider provider) {
+        itemTransformations.clear();
+        cacheVersions.clear();
+        super.allBindingsChanged(provider);
+    }
+
     /**
      * @{inheritDoc}
      */
@@ -138,9 +198,15 @@ public class HttpBinding extends AbstractActiveBinding<HttpBindingProvider>imple
 
     /**
      * @{inheritDoc}
+     *
+     * Items which need an update are requested through the {@link HttpPollingEngine}, their states are posted
+     * when the responses arrive. An item is not requested again while its previous request is still pending.
+     * Identical requests of items refreshed in the same call are sent only once.
      */
     @Override
     public void execute() {
+        HttpPollingEngine engine = getPollingEngine();
+        engine.startPollWindow();
 
         for (HttpBindingProvider provider : providers) {
             for (String itemName : provider.getInBindingItemNames()) {
@@ -152,7 +218,6 @@ public class HttpBinding extends AbstractActiveBinding<HttpBindingProvider>imple
 
                 Properties headers = provider.getHttpHeaders(itemName);
                 int refreshInterval = provider.getRefreshInterval(itemName);
-                String transformation = provider.getTransformation(itemName);
 
                 Long lastUpdateTimeStamp = lastUpdateMap.get(itemName);
                 if (lastUpdateTimeStamp == null) {
@@ -162,66 +227,92 @@ public class HttpBinding extends AbstractActiveBinding<HttpBindingProvider>imple
                 long age = System.currentTimeMillis() - lastUpdateTimeStamp;
                 boolean needsUpdate = age >= refreshInterval;
 
-                if (needsUpdate) {
-
-                    String response = null;
+                if (needsUpdate && !pendingItems.contains(itemName)) {
 
                     // check if special URL is used and data should get from
                     // cache rather than directly from server
                     if (isCacheConfig(url)) {
                         logger.debug("item '{}' is fetched from cache", itemName);
-                        response = getCacheData(url);
+                        pendingItems.add(itemName);
+                        final String cacheId = url;
+                        engine.request("cache:" + cacheId, cacheId, new Callable<String>() {
+                            @Override
+                            public String call() {
+                                return getCacheData(cacheId);
+                            }
+                        }, new CacheItemUpdater(provider, itemName, cacheId));
                     } else if (isValidUrl(url)) {
                         logger.debug("item '{}' is about to be refreshed now", itemName);
-                        response = HttpUtil.executeUrl("GET", url, headers, null, null, timeout);
+                        pendingItems.add(itemName);
+                        engine.requestUrl(url, headers, timeout, new ItemUpdater(provider, itemName, url));
                     } else {
                         logger.debug("item '{}' is not a valid URL or is a cache id yet to be initialised ({})",
                                 itemName, url);
-                        continue;
                     }
+                }
+            }
+        }
+    }
 
-                    if (response == null) {
-                        logger.error("No response received from '{}'", url);
-                    } else {
-                        String transformedResponse;
-                        try {
-                            String[] parts = splitTransformationConfig(transformation);
-                            String transformationType = parts[0];
-                            String transformationFunction = parts[1];
-
-                            TransformationService transformationService = TransformationHelper
-                                    .getTransformationService(HttpActivator.getContext(), transformationType);
-                            if (transformationService != null) {
-                                transformedResponse = transformationService.transform(transformationFunction, response);
-                            } else {
-                                transformedResponse = response;
-                                logger.warn(
-                                        "couldn't transform response because transformationService of type '{}' is unavailable",
-                                        transformationType);
-                            }
-                        } catch (TransformationException te) {
-                            logger.error("transformation throws exception [transformation=" + transformation
-                                    + ", response=" + response + "]", te);
+    private synchronized HttpPollingEngine getPollingEngine() {
+        if (pollingEngine == null) {
+            pollingEngine = new HttpPollingEngine(maxRequests, maxRequestsPerHost);
+        }
+        return pollingEngine;
+    }
 
-                            // in case of an error we return the response without any
-                            // transformation
-                            transformedResponse = response;
-                        }
+    /**
+     * Transforms the response and posts the new state of the item.
+     */
+    private void updateItem(HttpBindingProvider provider, String itemName, String url, String response) {
+        if (response == null) {
+            logger.error("No response received from '{}'", url);
+            return;
+        }
 
-                        logger.debug("transformed response is '{}'", transformedResponse);
+        String transformation = provider.getTransformation(itemName);
+        String transformedResponse;
+        try {
+            ItemTransformation itemTransformation = getItemTransformation(itemName, transformation);
+            TransformationService transformationService = itemTransformation.getService();
+            if (transformationService != null) {
+                transformedResponse = transformationService.transform(itemTransformation.function, response);
+            } else {
+                transformedResponse = response;
+                logger.warn("couldn't transform response because transformationService of type '{}' is unavailable",
+                        itemTransformation.type);
+            }
+        } catch (TransformationException te) {
+            logger.error("transformation throws exception [transformation=" + transformation + ", response="
+                    + response + "]", te);
 
-                        Class<? extends Item> itemType = provider.getItemType(itemName);
-                        State state = createState(itemType, transformedResponse);
+            // in case of an error we return the response without any
+            // transformation
+            transformedResponse = response;
+        }
 
-                        if (state != null) {
-                            eventPublisher.postUpdate(itemName, state);
-                        }
-                    }
+        logger.debug("transformed response is '{}'", transformedResponse);
 
-                    lastUpdateMap.put(itemName, System.currentTimeMillis());
-                }
-            }
+        Class<? extends Item> itemType = provider.getItemType(itemName);
+        State state = createState(itemType, transformedResponse);
+
+        if (state != null) {
+            eventPublisher.postUpdate(itemName, state);
+        }
+    }
+
+    /**
+     * Returns the parsed transformation of an item, it is parsed again when
+     * the transformation of the item has changed.
+     */
+    private ItemTransformation getItemTransformation(String itemName, String transformation) {
+        ItemTransformation itemTransformation = itemTransformations.get(itemName);
+        if (itemTransformation == null || !itemTransformation.transformation.equals(transformation)) {
+            String[] parts = splitTransformationConfig(transformation);
+            itemTransformation = new ItemTransformation(transformation, parts[0], parts[1]);
+            itemTransformations.put(itemName, itemTransformation);
         }
+        return itemTransformation;
     }
 
     /**
@@ -363,24 +454,29 @@ public class HttpBinding extends AbstractActiveBinding<HttpBindingProvider>imple
         }
     }
 
+    CacheConfig getCacheConfig(String cacheId) {
+        synchronized (itemCacheLock) {
+            return itemCache.get(cacheId);
+        }
+    }
+
     /**
-     * Synchronized access to the item cache. Checks the <code>cacheId</code>
-     * is a cached item and returns the cached value. If the cache has
-     * expired, refresh the cache value by making a new HTTP request.
+     * Checks the <code>cacheId</code> is a cached item and returns the cached
+     * value. If the cache has expired, refresh the cache value by making a new
+     * HTTP request. Only the cache being refreshed is locked during the request.
      *
      * @param cacheId
      * @return the cached (or refreshed) dats
      */
-    private String getCacheData(String cacheId) {
-        synchronized (itemCacheLock) {
-            // check again in case the cache was cleared in between taking
-            // the lock when checking in isCacheConfig() and now
-            if (!itemCache.containsKey(cacheId)) {
-                return null;
-            }
-
-            CacheConfig cacheConfig = itemCache.get(cacheId);
+    String getCacheData(String cacheId) {
+        // check again in case the cache was cleared in between
+        // checking in isCacheConfig() and now
+        CacheConfig cacheConfig = getCacheConfig(cacheId);
+        if (cacheConfig == null) {
+            return null;
+        }
 
+        synchronized (cacheConfig) {
             long cacheAge = System.currentTimeMillis() - cacheConfig.lastUpdate;
             boolean cacheNeedsUpdate = cacheAge >= cacheConfig.updateInterval;
 
@@ -388,18 +484,81 @@ public class HttpBinding extends AbstractActiveBinding<HttpBindingProvider>imple
 
                 // update and store data on cache
                 logger.debug("updating cache for '{}' ('{}')", cacheId, cacheConfig.url);
-                cacheConfig.data = HttpUtil.executeUrl("GET", cacheConfig.url, cacheConfig.headers, null, null,
-                        timeout);
+                refreshCache(cacheConfig);
 
                 if (cacheConfig.data != null) {
                     cacheConfig.lastUpdate = System.currentTimeMillis();
                 }
+                logger.debug("cache '{}': {}", cacheId, cacheConfig.getStatistics());
             }
 
             return cacheConfig.data;
         }
     }
 
+    /**
+     * Returns the cached data if the item has not processed the current
+     * version of the cache yet, and marks that version as processed.
+     *
+     * @param itemName
+     * @param cacheConfig
+     * @return the data to process or <code>null</code> if it is unchanged
+     */
+    String getUnprocessedCacheData(String itemName, CacheConfig cacheConfig) {
+        synchronized (cacheConfig) {
+            if (cacheConfig.data == null) {
+                return null;
+            }
+            Long processedVersion = cacheVersions.get(itemName);
+            if (processedVersion != null && processedVersion == cacheConfig.version) {
+                cacheConfig.skippedUpdates++;
+                return null;
+            }
+            cacheVersions.put(itemName, cacheConfig.version);
+            return cacheConfig.data;
+        }
+    }
+
+    /**
+     * Requests the url of the cache, conditionally if the server sent an ETag
+     * or Last-Modified header before. The version of the cache is only
+     * increased if the content has changed.
+     */
+    private void refreshCache(CacheConfig cacheConfig) {
+        cacheConfig.requests++;
+
+        try {
+            ConditionalGet.Response response = ConditionalGet.execute(cacheConfig.url, cacheConfig.headers,
+                    cacheConfig.data == null ? null : cacheConfig.etag,
+                    cacheConfig.data == null ? null : cacheConfig.lastModified, timeout);
+            if (response.isNotModified()) {
+                cacheConfig.notModified++;
+                logger.trace("cache '{}' not modified", cacheConfig.id);
+                return;
+            }
+
+            byte[] hash = MessageDigest.getInstance("MD5").digest(response.body);
+            cacheConfig.etag = response.etag;
+            cacheConfig.lastModified = response.lastModified;
+
+            if (cacheConfig.data != null && Arrays.equals(hash, cacheConfig.hash)) {
+                cacheConfig.unchanged++;
+                logger.trace("content of cache '{}' is unchanged", cacheConfig.id);
+                return;
+            }
+            cacheConfig.changed++;
+            cacheConfig.data = new String(response.body, response.charset);
+            cacheConfig.hash = hash;
+            cacheConfig.version++;
+        } catch (Exception e) {
+            logger.error("Fatal transport error: {}", e.getMessage());
+            cacheConfig.data = null;
+            cacheConfig.hash = null;
+            cacheConfig.etag = null;
+            cacheConfig.lastModified = null;
+        }
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -409,6 +568,7 @@ public class HttpBinding extends AbstractActiveBinding<HttpBindingProvider>imple
         synchronized (itemCacheLock) {
             // clear any existing cache item configs
             itemCache.clear();
+            cacheVersions.clear();
 
             if (config != null) {
                 String timeoutString = (String) config.get(CONFIG_TIMEOUT);
@@ -426,6 +586,26 @@ public class HttpBinding extends AbstractActiveBinding<HttpBindingProvider>imple
                     format = formatString.equalsIgnoreCase("true");
                 }
 
+                String maxRequestsString = (String) config.get(CONFIG_MAX_REQUESTS);
+                if (StringUtils.isNotBlank(maxRequestsString)) {
+                    maxRequests = Integer.parseInt(maxRequestsString);
+                }
+
+                String maxRequestsPerHostString = (String) config.get(CONFIG_MAX_REQUESTS_PER_HOST);
+                if (StringUtils.isNotBlank(maxRequestsPerHostString)) {
+                    maxRequestsPerHost = Integer.parseInt(maxRequestsPerHostString);
+                }
+
+                // the limits are applied by a new polling engine, requests
+                // dropped by the old one are sent again in the next cycle
+                synchronized (this) {
+                    if (pollingEngine != null) {
+                        pollingEngine.shutdown();
+                        pollingEngine = null;
+                    }
+                }
+                pendingItems.clear();
+
                 // Parse page cache config
 
                 @SuppressWarnings("unchecked")
@@ -436,7 +616,9 @@ public class HttpBinding extends AbstractActiveBinding<HttpBindingProvider>imple
 
                     // the config-key enumeration contains additional keys that we
                     // don't want to process here ...
-                    if (CONFIG_TIMEOUT.equals(key) || CONFIG_GRANULARITY.equals(key) || "service.pid".equals(key)) {
+                    if (CONFIG_TIMEOUT.equals(key) || CONFIG_GRANULARITY.equals(key) || CONFIG_FORMAT.equals(key)
+                            || CONFIG_MAX_REQUESTS.equals(key) || CONFIG_MAX_REQUESTS_PER_HOST.equals(key)
+                            || "service.pid".equals(key)) {
                         continue;
                     }
 
@@ -502,6 +684,96 @@ public class HttpBinding extends AbstractActiveBinding<HttpBindingProvider>imple
         return headers;
     }
 
+    /**
+     * Posts the state of an item when the response of its request arrives.
+     */
+    private class ItemUpdater implements ResponseListener {
+
+        private final HttpBindingProvider provider;
+
+        protected final String itemName;
+
+        private final String url;
+
+        public ItemUpdater(HttpBindingProvider provider, String itemName, String url) {
+            this.provider = provider;
+            this.itemName = itemName;
+            this.url = url;
+        }
+
+        @Override
+        public void responseReceived(String response) {
+            try {
+                updateItem(provider, itemName, url, response);
+            } finally {
+                lastUpdateMap.put(itemName, System.currentTimeMillis());
+                pendingItems.remove(itemName);
+            }
+        }
+    }
+
+    /**
+     * Posts the state of an item which is fetched from a cache. The item is
+     * only updated if the content of the cache has changed since it was last
+     * processed for the item.
+     */
+    private class CacheItemUpdater extends ItemUpdater {
+
+        private final String cacheId;
+
+        public CacheItemUpdater(HttpBindingProvider provider, String itemName, String cacheId) {
+            super(provider, itemName, cacheId);
+            this.cacheId = cacheId;
+        }
+
+        @Override
+        public void responseReceived(String response) {
+            CacheConfig cacheConfig = getCacheConfig(cacheId);
+            if (cacheConfig != null && response != null) {
+                String data = getUnprocessedCacheData(itemName, cacheConfig);
+                if (data == null) {
+                    logger.trace("content of cache '{}' is unchanged, item '{}' is not updated", cacheId, itemName);
+                    lastUpdateMap.put(itemName, System.currentTimeMillis());
+                    pendingItems.remove(itemName);
+                    return;
+                }
+                response = data;
+            }
+            super.responseReceived(response);
+        }
+    }
+
+    /**
+     * The parsed transformation of an item
+     */
+    private static class ItemTransformation {
+
+        /** the transformation as configured */
+        final String transformation;
+
+        /** the type of the transformation service */
+        final String type;
+
+        /** the function or pattern passed to the transformation service */
+        final String function;
+
+        /** the resolved transformation service, looked up again as long as it is unavailable */
+        private volatile TransformationService service;
+
+        public ItemTransformation(String transformation, String type, String function) {
+            this.transformation = transformation;
+            this.type = type;
+            this.function = function;
+        }
+
+        public TransformationService getService() {
+            if (service == null) {
+                service = TransformationHelper.getTransformationService(HttpActivator.getContext(), type);
+            }
+            return service;
+        }
+    }
+
     /**
      * Internal data structure for data cache purposes
      *
@@ -526,10 +798,42 @@ public class HttpBinding extends AbstractActiveBinding<HttpBindingProvider>imple
         /** Last time when data is updated */
         long lastUpdate;
 
+        /** ETag header of the last response */
+        String etag;
+
+        /** Last-Modified header of the last response */
+        String lastModified;
+
+        /** MD5 hash of the cached data */
+        byte[] hash;
+
+        /** Increased whenever the cached data changes */
+        long version;
+
+        /** Requests sent to the url */
+        long requests;
+
+        /** Requests answered with 304 Not Modified */
+        long notModified;
+
+        /** Requests answered with the cached data */
+        long unchanged;
+
+        /** Requests answered with changed data */
+        long changed;
+
+        /** Item updates skipped as the data was unchanged */
+        long skippedUpdates;
+
         public CacheConfig(String id) {
             this.id = id;
         }
 
+        String getStatistics() {
+            return "requests=" + requests + ", notModified=" + notModified + ", unchanged=" + unchanged + ", changed="
+                    + changed + ", skippedUpdates=" + skippedUpdates;
+        }
+
         @Override
         public String toString() {
             return "CacheConfig [id=" + id + ", url=" + url + ", update interval=" + updateInterval + "]";
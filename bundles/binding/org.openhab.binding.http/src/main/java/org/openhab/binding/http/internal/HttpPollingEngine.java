@@ -0,0 +1,306 @@
+/**
+ * Copyright (c) 2010-2016 by the respective copyright holders.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.binding.http.internal;
+
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Queue;
+import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.openhab.io.net.http.HttpUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Runs the requests of the HTTP binding concurrently.
+ *
+ * At most <code>maxRequests</code> requests run at the same time, and at most
+ * <code>maxRequestsPerHost</code> of them to the same host. Further requests
+ * wait in the order they were made. A request which is identical to a request
+ * that is still waiting or running is not sent again, its listener receives
+ * the response of the running request instead. Within a poll window, started
+ * by {@link #startPollWindow()}, this also applies to a request which is made
+ * after an identical request has been answered, it receives that response.
+ *
+ * @author Thomas.Eichstaedt-Engelen
+ * @since 1.9.0
+ */
+public class HttpPollingEngine {
+
+    private static final Logger logger = LoggerFactory.getLogger(HttpPollingEngine.class);
+
+    /**
+     * Receives the response of a request.
+     */
+    public interface ResponseListener {
+
+        /**
+         * @param response the response, or <code>null</code> if the request failed
+         */
+        void responseReceived(String response);
+    }
+
+    private final int maxRequestsPerHost;
+
+    private final ExecutorService executor;
+
+    private final Map<String, HostQueue> hostQueues = new HashMap<String, HostQueue>();
+
+    private final Map<String, Request> requests = new HashMap<String, Request>();
+
+    /** responses received within the current poll window */
+    private final Map<String, String> responses = new HashMap<String, String>();
+
+    private long sent = 0;
+
+    private long collapsed = 0;
+
+    private long totalTime = 0;
+
+    private long maxTime = 0;
+
+    public HttpPollingEngine(int maxRequests, int maxRequestsPerHost) {
+        this.maxRequestsPerHost = Math.max(1, maxRequestsPerHost);
+        final AtomicInteger threadCount = new AtomicInteger();
+        executor = Executors.newFixedThreadPool(Math.max(1, maxRequests), new ThreadFactory() {
+
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread thread = new Thread(r, "HTTP poller-" + threadCount.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+    }
+
+    /**
+     * Requests a url with GET.
+     *
+     * @param url the url to request
+     * @param headers the HTTP headers to send, may be <code>null</code>
+     * @param timeout the timeout in milliseconds
+     * @param listener receives the response
+     */
+    public void requestUrl(final String url, final Properties headers, final int timeout,
+            ResponseListener listener) {
+        String key = headers == null || headers.isEmpty() ? url : url + new TreeMap<Object, Object>(headers);
+        request(key, getHost(url), new Callable<String>() {
+
+            @Override
+            public String call() {
+                return HttpUtil.executeUrl("GET", url, headers, null, null, timeout);
+            }
+        }, listener);
+    }
+
+    /**
+     * Runs a request.
+     *
+     * @param key identifies the request, requests with the same key are collapsed
+     * @param host the host the request is limited for
+     * @param fetch fetches the response
+     * @param listener receives the response
+     */
+    public void request(String key, String host, Callable<String> fetch, ResponseListener listener) {
+        String response;
+        List<Request> rejected;
+        synchronized (this) {
+            response = responses.get(key);
+            if (response == null) {
+                Request request = requests.get(key);
+                if (request != null) {
+                    collapsed++;
+                    request.listeners.add(listener);
+                    return;
+                }
+                request = new Request(key, fetch);
+                request.listeners.add(listener);
+                requests.put(key, request);
+
+                HostQueue hostQueue = hostQueues.get(host);
+                if (hostQueue == null) {
+                    hostQueue = new HostQueue(host);
+                    hostQueues.put(host, hostQueue);
+                }
+                hostQueue.waiting.add(request);
+                rejected = startNext(hostQueue);
+            } else {
+                collapsed++;
+                rejected = null;
+            }
+        }
+        if (rejected != null) {
+            notifyRejected(rejected);
+        } else {
+            notifyListener(key, listener, response);
+        }
+    }
+
+    /**
+     * Returns the number of sent and collapsed requests and their duration.
+     */
+    public synchronized String getStatistics() {
+        return "sent=" + sent + ", collapsed=" + collapsed + ", waiting=" + requests.size() + ", avgTime="
+                + (sent == 0 ? 0 : totalTime / sent) + " ms, maxTime=" + maxTime + " ms";
+    }
+
+    /**
+     * Stops the engine. Running requests are finished, waiting requests are
+     * dropped.
+     */
+    public void shutdown() {
+        executor.shutdown();
+        synchronized (this) {
+            hostQueues.clear();
+            requests.clear();
+            responses.clear();
+        }
+    }
+
+    /**
+     * Starts a new poll window. Requests are sent again even if an identical
+     * request has been answered before.
+     */
+    public synchronized void startPollWindow() {
+        responses.clear();
+    }
+
+    /**
+     * Starts waiting requests of a host as far as its limit allows.
+     *
+     * @return the requests which could not be started, their listeners have
+     *         to be notified once the lock is released
+     */
+    private List<Request> startNext(final HostQueue hostQueue) {
+        List<Request> rejected = Collections.emptyList();
+        while (hostQueue.running < maxRequestsPerHost && !hostQueue.waiting.isEmpty()) {
+            final Request request = hostQueue.waiting.poll();
+            try {
+                executor.execute(new Runnable() {
+
+                    @Override
+                    public void run() {
+                        execute(hostQueue, request);
+                    }
+                });
+                hostQueue.running++;
+            } catch (RejectedExecutionException e) {
+                logger.debug("HTTP poller has been shut down, dropping request '{}'", request.key);
+                requests.remove(request.key);
+                if (rejected.isEmpty()) {
+                    rejected = new ArrayList<Request>();
+                }
+                rejected.add(request);
+            }
+        }
+        if (hostQueue.running == 0 && hostQueue.waiting.isEmpty()) {
+            hostQueues.remove(hostQueue.host);
+        }
+        return rejected;
+    }
+
+    private void execute(HostQueue hostQueue, Request request) {
+        long start = System.currentTimeMillis();
+        String response = null;
+        try {
+            response = request.fetch.call();
+        } catch (Exception e) {
+            logger.error("Request '{}' failed", request.key, e);
+        }
+        long time = System.currentTimeMillis() - start;
+
+        List<ResponseListener> listeners;
+        List<Request> rejected;
+        synchronized (this) {
+            sent++;
+            totalTime += time;
+            maxTime = Math.max(maxTime, time);
+            requests.remove(request.key);
+            if (response != null) {
+                responses.put(request.key, response);
+            }
+            listeners = new ArrayList<ResponseListener>(request.listeners);
+            hostQueue.running--;
+            rejected = startNext(hostQueue);
+        }
+
+        for (ResponseListener listener : listeners) {
+            notifyListener(request.key, listener, response);
+        }
+        notifyRejected(rejected);
+    }
+
+    /**
+     * Notifies the listeners of requests which could not be started that they failed.
+     */
+    private void notifyRejected(List<Request> rejected) {
+        for (Request request : rejected) {
+            for (ResponseListener listener : request.listeners) {
+                notifyListener(request.key, listener, null);
+            }
+        }
+    }
+
+    private void notifyListener(String key, ResponseListener listener, String response) {
+        try {
+            listener.responseReceived(response);
+        } catch (RuntimeException e) {
+            logger.error("Unable to process the response of '{}'", key, e);
+        }
+    }
+
+    private static String getHost(String url) {
+        try {
+            URL parsed = new URL(url);
+            return parsed.getHost() + ":" + parsed.getPort();
+        } catch (MalformedURLException e) {
+            return url;
+        }
+    }
+
+    private static class Request {
+
+        private final String key;
+
+        private final Callable<String> fetch;
+
+        private final List<ResponseListener> listeners = new ArrayList<ResponseListener>(1);
+
+        public Request(String key, Callable<String> fetch) {
+            this.key = key;
+            this.fetch = fetch;
+        }
+    }
+
+    private static class HostQueue {
+
+        private final String host;
+
+        private final Queue<Request> waiting = new ArrayDeque<Request>();
+
+        private int running;
+
+        public HostQueue(String host) {
+            this.host = host;
+        }
+    }
+}
@@ -0,0 +1,87 @@
+/**
+ * Copyright (c) 2010-2016 by the respective copyright holders.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.binding.insteonplm.internal.driver.hub;
+
+import java.util.Arrays;
+
+import org.junit.Test;
+
+import junit.framework.Assert;
+
+/**
+ * Tests the decoding of the ring buffer of the hub.
+ *
+ * @author Bernd Pfrommer
+ * @since 1.9.0
+ */
+public class HubIOStreamTest {
+
+    @Test
+    public void testDecodeRange() {
+        byte[] hex = ascii("<BS>02621F0A2B0F190006</BS>");
+        assertBytes("02621F0A2B0F190006", HubIOStream.s_decode(hex, 4, 18, 4, 0));
+        assertBytes("1F0A2B", HubIOStream.s_decode(hex, 8, 6, 4, 0));
+        assertBytes("", HubIOStream.s_decode(hex, 8, 0, 4, 0));
+    }
+
+    @Test
+    public void testDecodeWrapAround() {
+        // the new data starts at index 16 and continues at the start of the buffer
+        byte[] hex = ascii("0304000000000000" + "0102");
+        assertBytes("01020304", HubIOStream.s_decode(hex, 16, 4, 0, 4));
+        // the end of the buffer is reached exactly
+        assertBytes("0102", HubIOStream.s_decode(hex, 16, 4, 0, 0));
+        // nothing new before the end of the buffer
+        assertBytes("0304", HubIOStream.s_decode(hex, 20, 0, 0, 4));
+    }
+
+    @Test
+    public void testDecodeByteSplitByWrapAround() {
+        // the high digit of the last byte is at the end of the buffer, the low digit at the start
+        byte[] hex = ascii("F" + "00000000" + "02621");
+        assertBytes("02621F", HubIOStream.s_decode(hex, 9, 5, 0, 1));
+    }
+
+    @Test
+    public void testDecodeSkipsLeadingZeroBytes() {
+        // left over from clearing the buffer
+        assertBytes("0262", HubIOStream.s_decode(ascii("00000262"), 0, 8, 0, 0));
+        assertBytes("", HubIOStream.s_decode(ascii("000000"), 0, 6, 0, 0));
+        // zero bytes within the data are kept
+        assertBytes("02000062", HubIOStream.s_decode(ascii("0002000062"), 0, 10, 0, 0));
+        // leading zeros spanning the wrap around
+        assertBytes("0250", HubIOStream.s_decode(ascii("0250" + "000000"), 6, 4, 0, 4));
+        assertBytes("", HubIOStream.s_decode(ascii("00" + "00"), 2, 2, 0, 2));
+    }
+
+    @Test
+    public void testDecodeBytesWithSignBit() {
+        byte[] bytes = HubIOStream.s_decode(ascii("FF80807f"), 0, 8, 0, 0);
+        Assert.assertTrue(Arrays.equals(new byte[] { (byte) 0xff, (byte) 0x80, (byte) 0x80, 0x7f }, bytes));
+        // a leading zero byte is skipped, a leading byte with the sign bit is not
+        assertBytes("80", HubIOStream.s_decode(ascii("0080"), 0, 4, 0, 0));
+        assertBytes("E2", HubIOStream.s_decode(ascii("e2" + "00"), 2, 2, 0, 2));
+    }
+
+    private static byte[] ascii(String s) {
+        byte[] b = new byte[s.length()];
+        for (int i = 0; i < b.length; i++) {
+            b[i] = (byte) s.charAt(i);
+        }
+        return b;
+    }
+
+    private static void assertBytes(String expected, byte[] actual) {
+        StringBuilder b = new StringBuilder();
+        for (byte a : actual) {
+            b.append(String.format("%02X", a));
+        }
+        Assert.assertEquals(expected, b.toString());
+    }
+}
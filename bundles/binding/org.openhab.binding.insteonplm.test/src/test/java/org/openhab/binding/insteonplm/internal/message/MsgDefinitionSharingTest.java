@@ -0,0 +1,75 @@
+/**
+ * Copyright (c) 2010-2016 by the respective copyright holders.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.binding.insteonplm.internal.message;
+
+import org.junit.Test;
+
+import junit.framework.Assert;
+
+/**
+ * Checks that messages share the definition of their template until a field
+ * is added to them, and that adding a field changes neither the template nor
+ * the other messages made from it.
+ *
+ * @author Bernd Pfrommer
+ * @since 1.9.0
+ */
+public class MsgDefinitionSharingTest {
+
+    @Test
+    public void testMessagesShareDefinitionOfTemplate() throws Exception {
+        Msg first = Msg.s_makeMessage("SendStandardMessage");
+        Msg second = Msg.s_makeMessage("SendStandardMessage");
+        Assert.assertSame(first.getDefinition(), second.getDefinition());
+
+        byte[] frame = RecordedTraffic.toBytes("0250 2A1B3C 44D5E6 41 11 01");
+        Msg received = Msg.s_createMessage(frame, frame.length, false);
+        Msg other = Msg.s_createMessage(frame, frame.length, false);
+        Assert.assertSame(received.getDefinition(), other.getDefinition());
+    }
+
+    @Test
+    public void testAddFieldCopiesSharedDefinition() throws Exception {
+        Msg msg = Msg.s_makeMessage("SendStandardMessage");
+        MsgDefinition shared = msg.getDefinition();
+        int fields = shared.getFields().size();
+
+        msg.addField(new Field("extra", DataType.BYTE, 7));
+
+        Assert.assertNotSame(shared, msg.getDefinition());
+        Assert.assertTrue(msg.getDefinition().containsField("extra"));
+        Assert.assertEquals(fields + 1, msg.getDefinition().getFields().size());
+        Assert.assertFalse(shared.containsField("extra"));
+        Assert.assertEquals(fields, shared.getFields().size());
+        Assert.assertFalse(Msg.s_makeMessage("SendStandardMessage").getDefinition().containsField("extra"));
+
+        // the copy belongs to the message, further fields are added to it
+        MsgDefinition copy = msg.getDefinition();
+        msg.addField(new Field("more", DataType.BYTE, 7));
+        Assert.assertSame(copy, msg.getDefinition());
+        Assert.assertTrue(copy.containsField("more"));
+        Assert.assertFalse(shared.containsField("more"));
+    }
+
+    @Test
+    public void testAddFieldKeepsResolvedFields() throws Exception {
+        byte[] frame = RecordedTraffic.toBytes("0250 2A1B3C 44D5E6 41 11 01");
+        Msg msg = Msg.s_createMessage(frame, frame.length, false);
+        MsgDefinition shared = msg.getDefinition();
+
+        msg.addField(new Field("ACK/NACK", DataType.BYTE, 10));
+
+        Assert.assertSame(shared.getMessageFlagsField(), msg.getDefinition().getMessageFlagsField());
+        Assert.assertSame(shared.getCmdField(), msg.getDefinition().getCmdField());
+        Assert.assertTrue(msg.isCleanup());
+        Assert.assertFalse(msg.isUnsolicited());
+        Assert.assertFalse(shared.hasAckNack());
+        Assert.assertTrue(Msg.s_createMessage(frame, frame.length, false).isUnsolicited());
+    }
+}
@@ -0,0 +1,94 @@
+/**
+ * Copyright (c) 2010-2016 by the respective copyright holders.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.binding.insteonplm.internal.message;
+
+import org.junit.Test;
+import org.openhab.binding.insteonplm.internal.device.InsteonAddress;
+
+import junit.framework.Assert;
+
+/**
+ * Replays the {@link RecordedTraffic} through the {@link MsgFactory} in
+ * chunks of the size the serial port delivers, runs the checks the message
+ * handlers do on every message and prints the time per message.
+ *
+ * @author Bernd Pfrommer
+ * @since 1.9.0
+ */
+public class MsgFactoryReplayBenchmarkTest {
+
+    private static final int WARMUP = 2000;
+
+    private static final int REPLAYS = 20000;
+
+    /** The serial port returns between 1 and this number of bytes per read */
+    private static final int MAX_CHUNK = 32;
+
+    @Test
+    public void testReplay() throws Exception {
+        byte[] traffic = RecordedTraffic.getBytes();
+        byte[] chunk = new byte[MAX_CHUNK];
+
+        for (int i = 0; i < WARMUP; i++) {
+            replay(traffic, chunk);
+        }
+
+        int messages = 0;
+        long start = System.nanoTime();
+        for (int i = 0; i < REPLAYS; i++) {
+            messages += replay(traffic, chunk);
+        }
+        long elapsed = System.nanoTime() - start;
+
+        Assert.assertEquals(REPLAYS * RecordedTraffic.FRAMES.length, messages);
+        System.out.println("Replayed " + REPLAYS + " times " + RecordedTraffic.FRAMES.length + " frames ("
+                + traffic.length + " bytes): " + elapsed / messages + " ns per message");
+    }
+
+    private static int replay(byte[] traffic, byte[] chunk) throws Exception {
+        MsgFactory factory = new MsgFactory();
+        int messages = 0;
+        int offset = 0;
+        int len = 1;
+        while (offset < traffic.length) {
+            len = Math.min(len % MAX_CHUNK + 1, traffic.length - offset);
+            System.arraycopy(traffic, offset, chunk, 0, len);
+            offset += len;
+            factory.addData(chunk, len);
+            Msg msg;
+            while ((msg = factory.processData()) != null) {
+                handle(msg);
+                messages++;
+            }
+        }
+        return messages;
+    }
+
+    private static void handle(Msg msg) throws FieldException {
+        if (msg.isPureNack() || msg.isEcho()) {
+            return;
+        }
+        if (msg.isX10()) {
+            msg.getByte("rawX10");
+            return;
+        }
+        if (msg.getDefinition().containsField("fromAddress")) {
+            InsteonAddress from = msg.getAddr("fromAddress");
+            Assert.assertNotNull(from);
+            if (msg.isBroadcast() || msg.isCleanup() || msg.isAllLinkCleanupAckOrNack() || msg.isAckOfDirect()) {
+                msg.getByte("command1");
+                msg.getByte("command2");
+            }
+            if (msg.isExtended()) {
+                msg.getBytes("userData1", 14);
+            }
+            msg.getHopsLeft();
+        }
+    }
+}
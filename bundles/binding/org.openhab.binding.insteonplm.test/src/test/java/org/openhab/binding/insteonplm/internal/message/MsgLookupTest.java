@@ -0,0 +1,169 @@
+/**
+ * Copyright (c) 2010-2016 by the respective copyright holders.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.binding.insteonplm.internal.message;
+
+import java.io.InputStream;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import junit.framework.Assert;
+
+/**
+ * Compares the lookups of {@link Msg} through the tables built when the
+ * definitions are loaded with the lookups through the maps keyed by
+ * command number and by field name they replaced.
+ *
+ * @author Bernd Pfrommer
+ * @since 1.9.0
+ */
+public class MsgLookupTest {
+
+    private static final HashMap<Integer, Integer> s_headerMap = new HashMap<Integer, Integer>();
+
+    private static final HashMap<Integer, Msg> s_replyMap = new HashMap<Integer, Msg>();
+
+    private static final HashMap<Integer, MsgType> s_typeMap = new HashMap<Integer, MsgType>();
+
+    @BeforeClass
+    public static void setUp() throws Exception {
+        InputStream stream = Msg.class.getClassLoader().getResourceAsStream("msg_definitions.xml");
+        try {
+            for (Msg m : XMLMessageReader.s_readMessageDefinitions(stream).values()) {
+                if (m.getDirection() == Msg.Direction.FROM_MODEM) {
+                    s_headerMap.put(new Integer(m.getCommandNumber()), m.getHeaderLength());
+                    s_replyMap.put(new Integer(m.getCommandNumber() + (m.isExtended() ? 256 : 0)), m);
+                }
+            }
+        } finally {
+            stream.close();
+        }
+        // the byte values of the message types
+        s_typeMap.put(0x80, MsgType.BROADCAST);
+        s_typeMap.put(0x00, MsgType.DIRECT);
+        s_typeMap.put(0x20, MsgType.ACK_OF_DIRECT);
+        s_typeMap.put(0xa0, MsgType.NACK_OF_DIRECT);
+        s_typeMap.put(0xc0, MsgType.ALL_LINK_BROADCAST);
+        s_typeMap.put(0x40, MsgType.ALL_LINK_CLEANUP);
+        s_typeMap.put(0x60, MsgType.ALL_LINK_CLEANUP_ACK);
+        s_typeMap.put(0xe0, MsgType.ALL_LINK_CLEANUP_NACK);
+        s_typeMap.put(0xff, MsgType.INVALID);
+    }
+
+    @Test
+    public void testHeaderAndMessageLengths() {
+        Assert.assertFalse(s_replyMap.isEmpty());
+        for (int cmd = 0; cmd < 256; cmd++) {
+            byte b = (byte) cmd;
+            Integer headerLength = s_headerMap.get(new Integer(b));
+            Assert.assertEquals("header of " + cmd, headerLength == null ? -1 : headerLength.intValue(),
+                    Msg.s_getHeaderLength(b));
+            for (boolean isExtended : new boolean[] { false, true }) {
+                Msg template = s_replyMap.get(b + (isExtended ? 256 : 0));
+                Assert.assertEquals("length of " + cmd, template == null ? -1 : template.getLength(),
+                        Msg.s_getMessageLength(b, isExtended));
+            }
+        }
+    }
+
+    @Test
+    public void testCreatedMessagesUseTemplate() {
+        for (Map.Entry<Integer, Msg> entry : s_replyMap.entrySet()) {
+            Msg template = entry.getValue();
+            Msg msg = Msg.s_createMessage(template.getData(), template.getLength(), entry.getKey() >= 256);
+            Assert.assertNotNull(template.toString(), msg);
+            Assert.assertEquals(template.getHeaderLength(), msg.getHeaderLength());
+            Assert.assertEquals(template.getDefinition().getFields(), msg.getDefinition().getFields());
+            Assert.assertEquals(template.toString(), msg.toString());
+        }
+    }
+
+    @Test
+    public void testMsgTypes() {
+        for (int b = 0; b < 256; b++) {
+            Assert.assertEquals(s_typeMap.get(b & 0xe0), MsgType.s_fromValue((byte) b));
+        }
+    }
+
+    @Test
+    public void testFlagsOfAllMessageFlags() throws Exception {
+        for (Msg template : s_replyMap.values()) {
+            if (!template.getDefinition().containsField("messageFlags")) {
+                assertSameFlags(template);
+                continue;
+            }
+            for (int flags = 0; flags < 256; flags++) {
+                Msg msg = new Msg(template);
+                msg.setByte("messageFlags", (byte) flags);
+                assertSameFlags(msg);
+            }
+        }
+    }
+
+    @Test
+    public void testFlagsOfRecordedTraffic() throws Exception {
+        MsgFactory factory = new MsgFactory();
+        for (String frame : RecordedTraffic.FRAMES) {
+            byte[] bytes = RecordedTraffic.toBytes(frame);
+            factory.addData(bytes, bytes.length);
+            Msg msg = factory.processData();
+            Assert.assertNotNull(frame, msg);
+            if (!msg.isPureNack()) {
+                Assert.assertEquals(frame, bytes.length, msg.getLength());
+            }
+            assertSameFlags(msg);
+        }
+    }
+
+    private static void assertSameFlags(Msg msg) {
+        String s = msg.toString();
+        Assert.assertEquals(s, isExtended(msg), msg.isExtended());
+        Assert.assertEquals(s, !msg.getDefinition().containsField("ACK/NACK"), msg.isUnsolicited());
+        Assert.assertEquals(s, isOfType(msg, MsgType.ALL_LINK_BROADCAST) || isOfType(msg, MsgType.BROADCAST),
+                msg.isBroadcast());
+        Assert.assertEquals(s, isOfType(msg, MsgType.ALL_LINK_CLEANUP), msg.isCleanup());
+        Assert.assertEquals(s, isOfType(msg, MsgType.ALL_LINK_BROADCAST) || isOfType(msg, MsgType.ALL_LINK_CLEANUP),
+                msg.isAllLink());
+        Assert.assertEquals(s, isOfType(msg, MsgType.ACK_OF_DIRECT), msg.isAckOfDirect());
+        Assert.assertEquals(s,
+                isOfType(msg, MsgType.ALL_LINK_CLEANUP_ACK) || isOfType(msg, MsgType.ALL_LINK_CLEANUP_NACK),
+                msg.isAllLinkCleanupAckOrNack());
+        for (MsgType t : MsgType.values()) {
+            Assert.assertEquals(s, isOfType(msg, t), msg.isOfType(t));
+        }
+        Assert.assertEquals(s, isX10(msg), msg.isX10());
+    }
+
+    private static boolean isExtended(Msg msg) {
+        try {
+            return msg.getLength() >= 2 && (msg.getByte("messageFlags") & 0x10) == 0x10;
+        } catch (FieldException e) {
+            return false;
+        }
+    }
+
+    private static boolean isOfType(Msg msg, MsgType mt) {
+        try {
+            return s_typeMap.get(msg.getByte("messageFlags") & 0xe0) == mt;
+        } catch (FieldException e) {
+            return false;
+        }
+    }
+
+    private static boolean isX10(Msg msg) {
+        try {
+            int cmd = msg.getByte("Cmd") & 0xff;
+            return cmd == 0x63 || cmd == 0x52;
+        } catch (FieldException e) {
+            return false;
+        }
+    }
+}
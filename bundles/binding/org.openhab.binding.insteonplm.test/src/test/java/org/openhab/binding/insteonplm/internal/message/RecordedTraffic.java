@@ -0,0 +1,70 @@
+/**
+ * Copyright (c) 2010-2016 by the respective copyright holders.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.binding.insteonplm.internal.message;
+
+import java.io.ByteArrayOutputStream;
+
+/**
+ * Frames read from a PLM: a scene switched on a keypad with the all-link
+ * broadcast, the cleanups and their ACKs, a polled dimmer with the echo of
+ * the request and the extended reply, an X10 frame, the link database and a
+ * pure NACK.
+ *
+ * @author Bernd Pfrommer
+ * @since 1.9.0
+ */
+class RecordedTraffic {
+
+    static final String[] FRAMES = {
+            // all-link broadcast of group 1 from the keypad, cleanups to the responders
+            "0250 2A1B3C 000001 CB 11 00", "0250 2A1B3C 44D5E6 41 11 01", "0250 2A1B3C 44D5E6 41 11 01",
+            "0250 2A1B3C 1F0A2B 45 11 01", "0258 06",
+            // ACK of the cleanups by the responders
+            "0250 44D5E6 2A1B3C 61 11 01", "0250 1F0A2B 2A1B3C 61 11 01",
+            // status request of a dimmer, echo and ACK of direct
+            "0262 1F0A2B 0F 19 00 06", "0250 1F0A2B 44D5E6 2B 00 FF",
+            // extended get of the operating flags, echo and reply
+            "0262 1F0A2B 1F 2E 00 0000000000000000000000000000 06",
+            "0250 1F0A2B 44D5E6 2B 2E 00",
+            "0251 1F0A2B 44D5E6 1B 2E 00 01010000207F1F0000000000D2E0",
+            // X10 unit code and command
+            "0252 66 00", "0252 62 80",
+            // the PLM is busy
+            "15",
+            // info of the modem and its link database
+            "0260 44D5E6 03 15 9B 06", "0269 06", "0257 E2 01 2A1B3C 01 20 41", "026A 06",
+            "0257 A2 00 1F0A2B 00 00 00", "026A 15",
+            // a motion sensor in another scene, cleanup failure
+            "0250 3C4D5E 000002 CF 11 01", "0250 3C4D5E 44D5E6 41 11 02", "0256 02 3C4D5E",
+            "0250 3C4D5E 000002 CF 13 01", "0250 3C4D5E 44D5E6 41 13 02", "0258 06" };
+
+    /**
+     * @return the frames in the order they were received
+     */
+    static byte[] getBytes() {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        for (String frame : FRAMES) {
+            byte[] bytes = toBytes(frame);
+            out.write(bytes, 0, bytes.length);
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * @return the bytes of a frame, written as hex digits with spaces
+     */
+    static byte[] toBytes(String frame) {
+        String hex = frame.replace(" ", "");
+        byte[] bytes = new byte[hex.length() / 2];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = (byte) Integer.parseInt(hex.substring(2 * i, 2 * i + 2), 16);
+        }
+        return bytes;
+    }
+}
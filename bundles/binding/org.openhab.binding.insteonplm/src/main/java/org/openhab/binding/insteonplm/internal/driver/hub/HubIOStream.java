@@ -12,9 +12,9 @@ import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
-import java.math.BigInteger;
 import java.nio.ByteBuffer;
 
+import org.apache.http.HttpEntity;
 import org.apache.http.HttpResponse;
 import org.apache.http.auth.AuthScope;
 import org.apache.http.auth.UsernamePasswordCredentials;
@@ -29,6 +29,10 @@ import org.slf4j.LoggerFactory;
 /**
  * Implements IOStream for a Hub 2014 device
  * 
+ * The status buffer of the hub is polled over a persistent connection. While
+ * data is arriving the buffer is polled every {@link #MIN_POLL_TIME} ms, when
+ * the hub is idle the poll time backs off to the configured poll time.
+ * 
  * @author Daniel Pfrommer
  * @since 1.7.0
  *
@@ -39,17 +43,42 @@ public class HubIOStream extends IOStream implements Runnable {
     /** time between polls (in milliseconds */
     private int m_pollTime = 1000;
 
+    /** time between polls while data is arriving (in milliseconds) */
+    private static final int MIN_POLL_TIME = 100;
+
+    /** connection and socket timeout of the requests (in milliseconds) */
+    private static final int TIMEOUT = 5000;
+
+    /** time between polls, between MIN_POLL_TIME and m_pollTime */
+    private volatile int m_currentPollTime = MIN_POLL_TIME;
+
+    /** the poll thread waits on this between polls */
+    private final Object m_pollWait = new Object();
+
     private String m_host = null;
     private int m_port = -1;
     private String m_user = null;
     private String m_pass = null;
 
-    private DefaultHttpClient m_client = null;
+    private volatile DefaultHttpClient m_client = null;
     private Thread m_pollThread = null;
 
     // index of the last byte we have read in the buffer
     private int m_bufferIdx = -1;
 
+    // the buffer status request, reused for every poll
+    private HttpGet m_bufferStatusGet = null;
+    // raw response of the last buffer status request
+    private byte[] m_response = new byte[1024];
+
+    // poll statistics
+    private long m_polls = 0;
+    private long m_dataPolls = 0;
+    private long m_bytesReceived = 0;
+    private long m_totalLatency = 0;
+    private long m_maxLatency = 0;
+    private long m_lastPollStart = 0;
+
     /**
      * Constructor for HubIOStream
      * 
@@ -69,12 +98,15 @@ public class HubIOStream extends IOStream implements Runnable {
 
     @Override
     public boolean open() {
-        m_client = new DefaultHttpClient();
+        DefaultHttpClient client = new DefaultHttpClient();
         if (m_user != null && m_pass != null) {
-            m_client.getCredentialsProvider().setCredentials(new AuthScope(m_host, m_port),
+            client.getCredentialsProvider().setCredentials(new AuthScope(m_host, m_port),
                     new UsernamePasswordCredentials(m_user, m_pass));
         }
-        HttpConnectionParams.setConnectionTimeout(m_client.getParams(), 5000);
+        HttpConnectionParams.setConnectionTimeout(client.getParams(), TIMEOUT);
+        HttpConnectionParams.setSoTimeout(client.getParams(), TIMEOUT);
+        m_client = client;
+        m_bufferStatusGet = new HttpGet(getURI("/buffstatus.xml"));
 
         m_in = new HubInputStream();
 
@@ -87,8 +119,22 @@ public class HubIOStream extends IOStream implements Runnable {
 
     @Override
     public void close() {
+        // stop the poll thread before the client is gone, a poll in progress
+        // ends at the latest when its request times out
         m_pollThread.interrupt();
+        if (Thread.currentThread() != m_pollThread) {
+            try {
+                m_pollThread.join(2 * TIMEOUT);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        DefaultHttpClient client = m_client;
         m_client = null;
+        if (client != null) {
+            client.getConnectionManager().shutdown();
+        }
+        logger.debug("hub poll statistics: {}", getStatistics());
 
         try {
             m_in.close();
@@ -99,24 +145,37 @@ public class HubIOStream extends IOStream implements Runnable {
     }
 
     /**
-     * Fetches the latest status buffer from the Hub
+     * Fetches the latest status buffer from the Hub into m_response, without
+     * converting it to a string
      * 
-     * @return string with status buffer
+     * @return length of the response
      * @throws IOException
      */
-    private synchronized String bufferStatus() throws IOException {
-        String result = getURL("/buffstatus.xml");
-        String[] parts = result.split("<BS>");
-        if (parts.length > 1) {
-            result = parts[1].split("</BS>")[0].trim();
-        } else if (result.startsWith("401 Unauthorized:")) {
-            logger.error("bad username or password. See bottom label of hub for correct login");
-            throw new IOException("login credentials incorrect");
-        } else {
-            logger.error("got invalid buffer status: {}", result);
-            throw new IOException("malformed bufferstatus.xml");
+    private synchronized int bufferStatus() throws IOException {
+        DefaultHttpClient client = getClient();
+        synchronized (client) {
+            HttpResponse res = client.execute(m_bufferStatusGet);
+            HttpEntity entity = res.getEntity();
+            if (entity == null) {
+                throw new IOException("empty bufferstatus.xml");
+            }
+            // the response has to be read completely to keep the connection alive
+            InputStream in = entity.getContent();
+            try {
+                int len = 0;
+                for (int n; (n = in.read(m_response, len, m_response.length - len)) != -1;) {
+                    len += n;
+                    if (len == m_response.length) {
+                        byte[] b = new byte[m_response.length * 2];
+                        System.arraycopy(m_response, 0, b, 0, len);
+                        m_response = b;
+                    }
+                }
+                return len;
+            } finally {
+                in.close();
+            }
         }
-        return result;
     }
 
     /**
@@ -138,6 +197,11 @@ public class HubIOStream extends IOStream implements Runnable {
     public synchronized void write(ByteBuffer msg) throws IOException {
         poll(); // fetch the status buffer before we send out commands
         clearBuffer(); // clear the status buffer explicitly.
+        // the reply will arrive soon, wake up the poll thread if it backed off
+        m_currentPollTime = Math.min(MIN_POLL_TIME, m_pollTime);
+        synchronized (m_pollWait) {
+            m_pollWait.notifyAll();
+        }
 
         StringBuilder b = new StringBuilder();
         while (msg.remaining() > 0) {
@@ -150,46 +214,108 @@ public class HubIOStream extends IOStream implements Runnable {
     /**
      * Polls the Hub web interface to fetch the status buffer
      * 
+     * @return true if new data has been received
      * @throws IOException if something goes wrong with I/O
      */
-    public synchronized void poll() throws IOException {
-        String buffer = bufferStatus(); // fetch via http call
-        logger.trace("poll: {}", buffer);
+    public synchronized boolean poll() throws IOException {
+        long pollStart = System.currentTimeMillis();
+        int len = bufferStatus(); // fetch via http call
+        m_polls++;
         //
         // The Hub maintains a ring buffer where the last two digits (in hex!) represent
-        // the position of the last byte read.
+        // the position of the last byte read. The data is located in m_response between
+        // the <BS> and </BS> tags and decoded from there.
         //
-        String data = buffer.substring(0, buffer.length() - 2); // pure data w/o index pointer
+        int start = indexOf(m_response, len, "<BS>", 0);
+        int end = start < 0 ? -1 : indexOf(m_response, len, "</BS>", start);
+        if (start < 0 || end < 0) {
+            String result = new String(m_response, 0, len, "US-ASCII");
+            if (result.startsWith("401 Unauthorized:")) {
+                logger.error("bad username or password. See bottom label of hub for correct login");
+                throw new IOException("login credentials incorrect");
+            }
+            logger.error("got invalid buffer status: {}", result);
+            throw new IOException("malformed bufferstatus.xml");
+        }
+        start += 4;
+        while (start < end && Character.isWhitespace(m_response[start])) {
+            start++;
+        }
+        while (end > start && Character.isWhitespace(m_response[end - 1])) {
+            end--;
+        }
+        if (logger.isTraceEnabled()) {
+            logger.trace("poll: {}", new String(m_response, start, end - start, "US-ASCII"));
+        }
+        int dataLen = end - start - 2; // pure data w/o index pointer
 
-        int nIdx = -1;
-        try {
-            nIdx = Integer.parseInt(buffer.substring(buffer.length() - 2, buffer.length()), 16);
-        } catch (NumberFormatException e) {
+        int nIdx = dataLen < 0 ? -1 : (s_hexValue(m_response[end - 2]) << 4) | s_hexValue(m_response[end - 1]);
+        if (nIdx < 0 || nIdx > dataLen) {
             m_bufferIdx = -1;
-            logger.error("invalid buffer size received in line: {}", buffer);
-            return;
+            logger.error("invalid buffer size received in line: {}",
+                    new String(m_response, start, end - start, "US-ASCII"));
+            return false;
         }
 
         if (m_bufferIdx == -1) {
             // this is the first call or first call after error, no need for buffer copying
             m_bufferIdx = nIdx;
-            return; // XXX why return here????
+            m_lastPollStart = pollStart;
+            return false;
         }
 
-        StringBuilder msg = new StringBuilder();
+        byte[] msg;
         if (nIdx < m_bufferIdx) {
-            msg.append(data.substring(m_bufferIdx + 1, data.length()));
-            msg.append(data.substring(0, nIdx));
-            logger.trace("wrap around: copying new data on: {}", msg.toString());
+            // wrap around: from the last index to the end of the buffer, then from the start
+            msg = s_decode(m_response, start + m_bufferIdx, dataLen - m_bufferIdx, start, nIdx);
+            logger.trace("wrap around: copying {} new bytes", msg.length);
         } else {
-            msg.append(data.substring(m_bufferIdx, nIdx));
-            logger.trace("no wrap:      appending new data: {}", msg.toString());
-        }
-        if (msg.length() != 0) {
-            ByteBuffer buf = ByteBuffer.wrap(s_hexStringToByteArray(msg.toString()));
-            ((HubInputStream) m_in).handle(buf);
+            msg = s_decode(m_response, start + m_bufferIdx, nIdx - m_bufferIdx, start, 0);
+            logger.trace("no wrap:      appending {} new bytes", msg.length);
         }
         m_bufferIdx = nIdx;
+
+        boolean gotData = msg.length != 0;
+        if (gotData) {
+            // the data arrived at the hub at the earliest right after the previous poll
+            long latency = System.currentTimeMillis() - m_lastPollStart;
+            m_dataPolls++;
+            m_bytesReceived += msg.length;
+            m_totalLatency += latency;
+            m_maxLatency = Math.max(m_maxLatency, latency);
+            ((HubInputStream) m_in).handle(ByteBuffer.wrap(msg));
+        }
+        m_lastPollStart = pollStart;
+        return gotData;
+    }
+
+    /**
+     * Returns the number of polls and received bytes and the latency from the
+     * poll before the data arrived at the hub until it was received.
+     * 
+     * @return statistics string
+     */
+    public synchronized String getStatistics() {
+        return "polls=" + m_polls + ", dataPolls=" + m_dataPolls + ", bytes=" + m_bytesReceived + ", avgLatency="
+                + (m_dataPolls == 0 ? 0 : m_totalLatency / m_dataPolls) + "ms, maxLatency=" + m_maxLatency
+                + "ms, pollTime=" + m_currentPollTime + "ms";
+    }
+
+    /**
+     * Builds the url of a resource on the hub
+     * 
+     * @param resource the resource
+     * @return the url
+     */
+    private String getURI(String resource) {
+        StringBuilder b = new StringBuilder();
+        b.append("http://");
+        b.append(m_host);
+        if (m_port != -1) {
+            b.append(":").append(m_port);
+        }
+        b.append(resource);
+        return b.toString();
     }
 
     /**
@@ -200,22 +326,27 @@ public class HubIOStream extends IOStream implements Runnable {
      * @throws IOException
      */
     private String getURL(String resource) throws IOException {
-        synchronized (m_client) {
-            StringBuilder b = new StringBuilder();
-            b.append("http://");
-            b.append(m_host);
-            if (m_port != -1) {
-                b.append(":").append(m_port);
-            }
-            b.append(resource);
-
-            HttpGet get = new HttpGet(b.toString());
-            HttpResponse res = m_client.execute(get);
+        DefaultHttpClient client = getClient();
+        synchronized (client) {
+            HttpGet get = new HttpGet(getURI(resource));
+            HttpResponse res = client.execute(get);
             String html = EntityUtils.toString(res.getEntity());
             return html;
         }
     }
 
+    /**
+     * @return the http client
+     * @throws IOException if the stream is closed
+     */
+    private DefaultHttpClient getClient() throws IOException {
+        DefaultHttpClient client = m_client;
+        if (client == null) {
+            throw new IOException("hub stream is closed");
+        }
+        return client;
+    }
+
     /**
      * Entry point for thread
      */
@@ -223,12 +354,20 @@ public class HubIOStream extends IOStream implements Runnable {
     public void run() {
         while (!Thread.currentThread().isInterrupted()) {
             try {
-                poll();
+                if (poll()) {
+                    m_currentPollTime = Math.min(MIN_POLL_TIME, m_pollTime);
+                } else {
+                    // back off while the hub is idle
+                    m_currentPollTime = Math.min(m_currentPollTime * 2, m_pollTime);
+                }
             } catch (IOException e) {
                 logger.error("got exception while polling: {}", e.toString());
+                m_currentPollTime = m_pollTime;
             }
             try {
-                Thread.sleep(m_pollTime);
+                synchronized (m_pollWait) {
+                    m_pollWait.wait(m_currentPollTime);
+                }
             } catch (InterruptedException e) {
                 break;
             }
@@ -236,14 +375,65 @@ public class HubIOStream extends IOStream implements Runnable {
     }
 
     /**
-     * Helper function to convert an ascii hex string (received from hub)
-     * into a byte array
+     * Helper function to convert ascii hex characters (received from hub)
+     * into a byte array. The characters may be split into two ranges when
+     * the ring buffer of the hub wrapped around. Leading zero bytes are
+     * skipped, they are left over from clearing the buffer.
      * 
-     * @param s string received from hub
+     * @param hex ascii hex characters received from hub
+     * @param off1 offset of the first range
+     * @param len1 number of characters of the first range
+     * @param off2 offset of the second range
+     * @param len2 number of characters of the second range
      * @return simple byte array
      */
-    public static byte[] s_hexStringToByteArray(String s) {
-        return new BigInteger(s, 16).toByteArray();
+    public static byte[] s_decode(byte[] hex, int off1, int len1, int off2, int len2) {
+        byte[] bytes = new byte[(len1 + len2) / 2];
+        int n = 0;
+        for (int i = 0; i < bytes.length; i++) {
+            int c = 2 * i;
+            int hi = hex[c < len1 ? off1 + c : off2 + c - len1];
+            int lo = hex[c + 1 < len1 ? off1 + c + 1 : off2 + c + 1 - len1];
+            byte b = (byte) ((s_hexValue(hi) << 4) | s_hexValue(lo));
+            if (n > 0 || b != 0) {
+                bytes[n++] = b;
+            }
+        }
+        if (n == bytes.length) {
+            return bytes;
+        }
+        byte[] result = new byte[n];
+        System.arraycopy(bytes, 0, result, 0, n);
+        return result;
+    }
+
+    /**
+     * @param c ascii hex character
+     * @return value of the character, or -1 if it isn't a hex character
+     */
+    private static int s_hexValue(int c) {
+        return Character.digit(c, 16);
+    }
+
+    /**
+     * Finds an ascii tag in a byte array
+     * 
+     * @param b the byte array to search
+     * @param len number of valid bytes in the array
+     * @param tag the tag to find
+     * @param from index to start searching at
+     * @return index of the tag, or -1 if not found
+     */
+    private static int indexOf(byte[] b, int len, String tag, int from) {
+        outer: for (int i = from; i <= len - tag.length(); i++) {
+            for (int j = 0; j < tag.length(); j++) {
+                if (b[i + j] != tag.charAt(j)) {
+                    continue outer;
+                }
+            }
+            return i;
+        }
+        return -1;
     }
 
     /**
@@ -66,16 +66,18 @@ public class Msg {
 
     // has the structure of all known messages
     private static final HashMap<String, Msg> s_msgMap = new HashMap<String, Msg>();
-    // maps between command number and the length of the header
-    private static final HashMap<Integer, Integer> s_headerMap = new HashMap<Integer, Integer>();
-    // has templates for all message from modem to host
-    private static final HashMap<Integer, Msg> s_replyMap = new HashMap<Integer, Msg>();
+    // maps between command number and the length of the header, -1 if unknown
+    private static final int[] s_headerLengths = new int[256];
+    // has templates for all message from modem to host, indexed by command number and extended flag
+    private static final Msg[] s_replyTemplates = new Msg[512];
 
     private int m_headerLength = -1;
     private byte[] m_data = null;
     private MsgDefinition m_definition = new MsgDefinition();
     private Direction m_direction = Direction.TO_MODEM;
     private long m_quietTime = 0;
+    // true while the definition is shared with the template the message was made from
+    private boolean m_sharedDefinition = false;
 
     /**
      * Constructor
@@ -100,8 +102,9 @@ public class Msg {
     public Msg(Msg m) {
         m_headerLength = m.m_headerLength;
         m_data = m.m_data.clone();
-        // the message definition usually doesn't change, but just to be sure...
-        m_definition = new MsgDefinition(m.m_definition);
+        // the message definition doesn't change, it is only copied if a field is added
+        m_definition = m.m_definition;
+        m_sharedDefinition = true;
         m_direction = m.m_direction;
     }
 
@@ -177,12 +180,12 @@ public class Msg {
         if (m_definition == null) {
             return false;
         }
-        if (!m_definition.containsField("messageFlags")) {
+        Field flags = m_definition.getMessageFlagsField();
+        if (flags == null) {
             return (false);
         }
         try {
-            byte flags = getByte("messageFlags");
-            return ((flags & 0x10) == 0x10);
+            return ((flags.getByte(m_data) & 0x10) == 0x10);
         } catch (FieldException e) {
             // do nothing
         }
@@ -192,7 +195,7 @@ public class Msg {
     public boolean isUnsolicited() {
         // if the message has an ACK/NACK, it is in response to our message,
         // otherwise it is out-of-band, i.e. unsolicited
-        return (m_definition != null) && (!m_definition.containsField("ACK/NACK"));
+        return (m_definition != null) && (!m_definition.hasAckNack());
     }
 
     public boolean isEcho() {
@@ -200,16 +203,12 @@ public class Msg {
     }
 
     public boolean isOfType(MsgType mt) {
-        try {
-            MsgType t = MsgType.s_fromValue(getByte("messageFlags"));
-            return (t == mt);
-        } catch (FieldException e) {
-            return false;
-        }
+        return getMsgType() == mt;
     }
 
     public boolean isBroadcast() {
-        return isOfType(MsgType.ALL_LINK_BROADCAST) || isOfType(MsgType.BROADCAST);
+        MsgType t = getMsgType();
+        return t == MsgType.ALL_LINK_BROADCAST || t == MsgType.BROADCAST;
     }
 
     public boolean isCleanup() {
@@ -217,7 +216,8 @@ public class Msg {
     }
 
     public boolean isAllLink() {
-        return isOfType(MsgType.ALL_LINK_BROADCAST) || isOfType(MsgType.ALL_LINK_CLEANUP);
+        MsgType t = getMsgType();
+        return t == MsgType.ALL_LINK_BROADCAST || t == MsgType.ALL_LINK_CLEANUP;
     }
 
     public boolean isAckOfDirect() {
@@ -225,12 +225,17 @@ public class Msg {
     }
 
     public boolean isAllLinkCleanupAckOrNack() {
-        return isOfType(MsgType.ALL_LINK_CLEANUP_ACK) || isOfType(MsgType.ALL_LINK_CLEANUP_NACK);
+        MsgType t = getMsgType();
+        return t == MsgType.ALL_LINK_CLEANUP_ACK || t == MsgType.ALL_LINK_CLEANUP_NACK;
     }
 
     public boolean isX10() {
+        Field f = (m_definition == null) ? null : m_definition.getCmdField();
+        if (f == null) {
+            return false;
+        }
         try {
-            int cmd = getByte("Cmd") & 0xff;
+            int cmd = f.getByte(m_data) & 0xff;
             if (cmd == 0x63 || cmd == 0x52) {
                 return true;
             }
@@ -239,8 +244,26 @@ public class Msg {
         return false;
     }
 
+    /**
+     * Gets the message type from the message flags without looking up the field by name
+     * 
+     * @return the message type, or null if the message has no message flags
+     */
+    private MsgType getMsgType() {
+        Field f = (m_definition == null) ? null : m_definition.getMessageFlagsField();
+        if (f == null) {
+            return null;
+        }
+        try {
+            return MsgType.s_fromValue(f.getByte(m_data));
+        } catch (FieldException e) {
+            return null;
+        }
+    }
+
     public void setDefinition(MsgDefinition d) {
         m_definition = d;
+        m_sharedDefinition = true;
     }
 
     public void setQuietTime(long t) {
@@ -251,6 +274,10 @@ public class Msg {
         if (m_definition == null) {
             return;
         }
+        if (m_sharedDefinition) {
+            m_definition = new MsgDefinition(m_definition);
+            m_sharedDefinition = false;
+        }
         m_definition.addField(f);
     }
 
@@ -268,7 +295,11 @@ public class Msg {
     }
 
     public int getHopsLeft() throws FieldException {
-        int hops = (getByte("messageFlags") & 0x0c) >> 2;
+        Field f = (m_definition == null) ? null : m_definition.getMessageFlagsField();
+        if (f == null) {
+            throw new FieldException("field messageFlags not found");
+        }
+        int hops = (f.getByte(m_data) & 0x0c) >> 2;
         return hops;
     }
 
@@ -527,7 +558,7 @@ public class Msg {
         if (m_buf == null || m_buf.length < 2) {
             return null;
         }
-        Msg template = s_replyMap.get(s_cmdToKey(m_buf[1], isExtended));
+        Msg template = s_replyTemplates[s_cmdToKey(m_buf[1], isExtended)];
         if (template == null) {
             return null; // cannot find lookup map
         }
@@ -547,11 +578,7 @@ public class Msg {
      * @return the length of the header to expect
      */
     public static int s_getHeaderLength(byte cmd) {
-        Integer len = s_headerMap.get(new Integer(cmd));
-        if (len == null) {
-            return (-1); // not found
-        }
-        return len;
+        return s_headerLengths[cmd & 0xff]; // -1 if not found
     }
 
     /**
@@ -562,8 +589,7 @@ public class Msg {
      * @return message length, or -1 if length cannot be determined
      */
     public static int s_getMessageLength(byte b, boolean isExtended) {
-        int key = s_cmdToKey(b, isExtended);
-        Msg msg = s_replyMap.get(key);
+        Msg msg = s_replyTemplates[s_cmdToKey(b, isExtended)];
         if (msg == null) {
             return -1;
         }
@@ -608,13 +634,14 @@ public class Msg {
     }
 
     private static int s_cmdToKey(byte cmd, boolean isExtended) {
-        return (cmd + (isExtended ? 256 : 0));
+        return ((cmd & 0xff) + (isExtended ? 256 : 0));
     }
 
     private static void s_buildHeaderMap() {
+        Arrays.fill(s_headerLengths, -1);
         for (Msg m : s_msgMap.values()) {
             if (m.getDirection() == Direction.FROM_MODEM) {
-                s_headerMap.put(new Integer(m.getCommandNumber()), m.getHeaderLength());
+                s_headerLengths[m.getCommandNumber() & 0xff] = m.getHeaderLength();
             }
         }
     }
@@ -622,8 +649,7 @@ public class Msg {
     private static void s_buildLengthMap() {
         for (Msg m : s_msgMap.values()) {
             if (m.getDirection() == Direction.FROM_MODEM) {
-                Integer key = new Integer(s_cmdToKey(m.getCommandNumber(), m.isExtended()));
-                s_replyMap.put(key, m);
+                s_replyTemplates[s_cmdToKey(m.getCommandNumber(), m.isExtended())] = m;
             }
         }
     }
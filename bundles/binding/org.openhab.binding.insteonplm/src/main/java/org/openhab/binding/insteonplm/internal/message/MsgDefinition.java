@@ -21,6 +21,10 @@ import java.util.HashMap;
 
 public class MsgDefinition {
     private HashMap<String, Field> m_fields = new HashMap<String, Field>();
+    // fields looked at for every message, resolved once when the definition is built
+    private Field m_messageFlags = null;
+    private Field m_cmd = null;
+    private boolean m_hasAckNack = false;
 
     MsgDefinition() {
     }
@@ -32,6 +36,9 @@ public class MsgDefinition {
      */
     MsgDefinition(MsgDefinition m) {
         m_fields = new HashMap<String, Field>(m.m_fields);
+        m_messageFlags = m.m_messageFlags;
+        m_cmd = m.m_cmd;
+        m_hasAckNack = m.m_hasAckNack;
     }
 
     public HashMap<String, Field> getFields() {
@@ -44,6 +51,34 @@ public class MsgDefinition {
 
     public void addField(Field field) {
         m_fields.put(field.getName(), field);
+        if (field.getName().equals("messageFlags")) {
+            m_messageFlags = field;
+        } else if (field.getName().equals("Cmd")) {
+            m_cmd = field;
+        } else if (field.getName().equals("ACK/NACK")) {
+            m_hasAckNack = true;
+        }
+    }
+
+    /**
+     * @return the messageFlags field, or null if the message has none
+     */
+    public Field getMessageFlagsField() {
+        return m_messageFlags;
+    }
+
+    /**
+     * @return the Cmd field, or null if the message has none
+     */
+    public Field getCmdField() {
+        return m_cmd;
+    }
+
+    /**
+     * @return true if the message has an ACK/NACK field
+     */
+    public boolean hasAckNack() {
+        return m_hasAckNack;
     }
 
     /**
@@ -209,6 +209,47 @@ public class KNXGenericBindingProviderTest {
         assertFalse(provider.isStartStopGA(new GroupAddress("4/2/13")));
     }
 
+    @Test
+    public void testGetListeningItemNames() throws BindingConfigParseException, KNXFormatException {
+        provider.processBindingConfiguration("text", item1, "<4/2/10+0/2/10, 5.005:4/2/11+0/2/11, +4/2/12, 4/2/13");
+        provider.processBindingConfiguration("text", item2, "<4/2/10, 5.005:4/2/11,, 4/2/13");
+
+        // method under Test
+        List<String> itemNames = new ArrayList<String>();
+        for (String itemName : provider.getListeningItemNames(new GroupAddress("4/2/10"))) {
+            itemNames.add(itemName);
+        }
+        assertEquals(2, itemNames.size());
+        assertTrue(itemNames.contains("item1"));
+        assertTrue(itemNames.contains("item2"));
+
+        assertEquals("item1", provider.getListeningItemNames(new GroupAddress("0/2/11")).iterator().next());
+        assertFalse(provider.getListeningItemNames(new GroupAddress("1/1/1")).iterator().hasNext());
+
+        Iterator<Datapoint> datapoints = provider.getDatapoints("item1", new GroupAddress("0/2/11")).iterator();
+        assertEquals(new GroupAddress("4/2/11"), datapoints.next().getMainAddress());
+        assertFalse(datapoints.hasNext());
+        assertFalse(provider.getDatapoints("item2", new GroupAddress("0/2/11")).iterator().hasNext());
+    }
+
+    @Test
+    public void testGetListeningItemNamesAfterReconfiguration() throws BindingConfigParseException, KNXFormatException {
+        provider.processBindingConfiguration("text", item1, "<4/2/10+0/2/10");
+        provider.processBindingConfiguration("other", item2, "4/2/10");
+
+        // reconfiguring an item replaces its former group addresses
+        provider.processBindingConfiguration("text", item1, "4/2/11");
+        assertFalse(provider.getListeningItemNames(new GroupAddress("0/2/10")).iterator().hasNext());
+        assertEquals("item2", provider.getListeningItemNames(new GroupAddress("4/2/10")).iterator().next());
+        assertEquals("item1", provider.getListeningItemNames(new GroupAddress("4/2/11")).iterator().next());
+
+        // removing a context only removes the items of that context
+        provider.removeConfigurations("text");
+        assertFalse(provider.getListeningItemNames(new GroupAddress("4/2/11")).iterator().hasNext());
+        assertEquals("item2", provider.getListeningItemNames(new GroupAddress("4/2/10")).iterator().next());
+        assertTrue(provider.isCommandGA(new GroupAddress("4/2/10")));
+    }
+
     private class TestItem extends GenericItem {
 
         private List<Class<? extends State>> acceptedDataTypes = new ArrayList<Class<? extends State>>();
@@ -8,11 +8,15 @@
  */
 package org.openhab.binding.knx.internal.config;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.LinkedList;
+import java.util.List;
 import java.util.Map;
-import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.openhab.binding.knx.config.KNXBindingProvider;
 import org.openhab.binding.knx.internal.dpt.KNXCoreTypeMapper;
@@ -30,7 +34,6 @@ import org.slf4j.LoggerFactory;
 import com.google.common.base.Function;
 import com.google.common.base.Predicate;
 import com.google.common.collect.Iterables;
-import com.google.common.collect.Lists;
 
 import tuwien.auto.calimero.GroupAddress;
 import tuwien.auto.calimero.datapoint.CommandDP;
@@ -104,6 +107,13 @@ public class KNXGenericBindingProvider extends AbstractGenericBindingProvider
     //Logger
     private static Logger logger = LoggerFactory.getLogger(KNXGenericBindingProvider.class);
 
+    /**
+     * Routing table which maps every configured group address to the config items that are bound to it. Lookups are
+     * lock-free; the per-address lists are immutable and replaced as a whole (copy-on-write) whenever the binding
+     * configuration changes.
+     */
+    private final Map<GroupAddress, List<KNXBindingConfigItem>> groupAddressIndex = new ConcurrentHashMap<GroupAddress, List<KNXBindingConfigItem>>();
+
     /**
      * {@inheritDoc}
      */
@@ -129,119 +139,143 @@ public class KNXGenericBindingProvider extends AbstractGenericBindingProvider
 
         super.processBindingConfiguration(context, item, bindingConfig);
 
-        addBindingConfig(item, parseBindingConfigString(item, bindingConfig));
+        KNXBindingConfig config = parseBindingConfigString(item, bindingConfig);
+        synchronized (groupAddressIndex) {
+            BindingConfig oldConfig = bindingConfigs.get(item.getName());
+            if (oldConfig instanceof KNXBindingConfig) {
+                removeFromIndex((KNXBindingConfig) oldConfig);
+            }
+            addToIndex(config);
+        }
+        addBindingConfig(item, config);
     }
 
     /**
      * {@inheritDoc}
      */
     @Override
-    @SuppressWarnings("unchecked")
-    public Iterable<Datapoint> getDatapoints(final String itemName, final GroupAddress groupAddress) {
-        synchronized (bindingConfigs) {
-            try {
-                Iterable<KNXBindingConfig> configList = Iterables.filter(Iterables.concat(bindingConfigs.values()),
-                        KNXBindingConfig.class);
-                Iterable<KNXBindingConfigItem> configItemList = Iterables.filter(Iterables.concat(configList),
-                        KNXBindingConfigItem.class);
-
-                Iterable<KNXBindingConfigItem> bindingConfigs = Iterables.filter(configItemList,
-                        new Predicate<KNXBindingConfigItem>() {
-                            @Override
-                            public boolean apply(KNXBindingConfigItem input) {
-                                return input.itemName.equals(itemName) && input.allDataPoints.contains(groupAddress);
-                            }
-                        });
+    public void removeConfigurations(String context) {
+        synchronized (groupAddressIndex) {
+            Set<Item> items = contextMap.get(context);
+            if (items != null) {
+                for (Item item : items) {
+                    BindingConfig config = bindingConfigs.get(item.getName());
+                    if (config instanceof KNXBindingConfig) {
+                        removeFromIndex((KNXBindingConfig) config);
+                    }
+                }
+            }
+        }
+        super.removeConfigurations(context);
+    }
 
-                Iterable<Datapoint> datapoints = Iterables.transform(bindingConfigs,
-                        new Function<KNXBindingConfigItem, Datapoint>() {
-                            @Override
-                            public Datapoint apply(KNXBindingConfigItem configItem) {
-                                return configItem.mainDataPoint;
-                            }
-                        });
+    /**
+     * Adds all config items of the given binding config to the group address routing table. Must be called while
+     * holding the monitor of {@link #groupAddressIndex}.
+     *
+     * @param config the binding config to add
+     */
+    private void addToIndex(KNXBindingConfig config) {
+        for (KNXBindingConfigItem configItem : config) {
+            for (Datapoint datapoint : configItem.allDataPoints.getDatapoints()) {
+                GroupAddress groupAddress = datapoint.getMainAddress();
+                List<KNXBindingConfigItem> oldEntries = groupAddressIndex.get(groupAddress);
+                List<KNXBindingConfigItem> newEntries;
+                if (oldEntries == null) {
+                    newEntries = new ArrayList<KNXBindingConfigItem>(1);
+                } else if (oldEntries.contains(configItem)) {
+                    continue;
+                } else {
+                    newEntries = new ArrayList<KNXBindingConfigItem>(oldEntries);
+                }
+                newEntries.add(configItem);
+                groupAddressIndex.put(groupAddress, Collections.unmodifiableList(newEntries));
+            }
+        }
+    }
 
-                return datapoints;
-            } catch (NoSuchElementException e) {
-                return null;
+    /**
+     * Removes all config items of the given binding config from the group address routing table. Must be called while
+     * holding the monitor of {@link #groupAddressIndex}.
+     *
+     * @param config the binding config to remove
+     */
+    private void removeFromIndex(KNXBindingConfig config) {
+        for (KNXBindingConfigItem configItem : config) {
+            for (Datapoint datapoint : configItem.allDataPoints.getDatapoints()) {
+                GroupAddress groupAddress = datapoint.getMainAddress();
+                List<KNXBindingConfigItem> oldEntries = groupAddressIndex.get(groupAddress);
+                if (oldEntries == null || !oldEntries.contains(configItem)) {
+                    continue;
+                }
+                if (oldEntries.size() == 1) {
+                    groupAddressIndex.remove(groupAddress);
+                } else {
+                    List<KNXBindingConfigItem> newEntries = new ArrayList<KNXBindingConfigItem>(oldEntries);
+                    newEntries.remove(configItem);
+                    groupAddressIndex.put(groupAddress, Collections.unmodifiableList(newEntries));
+                }
             }
         }
     }
 
+    /**
+     * Returns the config items which are bound to the given group address.
+     *
+     * @param groupAddress the group address to look up
+     * @return an immutable list of config items, never <code>null</code>
+     */
+    private List<KNXBindingConfigItem> getConfigItems(GroupAddress groupAddress) {
+        List<KNXBindingConfigItem> entries = groupAddressIndex.get(groupAddress);
+        if (entries == null) {
+            return Collections.emptyList();
+        }
+        return entries;
+    }
+
     /**
      * {@inheritDoc}
      */
     @Override
-    @SuppressWarnings("unchecked")
-    public Iterable<Datapoint> getDatapoints(final String itemName, final Class<? extends Type> typeClass) {
-        synchronized (bindingConfigs) {
-            try {
-                Iterable<KNXBindingConfig> configList = Iterables.filter(Iterables.concat(bindingConfigs.values()),
-                        KNXBindingConfig.class);
-                Iterable<KNXBindingConfigItem> configItemList = Iterables.filter(Iterables.concat(configList),
-                        KNXBindingConfigItem.class);
-                Iterable<KNXBindingConfigItem> bindingConfigs = Iterables.filter(configItemList,
-                        new Predicate<KNXBindingConfigItem>() {
-                            @Override
-                            public boolean apply(KNXBindingConfigItem input) {
-                                if (input == null) {
-                                    return false;
-                                }
-                                if (input.itemName.equals(itemName)) {
-                                    Class<?> dptTypeClass = KNXCoreTypeMapper.toTypeClass(input.mainDataPoint.getDPT());
-                                    return dptTypeClass != null && dptTypeClass.equals(typeClass);
-                                }
-                                return false;
-                            }
-                        });
-
-                Iterable<Datapoint> datapoints = Iterables.transform(bindingConfigs,
-                        new Function<KNXBindingConfigItem, Datapoint>() {
-                            @Override
-                            public Datapoint apply(KNXBindingConfigItem configItem) {
-                                return configItem.mainDataPoint;
-                            }
-                        });
+    public Iterable<Datapoint> getDatapoints(final String itemName, final GroupAddress groupAddress) {
+        List<Datapoint> datapoints = new ArrayList<Datapoint>(1);
+        for (KNXBindingConfigItem configItem : getConfigItems(groupAddress)) {
+            if (configItem.itemName.equals(itemName)) {
+                datapoints.add(configItem.mainDataPoint);
+            }
+        }
+        return datapoints;
+    }
 
-                return Lists.newArrayList(datapoints);
-            } catch (NoSuchElementException e) {
-                // ignore and return null
-                return null;
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Iterable<Datapoint> getDatapoints(final String itemName, final Class<? extends Type> typeClass) {
+        List<Datapoint> datapoints = new ArrayList<Datapoint>();
+        BindingConfig config = bindingConfigs.get(itemName);
+        if (config instanceof KNXBindingConfig) {
+            for (KNXBindingConfigItem configItem : (KNXBindingConfig) config) {
+                Class<?> dptTypeClass = KNXCoreTypeMapper.toTypeClass(configItem.mainDataPoint.getDPT());
+                if (dptTypeClass != null && dptTypeClass.equals(typeClass)) {
+                    datapoints.add(configItem.mainDataPoint);
+                }
             }
         }
+        return datapoints;
     }
 
     /**
      * {@inheritDoc}
      */
     @Override
-    @SuppressWarnings("unchecked")
     public Iterable<String> getListeningItemNames(final GroupAddress groupAddress) {
-        synchronized (bindingConfigs) {
-            Iterable<KNXBindingConfig> configList = Iterables.filter(Iterables.concat(bindingConfigs.values()),
-                    KNXBindingConfig.class);
-            Iterable<KNXBindingConfigItem> configItemList = Iterables.filter(Iterables.concat(configList),
-                    KNXBindingConfigItem.class);
-            Iterable<KNXBindingConfigItem> filteredBindingConfigs = Iterables.filter(configItemList,
-                    new Predicate<KNXBindingConfigItem>() {
-                        @Override
-                        public boolean apply(KNXBindingConfigItem input) {
-                            if (input == null) {
-                                return false;
-                            }
-                            return input.allDataPoints.contains(groupAddress);
-                        }
-                    });
-            return Iterables.transform(filteredBindingConfigs, new Function<KNXBindingConfigItem, String>() {
-                @Override
-                public String apply(KNXBindingConfigItem from) {
-                    if (from == null) {
-                        return null;
-                    }
-                    return from.itemName;
-                }
-            });
+        List<KNXBindingConfigItem> configItems = getConfigItems(groupAddress);
+        List<String> itemNames = new ArrayList<String>(configItems.size());
+        for (KNXBindingConfigItem configItem : configItems) {
+            itemNames.add(configItem.itemName);
         }
+        return itemNames;
     }
 
     /*
@@ -251,27 +285,13 @@ public class KNXGenericBindingProvider extends AbstractGenericBindingProvider
      */
     @Override
     public boolean isCommandGA(final GroupAddress groupAddress) {
-        synchronized (bindingConfigs) {
-            for (BindingConfig config : bindingConfigs.values()) {
-                KNXBindingConfig knxConfig = (KNXBindingConfig) config;
-                for (KNXBindingConfigItem configItem : knxConfig) {
-                    if (configItem.allDataPoints.contains(groupAddress)) {
-                        if (configItem.mainDataPoint instanceof CommandDP) {
-                            if (configItem.mainDataPoint.getMainAddress().equals(groupAddress)) {
-                                // the first GA in a CommandDP is always a command GA
-                                return true;
-                            } else {
-                                return false;
-                            }
-                        } else {
-                            // it is a StateDP, so the GA cannot be a command GA
-                            return false;
-                        }
-                    }
-                }
-            }
+        List<KNXBindingConfigItem> configItems = getConfigItems(groupAddress);
+        if (configItems.isEmpty()) {
+            return false;
         }
-        return false;
+        Datapoint mainDataPoint = configItems.get(0).mainDataPoint;
+        // the first GA in a CommandDP is always a command GA, a StateDP never has a command GA
+        return mainDataPoint instanceof CommandDP && mainDataPoint.getMainAddress().equals(groupAddress);
     }
 
     /*
@@ -553,15 +573,10 @@ public class KNXGenericBindingProvider extends AbstractGenericBindingProvider
      */
     @Override
     public boolean isStartStopGA(GroupAddress groupAddress) {
-        synchronized (bindingConfigs) {
-            for (BindingConfig config : bindingConfigs.values()) {
-                KNXBindingConfig knxConfig = (KNXBindingConfig) config;
-                for (KNXBindingConfigItem configItem : knxConfig) {
-                    Boolean startStopBehavior = configItem.startStopMap.get(groupAddress);
-                    if (startStopBehavior != null) {
-                        return startStopBehavior;
-                    }
-                }
+        for (KNXBindingConfigItem configItem : getConfigItems(groupAddress)) {
+            Boolean startStopBehavior = configItem.startStopMap.get(groupAddress);
+            if (startStopBehavior != null) {
+                return startStopBehavior;
             }
         }
         return false;
@@ -0,0 +1,62 @@
+/**
+ * Copyright (c) 2010-2016 by the respective copyright holders.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.binding.lcn.input;
+
+import org.junit.Test;
+
+import junit.framework.Assert;
+
+/**
+ * Parses the lines captured from LCN-PCHK with {@link Input#parse(String)},
+ * which asks the {@link PckLexer} first, and with the chain of regular
+ * expression parsers alone, and prints the time per line of both.
+ *
+ * @author Tobias Jüttner
+ * @since 1.9.0
+ */
+public class PckLexerBenchmarkTest {
+
+    private static final int WARMUP = 5000;
+
+    private static final int ROUNDS = 50000;
+
+    @Test
+    public void testParseCapturedLines() {
+        String[] lines = PckLexerTest.CAPTURED;
+        for (int i = 0; i < WARMUP; i++) {
+            for (String line : lines) {
+                Input.parse(line);
+                PckLexerTest.parseWithRegex(line);
+            }
+        }
+
+        int parsed = 0;
+        long start = System.nanoTime();
+        for (int i = 0; i < ROUNDS; i++) {
+            for (String line : lines) {
+                parsed += Input.parse(line).size();
+            }
+        }
+        long lexer = System.nanoTime() - start;
+
+        int parsedWithRegex = 0;
+        start = System.nanoTime();
+        for (int i = 0; i < ROUNDS; i++) {
+            for (String line : lines) {
+                parsedWithRegex += PckLexerTest.parseWithRegex(line).size();
+            }
+        }
+        long regex = System.nanoTime() - start;
+
+        Assert.assertEquals(parsedWithRegex, parsed);
+        long count = (long) ROUNDS * lines.length;
+        System.out.println("Parsing " + ROUNDS + " times " + lines.length + " captured lines: lexer "
+                + lexer / count + " ns per line, regular expressions " + regex / count + " ns per line");
+    }
+}
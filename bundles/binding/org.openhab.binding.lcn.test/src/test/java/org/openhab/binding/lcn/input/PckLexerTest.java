@@ -0,0 +1,206 @@
+/**
+ * Copyright (c) 2010-2016 by the respective copyright holders.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.binding.lcn.input;
+
+import java.lang.reflect.Array;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.Test;
+
+import junit.framework.Assert;
+
+/**
+ * Compares {@link PckLexer} with the regular expression parsers it is
+ * registered in front of. Whenever the lexer decodes an input, the result
+ * has to be the same as the one of the regular expressions.
+ *
+ * @author Tobias Jüttner
+ * @since 1.9.0
+ */
+public class PckLexerTest {
+
+    /** Valid input of every kind the lexer decodes */
+    private static final String[] SAMPLES = { "-M000005!", "-M00000512", "-M003127!", "=M000005.SK7",
+            "=M000005.SN1AB20A123401FW190B11HW015", "=M000005.SN1|B20A1234FFFW0A0B0CHW1", ":M000005A1050",
+            ":M000005A4100", ":M000005O1100", ":M000005O3200", ":M000005Rx123", ":M000005Rx0", ":M000005Bx201",
+            ":M000005Bx255", "%M000005.A00112345", "%M000005.A01232768", "%M000005.S132768", "%M000005.S2100",
+            "%M000005.T1412345", "%M000005.T1512345", "%M000005.T4412345", "%M000005.C23000", "%M000005.C4100",
+            "%M000005.12345", "=M000005.S1000010000200003000040000500006", "=M000005.TLAEBFAEBFAEBFNTVN",
+            "=M000005.TX123045067", "=M000005.TX123045067255", "Username:", "Password:", "OK",
+            "$io:#LCN:connected", "$io:#LCN:disconnected" };
+
+    /** Lines captured from a LCN-PCHK session, in the order they were received */
+    static final String[] CAPTURED = { "LCN-PCHK 2.8 (10.06.2015) by LCN", "Username:", "Password:", "OK",
+            "(dec-mode)", "$io:#LCN:connected", "-M000010!", ":M000010A1050", ":M000010A2000", ":M000010A3100",
+            ":M000010O1200", ":M000010Rx016", ":M000010Bx000", "%M000010.A00100785", "%M000010.A00200512",
+            "%M000010.A00301234", "%M000010.S100540", "%M000010.S200500", "%M000010.T1100600",
+            "%M000010.T1201000", "%M000010.C10", "=M000010.S1005000060000700008000090000020",
+            "=M000010.TLAAAAEEEEBBBBNNTV", "=M000010.TX000128255", "=M000010.TX000128255064", "=M000011.SK12",
+            "=M000011.SN0A1B2C3D4E01FW170B05HW011", "%M012034.A00400000", "-M012034005", "%M000015.12345",
+            ":M000010A1100", ":M000010A1090", ":M000010A1080", "%M000010.A00100791", "!CHD",
+            "$err:(M000099)", "$io:#LCN:disconnected", "$io:#LCN:connected" };
+
+    /** Characters the samples are mutated with */
+    private static final String MUTATIONS = "09.xAS|M-";
+
+    @Test
+    public void testSamplesAreDecodedByLexer() {
+        for (String input : SAMPLES) {
+            Collection<Input> lexed = PckLexer.tryParseInput(input);
+            Assert.assertFalse(input, lexed.isEmpty());
+            Assert.assertEquals(input, describe(parseWithRegex(input)), describe(lexed));
+        }
+    }
+
+    @Test
+    public void testLexerMatchesRegexParsers() {
+        int decoded = 0;
+        for (String input : getInputs()) {
+            Collection<Input> lexed = PckLexer.tryParseInput(input);
+            String expected;
+            try {
+                expected = describe(parseWithRegex(input));
+            } catch (RuntimeException e) {
+                // the regular expression parsers still handle this input
+                Assert.assertTrue(input, lexed.isEmpty());
+                continue;
+            }
+            if (!lexed.isEmpty()) {
+                decoded++;
+                Assert.assertEquals(input, expected, describe(lexed));
+            }
+        }
+        Assert.assertTrue(decoded > SAMPLES.length);
+    }
+
+    @Test
+    public void testCapturedLines() {
+        int decoded = 0;
+        for (String input : CAPTURED) {
+            String expected = describe(parseWithRegex(input));
+            Assert.assertEquals(input, expected, describe(Input.parse(input)));
+            Collection<Input> lexed = PckLexer.tryParseInput(input);
+            if (!lexed.isEmpty()) {
+                decoded++;
+                Assert.assertEquals(input, expected, describe(lexed));
+            }
+        }
+        // the lines of LCN-PCHK itself are decoded as unknown by the lexer, too
+        Assert.assertEquals(CAPTURED.length, decoded);
+    }
+
+    @Test
+    public void testSerialNumberNeedsSeparator() {
+        String input = "=M000005xSN1AB20A123401FW190B11HW015";
+        Assert.assertTrue(PckLexer.tryParseInput(input).isEmpty());
+        Assert.assertEquals(describe(Collections.<Input> singletonList(new Unknown(input))),
+                describe(Input.parse(input)));
+    }
+
+    /**
+     * Returns the samples, all their prefixes, and the samples with every
+     * character replaced by or extended with one of {@link #MUTATIONS}.
+     */
+    private static Set<String> getInputs() {
+        Set<String> inputs = new LinkedHashSet<String>();
+        inputs.add("");
+        for (String sample : SAMPLES) {
+            for (int i = 0; i <= sample.length(); ++i) {
+                inputs.add(sample.substring(0, i));
+                for (char c : MUTATIONS.toCharArray()) {
+                    if (i < sample.length()) {
+                        inputs.add(sample.substring(0, i) + c + sample.substring(i + 1));
+                    }
+                    inputs.add(sample.substring(0, i) + c + sample.substring(i));
+                }
+            }
+            inputs.add(sample + "1234567890");
+        }
+        return inputs;
+    }
+
+    /**
+     * Parses the input with the parsers {@link Input} registers after the lexer.
+     */
+    static Collection<Input> parseWithRegex(String input) {
+        List<Collection<Input>> results = new ArrayList<Collection<Input>>();
+        results.add(AuthUsername.tryParseInput(input));
+        results.add(AuthPassword.tryParseInput(input));
+        results.add(AuthOk.tryParseInput(input));
+        results.add(LcnConnState.tryParseInput(input));
+        results.add(ModAck.tryParseInput(input));
+        results.add(ModSk.tryParseInput(input));
+        results.add(ModSn.tryParseInput(input));
+        results.add(ModStatusOutput.tryParseInput(input));
+        results.add(ModStatusRelays.tryParseInput(input));
+        results.add(ModStatusBinSensors.tryParseInput(input));
+        results.add(ModStatusVar.tryParseInput(input));
+        results.add(ModStatusLedsAndLogicOps.tryParseInput(input));
+        results.add(ModStatusKeyLocks.tryParseInput(input));
+        for (Collection<Input> result : results) {
+            if (!result.isEmpty()) {
+                return result;
+            }
+        }
+        return Collections.<Input> singletonList(new Unknown(input));
+    }
+
+    /**
+     * Describes the parsed inputs by their classes and field values.
+     */
+    private static String describe(Collection<Input> inputs) {
+        StringBuilder sb = new StringBuilder();
+        for (Input input : inputs) {
+            describe(input, sb);
+            sb.append('\n');
+        }
+        return sb.toString();
+    }
+
+    private static void describe(Object value, StringBuilder sb) {
+        if (value == null) {
+            sb.append("null");
+        } else if (value.getClass().isArray()) {
+            sb.append('[');
+            for (int i = 0; i < Array.getLength(value); ++i) {
+                describe(Array.get(value, i), sb);
+                sb.append(',');
+            }
+            sb.append(']');
+        } else if (value.getClass().isEnum() || !value.getClass().getName().startsWith("org.openhab.")) {
+            sb.append(value);
+        } else {
+            sb.append(value.getClass().getSimpleName()).append('{');
+            for (Class<?> c = value.getClass(); c != Object.class; c = c.getSuperclass()) {
+                for (Field field : c.getDeclaredFields()) {
+                    if (Modifier.isStatic(field.getModifiers())) {
+                        continue;
+                    }
+                    field.setAccessible(true);
+                    sb.append(field.getName()).append('=');
+                    try {
+                        describe(field.get(value), sb);
+                    } catch (IllegalAccessException e) {
+                        throw new IllegalStateException(e);
+                    }
+                    sb.append(',');
+                }
+            }
+            sb.append('}');
+        }
+    }
+
+}
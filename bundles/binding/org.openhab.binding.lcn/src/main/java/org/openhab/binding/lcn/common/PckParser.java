@@ -46,7 +46,7 @@ public final class PckParser {
 
     /** Pattern to parse serial number and firmware date responses. */
     public static final Pattern PATTERN_SN = Pattern.compile(
-            "=M(?<segId>\\d{3})(?<modId>\\d{3}).SN(?<sn>[0-9|A-F]{10})(?<manu>[0-9|A-F]{2})FW(?<swAge>[0-9|A-F]{6})HW(?<hwType>\\d+)");
+            "=M(?<segId>\\d{3})(?<modId>\\d{3})\\.SN(?<sn>[0-9|A-F]{10})(?<manu>[0-9|A-F]{2})FW(?<swAge>[0-9|A-F]{6})HW(?<hwType>\\d+)");
 
     /** Pattern to parse output-port status responses in percent. */
     public static final Pattern PATTERN_STATUS_OUTPUT_PERCENT = Pattern
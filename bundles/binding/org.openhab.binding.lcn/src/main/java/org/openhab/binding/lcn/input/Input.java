@@ -122,7 +122,13 @@ public abstract class Input {
 
     /** Initializes static data once this class is first used. */
     static {
-        // Register parsers
+        // Register parsers, the lexer decodes most input in a single pass, the others handle what it leaves
+        inputParsers.add(new Parser() {
+            @Override
+            public Collection<Input> tryParseInput(String input) {
+                return PckLexer.tryParseInput(input);
+            }
+        });
         inputParsers.add(new Parser() {
             @Override
             public Collection<Input> tryParseInput(String input) {
@@ -0,0 +1,386 @@
+/**
+ * Copyright (c) 2010-2016 by the respective copyright holders.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.binding.lcn.input;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedList;
+
+import org.openhab.binding.lcn.common.LcnAddrMod;
+import org.openhab.binding.lcn.common.LcnDefs;
+import org.openhab.binding.lcn.common.PckParser;
+
+/**
+ * Single-pass parser for the input received from LCN-PCHK.
+ * <p>
+ * Dispatches on the prefix of the input and decodes the fields in place, without the regular expressions of
+ * {@link PckParser}. Input which cannot be decoded here in exactly the same way as by the regular expressions (e.g.
+ * numbers too large for an int or values out of range) is left to the other parsers.
+ *
+ * @author Tobias Jüttner
+ * @since 1.9.0
+ */
+final class PckLexer {
+
+    /** Length of the module address prefix, e.g. ":M000005". */
+    private static final int ADDR_LENGTH = 8;
+
+    private PckLexer() {
+    }
+
+    /**
+     * Tries to parse the given input text.
+     *
+     * @param input the input data received from LCN-PCHK
+     * @return the parsed {@link Input}s, or an empty list if the other parsers have to decide
+     */
+    static Collection<Input> tryParseInput(String input) {
+        if (input.length() > ADDR_LENGTH && input.charAt(1) == 'M') {
+            LcnAddrMod addr = parseAddr(input);
+            if (addr == null) {
+                return Collections.emptyList();
+            }
+            Input ret;
+            switch (input.charAt(0)) {
+                case ':':
+                    ret = parseStatus(input, addr);
+                    break;
+                case '%':
+                    return parseVar(input, addr);
+                case '=':
+                    if (input.startsWith(".S1", ADDR_LENGTH)) {
+                        return parseThrs5(input, addr);
+                    }
+                    ret = parseResponse(input, addr);
+                    break;
+                case '-':
+                    ret = parseAck(input, addr);
+                    break;
+                default:
+                    ret = null;
+                    break;
+            }
+            return ret != null ? Collections.singletonList(ret) : Collections.<Input> emptyList();
+        } else if (input.equals(PckParser.AUTH_USERNAME)) {
+            return Collections.<Input> singletonList(new AuthUsername());
+        } else if (input.equals(PckParser.AUTH_PASSWORD)) {
+            return Collections.<Input> singletonList(new AuthPassword());
+        } else if (input.equals(PckParser.AUTH_OK)) {
+            return Collections.<Input> singletonList(new AuthOk());
+        } else if (input.equals(PckParser.LCNCONNSTATE_CONNECTED)) {
+            return Collections.<Input> singletonList(new LcnConnState(true));
+        } else if (input.equals(PckParser.LCNCONNSTATE_DISCONNECTED)) {
+            return Collections.<Input> singletonList(new LcnConnState(false));
+        } else if (input.isEmpty() || "-=:%".indexOf(input.charAt(0)) < 0) {
+            // None of the patterns can match
+            return Collections.<Input> singletonList(new Unknown(input));
+        }
+        return Collections.emptyList();
+    }
+
+    /**
+     * Parses the module address following the 2 characters prefix.
+     *
+     * @param input the input data
+     * @return the address or null if the input has no valid address
+     */
+    private static LcnAddrMod parseAddr(String input) {
+        int segId = parseInt(input, 2, 5);
+        int modId = parseInt(input, 5, ADDR_LENGTH);
+        return segId >= 0 && modId >= 0 ? new LcnAddrMod(segId, modId) : null;
+    }
+
+    /**
+     * Parses status messages starting with ":M".
+     *
+     * @param input the input data
+     * @param addr the source address
+     * @return the parsed {@link Input} or null
+     */
+    private static Input parseStatus(String input, LcnAddrMod addr) {
+        int len = input.length();
+        char type = input.charAt(ADDR_LENGTH);
+        if ((type == 'A' || type == 'O') && len > ADDR_LENGTH + 2) {
+            int outputId = parseInt(input, ADDR_LENGTH + 1, ADDR_LENGTH + 2);
+            int value = parseInt(input, ADDR_LENGTH + 2, len);
+            if (outputId < 0 || value < 0) {
+                return null;
+            }
+            return new ModStatusOutput(addr, outputId - 1, type == 'A' ? value : (double) value / 2);
+        }
+        if ((type == 'R' || type == 'B') && len > ADDR_LENGTH + 2 && input.charAt(ADDR_LENGTH + 1) == 'x') {
+            int byteValue = parseInt(input, ADDR_LENGTH + 2, len);
+            if (byteValue < 0 || byteValue > 255) {
+                return null;
+            }
+            boolean[] states = PckParser.getBooleanValue(byteValue);
+            return type == 'R' ? new ModStatusRelays(addr, states) : new ModStatusBinSensors(addr, states);
+        }
+        return null;
+    }
+
+    /**
+     * Parses variable status messages starting with "%M".
+     *
+     * @param input the input data
+     * @param addr the source address
+     * @return the parsed {@link Input}s, empty if the input cannot be decoded here
+     */
+    private static Collection<Input> parseVar(String input, LcnAddrMod addr) {
+        int len = input.length();
+        if (input.charAt(ADDR_LENGTH) != '.' || len < ADDR_LENGTH + 2) {
+            return Collections.emptyList();
+        }
+        char type = input.charAt(ADDR_LENGTH + 1);
+        int start = ADDR_LENGTH + 2; // First character after the type
+        LcnDefs.Var var;
+        int value;
+        if (type == 'A' && len > start + 3) {
+            int id = parseInt(input, start, start + 3);
+            value = parseInt(input, start + 3, len);
+            var = id >= 1 && id <= 12 ? LcnDefs.Var.varIdToVar(id - 1) : null;
+        } else if ((type == 'S' || type == 'C') && len > start + 1) {
+            int id = parseInt(input, start, start + 1);
+            value = parseInt(input, start + 1, len);
+            if (id < 1) {
+                var = null;
+            } else if (type == 'S') {
+                var = id <= 2 ? LcnDefs.Var.setPointIdToVar(id - 1) : null;
+            } else {
+                var = id <= 4 ? LcnDefs.Var.s0IdToVar(id - 1) : null;
+            }
+        } else if (type == 'T' && len > start + 2) {
+            int registerId = parseInt(input, start, start + 1);
+            int thrsId = parseInt(input, start + 1, start + 2);
+            value = parseInt(input, start + 2, len);
+            var = isThrs(registerId, thrsId) ? LcnDefs.Var.thrsIdToVar(registerId - 1, thrsId - 1) : null;
+        } else {
+            var = LcnDefs.Var.UNKNOWN;
+            value = parseInt(input, start - 1, len);
+        }
+        if (var == null || value < 0) {
+            return Collections.emptyList();
+        }
+        return Collections.<Input> singletonList(new ModStatusVar(addr, var, LcnDefs.VarValue.fromNative(value)));
+    }
+
+    /**
+     * Parses responses starting with "=M".
+     *
+     * @param input the input data
+     * @param addr the source address
+     * @return the parsed {@link Input} or null
+     */
+    private static Input parseResponse(String input, LcnAddrMod addr) {
+        int len = input.length();
+        if (len < ADDR_LENGTH + 4 || input.charAt(ADDR_LENGTH) != '.') {
+            return null;
+        }
+        char type1 = input.charAt(ADDR_LENGTH + 1);
+        char type2 = input.charAt(ADDR_LENGTH + 2);
+        int start = ADDR_LENGTH + 3; // First character after the type
+        if (type1 == 'S' && type2 == 'K') {
+            int id = parseInt(input, start, len);
+            return id >= 0 ? new ModSk(addr, id) : null;
+        } else if (type1 == 'S' && type2 == 'N') {
+            return parseSn(input, addr);
+        } else if (type1 == 'T' && type2 == 'L') {
+            return parseLedsAndLogicOps(input, addr);
+        } else if (type1 == 'T' && type2 == 'X') {
+            return parseKeyLocks(input, addr);
+        }
+        return null;
+    }
+
+    /**
+     * Parses threshold register 1 status responses (5 values and hysteresis, before 170206).
+     *
+     * @param input the input data
+     * @param addr the source address
+     * @return the parsed {@link Input}s, empty if the input cannot be decoded here
+     */
+    private static Collection<Input> parseThrs5(String input, LcnAddrMod addr) {
+        int start = ADDR_LENGTH + 3;
+        if (input.length() != start + 30 || parseInt(input, start + 25, start + 30) < 0) {
+            return Collections.emptyList();
+        }
+        LinkedList<Input> ret = new LinkedList<Input>();
+        for (int thrsId = 0; thrsId < 5; ++thrsId) {
+            int value = parseInt(input, start + thrsId * 5, start + thrsId * 5 + 5);
+            if (value < 0) {
+                return Collections.emptyList();
+            }
+            ret.add(new ModStatusVar(addr, LcnDefs.Var.thrsIdToVar(0, thrsId), LcnDefs.VarValue.fromNative(value)));
+        }
+        return ret;
+    }
+
+    /**
+     * Parses serial number and firmware date responses.
+     *
+     * @param input the input data
+     * @param addr the source address
+     * @return the parsed {@link Input} or null
+     */
+    private static Input parseSn(String input, LcnAddrMod addr) {
+        int start = ADDR_LENGTH + 3;
+        int fw = start + 12;
+        int hw = fw + 8;
+        if (input.length() <= hw + 2 || !input.startsWith("FW", fw) || !input.startsWith("HW", hw)
+                || parseInt(input, hw + 2, input.length()) < 0) {
+            return null;
+        }
+        for (int i = start; i < fw; ++i) {
+            char c = input.charAt(i);
+            if (!(c >= '0' && c <= '9' || c >= 'A' && c <= 'F' || c == '|')) {
+                return null;
+            }
+        }
+        int swAge = 0;
+        for (int i = fw + 2; i < hw; ++i) {
+            char c = input.charAt(i);
+            if (c >= '0' && c <= '9') {
+                swAge = (swAge << 4) | (c - '0');
+            } else if (c >= 'A' && c <= 'F') {
+                swAge = (swAge << 4) | (c - 'A' + 10);
+            } else {
+                return null;
+            }
+        }
+        return new ModSn(addr, swAge);
+    }
+
+    /**
+     * Parses status of LEDs and logic-operations responses.
+     *
+     * @param input the input data
+     * @param addr the source address
+     * @return the parsed {@link Input} or null
+     */
+    private static Input parseLedsAndLogicOps(String input, LcnAddrMod addr) {
+        int start = ADDR_LENGTH + 3;
+        if (input.length() != start + 16) {
+            return null;
+        }
+        LcnDefs.LedStatus[] statesLeds = new LcnDefs.LedStatus[12];
+        for (int i = 0; i < 12; ++i) {
+            switch (input.charAt(start + i)) {
+                case 'A':
+                    statesLeds[i] = LcnDefs.LedStatus.OFF;
+                    break;
+                case 'E':
+                    statesLeds[i] = LcnDefs.LedStatus.ON;
+                    break;
+                case 'B':
+                    statesLeds[i] = LcnDefs.LedStatus.BLINK;
+                    break;
+                case 'F':
+                    statesLeds[i] = LcnDefs.LedStatus.FLICKER;
+                    break;
+                default:
+                    return null;
+            }
+        }
+        LcnDefs.LogicOpStatus[] statesLogicOps = new LcnDefs.LogicOpStatus[4];
+        for (int i = 0; i < 4; ++i) {
+            switch (input.charAt(start + 12 + i)) {
+                case 'N':
+                    statesLogicOps[i] = LcnDefs.LogicOpStatus.NOT;
+                    break;
+                case 'T':
+                    statesLogicOps[i] = LcnDefs.LogicOpStatus.OR;
+                    break;
+                case 'V':
+                    statesLogicOps[i] = LcnDefs.LogicOpStatus.AND;
+                    break;
+                default:
+                    return null;
+            }
+        }
+        return new ModStatusLedsAndLogicOps(addr, statesLeds, statesLogicOps);
+    }
+
+    /**
+     * Parses key-locks status responses.
+     *
+     * @param input the input data
+     * @param addr the source address
+     * @return the parsed {@link Input} or null
+     */
+    private static Input parseKeyLocks(String input, LcnAddrMod addr) {
+        int start = ADDR_LENGTH + 3;
+        int tables = (input.length() - start) / 3;
+        if ((tables != 3 && tables != 4) || input.length() != start + tables * 3) {
+            return null;
+        }
+        boolean[][] states = new boolean[4][];
+        for (int i = 0; i < 4; ++i) {
+            if (i < tables) {
+                int byteValue = parseInt(input, start + i * 3, start + i * 3 + 3);
+                if (byteValue < 0 || byteValue > 255) {
+                    return null;
+                }
+                states[i] = PckParser.getBooleanValue(byteValue);
+            } else {
+                states[i] = new boolean[8];
+            }
+        }
+        return new ModStatusKeyLocks(addr, states);
+    }
+
+    /**
+     * Parses acknowledges starting with "-M".
+     *
+     * @param input the input data
+     * @param addr the source address
+     * @return the parsed {@link Input} or null
+     */
+    private static Input parseAck(String input, LcnAddrMod addr) {
+        if (input.length() == ADDR_LENGTH + 1 && input.charAt(ADDR_LENGTH) == '!') {
+            return new ModAck(addr, -1);
+        }
+        int code = parseInt(input, ADDR_LENGTH, input.length());
+        return code >= 0 ? new ModAck(addr, code) : null;
+    }
+
+    /**
+     * Checks the ids of a threshold status response (since 170206).
+     *
+     * @param registerId the register id (1..4)
+     * @param thrsId the threshold id (1..5, 1..4 for registers 2-4)
+     * @return true if {@link LcnDefs.Var#thrsIdToVar(int, int)} accepts the ids
+     */
+    private static boolean isThrs(int registerId, int thrsId) {
+        return registerId >= 1 && registerId <= 4 && thrsId >= 1 && thrsId <= (registerId == 1 ? 5 : 4);
+    }
+
+    /**
+     * Parses decimal digits.
+     *
+     * @param input the input data
+     * @param start index of the first digit
+     * @param end index after the last digit
+     * @return the value, or -1 if the range is empty, contains other characters or might not fit into an int
+     */
+    private static int parseInt(String input, int start, int end) {
+        if (start >= end || end - start > 9) {
+            return -1;
+        }
+        int value = 0;
+        for (int i = start; i < end; ++i) {
+            char c = input.charAt(i);
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+            value = value * 10 + (c - '0');
+        }
+        return value;
+    }
+
+}
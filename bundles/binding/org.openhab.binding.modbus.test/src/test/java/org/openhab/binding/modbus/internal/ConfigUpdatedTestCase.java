@@ -8,10 +8,13 @@
  */
 package org.openhab.binding.modbus.internal;
 
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.assertThat;
 import static org.mockito.Mockito.*;
 
 import java.net.UnknownHostException;
 import java.util.ArrayList;
+import java.util.Dictionary;
 import java.util.List;
 
 import org.junit.Test;
@@ -83,4 +86,35 @@ public class ConfigUpdatedTestCase extends TestCaseSupport {
         verifyNoMoreInteractions(eventPublisher);
     }
 
+    @Test
+    public void testSlavePollInterval()
+            throws UnknownHostException, ConfigurationException, BindingConfigParseException, InterruptedException {
+        spi.addDigitalIn(new SimpleDigitalIn(true));
+        spi.addDigitalIn(new SimpleDigitalIn(false));
+
+        binding = new ModbusBinding();
+        Dictionary<String, Object> config = addSlave(newLongPollBindingConfig(), SLAVE_NAME,
+                ModbusBindingProvider.TYPE_DISCRETE, null, 0, 2);
+        config.put(String.format("%s.%s.poll", protocol(), SLAVE_NAME), String.valueOf(REFRESH_INTERVAL));
+        binding.updated(config);
+        configureSwitchItemBinding(2, SLAVE_NAME, 0);
+
+        // slave is due only once within its poll interval. execute() returns when the polls it has started are
+        // done, as they finish well within the tick interval, so no request can arrive later
+        binding.execute();
+        binding.execute();
+
+        assertThat(modbustRequestCaptor.getAllReturnValues().size(), is(equalTo(1)));
+    }
+
+    private String protocol() {
+        if (ServerType.TCP.equals(serverType)) {
+            return "tcp";
+        } else if (ServerType.UDP.equals(serverType)) {
+            return "udp";
+        } else {
+            return "serial";
+        }
+    }
+
 }
@@ -31,6 +31,7 @@ import org.junit.runners.Parameterized;
 import org.junit.runners.Parameterized.Parameters;
 import org.openhab.binding.modbus.ModbusBindingProvider;
 import org.openhab.core.library.types.DecimalType;
+import org.openhab.core.types.State;
 import org.openhab.model.item.binding.BindingConfigParseException;
 import org.osgi.service.cm.ConfigurationException;
 
@@ -268,6 +269,75 @@ public class ReadRegistersTestCase extends TestCaseSupport {
         verifyNoMoreInteractions(eventPublisher);
     }
 
+    /**
+     * Test that items are neither converted nor updated again when their registers did not change
+     */
+    @Test
+    public void testReadRegistersUnchanged()
+            throws InstantiationException, IllegalAccessException, IllegalArgumentException, InvocationTargetException,
+            UnknownHostException, ConfigurationException, BindingConfigParseException {
+        addRegisterMethod.invoke(spi, constructRegisterInt.newInstance(2));
+        addRegisterMethod.invoke(spi, constructRegisterInt.newInstance(-4));
+        addRegisterMethod.invoke(spi, constructRegisterInt.newInstance(99));
+
+        binding = spy(new ModbusBinding());
+        binding.updated(addSlave(newLongPollBindingConfig(), SLAVE_NAME, type, null, nonZeroOffset ? 1 : 0, 2));
+        configureNumberItemBinding(2, SLAVE_NAME, 0);
+        binding.execute();
+        waitForRequests(1);
+
+        verify(binding, times(2)).extractStateFromRegisters(any(InputRegister[].class), anyInt(), anyString());
+        verify(eventPublisher, times(2)).postUpdate(anyString(), any(State.class));
+
+        binding.execute();
+        waitForRequests(2);
+
+        // the second poll read the same registers
+        verify(binding, times(2)).extractStateFromRegisters(any(InputRegister[].class), anyInt(), anyString());
+        verify(eventPublisher, times(2)).postUpdate(anyString(), any(State.class));
+        if (nonZeroOffset) {
+            verify(eventPublisher).postUpdate("Item1", new DecimalType(65532));
+            verify(eventPublisher).postUpdate("Item2", new DecimalType(99));
+        } else {
+            verify(eventPublisher).postUpdate("Item1", new DecimalType(2));
+            verify(eventPublisher).postUpdate("Item2", new DecimalType(65532));
+        }
+        verifyNoMoreInteractions(eventPublisher);
+    }
+
+    /**
+     * Test that items are updated on every poll with updateunchangeditems=true
+     */
+    @Test
+    public void testReadRegistersUpdateUnchangedItems()
+            throws InstantiationException, IllegalAccessException, IllegalArgumentException, InvocationTargetException,
+            UnknownHostException, ConfigurationException, BindingConfigParseException {
+        addRegisterMethod.invoke(spi, constructRegisterInt.newInstance(2));
+        addRegisterMethod.invoke(spi, constructRegisterInt.newInstance(-4));
+        addRegisterMethod.invoke(spi, constructRegisterInt.newInstance(99));
+
+        binding = spy(new ModbusBinding());
+        Dictionary<String, Object> config = addSlave(newLongPollBindingConfig(), SLAVE_NAME, type, null,
+                nonZeroOffset ? 1 : 0, 2);
+        config.put(String.format("%s.%s.updateunchangeditems", serverType.name().toLowerCase(), SLAVE_NAME), "true");
+        binding.updated(config);
+        configureNumberItemBinding(2, SLAVE_NAME, 0);
+        binding.execute();
+        binding.execute();
+        waitForRequests(2);
+
+        verify(binding, times(4)).extractStateFromRegisters(any(InputRegister[].class), anyInt(), anyString());
+        verify(eventPublisher, times(4)).postUpdate(anyString(), any(State.class));
+        if (nonZeroOffset) {
+            verify(eventPublisher, times(2)).postUpdate("Item1", new DecimalType(65532));
+            verify(eventPublisher, times(2)).postUpdate("Item2", new DecimalType(99));
+        } else {
+            verify(eventPublisher, times(2)).postUpdate("Item1", new DecimalType(2));
+            verify(eventPublisher, times(2)).postUpdate("Item2", new DecimalType(65532));
+        }
+        verifyNoMoreInteractions(eventPublisher);
+    }
+
     /**
      * Test reading of input/holding registers, uses valuetype=int16
      */
@@ -8,6 +8,8 @@
  */
 package org.openhab.binding.modbus;
 
+import java.util.List;
+
 import org.openhab.binding.modbus.internal.ModbusGenericBindingProvider.ModbusBindingConfig;
 import org.openhab.core.binding.BindingProvider;
 
@@ -63,4 +65,12 @@ public interface ModbusBindingProvider extends BindingProvider {
      */
     ModbusBindingConfig getConfig(String itemName);
 
+    /**
+     * Returns the configurations of all items bound to the given slave
+     *
+     * @param slaveName slave name
+     * @return item configurations, empty if no item is bound to the slave
+     */
+    List<ModbusBindingConfig> getSlaveConfigs(String slaveName);
+
 }
@@ -10,11 +10,11 @@ package org.openhab.binding.modbus.internal;
 
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
+import java.util.BitSet;
 import java.util.Collection;
 import java.util.Dictionary;
 import java.util.Enumeration;
 import java.util.HashMap;
-import java.util.HashSet;
 import java.util.Iterator;
 import java.util.Map;
 import java.util.Map.Entry;
@@ -86,7 +86,7 @@ public class ModbusBinding extends AbstractActiveBinding<ModbusBindingProvider>
     private static final String TCP_PREFIX = "tcp";
     private static final String SERIAL_PREFIX = "serial";
 
-    private static final String VALID_CONFIG_KEYS = "connection|id|start|length|type|valuetype|rawdatamultiplier|writemultipleregisters|updateunchangeditems";
+    private static final String VALID_CONFIG_KEYS = "connection|id|start|length|type|valuetype|rawdatamultiplier|writemultipleregisters|updateunchangeditems|poll";
     private static final Pattern EXTRACT_MODBUS_CONFIG_PATTERN = Pattern.compile(
             "^(" + TCP_PREFIX + "|" + UDP_PREFIX + "|" + SERIAL_PREFIX + "|)\\.(.*?)\\.(" + VALID_CONFIG_KEYS + ")$");
 
@@ -143,6 +143,16 @@ public class ModbusBinding extends AbstractActiveBinding<ModbusBindingProvider>
         connectionPool = genericKeyedObjectPool;
     }
 
+    /**
+     * @return maximum number of connections the pool opens per endpoint, negative for no limit
+     */
+    private static int getConnectionsPerEndpoint() {
+        if (connectionPool instanceof GenericKeyedObjectPool) {
+            return ((GenericKeyedObjectPool<?, ?>) connectionPool).getMaxTotalPerKey();
+        }
+        return poolConfig.getMaxTotalPerKey();
+    }
+
     /**
      * For testing
      */
@@ -154,6 +164,9 @@ public class ModbusBinding extends AbstractActiveBinding<ModbusBindingProvider>
     /** slaves update interval in milliseconds */
     public static long pollInterval = DEFAULT_POLL_INTERVAL;
 
+    /** polls the slaves, created for each configuration */
+    private volatile ModbusPollScheduler pollScheduler;
+
     @Override
     public void activate() {
     }
@@ -165,7 +178,8 @@ public class ModbusBinding extends AbstractActiveBinding<ModbusBindingProvider>
 
     @Override
     protected long getRefreshInterval() {
-        return pollInterval;
+        ModbusPollScheduler scheduler = pollScheduler;
+        return scheduler == null ? pollInterval : scheduler.getTickInterval();
     }
 
     @Override
@@ -191,45 +205,72 @@ public class ModbusBinding extends AbstractActiveBinding<ModbusBindingProvider>
     /**
      * Posts update event to OpenHAB bus for "holding" and "input register" type slaves
      *
-     * @param binding ModbusBinding to get item configuration from BindingProviding
+     * @param slave slave the registers were read from
      * @param registers data received from slave device in the last pollInterval
-     * @param itemName item to update
+     * @param changedRegisters indices of the registers which changed since the previous read, null if unknown
      */
-    protected void internalUpdateItem(String slaveName, InputRegister[] registers, String itemName) {
+    protected void internalUpdateItems(ModbusSlave slave, InputRegister[] registers, BitSet changedRegisters) {
+        String slaveValueType = slave.getValueType();
+        double rawDataMultiplier = slave.getRawDataMultiplier();
         for (ModbusBindingProvider provider : providers) {
-            if (!provider.providesBindingFor(itemName)) {
-                continue;
-            }
-            ModbusBindingConfig config = provider.getConfig(itemName);
-            if (!config.slaveName.equals(slaveName)) {
-                continue;
-            }
+            for (ModbusBindingConfig config : provider.getSlaveConfigs(slave.getName())) {
+                if (!slave.isUpdateUnchangedItems() && config.isPolled()
+                        && !registersChanged(changedRegisters, config.readIndex, slaveValueType)) {
+                    continue;
+                }
 
-            ModbusSlave slave = modbusSlaves.get(slaveName);
-            String slaveValueType = slave.getValueType();
-            double rawDataMultiplier = slave.getRawDataMultiplier();
-
-            /* receive data manipulation */
-            State newState = extractStateFromRegisters(registers, config.readIndex, slaveValueType);
-            // Convert newState (DecimalType) to on/off kind of state if we have "boolean item" (Switch, Contact etc)
-            // In other cases (such as Number items) newStateBoolean will be UNDEF
-            State newStateBoolean = provider.getConfig(itemName)
-                    .translateBoolean2State(!newState.equals(DecimalType.ZERO));
-            // If we have boolean item (newStateBoolean is not UNDEF)
-            if (!UnDefType.UNDEF.equals(newStateBoolean)) {
-                newState = newStateBoolean;
-            } else if ((rawDataMultiplier != 1) && (config.getItemClass().isAssignableFrom(NumberItem.class))) {
-                double tmpValue = ((DecimalType) newState).doubleValue() * rawDataMultiplier;
-                newState = new DecimalType(String.valueOf(tmpValue));
-            }
+                /* receive data manipulation */
+                State newState = extractStateFromRegisters(registers, config.readIndex, slaveValueType);
+                // Convert newState (DecimalType) to on/off kind of state if we have "boolean item" (Switch, Contact
+                // etc). In other cases (such as Number items) newStateBoolean will be UNDEF
+                State newStateBoolean = config.translateBoolean2State(!newState.equals(DecimalType.ZERO));
+                // If we have boolean item (newStateBoolean is not UNDEF)
+                if (!UnDefType.UNDEF.equals(newStateBoolean)) {
+                    newState = newStateBoolean;
+                } else if ((rawDataMultiplier != 1) && (config.getItemClass().isAssignableFrom(NumberItem.class))) {
+                    double tmpValue = ((DecimalType) newState).doubleValue() * rawDataMultiplier;
+                    newState = new DecimalType(String.valueOf(tmpValue));
+                }
 
-            if (slave.isUpdateUnchangedItems() || !newState.equals(config.getState())) {
-                eventPublisher.postUpdate(itemName, newState);
-                config.setState(newState);
+                config.setPolled(true);
+                if (slave.isUpdateUnchangedItems() || !newState.equals(config.getState())) {
+                    eventPublisher.postUpdate(config.getItemName(), newState);
+                    config.setState(newState);
+                }
             }
         }
     }
 
+    /**
+     * Checks whether any of the registers an item value is decoded from has changed
+     *
+     * @param changedRegisters indices of the changed registers, null if unknown
+     * @param index zero based item index, see {@link #extractStateFromRegisters(InputRegister[], int, String)}
+     * @param type item value type
+     * @return true if the item value may have changed
+     */
+    private static boolean registersChanged(BitSet changedRegisters, int index, String type) {
+        if (changedRegisters == null) {
+            return true;
+        }
+        int first;
+        int count = 1;
+        if (type.equals(ModbusBindingProvider.VALUE_TYPE_BIT)) {
+            first = index / 16;
+        } else if (type.equals(ModbusBindingProvider.VALUE_TYPE_INT8)
+                || type.equals(ModbusBindingProvider.VALUE_TYPE_UINT8)) {
+            first = index / 2;
+        } else if (type.equals(ModbusBindingProvider.VALUE_TYPE_INT16)
+                || type.equals(ModbusBindingProvider.VALUE_TYPE_UINT16)) {
+            first = index;
+        } else {
+            first = index * 2;
+            count = 2;
+        }
+        int changed = changedRegisters.nextSetBit(first);
+        return changed >= 0 && changed < first + count;
+    }
+
     /**
      * Read data from registers and convert the result to DecimalType
      * Interpretation of <tt>index</tt> goes as follows depending on type
@@ -274,7 +315,7 @@ public class ModbusBinding extends AbstractActiveBinding<ModbusBindingProvider>
      * @throws IndexOutOfBoundsException when <tt>index</tt> is out of bounds of registers
      *
      */
-    private DecimalType extractStateFromRegisters(InputRegister[] registers, int index, String type) {
+    protected DecimalType extractStateFromRegisters(InputRegister[] registers, int index, String type) {
         if (type.equals(ModbusBindingProvider.VALUE_TYPE_BIT)) {
             return new DecimalType((registers[index / 16].toUnsignedShort() >> (index % 16)) & 1);
         } else if (type.equals(ModbusBindingProvider.VALUE_TYPE_INT8)) {
@@ -327,30 +368,31 @@ public class ModbusBinding extends AbstractActiveBinding<ModbusBindingProvider>
     /**
      * Posts update event to OpenHAB bus for "coil" and "discrete input" type slaves
      *
-     * @param binding ModbusBinding to get item configuration from BindingProviding
-     * @param registers data received from slave device in the last pollInterval
-     * @param item item to update
+     * @param slave slave the bits were read from
+     * @param coils data received from slave device in the last pollInterval
+     * @param changedBits indices of the bits which changed since the previous read, null if unknown
      */
-    protected void internalUpdateItem(String slaveName, BitVector coils, String itemName) {
+    protected void internalUpdateItems(ModbusSlave slave, BitVector coils, BitSet changedBits) {
         for (ModbusBindingProvider provider : providers) {
-            if (provider.providesBindingFor(itemName)) {
-                ModbusBindingConfig config = provider.getConfig(itemName);
-                if (config.slaveName.equals(slaveName)) {
-                    ModbusSlave slave = modbusSlaves.get(slaveName);
-                    if (config.readIndex >= slave.getLength()) {
-                        logger.warn(
-                                "Item '{}' read index '{}' is out-of-bounds. Slave '{}' has been configured "
-                                        + "to read only '{}' bits. Check your configuration!",
-                                itemName, config.readIndex, slaveName, slave.getLength());
-                        continue;
-                    }
+            for (ModbusBindingConfig config : provider.getSlaveConfigs(slave.getName())) {
+                if (config.readIndex >= slave.getLength()) {
+                    logger.warn(
+                            "Item '{}' read index '{}' is out-of-bounds. Slave '{}' has been configured "
+                                    + "to read only '{}' bits. Check your configuration!",
+                            config.getItemName(), config.readIndex, slave.getName(), slave.getLength());
+                    continue;
+                }
+                if (!slave.isUpdateUnchangedItems() && config.isPolled() && changedBits != null
+                        && !changedBits.get(config.readIndex)) {
+                    continue;
+                }
 
-                    boolean state = coils.getBit(config.readIndex);
-                    State newState = config.translateBoolean2State(state);
-                    if (slave.isUpdateUnchangedItems() || !newState.equals(config.getState())) {
-                        eventPublisher.postUpdate(itemName, newState);
-                        config.setState(newState);
-                    }
+                boolean state = coils.getBit(config.readIndex);
+                State newState = config.translateBoolean2State(state);
+                config.setPolled(true);
+                if (slave.isUpdateUnchangedItems() || !newState.equals(config.getState())) {
+                    eventPublisher.postUpdate(config.getItemName(), newState);
+                    config.setState(newState);
                 }
             }
         }
@@ -374,16 +416,13 @@ public class ModbusBinding extends AbstractActiveBinding<ModbusBindingProvider>
     }
 
     /**
-     * updates all slaves from the modbusSlaves
+     * updates all slaves from the modbusSlaves which are due, slaves on different endpoints are updated in parallel
      */
     @Override
     protected void execute() {
-        Collection<ModbusSlave> slaves = new HashSet<ModbusSlave>();
-        synchronized (slaves) {
-            slaves.addAll(modbusSlaves.values());
-        }
-        for (ModbusSlave slave : slaves) {
-            slave.update(this);
+        ModbusPollScheduler scheduler = pollScheduler;
+        if (scheduler != null) {
+            scheduler.poll(this);
         }
     }
 
@@ -391,6 +430,10 @@ public class ModbusBinding extends AbstractActiveBinding<ModbusBindingProvider>
      * Clear all configuration and close all connections
      */
     private void clear() {
+        if (pollScheduler != null) {
+            pollScheduler.shutdown();
+            pollScheduler = null;
+        }
         try {
             // Closes all connections by calling destroyObject method in the ObjectFactory implementation
             if (connectionPool != null) {
@@ -584,6 +627,8 @@ public class ModbusBinding extends AbstractActiveBinding<ModbusBindingProvider>
                         modbusSlave.setRawDataMultiplier(Double.valueOf(value.toString()));
                     } else if ("updateunchangeditems".equals(configKey)) {
                         modbusSlave.setUpdateUnchangedItems(Boolean.valueOf(value.toString()));
+                    } else if ("poll".equals(configKey)) {
+                        modbusSlave.setPollInterval(Long.valueOf(value.toString()));
                     } else {
                         throw new ConfigurationException(configKey,
                                 "the given configKey '" + configKey + "' is unknown");
@@ -613,6 +658,7 @@ public class ModbusBinding extends AbstractActiveBinding<ModbusBindingProvider>
                 endpointPoolConfigs.put(endpoint, poolConfiguration);
             }
             connectionFactory.applyEndpointPoolConfigs(endpointPoolConfigs);
+            pollScheduler = new ModbusPollScheduler(modbusSlaves.values(), pollInterval, getConnectionsPerEndpoint());
             logger.debug("Parsed the following slave->endpoint configurations: {}. If the endpoint is same, "
                     + "connections are shared between the instances.", slavePoolConfigs);
             logger.debug("Parsed the following pool configurations: {}", endpointPoolConfigs);
@@ -8,6 +8,13 @@
  */
 package org.openhab.binding.modbus.internal;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
 import org.openhab.binding.modbus.ModbusBindingProvider;
 import org.openhab.core.binding.BindingConfig;
 import org.openhab.core.items.Item;
@@ -46,6 +53,12 @@ public class ModbusGenericBindingProvider extends AbstractGenericBindingProvider
     static final Logger logger = LoggerFactory.getLogger(ModbusGenericBindingProvider.class);
     static final String BINDING_TYPE = "modbus";
 
+    /**
+     * Item configurations per slave name. The lists are immutable and replaced as a whole whenever the binding
+     * configuration changes, so lookups do not need to lock.
+     */
+    private final Map<String, List<ModbusBindingConfig>> slaveIndex = new ConcurrentHashMap<String, List<ModbusBindingConfig>>();
+
     /**
      * {@inheritDoc}
      */
@@ -89,6 +102,13 @@ public class ModbusGenericBindingProvider extends AbstractGenericBindingProvider
 
         if (bindingConfig != null) {
             ModbusBindingConfig config = parseBindingConfig(item, bindingConfig);
+            synchronized (slaveIndex) {
+                BindingConfig oldConfig = bindingConfigs.get(item.getName());
+                if (oldConfig instanceof ModbusBindingConfig) {
+                    removeFromIndex((ModbusBindingConfig) oldConfig);
+                }
+                addToIndex(config);
+            }
             addBindingConfig(item, config);
         } else {
             logger.warn("bindingConfig is NULL (item={}) -> processing bindingConfig aborted!", item);
@@ -118,6 +138,50 @@ public class ModbusGenericBindingProvider extends AbstractGenericBindingProvider
         return (ModbusBindingConfig) bindingConfigs.get(name);
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<ModbusBindingConfig> getSlaveConfigs(String slaveName) {
+        List<ModbusBindingConfig> configs = slaveIndex.get(slaveName);
+        if (configs == null) {
+            return Collections.emptyList();
+        }
+        return configs;
+    }
+
+    /**
+     * Must be called while holding the monitor of {@link #slaveIndex}.
+     */
+    private void addToIndex(ModbusBindingConfig config) {
+        List<ModbusBindingConfig> oldConfigs = slaveIndex.get(config.slaveName);
+        List<ModbusBindingConfig> newConfigs;
+        if (oldConfigs == null) {
+            newConfigs = new ArrayList<ModbusBindingConfig>(1);
+        } else {
+            newConfigs = new ArrayList<ModbusBindingConfig>(oldConfigs);
+        }
+        newConfigs.add(config);
+        slaveIndex.put(config.slaveName, Collections.unmodifiableList(newConfigs));
+    }
+
+    /**
+     * Must be called while holding the monitor of {@link #slaveIndex}.
+     */
+    private void removeFromIndex(ModbusBindingConfig config) {
+        List<ModbusBindingConfig> oldConfigs = slaveIndex.get(config.slaveName);
+        if (oldConfigs == null || !oldConfigs.contains(config)) {
+            return;
+        }
+        if (oldConfigs.size() == 1) {
+            slaveIndex.remove(config.slaveName);
+        } else {
+            List<ModbusBindingConfig> newConfigs = new ArrayList<ModbusBindingConfig>(oldConfigs);
+            newConfigs.remove(config);
+            slaveIndex.put(config.slaveName, Collections.unmodifiableList(newConfigs));
+        }
+    }
+
     /**
      * ModbusBindingConfig stores configuration of the item bound to Modbus
      *
@@ -152,6 +216,19 @@ public class ModbusGenericBindingProvider extends AbstractGenericBindingProvider
             this.state = state;
         }
 
+        /**
+         * Whether the state has been compared with polled data since the item was configured
+         */
+        private volatile boolean polled = false;
+
+        public boolean isPolled() {
+            return polled;
+        }
+
+        public void setPolled(boolean polled) {
+            this.polled = polled;
+        }
+
         /**
          * Name of Item
          */
@@ -216,6 +293,7 @@ public class ModbusGenericBindingProvider extends AbstractGenericBindingProvider
          */
         ModbusBindingConfig(Item item, String config) throws BindingConfigParseException {
             itemClass = item.getClass();
+            itemName = item.getName();
             state = item.getState();
 
             try {
@@ -255,6 +333,17 @@ public class ModbusGenericBindingProvider extends AbstractGenericBindingProvider
 
     @Override
     public void removeConfigurations(String context) {
+        synchronized (slaveIndex) {
+            Set<Item> items = contextMap.get(context);
+            if (items != null) {
+                for (Item item : items) {
+                    BindingConfig config = bindingConfigs.get(item.getName());
+                    if (config instanceof ModbusBindingConfig) {
+                        removeFromIndex((ModbusBindingConfig) config);
+                    }
+                }
+            }
+        }
         super.removeConfigurations(context);
     }
 
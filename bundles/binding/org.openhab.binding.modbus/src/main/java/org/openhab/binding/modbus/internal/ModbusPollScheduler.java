@@ -0,0 +1,322 @@
+/**
+ * Copyright (c) 2010-2016 by the respective copyright holders.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.binding.modbus.internal;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.openhab.binding.modbus.internal.pooling.ModbusSlaveEndpoint;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Polls modbus slaves concurrently. Slaves sharing an endpoint are polled at most as many at a time as the
+ * connection pool has connections per endpoint, by default one after another. Slaves on different endpoints are
+ * polled in parallel, so a slow or unreachable slave only delays the slaves behind the same endpoint.
+ *
+ * Slaves with their own poll interval are polled only when due. A slave is skipped while its previous poll is
+ * still queued or running, so a slow slave never piles up polls. Missed polls are not caught up.
+ *
+ * @author Dmitry Krasnov
+ * @since 1.9.0
+ */
+public class ModbusPollScheduler {
+
+    private static final Logger logger = LoggerFactory.getLogger(ModbusPollScheduler.class);
+
+    /** time in milliseconds {@link #shutdown()} waits for running polls */
+    private static final long SHUTDOWN_TIMEOUT = 10000;
+
+    private final ExecutorService executor;
+
+    private final Map<String, SlaveState> slaveStates = new LinkedHashMap<String, SlaveState>();
+
+    private final Map<ModbusSlaveEndpoint, EndpointQueue> endpointQueues = new HashMap<ModbusSlaveEndpoint, EndpointQueue>();
+
+    private final long tickInterval;
+
+    /**
+     * @param slaves slaves to poll
+     * @param defaultPollInterval poll interval in milliseconds for slaves without an interval of their own
+     * @param connectionsPerEndpoint maximum number of connections the connection pool opens per endpoint, a negative
+     *            value for no limit
+     */
+    public ModbusPollScheduler(Collection<ModbusSlave> slaves, long defaultPollInterval, int connectionsPerEndpoint) {
+        long tick = defaultPollInterval;
+        Map<ModbusSlaveEndpoint, Integer> slavesPerEndpoint = new HashMap<ModbusSlaveEndpoint, Integer>();
+        for (ModbusSlave slave : slaves) {
+            SlaveState state = new SlaveState(slave, defaultPollInterval);
+            slaveStates.put(slave.getName(), state);
+            tick = Math.min(tick, state.interval);
+            Integer count = slavesPerEndpoint.get(slave.getEndpoint());
+            slavesPerEndpoint.put(slave.getEndpoint(), count == null ? 1 : count + 1);
+        }
+        this.tickInterval = tick;
+        int threads = 0;
+        for (Map.Entry<ModbusSlaveEndpoint, Integer> entry : slavesPerEndpoint.entrySet()) {
+            // more polls than connections would only block in the pool
+            int limit = connectionsPerEndpoint < 0 ? entry.getValue()
+                    : Math.max(1, Math.min(connectionsPerEndpoint, entry.getValue()));
+            endpointQueues.put(entry.getKey(), new EndpointQueue(limit));
+            threads += limit;
+        }
+        final AtomicInteger threadCount = new AtomicInteger();
+        executor = Executors.newFixedThreadPool(Math.max(1, threads), new ThreadFactory() {
+
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread thread = new Thread(r, "Modbus poller-" + threadCount.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        logger.debug("Polling {} slaves on {} endpoints with {} threads, tick interval {} ms", slaveStates.size(),
+                endpointQueues.size(), threads, tickInterval);
+    }
+
+    /**
+     * @return smallest poll interval of all slaves in milliseconds
+     */
+    public long getTickInterval() {
+        return tickInterval;
+    }
+
+    /**
+     * Polls all slaves which are due. Returns when the polls have finished or one tick interval has passed,
+     * whichever comes first. Polls which take longer keep running in the background.
+     *
+     * @param binding binding receiving the updates
+     */
+    public void poll(final ModbusBinding binding) {
+        long tickStart = System.currentTimeMillis();
+        List<FutureTask<Void>> polls = new ArrayList<FutureTask<Void>>();
+        for (final SlaveState state : slaveStates.values()) {
+            final long scheduledTime = state.schedule(tickStart);
+            if (scheduledTime < 0) {
+                continue;
+            }
+            FutureTask<Void> poll = new FutureTask<Void>(new Runnable() {
+
+                @Override
+                public void run() {
+                    state.poll(binding, scheduledTime);
+                }
+            }, null);
+            try {
+                endpointQueues.get(state.slave.getEndpoint()).execute(poll);
+            } catch (RejectedExecutionException e) {
+                state.inFlight.set(0);
+                logger.debug("ModbusSlave ({}): poller has been shut down", state.slave.getName());
+                return;
+            }
+            polls.add(poll);
+        }
+
+        long deadline = tickStart + tickInterval;
+        for (FutureTask<Void> poll : polls) {
+            long remaining = deadline - System.currentTimeMillis();
+            try {
+                poll.get(Math.max(remaining, 0), TimeUnit.MILLISECONDS);
+            } catch (TimeoutException e) {
+                logger.debug("Not all modbus slaves could be polled within {} ms, continuing in background",
+                        tickInterval);
+                return;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (ExecutionException e) {
+                logger.error("Unexpected error while polling modbus slave", e.getCause());
+            }
+        }
+    }
+
+    /**
+     * Stops polling. Queued polls are dropped, polls which are already running are allowed to finish. Returns when
+     * they have finished, so the connections can be closed afterwards. Polls which are still running after
+     * {@link #SHUTDOWN_TIMEOUT} are interrupted.
+     */
+    public void shutdown() {
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(SHUTDOWN_TIMEOUT, TimeUnit.MILLISECONDS)) {
+                logger.warn("Modbus polls still running after {} ms, interrupting them", SHUTDOWN_TIMEOUT);
+                executor.shutdownNow();
+                if (!executor.awaitTermination(SHUTDOWN_TIMEOUT, TimeUnit.MILLISECONDS)) {
+                    logger.warn("Modbus polls did not terminate");
+                }
+            }
+        } catch (InterruptedException e) {
+            executor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Runs the polls of one endpoint on the shared executor, at most <code>limit</code> at a time.
+     */
+    private class EndpointQueue {
+
+        private final Queue<Runnable> tasks = new ArrayDeque<Runnable>();
+
+        private final int limit;
+
+        private int active;
+
+        public EndpointQueue(int limit) {
+            this.limit = limit;
+        }
+
+        public synchronized void execute(final Runnable task) {
+            if (executor.isShutdown()) {
+                throw new RejectedExecutionException();
+            }
+            tasks.add(new Runnable() {
+
+                @Override
+                public void run() {
+                    try {
+                        task.run();
+                    } finally {
+                        finished();
+                    }
+                }
+            });
+            scheduleNext();
+        }
+
+        private synchronized void finished() {
+            active--;
+            scheduleNext();
+        }
+
+        private synchronized void scheduleNext() {
+            while (active < limit && !tasks.isEmpty()) {
+                try {
+                    executor.execute(tasks.poll());
+                    active++;
+                } catch (RejectedExecutionException e) {
+                    // shut down, drop the remaining polls
+                    tasks.clear();
+                }
+            }
+        }
+    }
+
+    /**
+     * Schedule and statistics of a single slave.
+     */
+    private static class SlaveState {
+
+        private final ModbusSlave slave;
+
+        private final long interval;
+
+        private final boolean ownInterval;
+
+        /** 1 while a poll is queued or running, 0 otherwise */
+        private final AtomicInteger inFlight = new AtomicInteger();
+
+        private long nextPoll;
+
+        private long polls;
+
+        private long skipped;
+
+        private long lastCycleTime;
+
+        private long maxCycleTime;
+
+        private long totalCycleTime;
+
+        private long lastLag;
+
+        private long maxLag;
+
+        public SlaveState(ModbusSlave slave, long defaultPollInterval) {
+            this.slave = slave;
+            this.ownInterval = slave.getPollInterval() > 0;
+            this.interval = ownInterval ? slave.getPollInterval() : defaultPollInterval;
+        }
+
+        /**
+         * @return time the poll was scheduled for, or -1 if the slave should not be polled now
+         */
+        public synchronized long schedule(long now) {
+            long scheduledTime = now;
+            if (ownInterval) {
+                if (nextPoll == 0) {
+                    nextPoll = now;
+                }
+                if (now < nextPoll) {
+                    return -1;
+                }
+                scheduledTime = nextPoll;
+                nextPoll += interval;
+                if (nextPoll <= now) {
+                    long missed = (now - nextPoll) / interval + 1;
+                    skipped += missed;
+                    logger.debug("ModbusSlave ({}): skipping {} missed polls", slave.getName(), missed);
+                    nextPoll = now + interval;
+                }
+            }
+
+            if (!inFlight.compareAndSet(0, 1)) {
+                skipped++;
+                logger.debug("ModbusSlave ({}): previous poll still in progress, skipping poll", slave.getName());
+                return -1;
+            }
+            return scheduledTime;
+        }
+
+        public void poll(ModbusBinding binding, long scheduledTime) {
+            long start = System.currentTimeMillis();
+            try {
+                slave.update(binding);
+            } finally {
+                long cycleTime = System.currentTimeMillis() - start;
+                long lag = Math.max(start - scheduledTime, 0);
+                synchronized (this) {
+                    polls++;
+                    lastCycleTime = cycleTime;
+                    maxCycleTime = Math.max(maxCycleTime, cycleTime);
+                    totalCycleTime += cycleTime;
+                    lastLag = lag;
+                    maxLag = Math.max(maxLag, lag);
+                }
+                inFlight.set(0);
+                if (logger.isDebugEnabled()) {
+                    logger.debug("ModbusSlave ({}): poll took {} ms, started {} ms late. {}", slave.getName(),
+                            cycleTime, lag, getStatistics());
+                }
+            }
+        }
+
+        public synchronized String getStatistics() {
+            return "interval=" + interval + " ms, polls=" + polls + ", skipped=" + skipped + ", lastCycleTime="
+                    + lastCycleTime + " ms, avgCycleTime=" + (polls == 0 ? 0 : totalCycleTime / polls)
+                    + " ms, maxCycleTime=" + maxCycleTime + " ms, lastLag=" + lastLag + " ms, maxLag=" + maxLag
+                    + " ms";
+        }
+    }
+}
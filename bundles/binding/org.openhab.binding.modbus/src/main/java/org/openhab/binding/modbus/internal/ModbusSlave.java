@@ -8,7 +8,7 @@
  */
 package org.openhab.binding.modbus.internal;
 
-import java.util.Collection;
+import java.util.BitSet;
 
 import org.apache.commons.pool2.KeyedObjectPool;
 import org.openhab.binding.modbus.ModbusBindingProvider;
@@ -106,6 +106,12 @@ public abstract class ModbusSlave {
     private Object storage;
     protected ModbusTransaction transaction = null;
 
+    /**
+     * Raw data of the previous read, used to detect which items need to be updated
+     */
+    private BitVector lastBits;
+    private int[] lastRegisterValues;
+
     /**
      * Does the binding post updates even when the item did not change it's state?
      *
@@ -113,6 +119,11 @@ public abstract class ModbusSlave {
      */
     private boolean updateUnchangedItems = false;
 
+    /**
+     * Poll interval of this slave in milliseconds, 0 to use the poll interval of the binding
+     */
+    private long pollInterval = 0;
+
     public boolean isUpdateUnchangedItems() {
         return updateUnchangedItems;
     }
@@ -121,6 +132,14 @@ public abstract class ModbusSlave {
         this.updateUnchangedItems = updateUnchangedItems;
     }
 
+    public long getPollInterval() {
+        return pollInterval;
+    }
+
+    public void setPollInterval(long pollInterval) {
+        this.pollInterval = pollInterval;
+    }
+
     /**
      * @param slave slave name from cfg file used for item binding
      * @connectionPool pool to create connections
@@ -410,9 +429,18 @@ public abstract class ModbusSlave {
                     storage = local;
                 }
             }
-            Collection<String> items = binding.getItemNames();
-            for (String item : items) {
-                updateItem(binding, item);
+            if (local instanceof BitVector) {
+                BitVector bits = (BitVector) local;
+                binding.internalUpdateItems(this, bits, changedBits(bits));
+                lastBits = bits;
+            } else if (local instanceof InputRegister[]) {
+                InputRegister[] registers = (InputRegister[]) local;
+                int[] registerValues = new int[registers.length];
+                for (int i = 0; i < registers.length; i++) {
+                    registerValues[i] = registers[i].toUnsignedShort();
+                }
+                binding.internalUpdateItems(this, registers, changedRegisters(registerValues));
+                lastRegisterValues = registerValues;
             }
         } catch (Exception e) {
             logger.error("ModbusSlave ({}) error getting response from slave", name, e);
@@ -421,21 +449,39 @@ public abstract class ModbusSlave {
     }
 
     /**
-     * Updates OpenHAB item with data read from slave device
-     * works only for type "coil" and "holding"
+     * Compares the bits with the bits of the previous read
      *
-     * @param binding ModbusBinding
-     * @param item item to update
+     * @return indices of the changed bits, or null if there is no previous read to compare with
      */
-    private void updateItem(ModbusBinding binding, String item) {
-        if (ModbusBindingProvider.TYPE_COIL.equals(getType())
-                || ModbusBindingProvider.TYPE_DISCRETE.equals(getType())) {
-            binding.internalUpdateItem(name, (BitVector) storage, item);
+    private BitSet changedBits(BitVector bits) {
+        if (lastBits == null || lastBits.size() != bits.size()) {
+            return null;
+        }
+        BitSet changed = new BitSet(bits.size());
+        for (int i = 0; i < bits.size(); i++) {
+            if (bits.getBit(i) != lastBits.getBit(i)) {
+                changed.set(i);
+            }
         }
-        if (ModbusBindingProvider.TYPE_HOLDING.equals(getType())
-                || ModbusBindingProvider.TYPE_INPUT.equals(getType())) {
-            binding.internalUpdateItem(name, (InputRegister[]) storage, item);
+        return changed;
+    }
+
+    /**
+     * Compares the register values with the values of the previous read
+     *
+     * @return indices of the changed registers, or null if there is no previous read to compare with
+     */
+    private BitSet changedRegisters(int[] registerValues) {
+        if (lastRegisterValues == null || lastRegisterValues.length != registerValues.length) {
+            return null;
+        }
+        BitSet changed = new BitSet(registerValues.length);
+        for (int i = 0; i < registerValues.length; i++) {
+            if (registerValues[i] != lastRegisterValues[i]) {
+                changed.set(i);
+            }
         }
+        return changed;
     }
 
     /**
@@ -0,0 +1,100 @@
+/**
+ * Copyright (c) 2010-2016 by the respective copyright holders.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.binding.rfxcom.internal;
+
+import static org.junit.Assert.*;
+
+import java.util.Map;
+
+import org.junit.Test;
+import org.openhab.binding.rfxcom.RFXComValueSelector;
+import org.openhab.core.library.items.NumberItem;
+import org.openhab.core.library.items.SwitchItem;
+import org.openhab.model.item.binding.BindingConfigParseException;
+
+/**
+ * Tests the device index behind
+ * {@link RFXComGenericBindingProvider#getInBindingItems(String)}.
+ *
+ * @author Pauli Anttila
+ * @since 1.9.0
+ */
+public class RFXComGenericBindingProviderTest {
+
+    private static final String CONTEXT = "rfxcom.items";
+
+    private RFXComGenericBindingProvider provider = new RFXComGenericBindingProvider();
+
+    @Test
+    public void testInBindingItems() throws BindingConfigParseException {
+        provider.processBindingConfiguration(CONTEXT, new NumberItem("Temperature"), "<2264:Temperature");
+        provider.processBindingConfiguration(CONTEXT, new NumberItem("Humidity"), "<2264:Humidity");
+        provider.processBindingConfiguration(CONTEXT, new SwitchItem("Light"), ">635602.1:LIGHTING2.AC:Command");
+
+        Map<String, RFXComValueSelector> items = provider.getInBindingItems("2264");
+        assertEquals(2, items.size());
+        assertEquals(RFXComValueSelector.TEMPERATURE, items.get("Temperature"));
+        assertEquals(RFXComValueSelector.HUMIDITY, items.get("Humidity"));
+        // out bindings aren't indexed
+        assertTrue(provider.getInBindingItems("635602.1").isEmpty());
+        assertTrue(provider.getInBindingItems("4711").isEmpty());
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void testInBindingItemsAreUnmodifiable() throws BindingConfigParseException {
+        provider.processBindingConfiguration(CONTEXT, new NumberItem("Temperature"), "<2264:Temperature");
+
+        provider.getInBindingItems("2264").remove("Temperature");
+    }
+
+    @Test
+    public void testRebindingMovesItem() throws BindingConfigParseException {
+        provider.processBindingConfiguration(CONTEXT, new NumberItem("Temperature"), "<2264:Temperature");
+        provider.processBindingConfiguration(CONTEXT, new NumberItem("Humidity"), "<2264:Humidity");
+        Map<String, RFXComValueSelector> before = provider.getInBindingItems("2264");
+
+        provider.processBindingConfiguration(CONTEXT, new NumberItem("Temperature"), "<3300:Temperature");
+
+        assertEquals(1, provider.getInBindingItems("2264").size());
+        assertEquals(RFXComValueSelector.HUMIDITY, provider.getInBindingItems("2264").get("Humidity"));
+        assertEquals(RFXComValueSelector.TEMPERATURE, provider.getInBindingItems("3300").get("Temperature"));
+        // a map handed out before isn't changed
+        assertEquals(2, before.size());
+    }
+
+    @Test
+    public void testRebindingAsOutBindingRemovesItem() throws BindingConfigParseException {
+        provider.processBindingConfiguration(CONTEXT, new SwitchItem("Light"), "<635602.1:Command");
+        assertEquals(RFXComValueSelector.COMMAND, provider.getInBindingItems("635602.1").get("Light"));
+
+        provider.processBindingConfiguration(CONTEXT, new SwitchItem("Light"), ">635602.1:LIGHTING2.AC:Command");
+
+        assertTrue(provider.getInBindingItems("635602.1").isEmpty());
+    }
+
+    @Test
+    public void testRemoveConfigurations() throws BindingConfigParseException {
+        provider.processBindingConfiguration(CONTEXT, new NumberItem("Temperature"), "<2264:Temperature");
+        provider.processBindingConfiguration(CONTEXT, new NumberItem("Humidity"), "<2264:Humidity");
+        provider.processBindingConfiguration("other.items", new NumberItem("Outside"), "<2264:Temperature");
+        provider.processBindingConfiguration("other.items", new NumberItem("Wind"), "<5000:WindSpeed");
+
+        provider.removeConfigurations(CONTEXT);
+
+        Map<String, RFXComValueSelector> items = provider.getInBindingItems("2264");
+        assertEquals(1, items.size());
+        assertEquals(RFXComValueSelector.TEMPERATURE, items.get("Outside"));
+        assertEquals(RFXComValueSelector.WIND_SPEED, provider.getInBindingItems("5000").get("Wind"));
+
+        provider.removeConfigurations("other.items");
+
+        assertTrue(provider.getInBindingItems("2264").isEmpty());
+        assertTrue(provider.getInBindingItems("5000").isEmpty());
+    }
+}
@@ -0,0 +1,103 @@
+/**
+ * Copyright (c) 2010-2016 by the respective copyright holders.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.binding.rfxcom.internal.messages;
+
+import static org.junit.Assert.*;
+
+import javax.xml.bind.DatatypeConverter;
+
+import org.junit.Test;
+import org.openhab.binding.rfxcom.internal.RFXComException;
+import org.openhab.binding.rfxcom.internal.messages.RFXComBaseMessage.PacketType;
+
+/**
+ * Tests the lookup of the packet types and message classes in the
+ * {@link RFXComMessageFactory}.
+ *
+ * @author Pauli Anttila
+ * @since 1.9.0
+ */
+public class RFXComMessageFactoryTest {
+
+    @Test
+    public void testPacketTypeTable() {
+        for (PacketType p : PacketType.values()) {
+            assertSame(p, RFXComMessageFactory.getPacketType(p.toByte()));
+        }
+        // IO_LINES (128) is a negative byte
+        assertSame(PacketType.IO_LINES, RFXComMessageFactory.getPacketType((byte) 0x80));
+        assertSame(PacketType.UNKNOWN, RFXComMessageFactory.getPacketType((byte) 0x77));
+        assertSame(PacketType.UNKNOWN, RFXComMessageFactory.getPacketType((byte) 0xFE));
+    }
+
+    @Test
+    public void testMessageByPacketType() throws RFXComException {
+        assertTrue(RFXComMessageFactory.getMessageInterface(PacketType.LIGHTING2) instanceof RFXComLighting2Message);
+        assertTrue(RFXComMessageFactory.getMessageInterface(
+                PacketType.TEMPERATURE_HUMIDITY) instanceof RFXComTemperatureHumidityMessage);
+        assertTrue(RFXComMessageFactory.getMessageInterface(PacketType.WEIGHT) instanceof RFXComWeightMessage);
+        // every call creates a new message
+        assertNotSame(RFXComMessageFactory.getMessageInterface(PacketType.LIGHTING2),
+                RFXComMessageFactory.getMessageInterface(PacketType.LIGHTING2));
+    }
+
+    @Test
+    public void testMessageByPacket() throws RFXComException {
+        RFXComMessageInterface msg = RFXComMessageFactory
+                .getMessageInterface(DatatypeConverter.parseHexBinary("0A5201800F0201294C0349"));
+        assertTrue(msg instanceof RFXComTemperatureHumidityMessage);
+    }
+
+    @Test
+    public void testNotImplementedPacketType() {
+        try {
+            RFXComMessageFactory.getMessageInterface(PacketType.GAS);
+            fail("GAS isn't implemented");
+        } catch (RFXComException e) {
+            assertEquals("Message GAS not implemented", e.getMessage());
+        }
+        try {
+            RFXComMessageFactory.getMessageInterface(PacketType.UNKNOWN);
+            fail("UNKNOWN isn't implemented");
+        } catch (RFXComException e) {
+            assertEquals("Message UNKNOWN not implemented", e.getMessage());
+        }
+    }
+
+    @Test
+    public void testNotImplementedPacket() {
+        try {
+            RFXComMessageFactory.getMessageInterface(DatatypeConverter.parseHexBinary("075E000100000000"));
+            fail("GAS isn't implemented");
+        } catch (RFXComException e) {
+            assertEquals("Message GAS(94) not implemented", e.getMessage());
+        }
+    }
+
+    @Test
+    public void testUnknownPacket() {
+        try {
+            RFXComMessageFactory.getMessageInterface(DatatypeConverter.parseHexBinary("0777000100000000"));
+            fail("0x77 isn't a packet type");
+        } catch (RFXComException e) {
+            assertEquals("Message UNKNOWN(119) not implemented", e.getMessage());
+        }
+    }
+
+    @Test
+    public void testConvertPacketType() {
+        assertSame(PacketType.LIGHTING2, RFXComMessageFactory.convertPacketType("LIGHTING2"));
+        try {
+            RFXComMessageFactory.convertPacketType("LIGHTING9");
+            fail("LIGHTING9 isn't a packet type");
+        } catch (IllegalArgumentException e) {
+            assertEquals("Unknown packet type LIGHTING9", e.getMessage());
+        }
+    }
+}
@@ -8,6 +8,8 @@
  */
 package org.openhab.binding.rfxcom;
 
+import java.util.Map;
+
 import org.openhab.binding.rfxcom.internal.messages.RFXComBaseMessage.PacketType;
 import org.openhab.core.autoupdate.AutoUpdateBindingProvider;
 
@@ -36,6 +38,17 @@ public interface RFXComBindingProvider extends AutoUpdateBindingProvider {
      */
     public String getId(String itemName);
 
+    /**
+     * Returns the items with an in binding to the given <code>deviceId</code>.
+     * 
+     * @param deviceId
+     *            the device id as generated by the received message.
+     * 
+     * @return an immutable map of the item names to their value selectors,
+     *         empty if no item is bound to the device.
+     */
+    public Map<String, RFXComValueSelector> getInBindingItems(String deviceId);
+
     /**
      * Returns the value selector to the given <code>itemName</code>.
      * 
@@ -11,6 +11,7 @@ package org.openhab.binding.rfxcom.internal;
 import java.io.IOException;
 import java.util.EventObject;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
@@ -241,30 +242,27 @@ public class RFXComBinding extends AbstractBinding<RFXComBindingProvider> {
                 } else {
                     final String deviceId = obj.generateDeviceId();
 
-                    final List<RFXComValueSelector> supportedValueSelectors = obj.getSupportedValueSelectors();
-
-                    if (supportedValueSelectors != null) {
-
-                        for (RFXComBindingProvider provider : providers) {
-                            for (String itemName : provider.getItemNames()) {
-
-                                String id1 = provider.getId(itemName);
-                                boolean inBinding = provider.isInBinding(itemName);
+                    for (RFXComBindingProvider provider : providers) {
+                        Map<String, RFXComValueSelector> items = provider.getInBindingItems(deviceId);
+                        if (items.isEmpty()) {
+                            continue;
+                        }
 
-                                if (id1.equals(deviceId) && inBinding) {
+                        final List<RFXComValueSelector> supportedValueSelectors = obj.getSupportedValueSelectors();
+                        if (supportedValueSelectors == null) {
+                            break;
+                        }
 
-                                    RFXComValueSelector valueSelector = provider.getValueSelector(itemName);
+                        for (Map.Entry<String, RFXComValueSelector> item : items.entrySet()) {
+                            RFXComValueSelector valueSelector = item.getValue();
 
-                                    if (supportedValueSelectors.contains(valueSelector)) {
-                                        try {
-                                            State value = obj.convertToState(valueSelector);
-                                            eventPublisher.postUpdate(itemName, value);
-                                        } catch (RFXComException e) {
-                                            logger.warn("Data conversion error", e);
-                                        }
-                                    }
+                            if (supportedValueSelectors.contains(valueSelector)) {
+                                try {
+                                    State value = obj.convertToState(valueSelector);
+                                    eventPublisher.postUpdate(item.getKey(), value);
+                                } catch (RFXComException e) {
+                                    logger.warn("Data conversion error", e);
                                 }
-
                             }
                         }
                     }
@@ -9,6 +9,11 @@
 package org.openhab.binding.rfxcom.internal;
 
 import java.io.InvalidClassException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.openhab.binding.rfxcom.RFXComBindingProvider;
 import org.openhab.binding.rfxcom.RFXComValueSelector;
@@ -52,6 +57,13 @@ import org.openhab.model.item.binding.BindingConfigParseException;
  */
 public class RFXComGenericBindingProvider extends AbstractGenericBindingProvider implements RFXComBindingProvider {
 
+    /**
+     * Maps the device id of every in binding to the bound items and their
+     * value selectors. Lookups are lock-free; the per-device maps are immutable
+     * and replaced as a whole whenever the binding configuration changes.
+     */
+    private final Map<String, Map<String, RFXComValueSelector>> deviceIndex = new ConcurrentHashMap<String, Map<String, RFXComValueSelector>>();
+
     /**
      * {@inheritDoc}
      */
@@ -140,10 +152,68 @@ public class RFXComGenericBindingProvider extends AbstractGenericBindingProvider
 
         }
 
+        config.itemName = item.getName();
+        synchronized (deviceIndex) {
+            removeFromIndex(getBindingConfig(item.getName()));
+            addToIndex(config);
+        }
         addBindingConfig(item, config);
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void removeConfigurations(String context) {
+        synchronized (deviceIndex) {
+            Set<Item> items = contextMap.get(context);
+            if (items != null) {
+                for (Item item : items) {
+                    removeFromIndex(getBindingConfig(item.getName()));
+                }
+            }
+        }
+        super.removeConfigurations(context);
+    }
+
+    /**
+     * Adds an in binding to the device index. Must be called while holding
+     * the monitor of {@link #deviceIndex}.
+     */
+    private void addToIndex(RFXComBindingConfig config) {
+        if (!config.inBinding) {
+            return;
+        }
+        Map<String, RFXComValueSelector> oldEntries = deviceIndex.get(config.id);
+        Map<String, RFXComValueSelector> newEntries = oldEntries == null
+                ? new HashMap<String, RFXComValueSelector>(2) : new HashMap<String, RFXComValueSelector>(oldEntries);
+        newEntries.put(config.itemName, config.valueSelector);
+        deviceIndex.put(config.id, Collections.unmodifiableMap(newEntries));
+    }
+
+    /**
+     * Removes an in binding from the device index. Must be called while
+     * holding the monitor of {@link #deviceIndex}.
+     */
+    private void removeFromIndex(RFXComBindingConfig config) {
+        if (config == null || !config.inBinding) {
+            return;
+        }
+        Map<String, RFXComValueSelector> oldEntries = deviceIndex.get(config.id);
+        if (oldEntries == null || !oldEntries.containsKey(config.itemName)) {
+            return;
+        }
+        if (oldEntries.size() == 1) {
+            deviceIndex.remove(config.id);
+        } else {
+            Map<String, RFXComValueSelector> newEntries = new HashMap<String, RFXComValueSelector>(oldEntries);
+            newEntries.remove(config.itemName);
+            deviceIndex.put(config.id, Collections.unmodifiableMap(newEntries));
+        }
+    }
+
     static class RFXComBindingConfig implements BindingConfig {
+        String itemName;
         String id;
         RFXComValueSelector valueSelector;
         boolean inBinding;
@@ -157,6 +227,15 @@ public class RFXComGenericBindingProvider extends AbstractGenericBindingProvider
         return config != null ? config.id : null;
     }
 
+    @Override
+    public Map<String, RFXComValueSelector> getInBindingItems(String deviceId) {
+        Map<String, RFXComValueSelector> items = deviceIndex.get(deviceId);
+        if (items == null) {
+            return Collections.emptyMap();
+        }
+        return items;
+    }
+
     @Override
     public RFXComValueSelector getValueSelector(String itemName) {
         RFXComBindingConfig config = getBindingConfig(itemName);
@@ -103,16 +103,9 @@ public abstract class RFXComBaseMessage implements RFXComMessageInterface {
 
         rawMessage = data;
 
-        packetType = PacketType.UNKNOWN;
+        packetType = RFXComMessageFactory.getPacketType(data[1]);
         packetId = data[1];
 
-        for (PacketType pt : PacketType.values()) {
-            if (pt.toByte() == data[1]) {
-                packetType = pt;
-                break;
-            }
-        }
-
         subType = data[2];
         seqNbr = data[3];
         id1 = data[4];
@@ -8,68 +8,419 @@
  */
 package org.openhab.binding.rfxcom.internal.messages;
 
-import java.lang.reflect.Constructor;
-import java.util.Collections;
-import java.util.HashMap;
-import java.util.Map;
+import java.util.Arrays;
 
 import org.openhab.binding.rfxcom.internal.RFXComException;
 import org.openhab.binding.rfxcom.internal.messages.RFXComBaseMessage.PacketType;
 
 public class RFXComMessageFactory {
 
-    final static String classUrl = "org.openhab.binding.rfxcom.internal.messages.";
-
-    @SuppressWarnings("serial")
-    private static final Map<PacketType, String> messageClasses = Collections
-            .unmodifiableMap(new HashMap<PacketType, String>() {
-                {
-                    put(PacketType.INTERFACE_CONTROL, "RFXComControlMessage");
-                    put(PacketType.INTERFACE_MESSAGE, "RFXComInterfaceMessage");
-                    put(PacketType.TRANSMITTER_MESSAGE, "RFXComTransmitterMessage");
-                    put(PacketType.UNDECODED_RF_MESSAGE, "RFXComUndecodedRFMessage");
-                    put(PacketType.LIGHTING1, "RFXComLighting1Message");
-                    put(PacketType.LIGHTING2, "RFXComLighting2Message");
-                    put(PacketType.LIGHTING3, "RFXComLighting3Message");
-                    put(PacketType.LIGHTING4, "RFXComLighting4Message");
-                    put(PacketType.LIGHTING5, "RFXComLighting5Message");
-                    put(PacketType.LIGHTING6, "RFXComLighting6Message");
-                    put(PacketType.CHIME, "RFXComChimeMessage");
-                    put(PacketType.FAN, "RFXComFanMessage");
-                    put(PacketType.CURTAIN1, "RFXComCurtain1Message");
-                    put(PacketType.BLINDS1, "RFXComBlinds1Message");
-                    put(PacketType.RFY, "RFXComRfyMessage");
-                    put(PacketType.SECURITY1, "RFXComSecurity1Message");
-                    put(PacketType.SECURITY2, "RFXComSecurity2Message");
-                    put(PacketType.CAMERA1, "RFXComCamera1Message");
-                    put(PacketType.REMOTE_CONTROL, "RFXComRemoteControlMessage");
-                    put(PacketType.THERMOSTAT1, "RFXComThermostat1Message");
-                    put(PacketType.THERMOSTAT2, "RFXComThermostat2Message");
-                    put(PacketType.THERMOSTAT3, "RFXComThermostat3Message");
-                    put(PacketType.BBQ1, "RFXComBBQMessage");
-                    put(PacketType.TEMPERATURE_RAIN, "RFXComTemperatureRainMessage");
-                    put(PacketType.TEMPERATURE, "RFXComTemperatureMessage");
-                    put(PacketType.HUMIDITY, "RFXComHumidityMessage");
-                    put(PacketType.TEMPERATURE_HUMIDITY, "RFXComTemperatureHumidityMessage");
-                    put(PacketType.BAROMETRIC, "RFXComBarometricMessage");
-                    put(PacketType.TEMPERATURE_HUMIDITY_BAROMETRIC, "RFXComTemperatureHumidityBarometricMessage");
-                    put(PacketType.RAIN, "RFXComRainMessage");
-                    put(PacketType.WIND, "RFXComWindMessage");
-                    put(PacketType.UV, "RFXComUVMessage");
-                    put(PacketType.DATE_TIME, "RFXComDateTimeMessage");
-                    put(PacketType.CURRENT, "RFXComCurrentMessage");
-                    put(PacketType.ENERGY, "RFXComEnergyMessage");
-                    put(PacketType.CURRENT_ENERGY, "RFXComCurrentEnergyMessage");
-                    put(PacketType.POWER, "RFXComPowerMessage");
-                    put(PacketType.WEIGHT, "RFXComWeightMessage");
-                    put(PacketType.GAS, "RFXComGasMessage");
-                    put(PacketType.WATER, "RFXComWaterMessage");
-                    put(PacketType.RFXSENSOR, "RFXComRFXSensorMessage");
-                    put(PacketType.RFXMETER, "RFXComRFXMeterMessage");
-                    put(PacketType.FS20, "RFXComFS20Message");
-                    put(PacketType.IO_LINES, "RFXComIOLinesMessage");
-                }
-            });
+    /**
+     * Creates the message object of one packet type.
+     */
+    private interface MessageCreator {
+
+        RFXComMessageInterface create();
+
+        RFXComMessageInterface create(byte[] data);
+    }
+
+    /**
+     * Message creators indexed by the packet type byte, <code>null</code> for
+     * packet types which are not implemented.
+     */
+    private static final MessageCreator[] messageCreators = new MessageCreator[256];
+
+    /**
+     * Packet types indexed by the packet type byte.
+     */
+    private static final PacketType[] packetTypes = new PacketType[256];
+
+    static {
+        Arrays.fill(packetTypes, PacketType.UNKNOWN);
+        for (PacketType p : PacketType.values()) {
+            packetTypes[p.toByte() & 0xFF] = p;
+        }
+
+        put(PacketType.INTERFACE_CONTROL, new MessageCreator() {
+            @Override
+            public RFXComMessageInterface create() {
+                return new RFXComControlMessage();
+            }
+
+            @Override
+            public RFXComMessageInterface create(byte[] data) {
+                return new RFXComControlMessage(data);
+            }
+        });
+        put(PacketType.INTERFACE_MESSAGE, new MessageCreator() {
+            @Override
+            public RFXComMessageInterface create() {
+                return new RFXComInterfaceMessage();
+            }
+
+            @Override
+            public RFXComMessageInterface create(byte[] data) {
+                return new RFXComInterfaceMessage(data);
+            }
+        });
+        put(PacketType.TRANSMITTER_MESSAGE, new MessageCreator() {
+            @Override
+            public RFXComMessageInterface create() {
+                return new RFXComTransmitterMessage();
+            }
+
+            @Override
+            public RFXComMessageInterface create(byte[] data) {
+                return new RFXComTransmitterMessage(data);
+            }
+        });
+        put(PacketType.UNDECODED_RF_MESSAGE, new MessageCreator() {
+            @Override
+            public RFXComMessageInterface create() {
+                return new RFXComUndecodedRFMessage();
+            }
+
+            @Override
+            public RFXComMessageInterface create(byte[] data) {
+                return new RFXComUndecodedRFMessage(data);
+            }
+        });
+        put(PacketType.LIGHTING1, new MessageCreator() {
+            @Override
+            public RFXComMessageInterface create() {
+                return new RFXComLighting1Message();
+            }
+
+            @Override
+            public RFXComMessageInterface create(byte[] data) {
+                return new RFXComLighting1Message(data);
+            }
+        });
+        put(PacketType.LIGHTING2, new MessageCreator() {
+            @Override
+            public RFXComMessageInterface create() {
+                return new RFXComLighting2Message();
+            }
+
+            @Override
+            public RFXComMessageInterface create(byte[] data) {
+                return new RFXComLighting2Message(data);
+            }
+        });
+        put(PacketType.LIGHTING3, new MessageCreator() {
+            @Override
+            public RFXComMessageInterface create() {
+                return new RFXComLighting3Message();
+            }
+
+            @Override
+            public RFXComMessageInterface create(byte[] data) {
+                return new RFXComLighting3Message(data);
+            }
+        });
+        put(PacketType.LIGHTING4, new MessageCreator() {
+            @Override
+            public RFXComMessageInterface create() {
+                return new RFXComLighting4Message();
+            }
+
+            @Override
+            public RFXComMessageInterface create(byte[] data) {
+                return new RFXComLighting4Message(data);
+            }
+        });
+        put(PacketType.LIGHTING5, new MessageCreator() {
+            @Override
+            public RFXComMessageInterface create() {
+                return new RFXComLighting5Message();
+            }
+
+            @Override
+            public RFXComMessageInterface create(byte[] data) {
+                return new RFXComLighting5Message(data);
+            }
+        });
+        put(PacketType.LIGHTING6, new MessageCreator() {
+            @Override
+            public RFXComMessageInterface create() {
+                return new RFXComLighting6Message();
+            }
+
+            @Override
+            public RFXComMessageInterface create(byte[] data) {
+                return new RFXComLighting6Message(data);
+            }
+        });
+        put(PacketType.CHIME, new MessageCreator() {
+            @Override
+            public RFXComMessageInterface create() {
+                return new RFXComChimeMessage();
+            }
+
+            @Override
+            public RFXComMessageInterface create(byte[] data) {
+                return new RFXComChimeMessage(data);
+            }
+        });
+        put(PacketType.FAN, new MessageCreator() {
+            @Override
+            public RFXComMessageInterface create() {
+                return new RFXComFanMessage();
+            }
+
+            @Override
+            public RFXComMessageInterface create(byte[] data) {
+                return new RFXComFanMessage(data);
+            }
+        });
+        put(PacketType.CURTAIN1, new MessageCreator() {
+            @Override
+            public RFXComMessageInterface create() {
+                return new RFXComCurtain1Message();
+            }
+
+            @Override
+            public RFXComMessageInterface create(byte[] data) {
+                return new RFXComCurtain1Message(data);
+            }
+        });
+        put(PacketType.BLINDS1, new MessageCreator() {
+            @Override
+            public RFXComMessageInterface create() {
+                return new RFXComBlinds1Message();
+            }
+
+            @Override
+            public RFXComMessageInterface create(byte[] data) {
+                return new RFXComBlinds1Message(data);
+            }
+        });
+        put(PacketType.RFY, new MessageCreator() {
+            @Override
+            public RFXComMessageInterface create() {
+                return new RFXComRfyMessage();
+            }
+
+            @Override
+            public RFXComMessageInterface create(byte[] data) {
+                return new RFXComRfyMessage(data);
+            }
+        });
+        put(PacketType.SECURITY1, new MessageCreator() {
+            @Override
+            public RFXComMessageInterface create() {
+                return new RFXComSecurity1Message();
+            }
+
+            @Override
+            public RFXComMessageInterface create(byte[] data) {
+                return new RFXComSecurity1Message(data);
+            }
+        });
+        put(PacketType.SECURITY2, new MessageCreator() {
+            @Override
+            public RFXComMessageInterface create() {
+                return new RFXComSecurity2Message();
+            }
+
+            @Override
+            public RFXComMessageInterface create(byte[] data) {
+                return new RFXComSecurity2Message(data);
+            }
+        });
+        put(PacketType.THERMOSTAT1, new MessageCreator() {
+            @Override
+            public RFXComMessageInterface create() {
+                return new RFXComThermostat1Message();
+            }
+
+            @Override
+            public RFXComMessageInterface create(byte[] data) {
+                return new RFXComThermostat1Message(data);
+            }
+        });
+        put(PacketType.THERMOSTAT2, new MessageCreator() {
+            @Override
+            public RFXComMessageInterface create() {
+                return new RFXComThermostat2Message();
+            }
+
+            @Override
+            public RFXComMessageInterface create(byte[] data) {
+                return new RFXComThermostat2Message(data);
+            }
+        });
+        put(PacketType.THERMOSTAT3, new MessageCreator() {
+            @Override
+            public RFXComMessageInterface create() {
+                return new RFXComThermostat3Message();
+            }
+
+            @Override
+            public RFXComMessageInterface create(byte[] data) {
+                return new RFXComThermostat3Message(data);
+            }
+        });
+        put(PacketType.TEMPERATURE_RAIN, new MessageCreator() {
+            @Override
+            public RFXComMessageInterface create() {
+                return new RFXComTemperatureRainMessage();
+            }
+
+            @Override
+            public RFXComMessageInterface create(byte[] data) {
+                return new RFXComTemperatureRainMessage(data);
+            }
+        });
+        put(PacketType.TEMPERATURE, new MessageCreator() {
+            @Override
+            public RFXComMessageInterface create() {
+                return new RFXComTemperatureMessage();
+            }
+
+            @Override
+            public RFXComMessageInterface create(byte[] data) {
+                return new RFXComTemperatureMessage(data);
+            }
+        });
+        put(PacketType.HUMIDITY, new MessageCreator() {
+            @Override
+            public RFXComMessageInterface create() {
+                return new RFXComHumidityMessage();
+            }
+
+            @Override
+            public RFXComMessageInterface create(byte[] data) {
+                return new RFXComHumidityMessage(data);
+            }
+        });
+        put(PacketType.TEMPERATURE_HUMIDITY, new MessageCreator() {
+            @Override
+            public RFXComMessageInterface create() {
+                return new RFXComTemperatureHumidityMessage();
+            }
+
+            @Override
+            public RFXComMessageInterface create(byte[] data) {
+                return new RFXComTemperatureHumidityMessage(data);
+            }
+        });
+        put(PacketType.TEMPERATURE_HUMIDITY_BAROMETRIC, new MessageCreator() {
+            @Override
+            public RFXComMessageInterface create() {
+                return new RFXComTemperatureHumidityBarometricMessage();
+            }
+
+            @Override
+            public RFXComMessageInterface create(byte[] data) {
+                return new RFXComTemperatureHumidityBarometricMessage(data);
+            }
+        });
+        put(PacketType.RAIN, new MessageCreator() {
+            @Override
+            public RFXComMessageInterface create() {
+                return new RFXComRainMessage();
+            }
+
+            @Override
+            public RFXComMessageInterface create(byte[] data) {
+                return new RFXComRainMessage(data);
+            }
+        });
+        put(PacketType.WIND, new MessageCreator() {
+            @Override
+            public RFXComMessageInterface create() {
+                return new RFXComWindMessage();
+            }
+
+            @Override
+            public RFXComMessageInterface create(byte[] data) {
+                return new RFXComWindMessage(data);
+            }
+        });
+        put(PacketType.UV, new MessageCreator() {
+            @Override
+            public RFXComMessageInterface create() {
+                return new RFXComUVMessage();
+            }
+
+            @Override
+            public RFXComMessageInterface create(byte[] data) {
+                return new RFXComUVMessage(data);
+            }
+        });
+        put(PacketType.DATE_TIME, new MessageCreator() {
+            @Override
+            public RFXComMessageInterface create() {
+                return new RFXComDateTimeMessage();
+            }
+
+            @Override
+            public RFXComMessageInterface create(byte[] data) {
+                return new RFXComDateTimeMessage(data);
+            }
+        });
+        put(PacketType.CURRENT, new MessageCreator() {
+            @Override
+            public RFXComMessageInterface create() {
+                return new RFXComCurrentMessage();
+            }
+
+            @Override
+            public RFXComMessageInterface create(byte[] data) {
+                return new RFXComCurrentMessage(data);
+            }
+        });
+        put(PacketType.ENERGY, new MessageCreator() {
+            @Override
+            public RFXComMessageInterface create() {
+                return new RFXComEnergyMessage();
+            }
+
+            @Override
+            public RFXComMessageInterface create(byte[] data) {
+                return new RFXComEnergyMessage(data);
+            }
+        });
+        put(PacketType.CURRENT_ENERGY, new MessageCreator() {
+            @Override
+            public RFXComMessageInterface create() {
+                return new RFXComCurrentEnergyMessage();
+            }
+
+            @Override
+            public RFXComMessageInterface create(byte[] data) {
+                return new RFXComCurrentEnergyMessage(data);
+            }
+        });
+        put(PacketType.POWER, new MessageCreator() {
+            @Override
+            public RFXComMessageInterface create() {
+                return new RFXComPowerMessage();
+            }
+
+            @Override
+            public RFXComMessageInterface create(byte[] data) {
+                return new RFXComPowerMessage(data);
+            }
+        });
+        put(PacketType.WEIGHT, new MessageCreator() {
+            @Override
+            public RFXComMessageInterface create() {
+                return new RFXComWeightMessage();
+            }
+
+            @Override
+            public RFXComMessageInterface create(byte[] data) {
+                return new RFXComWeightMessage(data);
+            }
+        });
+    }
+
+    private static void put(PacketType packetType, MessageCreator creator) {
+        messageCreators[packetType.toByte() & 0xFF] = creator;
+    }
 
     /**
      * Command to reset RFXCOM controller.
@@ -94,13 +445,13 @@ public class RFXComMessageFactory {
 
     public static RFXComMessageInterface getMessageInterface(PacketType packetType) throws RFXComException {
 
-        try {
-            String className = messageClasses.get(packetType);
-            Class<?> cl = Class.forName(classUrl + className);
-            return (RFXComMessageInterface) cl.newInstance();
+        MessageCreator creator = messageCreators[packetType.toByte() & 0xFF];
+        if (creator == null) {
+            throw new RFXComException("Message " + packetType + " not implemented");
+        }
 
-        } catch (ClassNotFoundException e) {
-            throw new RFXComException("Message " + packetType + " not implemented", e);
+        try {
+            return creator.create();
 
         } catch (Exception e) {
             throw new RFXComException(e);
@@ -109,16 +460,14 @@ public class RFXComMessageFactory {
 
     public static RFXComMessageInterface getMessageInterface(byte[] packet) throws RFXComException {
 
-        PacketType packetType = getPacketType(packet[1]);
+        MessageCreator creator = messageCreators[packet[1] & 0xFF];
+        if (creator == null) {
+            throw new RFXComException(
+                    "Message " + getPacketType(packet[1]) + "(" + packet[1] + ") not implemented");
+        }
 
         try {
-            String className = messageClasses.get(packetType);
-            Class<?> cl = Class.forName(classUrl + className);
-            Constructor<?> c = cl.getConstructor(byte[].class);
-            return (RFXComMessageInterface) c.newInstance(packet);
-
-        } catch (ClassNotFoundException e) {
-            throw new RFXComException("Message " + packetType + "(" + packet[1] + ") not implemented", e);
+            return creator.create(packet);
 
         } catch (Exception e) {
             throw new RFXComException(e);
@@ -136,13 +485,7 @@ public class RFXComMessageFactory {
         throw new IllegalArgumentException("Unknown packet type " + packetType);
     }
 
-    private static PacketType getPacketType(byte packetType) {
-        for (PacketType p : PacketType.values()) {
-            if (p.toByte() == packetType) {
-                return p;
-            }
-        }
-
-        return PacketType.UNKNOWN;
+    static PacketType getPacketType(byte packetType) {
+        return packetTypes[packetType & 0xFF];
     }
 }
@@ -16,9 +16,10 @@ import org.openhab.binding.s300th.internal.S300THGenericBindingProvider.S300THBi
 import org.openhab.core.binding.AbstractBinding;
 import org.openhab.core.items.Item;
 import org.openhab.core.library.types.DecimalType;
+import org.openhab.io.transport.cul.CULFrame;
+import org.openhab.io.transport.cul.CULFrameListener;
 import org.openhab.io.transport.cul.CULLifecycleListenerListenerRegisterer;
 import org.openhab.io.transport.cul.CULLifecycleManager;
-import org.openhab.io.transport.cul.CULListener;
 import org.openhab.io.transport.cul.CULMode;
 import org.osgi.service.cm.ConfigurationException;
 import org.osgi.service.cm.ManagedService;
@@ -32,7 +33,7 @@ import org.slf4j.LoggerFactory;
  * @author Till Klocke
  * @since 1.4.0
  */
-public class S300THBinding extends AbstractBinding<S300THBindingProvider>implements ManagedService, CULListener {
+public class S300THBinding extends AbstractBinding<S300THBindingProvider>implements ManagedService, CULFrameListener {
 
     private static final Logger logger = LoggerFactory.getLogger(S300THBinding.class);
 
@@ -73,7 +74,13 @@ public class S300THBinding extends AbstractBinding<S300THBindingProvider>impleme
 
     @Override
     public void dataReceived(String data) {
-        if (data.startsWith("K")) {
+        frameReceived(new CULFrame(data, System.currentTimeMillis()));
+    }
+
+    @Override
+    public void frameReceived(CULFrame frame) {
+        if (frame.getType() == 'K') {
+            String data = frame.getData();
             int firstByte = Integer.parseInt(data.substring(1, 2), 16);
             int typByte = Integer.parseInt(data.substring(2, 3), 16) & 7;
             int sfirstByte = firstByte & 7;
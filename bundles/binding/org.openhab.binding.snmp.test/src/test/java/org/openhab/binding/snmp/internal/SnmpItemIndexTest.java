@@ -0,0 +1,123 @@
+/**
+ * Copyright (c) 2010-2016 by the respective copyright holders.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.binding.snmp.internal;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.openhab.binding.snmp.SnmpBindingProvider;
+import org.openhab.binding.snmp.internal.SnmpPollRequest.PolledItem;
+import org.snmp4j.smi.Address;
+import org.snmp4j.smi.OID;
+import org.snmp4j.smi.UdpAddress;
+
+import junit.framework.Assert;
+
+/**
+ * Tests the lookup of items by the address and OID of received variables.
+ *
+ * @author Thomas.Eichstaedt-Engelen
+ * @since 1.9.0
+ */
+public class SnmpItemIndexTest {
+
+    private static final Address ROUTER = new UdpAddress("192.168.0.1/161");
+
+    private static final Address SWITCH = new UdpAddress("192.168.0.2/161");
+
+    private static final String ENTERPRISE = "1.3.6.1.4.1.9";
+
+    private final Map<String, Address> addresses = new LinkedHashMap<String, Address>();
+
+    private final Map<String, OID> oids = new LinkedHashMap<String, OID>();
+
+    private SnmpItemIndex index;
+
+    @Before
+    public void setUp() {
+        bind("Uptime", ROUTER, "1.3.6.1.2.1.1.3.0");
+        bind("SwitchUptime", SWITCH, "1.3.6.1.2.1.1.3.0");
+        bind("EnterpriseTrap", ROUTER, ENTERPRISE);
+        bind("LinkTrap", ROUTER, ENTERPRISE + ".1");
+        bind("SecondUptime", ROUTER, "1.3.6.1.2.1.1.3.0");
+        // items without an OID are not indexed
+        bind("Broken", ROUTER, null);
+        index = new SnmpItemIndex(Collections.singletonList(provider()));
+    }
+
+    @Test
+    public void testExactLookup() {
+        Assert.assertEquals("[Uptime, SecondUptime]", names(index.getItems(ROUTER, new OID("1.3.6.1.2.1.1.3.0"))));
+        Assert.assertEquals("[SwitchUptime]", names(index.getItems(SWITCH, new OID("1.3.6.1.2.1.1.3.0"))));
+        Assert.assertTrue(index.getItems(ROUTER, new OID(ENTERPRISE + ".1.2")).isEmpty());
+        Assert.assertTrue(index.getItems(new UdpAddress("192.168.0.3/161"), new OID(ENTERPRISE)).isEmpty());
+        Assert.assertEquals(2, index.getAddressCount());
+    }
+
+    @Test
+    public void testTrapOidMatchesLongestPrefix() {
+        Assert.assertEquals("[LinkTrap]", names(index.getItemsByPrefix(ROUTER, new OID(ENTERPRISE + ".1.2.0"))));
+        Assert.assertEquals("[LinkTrap]", names(index.getItemsByPrefix(ROUTER, new OID(ENTERPRISE + ".1"))));
+        Assert.assertEquals("[EnterpriseTrap]",
+                names(index.getItemsByPrefix(ROUTER, new OID(ENTERPRISE + ".2.1"))));
+        Assert.assertEquals("[Uptime, SecondUptime]",
+                names(index.getItemsByPrefix(ROUTER, new OID("1.3.6.1.2.1.1.3.0"))));
+    }
+
+    @Test
+    public void testTrapOidWithoutPrefixMatch() {
+        Assert.assertTrue(index.getItemsByPrefix(ROUTER, new OID("1.3.6.1.4.1.8.1")).isEmpty());
+        Assert.assertTrue(index.getItemsByPrefix(SWITCH, new OID(ENTERPRISE + ".1.2")).isEmpty());
+        // the looked up OID is not modified
+        OID oid = new OID(ENTERPRISE + ".1.2.0");
+        index.getItemsByPrefix(ROUTER, oid);
+        Assert.assertEquals(new OID(ENTERPRISE + ".1.2.0"), oid);
+    }
+
+    private void bind(String itemName, Address address, String oid) {
+        addresses.put(itemName, address);
+        oids.put(itemName, oid != null ? new OID(oid) : null);
+    }
+
+    private static String names(List<PolledItem> items) {
+        List<String> names = new ArrayList<String>();
+        for (PolledItem item : items) {
+            names.add(item.getItemName());
+        }
+        return names.toString();
+    }
+
+    /**
+     * Returns a provider which only answers the calls made by the index.
+     */
+    private SnmpBindingProvider provider() {
+        return (SnmpBindingProvider) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class<?>[] { SnmpBindingProvider.class }, new InvocationHandler() {
+                    @Override
+                    public Object invoke(Object proxy, Method method, Object[] args) {
+                        if (method.getName().equals("getInBindingItemNames")) {
+                            return new ArrayList<String>(addresses.keySet());
+                        } else if (method.getName().equals("getAddress") && args.length == 1) {
+                            return addresses.get(args[0]);
+                        } else if (method.getName().equals("getOID") && args.length == 1) {
+                            return oids.get(args[0]);
+                        }
+                        throw new UnsupportedOperationException(method.getName());
+                    }
+                });
+    }
+}
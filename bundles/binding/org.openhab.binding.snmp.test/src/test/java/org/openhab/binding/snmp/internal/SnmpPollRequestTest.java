@@ -0,0 +1,255 @@
+/**
+ * Copyright (c) 2010-2016 by the respective copyright holders.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.binding.snmp.internal;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+import org.junit.Test;
+import org.openhab.binding.snmp.internal.SnmpPollRequest.PolledItem;
+import org.snmp4j.CommunityTarget;
+import org.snmp4j.PDU;
+import org.snmp4j.mp.SnmpConstants;
+import org.snmp4j.smi.OID;
+
+import junit.framework.Assert;
+
+/**
+ * Tests how the OIDs polled from a target are split into GET and GETBULK
+ * requests.
+ *
+ * @author Chris Jackson
+ * @since 1.9.0
+ */
+public class SnmpPollRequestTest {
+
+    private static final String IF_IN_OCTETS = "1.3.6.1.2.1.2.2.1.10.";
+
+    private static final String IF_OUT_OCTETS = "1.3.6.1.2.1.2.2.1.16.";
+
+    @Test
+    public void testRunOfConsecutiveIndexesUsesBulk() {
+        SortedMap<OID, List<PolledItem>> oids = oids(column(IF_IN_OCTETS, 3, 4));
+
+        List<SnmpPollRequest> requests = SnmpPollRequest.createRequests(target(SnmpConstants.version2c), oids, 10,
+                true);
+
+        Assert.assertEquals(1, requests.size());
+        SnmpPollRequest request = requests.get(0);
+        Assert.assertTrue(request.isBulk());
+        Assert.assertEquals(1, request.getPDU().size());
+        // the rows are the successors of the index before the first one
+        Assert.assertEquals(new OID(IF_IN_OCTETS + "2"), request.getPDU().get(0).getOid());
+        Assert.assertEquals(0, request.getPDU().getNonRepeaters());
+        Assert.assertEquals(4, request.getPDU().getMaxRepetitions());
+        for (int index = 3; index < 7; index++) {
+            Assert.assertEquals(IF_IN_OCTETS + index,
+                    request.getItems(new OID(IF_IN_OCTETS + index)).get(0).getItemName());
+        }
+    }
+
+    @Test
+    public void testShortRunUsesGet() {
+        SortedMap<OID, List<PolledItem>> oids = oids(column(IF_IN_OCTETS, 1, SnmpPollRequest.MIN_BULK_RUN - 1));
+
+        List<SnmpPollRequest> requests = SnmpPollRequest.createRequests(target(SnmpConstants.version2c), oids, 10,
+                true);
+
+        Assert.assertEquals(1, requests.size());
+        Assert.assertFalse(requests.get(0).isBulk());
+        Assert.assertEquals(PDU.GET, requests.get(0).getPDU().getType());
+        Assert.assertEquals(SnmpPollRequest.MIN_BULK_RUN - 1, requests.get(0).getPDU().size());
+    }
+
+    @Test
+    public void testRunStartingAtIndexZeroUsesGet() {
+        SortedMap<OID, List<PolledItem>> oids = oids(column(IF_IN_OCTETS, 0, 5));
+
+        List<SnmpPollRequest> requests = SnmpPollRequest.createRequests(target(SnmpConstants.version2c), oids, 10,
+                true);
+
+        Assert.assertEquals(1, requests.size());
+        Assert.assertFalse(requests.get(0).isBulk());
+        Assert.assertEquals(5, requests.get(0).getPDU().size());
+    }
+
+    @Test
+    public void testVersion1AndDisabledBulkUseGet() {
+        SortedMap<OID, List<PolledItem>> oids = oids(column(IF_IN_OCTETS, 1, 5));
+
+        List<SnmpPollRequest> requests = SnmpPollRequest.createRequests(target(SnmpConstants.version1), oids, 10,
+                true);
+        Assert.assertEquals(1, requests.size());
+        Assert.assertFalse(requests.get(0).isBulk());
+
+        requests = SnmpPollRequest.createRequests(target(SnmpConstants.version2c), oids, 10, false);
+        Assert.assertEquals(1, requests.size());
+        Assert.assertFalse(requests.get(0).isBulk());
+    }
+
+    @Test
+    public void testGetsAreSplitAtMaxVarbinds() {
+        SortedMap<OID, List<PolledItem>> oids = oids("1.3.6.1.2.1.1.1.0", "1.3.6.1.2.1.1.3.0", "1.3.6.1.2.1.1.5.0",
+                "1.3.6.1.2.1.1.6.0", "1.3.6.1.2.1.25.1.1.0");
+
+        List<SnmpPollRequest> requests = SnmpPollRequest.createRequests(target(SnmpConstants.version2c), oids, 2,
+                true);
+
+        Assert.assertEquals(3, requests.size());
+        Assert.assertEquals(2, requests.get(0).getPDU().size());
+        Assert.assertEquals(2, requests.get(1).getPDU().size());
+        Assert.assertEquals(1, requests.get(2).getPDU().size());
+        Assert.assertEquals(new OID("1.3.6.1.2.1.1.1.0"), requests.get(0).getPDU().get(0).getOid());
+        Assert.assertEquals(new OID("1.3.6.1.2.1.25.1.1.0"), requests.get(2).getPDU().get(0).getOid());
+    }
+
+    @Test
+    public void testLongRunIsSplitAtMaxRepetitions() {
+        int rows = SnmpPollRequest.MAX_REPETITIONS + 10;
+        SortedMap<OID, List<PolledItem>> oids = oids(column(IF_IN_OCTETS, 1, rows));
+
+        List<SnmpPollRequest> requests = SnmpPollRequest.createRequests(target(SnmpConstants.version2c), oids, 10,
+                true);
+
+        Assert.assertEquals(2, requests.size());
+        Assert.assertEquals(new OID(IF_IN_OCTETS + "0"), requests.get(0).getPDU().get(0).getOid());
+        Assert.assertEquals(SnmpPollRequest.MAX_REPETITIONS, requests.get(0).getPDU().getMaxRepetitions());
+        Assert.assertEquals(new OID(IF_IN_OCTETS + SnmpPollRequest.MAX_REPETITIONS),
+                requests.get(1).getPDU().get(0).getOid());
+        Assert.assertEquals(10, requests.get(1).getPDU().getMaxRepetitions());
+    }
+
+    @Test
+    public void testColumnsAndSingleOidsAreSeparated() {
+        String[] inOctets = column(IF_IN_OCTETS, 1, 4);
+        String[] outOctets = column(IF_OUT_OCTETS, 1, 2);
+        String[] all = Arrays.copyOf(inOctets, inOctets.length + outOctets.length + 1);
+        System.arraycopy(outOctets, 0, all, inOctets.length, outOctets.length);
+        all[all.length - 1] = "1.3.6.1.2.1.1.3.0";
+        SortedMap<OID, List<PolledItem>> oids = oids(all);
+
+        List<SnmpPollRequest> requests = SnmpPollRequest.createRequests(target(SnmpConstants.version2c), oids, 10,
+                true);
+
+        Assert.assertEquals(2, requests.size());
+        Assert.assertTrue(requests.get(0).isBulk());
+        Assert.assertEquals(4, requests.get(0).getPDU().getMaxRepetitions());
+        Assert.assertFalse(requests.get(1).isBulk());
+        Assert.assertEquals(3, requests.get(1).getPDU().size());
+        Assert.assertNotNull(requests.get(1).getItems(new OID("1.3.6.1.2.1.1.3.0")));
+        Assert.assertNull(requests.get(1).getItems(new OID(IF_IN_OCTETS + "1")));
+    }
+
+    @Test
+    public void testTooBigRequestIsSplitInHalves() {
+        SortedMap<OID, List<PolledItem>> oids = oids("1.3.6.1.2.1.1.1.0", "1.3.6.1.2.1.1.3.0", "1.3.6.1.2.1.1.5.0",
+                "1.3.6.1.2.1.1.6.0", "1.3.6.1.2.1.25.1.1.0");
+        SnmpPollRequest request = SnmpPollRequest
+                .createRequests(target(SnmpConstants.version2c), oids, 10, true).get(0);
+
+        List<SnmpPollRequest> halves = request.split();
+
+        Assert.assertEquals(2, halves.size());
+        Assert.assertEquals(2, halves.get(0).getPDU().size());
+        Assert.assertEquals(3, halves.get(1).getPDU().size());
+        Assert.assertEquals(PDU.GET, halves.get(1).getPDU().getType());
+        Assert.assertSame(request.getTarget(), halves.get(1).getTarget());
+        Assert.assertEquals("1.3.6.1.2.1.1.5.0",
+                halves.get(1).getItems(new OID("1.3.6.1.2.1.1.5.0")).get(0).getItemName());
+        Assert.assertNull(halves.get(1).getItems(new OID("1.3.6.1.2.1.1.1.0")));
+
+        // the halves are split again if their responses are still too big
+        List<SnmpPollRequest> quarters = halves.get(0).split();
+        Assert.assertEquals(1, quarters.get(0).getPDU().size());
+        Assert.assertEquals(1, quarters.get(1).getPDU().size());
+    }
+
+    @Test
+    public void testErrorIndexExcludesFailedOid() {
+        SnmpPollRequest request = SnmpPollRequest.createRequests(target(SnmpConstants.version1),
+                oids("1.3.6.1.2.1.1.1.0", "1.3.6.1.2.1.1.3.0", "1.3.6.1.2.1.1.5.0"), 10, true).get(0);
+
+        List<SnmpPollRequest> retries = request.retryAfterError(PDU.noSuchName, 2);
+
+        Assert.assertEquals(1, retries.size());
+        Assert.assertEquals(2, retries.get(0).getPDU().size());
+        Assert.assertNotNull(retries.get(0).getItems(new OID("1.3.6.1.2.1.1.1.0")));
+        Assert.assertNull(retries.get(0).getItems(new OID("1.3.6.1.2.1.1.3.0")));
+        Assert.assertNotNull(retries.get(0).getItems(new OID("1.3.6.1.2.1.1.5.0")));
+    }
+
+    @Test
+    public void testErrorWithoutIndexSplitsRequest() {
+        SnmpPollRequest request = SnmpPollRequest.createRequests(target(SnmpConstants.version1),
+                oids("1.3.6.1.2.1.1.1.0", "1.3.6.1.2.1.1.3.0", "1.3.6.1.2.1.1.5.0"), 10, true).get(0);
+
+        List<SnmpPollRequest> halves = request.retryAfterError(PDU.genErr, 0);
+        Assert.assertEquals(2, halves.size());
+        Assert.assertEquals(1, halves.get(0).getPDU().size());
+        Assert.assertEquals(2, halves.get(1).getPDU().size());
+
+        // the halves are split until the failing OID is requested alone
+        List<SnmpPollRequest> quarters = halves.get(1).retryAfterError(PDU.genErr, 0);
+        Assert.assertEquals(2, quarters.size());
+        Assert.assertEquals(1, quarters.get(1).getPDU().size());
+        Assert.assertTrue(quarters.get(1).retryAfterError(PDU.genErr, 0).isEmpty());
+
+        // tooBig splits even if the agent sets an error index
+        Assert.assertEquals(2, request.retryAfterError(PDU.tooBig, 1).size());
+    }
+
+    @Test
+    public void testBulkRequestIsNotRetried() {
+        SnmpPollRequest bulk = SnmpPollRequest.createRequests(target(SnmpConstants.version2c),
+                oids(column(IF_IN_OCTETS, 1, 4)), 10, true).get(0);
+
+        Assert.assertTrue(bulk.retryAfterError(PDU.genErr, 0).isEmpty());
+    }
+
+    @Test
+    public void testSubRequestIgnoresUnknownOids() {
+        SortedMap<OID, List<PolledItem>> oids = oids(column(IF_IN_OCTETS, 1, 4));
+        SnmpPollRequest bulk = SnmpPollRequest.createRequests(target(SnmpConstants.version2c), oids, 10, true).get(0);
+
+        SnmpPollRequest missing = bulk.subRequest(
+                Arrays.asList(new OID(IF_IN_OCTETS + "3"), new OID(IF_IN_OCTETS + "4"), new OID(IF_OUT_OCTETS + "1")));
+
+        Assert.assertFalse(missing.isBulk());
+        Assert.assertEquals(2, missing.getPDU().size());
+        Assert.assertNotNull(missing.getItems(new OID(IF_IN_OCTETS + "4")));
+    }
+
+    private static CommunityTarget target(int version) {
+        CommunityTarget target = new CommunityTarget();
+        target.setVersion(version);
+        return target;
+    }
+
+    private static String[] column(String column, int firstIndex, int rows) {
+        String[] oids = new String[rows];
+        for (int i = 0; i < rows; i++) {
+            oids[i] = column + (firstIndex + i);
+        }
+        return oids;
+    }
+
+    /**
+     * Returns the OIDs to poll, each requested by an item named like the OID.
+     */
+    private static SortedMap<OID, List<PolledItem>> oids(String... oids) {
+        SortedMap<OID, List<PolledItem>> polled = new TreeMap<OID, List<PolledItem>>();
+        for (String oid : oids) {
+            polled.put(new OID(oid), Collections.singletonList(new PolledItem(null, oid)));
+        }
+        return polled;
+    }
+}
@@ -9,13 +9,21 @@
 package org.openhab.binding.snmp.internal;
 
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Dictionary;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.apache.commons.lang.StringUtils;
 import org.openhab.binding.snmp.SnmpBindingProvider;
+import org.openhab.binding.snmp.internal.SnmpPollRequest.PolledItem;
 import org.openhab.core.binding.AbstractActiveBinding;
+import org.openhab.core.binding.BindingProvider;
 import org.openhab.core.items.Item;
 import org.openhab.core.library.items.NumberItem;
 import org.openhab.core.library.items.StringItem;
@@ -76,6 +84,14 @@ public class SnmpBinding extends AbstractActiveBinding<SnmpBindingProvider>
     private static int timeout = 1500;
     private static int retries = 0;
 
+    private static final int DEFAULT_MAX_VARBINDS = 20;
+
+    /** The maximum number of OIDs requested by one GET */
+    private static int maxVarbinds = DEFAULT_MAX_VARBINDS;
+
+    /** Request table columns by GETBULK */
+    private static boolean useBulk = true;
+
     /**
      * the interval to find new refresh candidates (defaults to 1000
      * milliseconds)
@@ -84,6 +100,13 @@ public class SnmpBinding extends AbstractActiveBinding<SnmpBindingProvider>
 
     private Map<String, Long> lastUpdateMap = new HashMap<String, Long>();
 
+    /** index of the In-Bindings, <code>null</code> if it has to be rebuilt */
+    private volatile SnmpItemIndex itemIndex;
+
+    private final AtomicLong receivedPdus = new AtomicLong();
+    private final AtomicLong unmatchedPdus = new AtomicLong();
+    private final AtomicLong unmatchedVariables = new AtomicLong();
+
     @Override
     public void activate() {
         logger.debug("SNMP binding activated");
@@ -93,7 +116,25 @@ public class SnmpBinding extends AbstractActiveBinding<SnmpBindingProvider>
     @Override
     public void deactivate() {
         stopListening();
-        logger.debug("SNMP binding deactivated");
+        logger.debug("SNMP binding deactivated, received PDUs: {}", getStatistics());
+    }
+
+    /**
+     * @{inheritDoc
+     */
+    @Override
+    public void bindingChanged(BindingProvider provider, String itemName) {
+        itemIndex = null;
+        super.bindingChanged(provider, itemName);
+    }
+
+    /**
+     * @{inheritDoc
+     */
+    @Override
+    public void allBindingsChanged(BindingProvider provider) {
+        itemIndex = null;
+        super.allBindingsChanged(provider);
     }
 
     /**
@@ -188,14 +229,14 @@ public class SnmpBinding extends AbstractActiveBinding<SnmpBindingProvider>
         String s = addr.toString().split("/")[0];
         if (s == null) {
             logger.error("TRAP: failed to translate address {}", addr);
-            dispatchPdu(addr, event.getPDU());
+            dispatchPdu(addr, event.getPDU(), true);
         } else {
             // Need to change the port to 161, which is what the bindings are configured for since
             // at least some SNMP devices send traps from a random port number. Otherwise the trap
             // won't be found as the address check will fail. It feels like there should be a better
             // way to do this!!!
             Address address = GenericAddress.parse("udp:" + s + "/161");
-            dispatchPdu(address, event.getPDU());
+            dispatchPdu(address, event.getPDU(), true);
         }
     }
 
@@ -206,55 +247,157 @@ public class SnmpBinding extends AbstractActiveBinding<SnmpBindingProvider>
      */
     @Override
     public void onResponse(ResponseEvent event) {
-        dispatchPdu(event.getPeerAddress(), event.getResponse());
+        // asynchronous requests have to be cancelled once they are answered
+        ((Snmp) event.getSource()).cancel(event.getRequest(), this);
+
+        if (event.getUserObject() instanceof SnmpPollRequest) {
+            dispatchPollResponse((SnmpPollRequest) event.getUserObject(), event.getResponse());
+        } else {
+            dispatchPdu(event.getPeerAddress(), event.getResponse(), false);
+        }
+    }
+
+    /**
+     * Passes the variables of a GET or GETBULK response to the items which
+     * requested them.
+     */
+    private void dispatchPollResponse(SnmpPollRequest request, PDU response) {
+        if (response == null) {
+            logger.debug("SNMP: request to {} timed out {}", request.getTarget().getAddress(), request.getPDU());
+            return;
+        }
+        logger.debug("Received PDU from '{}' '{}'", request.getTarget().getAddress(), response);
+
+        if (response.getErrorStatus() != PDU.noError) {
+            List<SnmpPollRequest> retries = request.retryAfterError(response.getErrorStatus(),
+                    response.getErrorIndex());
+            logger.debug("SNMP: request to {} for {} OIDs failed with '{}' at index {}, sending {} requests again",
+                    request.getTarget().getAddress(), request.getPDU().size(), response.getErrorStatusText(),
+                    response.getErrorIndex(), retries.size());
+            for (SnmpPollRequest retry : retries) {
+                sendPollRequest(retry);
+            }
+            return;
+        }
+
+        OID lastOid = null;
+        for (VariableBinding variableBinding : response.getVariableBindings()) {
+            lastOid = variableBinding.getOid();
+            List<PolledItem> polledItems = request.getItems(lastOid);
+            if (polledItems != null) {
+                for (PolledItem polledItem : polledItems) {
+                    updateItem(polledItem.getProvider(), polledItem.getItemName(), variableBinding.getVariable());
+                }
+            }
+        }
+
+        if (request.isBulk() && lastOid != null) {
+            // the agent may truncate a GETBULK response to its message size, get the missing rows
+            List<OID> missing = new ArrayList<OID>();
+            for (OID oid : request.getOIDs()) {
+                if (oid.compareTo(lastOid) > 0) {
+                    missing.add(oid);
+                }
+            }
+            if (!missing.isEmpty() && !response.getVariable(lastOid).isException()) {
+                logger.debug("SNMP: GETBULK response from {} is truncated, requesting {} OIDs",
+                        request.getTarget().getAddress(), missing.size());
+                sendPollRequest(request.subRequest(missing));
+            }
+        }
     }
 
-    private void dispatchPdu(Address address, PDU pdu) {
+    /**
+     * Passes the variables of a trap or a SET response to the items bound to
+     * the address and OID. The variables of a trap are also passed to items
+     * bound to a prefix of their OID.
+     */
+    private void dispatchPdu(Address address, PDU pdu, boolean trap) {
         if (pdu != null & address != null) {
             logger.debug("Received PDU from '{}' '{}'", address, pdu);
-            for (SnmpBindingProvider provider : providers) {
-                for (String itemName : provider.getItemNames()) {
-                    // Check the IP address
-                    if (!provider.getAddress(itemName).equals(address)) {
-                        continue;
-                    }
+            receivedPdus.incrementAndGet();
+
+            SnmpItemIndex index = getItemIndex();
+            boolean matched = false;
+            for (VariableBinding variableBinding : pdu.getVariableBindings()) {
+                OID oid = variableBinding.getOid();
+                List<PolledItem> items = trap ? index.getItemsByPrefix(address, oid) : index.getItems(address, oid);
+                if (items.isEmpty()) {
+                    unmatchedVariables.incrementAndGet();
+                    logger.trace("No item is bound to OID '{}' of '{}'", oid, address);
+                    continue;
+                }
+                matched = true;
+                for (PolledItem item : items) {
+                    updateItem(item.getProvider(), item.getItemName(), variableBinding.getVariable());
+                }
+            }
 
-                    // Check the OID
-                    OID oid = provider.getOID(itemName);
-                    Variable variable = pdu.getVariable(oid);
-                    if (variable != null) {
-                        Class<? extends Item> itemType = provider.getItemType(itemName);
-
-                        // Do any transformations
-                        String value = variable.toString();
-                        try {
-                            value = provider.doTransformation(itemName, value);
-                        } catch (TransformationException e) {
-                            logger.error("Transformation error with item {}: {}", itemName, e);
-                        }
-
-                        // Change to a state
-                        State state = null;
-                        if (itemType.isAssignableFrom(StringItem.class)) {
-                            state = StringType.valueOf(value);
-                        } else if (itemType.isAssignableFrom(NumberItem.class)) {
-                            state = DecimalType.valueOf(value);
-                        } else if (itemType.isAssignableFrom(SwitchItem.class)) {
-                            state = OnOffType.valueOf(value);
-                        }
-
-                        if (state != null) {
-                            eventPublisher.postUpdate(itemName, state);
-                        } else {
-                            logger.debug("'{}' couldn't be parsed to a State. Valid State-Types are String and Number",
-                                    variable.toString());
-                        }
-                    } else {
-                        logger.trace("PDU doesn't contain a variable with OID '{}'", oid.toString());
-                    }
+            if (!matched) {
+                unmatchedPdus.incrementAndGet();
+                logger.debug("No item is bound to the PDU from '{}'", address);
+            }
+        }
+    }
+
+    /**
+     * Returns the index of the In-Bindings, rebuilding it if bindings have
+     * changed.
+     */
+    private SnmpItemIndex getItemIndex() {
+        SnmpItemIndex index = itemIndex;
+        if (index == null) {
+            synchronized (this) {
+                index = itemIndex;
+                if (index == null) {
+                    index = new SnmpItemIndex(providers);
+                    itemIndex = index;
+                    logger.debug("SNMP: indexed the items of {} addresses", index.getAddressCount());
                 }
             }
         }
+        return index;
+    }
+
+    /**
+     * Returns the number of received PDUs and the PDUs and variables no item
+     * is bound to.
+     */
+    private String getStatistics() {
+        return "received=" + receivedPdus.get() + ", unmatched=" + unmatchedPdus.get() + ", unmatchedVariables="
+                + unmatchedVariables.get();
+    }
+
+    /**
+     * Transforms the variable and posts it as the new state of the item.
+     */
+    private void updateItem(SnmpBindingProvider provider, String itemName, Variable variable) {
+        Class<? extends Item> itemType = provider.getItemType(itemName);
+
+        // Do any transformations
+        String value = variable.toString();
+        try {
+            value = provider.doTransformation(itemName, value);
+        } catch (TransformationException e) {
+            logger.error("Transformation error with item {}: {}", itemName, e);
+        }
+
+        // Change to a state
+        State state = null;
+        if (itemType.isAssignableFrom(StringItem.class)) {
+            state = StringType.valueOf(value);
+        } else if (itemType.isAssignableFrom(NumberItem.class)) {
+            state = DecimalType.valueOf(value);
+        } else if (itemType.isAssignableFrom(SwitchItem.class)) {
+            state = OnOffType.valueOf(value);
+        }
+
+        if (state != null) {
+            eventPublisher.postUpdate(itemName, state);
+        } else {
+            logger.debug("'{}' couldn't be parsed to a State. Valid State-Types are String and Number",
+                    variable.toString());
+        }
     }
 
     /**
@@ -309,10 +452,17 @@ public class SnmpBinding extends AbstractActiveBinding<SnmpBindingProvider>
     }
 
     /**
+     * Collects the items which are due for a refresh and requests their OIDs
+     * with as few PDUs as possible. Items polled from the same address with
+     * the same community and version share their requests.
+     *
      * @{inheritDoc
      */
     @Override
     public void execute() {
+        Map<String, PollTarget> pollTargets = new LinkedHashMap<String, PollTarget>();
+        int itemCount = 0;
+
         for (SnmpBindingProvider provider : providers) {
             for (String itemName : provider.getInBindingItemNames()) {
                 int refreshInterval = provider.getRefreshInterval(itemName);
@@ -333,40 +483,69 @@ public class SnmpBinding extends AbstractActiveBinding<SnmpBindingProvider>
                 if (needsUpdate) {
                     logger.debug("Item '{}' is about to be refreshed", itemName);
 
-                    // Set up the target
-                    CommunityTarget target = new CommunityTarget();
-                    target.setCommunity(provider.getCommunity(itemName));
-                    target.setAddress(provider.getAddress(itemName));
-                    target.setRetries(retries);
-                    target.setTimeout(timeout);
-                    target.setVersion(provider.getSnmpVersion(itemName));
-
-                    // Create the PDU
-                    PDU pdu = new PDU();
-                    pdu.add(new VariableBinding(provider.getOID(itemName)));
-                    pdu.setType(PDU.GET);
-
-                    logger.debug("SNMP: Send PDU {} {}", provider.getAddress(itemName), pdu);
-
-                    if (snmp == null) {
-                        logger.error("SNMP: snmp not initialised - aborting request");
-                    } else {
-                        sendPDU(target, pdu);
+                    Address address = provider.getAddress(itemName);
+                    OctetString community = provider.getCommunity(itemName);
+                    int version = provider.getSnmpVersion(itemName);
+                    String key = address + "|" + version + "|" + community;
+
+                    PollTarget pollTarget = pollTargets.get(key);
+                    if (pollTarget == null) {
+                        // Set up the target
+                        CommunityTarget target = new CommunityTarget();
+                        target.setCommunity(community);
+                        target.setAddress(address);
+                        target.setRetries(retries);
+                        target.setTimeout(timeout);
+                        target.setVersion(version);
+                        pollTarget = new PollTarget(target);
+                        pollTargets.put(key, pollTarget);
                     }
+                    pollTarget.add(provider.getOID(itemName), new PolledItem(provider, itemName));
+                    itemCount++;
 
                     lastUpdateMap.put(itemName, System.currentTimeMillis());
                 }
             }
         }
 
+        if (pollTargets.isEmpty()) {
+            return;
+        }
+
+        if (snmp == null) {
+            logger.error("SNMP: snmp not initialised - aborting request");
+            return;
+        }
+
+        int requestCount = 0;
+        for (PollTarget pollTarget : pollTargets.values()) {
+            for (SnmpPollRequest request : SnmpPollRequest.createRequests(pollTarget.target, pollTarget.oids,
+                    maxVarbinds, useBulk)) {
+                sendPollRequest(request);
+                requestCount++;
+            }
+        }
+        logger.debug("SNMP: refreshing {} items of {} targets with {} requests", itemCount, pollTargets.size(),
+                requestCount);
+    }
+
+    private void sendPollRequest(SnmpPollRequest request) {
+        logger.debug("SNMP: Send PDU {} {}", request.getTarget().getAddress(), request.getPDU());
+        try {
+            snmp.send(request.getPDU(), request.getTarget(), request, this);
+        } catch (IOException e) {
+            logger.error("Error sending PDU", e);
+        }
     }
 
     protected void addBindingProvider(SnmpBindingProvider bindingProvider) {
         super.addBindingProvider(bindingProvider);
+        itemIndex = null;
     }
 
     protected void removeBindingProvider(SnmpBindingProvider bindingProvider) {
         super.removeBindingProvider(bindingProvider);
+        itemIndex = null;
     }
 
     /**
@@ -410,6 +589,17 @@ public class SnmpBinding extends AbstractActiveBinding<SnmpBindingProvider>
                         SnmpBinding.timeout);
             }
 
+            String maxVarbindsString = (String) config.get("maxvarbinds");
+            if (StringUtils.isNotBlank(maxVarbindsString) && maxVarbindsString.matches("\\d+")
+                    && Integer.parseInt(maxVarbindsString) > 0) {
+                SnmpBinding.maxVarbinds = Integer.parseInt(maxVarbindsString);
+            } else {
+                SnmpBinding.maxVarbinds = DEFAULT_MAX_VARBINDS;
+            }
+
+            String getBulkString = (String) config.get("getbulk");
+            SnmpBinding.useBulk = StringUtils.isBlank(getBulkString) || Boolean.parseBoolean(getBulkString);
+
             String retriesString = (String) config.get("retries");
             if (StringUtils.isNotBlank(retriesString)) {
                 SnmpBinding.retries = Integer.valueOf(retriesString).intValue();
@@ -446,4 +636,26 @@ public class SnmpBinding extends AbstractActiveBinding<SnmpBindingProvider>
         }
     }
 
+    /**
+     * The OIDs to poll from a target and the items which requested them.
+     */
+    private static class PollTarget {
+
+        private final CommunityTarget target;
+
+        private final SortedMap<OID, List<PolledItem>> oids = new TreeMap<OID, List<PolledItem>>();
+
+        public PollTarget(CommunityTarget target) {
+            this.target = target;
+        }
+
+        public void add(OID oid, PolledItem polledItem) {
+            List<PolledItem> polledItems = oids.get(oid);
+            if (polledItems == null) {
+                polledItems = new ArrayList<PolledItem>(1);
+                oids.put(oid, polledItems);
+            }
+            polledItems.add(polledItem);
+        }
+    }
 }
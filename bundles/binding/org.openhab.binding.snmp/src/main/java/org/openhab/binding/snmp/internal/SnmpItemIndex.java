@@ -0,0 +1,98 @@
+/**
+ * Copyright (c) 2010-2016 by the respective copyright holders.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.binding.snmp.internal;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.openhab.binding.snmp.SnmpBindingProvider;
+import org.openhab.binding.snmp.internal.SnmpPollRequest.PolledItem;
+import org.snmp4j.smi.Address;
+import org.snmp4j.smi.OID;
+
+/**
+ * Maps the address and OID of the SNMP-In-Bindings to their items, so the
+ * variables of a received PDU can be passed to the items without checking
+ * every item.
+ *
+ * The index is immutable, it is rebuilt when binding configurations change.
+ *
+ * @author Thomas.Eichstaedt-Engelen
+ * @since 1.9.0
+ */
+public class SnmpItemIndex {
+
+    private final Map<Address, Map<OID, List<PolledItem>>> index = new HashMap<Address, Map<OID, List<PolledItem>>>();
+
+    /**
+     * Builds the index of the In-Bindings of all providers.
+     */
+    public SnmpItemIndex(Collection<SnmpBindingProvider> providers) {
+        for (SnmpBindingProvider provider : providers) {
+            for (String itemName : provider.getInBindingItemNames()) {
+                Address address = provider.getAddress(itemName);
+                OID oid = provider.getOID(itemName);
+                if (address == null || oid == null) {
+                    continue;
+                }
+
+                Map<OID, List<PolledItem>> oids = index.get(address);
+                if (oids == null) {
+                    oids = new HashMap<OID, List<PolledItem>>();
+                    index.put(address, oids);
+                }
+                List<PolledItem> items = oids.get(oid);
+                if (items == null) {
+                    items = new ArrayList<PolledItem>(1);
+                    oids.put(oid, items);
+                }
+                items.add(new PolledItem(provider, itemName));
+            }
+        }
+    }
+
+    /**
+     * Returns the items bound to exactly the given address and OID.
+     */
+    public List<PolledItem> getItems(Address address, OID oid) {
+        Map<OID, List<PolledItem>> oids = index.get(address);
+        List<PolledItem> items = oids != null ? oids.get(oid) : null;
+        return items != null ? items : Collections.<PolledItem> emptyList();
+    }
+
+    /**
+     * Returns the items bound to the given address whose OID is the given OID
+     * or one of its prefixes. The longest matching OID wins.
+     */
+    public List<PolledItem> getItemsByPrefix(Address address, OID oid) {
+        Map<OID, List<PolledItem>> oids = index.get(address);
+        if (oids != null) {
+            OID prefix = new OID(oid);
+            while (prefix.size() > 0) {
+                List<PolledItem> items = oids.get(prefix);
+                if (items != null) {
+                    return items;
+                }
+                prefix.trim(1);
+            }
+        }
+        return Collections.<PolledItem> emptyList();
+    }
+
+    /**
+     * Returns the number of indexed addresses.
+     */
+    public int getAddressCount() {
+        return index.size();
+    }
+}
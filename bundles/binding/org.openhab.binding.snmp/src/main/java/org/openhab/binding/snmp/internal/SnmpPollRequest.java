@@ -0,0 +1,255 @@
+/**
+ * Copyright (c) 2010-2016 by the respective copyright holders.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.binding.snmp.internal;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.SortedMap;
+
+import org.openhab.binding.snmp.SnmpBindingProvider;
+import org.snmp4j.CommunityTarget;
+import org.snmp4j.PDU;
+import org.snmp4j.mp.SnmpConstants;
+import org.snmp4j.smi.OID;
+import org.snmp4j.smi.VariableBinding;
+
+/**
+ * A GET or GETBULK request for the OIDs of several items polled from the same
+ * target. The OIDs of the request are indexed, so the variables of the response
+ * can be passed to the items which requested them.
+ *
+ * OIDs of a table column with at least {@link #MIN_BULK_RUN} consecutive
+ * indexes are requested with a single GETBULK if the target supports it
+ * (SNMP v2c and v3), all other OIDs are requested with GETs of up to
+ * <code>maxVarbinds</code> variables.
+ *
+ * @author Chris Jackson
+ * @since 1.9.0
+ */
+public class SnmpPollRequest {
+
+    /** Number of consecutive indexes of a column from which GETBULK is used */
+    static final int MIN_BULK_RUN = 4;
+
+    /** Maximum number of rows requested by one GETBULK */
+    static final int MAX_REPETITIONS = 50;
+
+    private final CommunityTarget target;
+
+    private final PDU pdu;
+
+    private final Map<OID, List<PolledItem>> items;
+
+    private SnmpPollRequest(CommunityTarget target, PDU pdu, Map<OID, List<PolledItem>> items) {
+        this.target = target;
+        this.pdu = pdu;
+        this.items = items;
+    }
+
+    public CommunityTarget getTarget() {
+        return target;
+    }
+
+    public PDU getPDU() {
+        return pdu;
+    }
+
+    public boolean isBulk() {
+        return pdu.getType() == PDU.GETBULK;
+    }
+
+    /**
+     * Returns the items which requested the given OID, or <code>null</code>
+     * if no item of this request did.
+     */
+    public List<PolledItem> getItems(OID oid) {
+        return items.get(oid);
+    }
+
+    /**
+     * Returns all requested OIDs in ascending order.
+     */
+    public Iterable<OID> getOIDs() {
+        return items.keySet();
+    }
+
+    /**
+     * Creates a GET request for some of the OIDs of this request.
+     */
+    public SnmpPollRequest subRequest(List<OID> oids) {
+        Map<OID, List<PolledItem>> subItems = new LinkedHashMap<OID, List<PolledItem>>();
+        PDU subPdu = new PDU();
+        subPdu.setType(PDU.GET);
+        for (OID oid : oids) {
+            List<PolledItem> polledItems = items.get(oid);
+            if (polledItems != null) {
+                subItems.put(oid, polledItems);
+                subPdu.add(new VariableBinding(oid));
+            }
+        }
+        return new SnmpPollRequest(target, subPdu, subItems);
+    }
+
+    /**
+     * Splits this request into two GET requests for the first and the second
+     * half of its OIDs, used when the request fails as a whole.
+     */
+    public List<SnmpPollRequest> split() {
+        List<OID> oids = new ArrayList<OID>(items.keySet());
+        List<SnmpPollRequest> halves = new ArrayList<SnmpPollRequest>(2);
+        halves.add(subRequest(oids.subList(0, oids.size() / 2)));
+        halves.add(subRequest(oids.subList(oids.size() / 2, oids.size())));
+        return halves;
+    }
+
+    /**
+     * Returns the requests to send again after the agent answered this GET
+     * request with an error. With SNMP v1 a single failing OID fails the whole
+     * request. If the error index names it, the other OIDs are requested
+     * again. Errors without an index, like tooBig or genErr, are answered by
+     * splitting the request into halves until the failing OID is requested
+     * alone.
+     *
+     * @param errorStatus the error status of the response
+     * @param errorIndex the error index of the response, starting at 1
+     * @return the requests to send, empty if no OID is left to request
+     */
+    public List<SnmpPollRequest> retryAfterError(int errorStatus, int errorIndex) {
+        if (isBulk() || items.size() <= 1) {
+            return Collections.emptyList();
+        }
+        if (errorStatus == PDU.tooBig || errorIndex < 1 || errorIndex > items.size()) {
+            return split();
+        }
+        List<OID> others = new ArrayList<OID>(items.keySet());
+        others.remove(errorIndex - 1);
+        return Collections.singletonList(subRequest(others));
+    }
+
+    /**
+     * Splits the OIDs to poll from a target into requests.
+     *
+     * @param target the target to poll
+     * @param oids the OIDs to poll and the items which requested them
+     * @param maxVarbinds the maximum number of variables of a GET request
+     * @param useBulk <code>true</code> if table columns should be requested
+     *            by GETBULK
+     * @return the requests to send
+     */
+    public static List<SnmpPollRequest> createRequests(CommunityTarget target, SortedMap<OID, List<PolledItem>> oids,
+            int maxVarbinds, boolean useBulk) {
+        List<SnmpPollRequest> requests = new ArrayList<SnmpPollRequest>();
+        boolean bulkSupported = useBulk && target.getVersion() != SnmpConstants.version1;
+
+        Map<OID, List<PolledItem>> getItems = new LinkedHashMap<OID, List<PolledItem>>();
+        List<Entry<OID, List<PolledItem>>> run = new ArrayList<Entry<OID, List<PolledItem>>>();
+        Iterator<Entry<OID, List<PolledItem>>> it = oids.entrySet().iterator();
+        while (it.hasNext() || !run.isEmpty()) {
+            Entry<OID, List<PolledItem>> entry = it.hasNext() ? it.next() : null;
+            if (entry != null && (run.isEmpty() || isNextIndex(run.get(run.size() - 1).getKey(), entry.getKey()))) {
+                run.add(entry);
+                continue;
+            }
+
+            // the run has ended
+            if (bulkSupported && run.size() >= MIN_BULK_RUN && run.get(0).getKey().last() > 0) {
+                for (int start = 0; start < run.size(); start += MAX_REPETITIONS) {
+                    int end = Math.min(run.size(), start + MAX_REPETITIONS);
+                    requests.add(createBulkRequest(target, run.subList(start, end)));
+                }
+            } else {
+                for (Entry<OID, List<PolledItem>> getEntry : run) {
+                    getItems.put(getEntry.getKey(), getEntry.getValue());
+                    if (getItems.size() >= maxVarbinds) {
+                        requests.add(createGetRequest(target, getItems));
+                        getItems = new LinkedHashMap<OID, List<PolledItem>>();
+                    }
+                }
+            }
+            run.clear();
+            if (entry != null) {
+                run.add(entry);
+            }
+        }
+        if (!getItems.isEmpty()) {
+            requests.add(createGetRequest(target, getItems));
+        }
+        return requests;
+    }
+
+    /**
+     * Returns true if <code>next</code> is the following index of the same
+     * table column as <code>oid</code>.
+     */
+    private static boolean isNextIndex(OID oid, OID next) {
+        int size = oid.size();
+        if (size < 2 || next.size() != size || (oid.last() & 0xffffffffL) + 1 != (next.last() & 0xffffffffL)) {
+            return false;
+        }
+        return oid.leftMostCompare(size - 1, next) == 0;
+    }
+
+    private static SnmpPollRequest createGetRequest(CommunityTarget target, Map<OID, List<PolledItem>> items) {
+        PDU pdu = new PDU();
+        pdu.setType(PDU.GET);
+        for (OID oid : items.keySet()) {
+            pdu.add(new VariableBinding(oid));
+        }
+        return new SnmpPollRequest(target, pdu, items);
+    }
+
+    /**
+     * Creates a GETBULK request starting with the index before the first OID
+     * of the run, so the rows of the run are returned as the successors.
+     */
+    private static SnmpPollRequest createBulkRequest(CommunityTarget target, List<Entry<OID, List<PolledItem>>> run) {
+        Map<OID, List<PolledItem>> items = new LinkedHashMap<OID, List<PolledItem>>();
+        for (Entry<OID, List<PolledItem>> entry : run) {
+            items.put(entry.getKey(), entry.getValue());
+        }
+
+        OID start = new OID(run.get(0).getKey());
+        start.set(start.size() - 1, start.last() - 1);
+
+        PDU pdu = new PDU();
+        pdu.setType(PDU.GETBULK);
+        pdu.setNonRepeaters(0);
+        pdu.setMaxRepetitions(run.size());
+        pdu.add(new VariableBinding(start));
+        return new SnmpPollRequest(target, pdu, items);
+    }
+
+    /**
+     * An item which requested an OID.
+     */
+    public static class PolledItem {
+
+        private final SnmpBindingProvider provider;
+
+        private final String itemName;
+
+        public PolledItem(SnmpBindingProvider provider, String itemName) {
+            this.provider = provider;
+            this.itemName = itemName;
+        }
+
+        public SnmpBindingProvider getProvider() {
+            return provider;
+        }
+
+        public String getItemName() {
+            return itemName;
+        }
+    }
+}
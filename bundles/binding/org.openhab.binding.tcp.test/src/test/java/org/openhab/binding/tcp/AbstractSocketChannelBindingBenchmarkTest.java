@@ -0,0 +1,194 @@
+/**
+ * Copyright (c) 2010-2016 by the respective copyright holders.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.binding.tcp;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.openhab.core.library.types.OnOffType;
+import org.openhab.core.types.Command;
+import org.quartz.JobBuilder;
+import org.quartz.JobDataMap;
+import org.quartz.JobExecutionContext;
+
+import junit.framework.Assert;
+
+/**
+ * Sends messages through the selector thread of the
+ * {@link AbstractSocketChannelBinding} to a loopback server and prints the
+ * throughput of queued writes and the round trip time of blocking writes.
+ *
+ * @author Karel Goderis
+ * @since 1.9.0
+ */
+public class AbstractSocketChannelBindingBenchmarkTest {
+
+    private static final int TIMEOUT = 5000;
+
+    private static final int MESSAGES = 20000;
+
+    private static final int MESSAGE_SIZE = 64;
+
+    private static final int ROUND_TRIPS = 1000;
+
+    private BenchmarkBinding binding;
+
+    private ServerSocket server;
+
+    private Socket accepted;
+
+    private AbstractSocketChannelBinding<ChannelBindingProvider>.Channel channel;
+
+    @Before
+    public void setUp() throws Exception {
+        server = new ServerSocket(0, 1, InetAddress.getLoopbackAddress());
+        server.setSoTimeout(TIMEOUT);
+        binding = new BenchmarkBinding();
+        binding.activate();
+
+        SocketChannel closed = SocketChannel.open();
+        closed.close();
+        channel = binding.new Channel("Item1", OnOffType.ON, (InetSocketAddress) server.getLocalSocketAddress(),
+                Direction.OUT, false, null, true, closed);
+        binding.channels.add(channel);
+
+        JobDataMap map = new JobDataMap();
+        map.put("Channel", channel);
+        map.put("Binding", binding);
+        final Object jobDetail = JobBuilder.newJob(AbstractSocketChannelBinding.ReconnectJob.class).usingJobData(map)
+                .build();
+        JobExecutionContext context = (JobExecutionContext) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class<?>[] { JobExecutionContext.class }, new InvocationHandler() {
+                    @Override
+                    public Object invoke(Object proxy, Method method, Object[] args) {
+                        if (method.getName().equals("getJobDetail")) {
+                            return jobDetail;
+                        }
+                        throw new UnsupportedOperationException(method.getName());
+                    }
+                });
+        new AbstractSocketChannelBinding.ReconnectJob().execute(context);
+
+        accepted = server.accept();
+        accepted.setSoTimeout(TIMEOUT);
+        long deadline = System.currentTimeMillis() + TIMEOUT;
+        while ((!channel.channel.isConnected() || channel.isReconnecting) && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        Assert.assertTrue(channel.channel.isConnected());
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        binding.deactivate();
+        channel.channel.close();
+        accepted.close();
+        server.close();
+    }
+
+    @Test
+    public void testQueuedWriteThroughput() throws Exception {
+        byte[] expected = new byte[MESSAGES * MESSAGE_SIZE];
+        long start = System.nanoTime();
+        for (int i = 0; i < MESSAGES; i++) {
+            byte[] message = new byte[MESSAGE_SIZE];
+            for (int j = 0; j < MESSAGE_SIZE; j++) {
+                message[j] = (byte) (i + j);
+            }
+            System.arraycopy(message, 0, expected, i * MESSAGE_SIZE, MESSAGE_SIZE);
+            binding.writeBuffer(ByteBuffer.wrap(message), channel, false, 0);
+        }
+        byte[] received = new byte[expected.length];
+        new DataInputStream(accepted.getInputStream()).readFully(received);
+        long elapsed = System.nanoTime() - start;
+
+        System.out.println("Queued writes of " + MESSAGES + " messages of " + MESSAGE_SIZE + " bytes took "
+                + elapsed / 1000000 + " ms, " + (MESSAGES * 1000000000L / Math.max(elapsed, 1)) + " messages/s");
+        // the messages arrive complete and in the order they were queued
+        for (int i = 0; i < expected.length; i++) {
+            if (expected[i] != received[i]) {
+                Assert.fail("unexpected byte at offset " + i);
+            }
+        }
+    }
+
+    @Test
+    public void testBlockingWriteLatency() throws Exception {
+        Thread responder = new Thread() {
+            @Override
+            public void run() {
+                try {
+                    DataInputStream in = new DataInputStream(accepted.getInputStream());
+                    OutputStream out = accepted.getOutputStream();
+                    byte[] request = new byte[4];
+                    for (int i = 0; i < ROUND_TRIPS; i++) {
+                        in.readFully(request);
+                        out.write("pong".getBytes());
+                        out.flush();
+                    }
+                } catch (IOException e) {
+                    // the assertions below fail
+                }
+            }
+        };
+        responder.start();
+
+        long total = 0;
+        long max = 0;
+        for (int i = 0; i < ROUND_TRIPS; i++) {
+            long start = System.nanoTime();
+            ByteBuffer response = binding.writeBuffer(ByteBuffer.wrap("ping".getBytes()), channel, true, TIMEOUT);
+            long elapsed = System.nanoTime() - start;
+            Assert.assertNotNull(response);
+            Assert.assertEquals("pong", new String(response.array()));
+            total += elapsed;
+            max = Math.max(max, elapsed);
+        }
+        responder.join(TIMEOUT);
+
+        System.out.println("Blocking writes of " + ROUND_TRIPS + " round trips: avg " + total / ROUND_TRIPS / 1000
+                + " us, max " + max / 1000 + " us");
+    }
+
+    private static class BenchmarkBinding extends AbstractSocketChannelBinding<ChannelBindingProvider> {
+
+        @Override
+        protected void configureChannel(Channel channel) {
+        }
+
+        @Override
+        protected boolean internalReceiveChanneledCommand(String itemName, Command command, Channel reference,
+                String commandAsString) {
+            return false;
+        }
+
+        @Override
+        protected void parseBuffer(String itemName, Command aCommand, Direction theDirection,
+                ByteBuffer byteBuffer) {
+        }
+
+        @Override
+        protected String getName() {
+            return "Benchmark Socket Channel Binding";
+        }
+    }
+}
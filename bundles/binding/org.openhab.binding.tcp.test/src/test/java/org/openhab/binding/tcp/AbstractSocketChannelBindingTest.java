@@ -0,0 +1,343 @@
+/**
+ * Copyright (c) 2010-2016 by the respective copyright holders.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.binding.tcp;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.openhab.core.library.types.OnOffType;
+import org.openhab.core.types.Command;
+import org.quartz.JobBuilder;
+import org.quartz.JobDataMap;
+import org.quartz.JobExecutionContext;
+import org.quartz.JobExecutionException;
+
+import junit.framework.Assert;
+
+/**
+ * Tests the indexes of the ChannelTracker and the selector thread of the
+ * {@link AbstractSocketChannelBinding} against a local server socket.
+ *
+ * @author Karel Goderis
+ * @since 1.9.0
+ */
+public class AbstractSocketChannelBindingTest {
+
+    private static final int TIMEOUT = 5000;
+
+    private static final InetSocketAddress REMOTE1 = new InetSocketAddress("10.0.0.1", 5000);
+
+    private static final InetSocketAddress REMOTE2 = new InetSocketAddress("10.0.0.2", 5000);
+
+    private TestBinding binding;
+
+    private List<SocketChannel> socketChannels = new ArrayList<SocketChannel>();
+
+    private ServerSocket server;
+
+    private Socket accepted;
+
+    @Before
+    public void setUp() {
+        binding = new TestBinding();
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        if (binding.selector != null) {
+            binding.deactivate();
+        }
+        for (SocketChannel socketChannel : socketChannels) {
+            socketChannel.close();
+        }
+        if (accepted != null) {
+            accepted.close();
+        }
+        if (server != null) {
+            server.close();
+        }
+    }
+
+    @Test
+    public void testLookupByItemAndRemote() {
+        AbstractSocketChannelBinding<ChannelBindingProvider>.Channel on = addChannel("Item1", OnOffType.ON,
+                Direction.OUT, REMOTE1);
+        AbstractSocketChannelBinding<ChannelBindingProvider>.Channel off = addChannel("Item1", OnOffType.OFF,
+                Direction.OUT, REMOTE1);
+        AbstractSocketChannelBinding<ChannelBindingProvider>.Channel in = addChannel("Item2", OnOffType.ON,
+                Direction.IN, REMOTE2);
+
+        Assert.assertSame(on, binding.channels.get("Item1", OnOffType.ON, Direction.OUT, REMOTE1));
+        Assert.assertSame(off, binding.channels.get("Item1", OnOffType.OFF, Direction.OUT, REMOTE1));
+        Assert.assertSame(in, binding.channels.get("Item2", OnOffType.ON, Direction.IN, REMOTE2));
+        Assert.assertNull(binding.channels.get("Item1", OnOffType.ON, Direction.IN, REMOTE1));
+        Assert.assertNull(binding.channels.get("Item1", OnOffType.ON, Direction.OUT, REMOTE2));
+        Assert.assertTrue(binding.channels.contains("Item2", OnOffType.ON, Direction.IN, REMOTE2));
+        Assert.assertFalse(binding.channels.contains("Item3", OnOffType.ON, Direction.IN, REMOTE2));
+
+        Assert.assertSame(on, binding.channels.getFirst("Item1", Direction.OUT, REMOTE1));
+        Assert.assertSame(in, binding.channels.getFirst(Direction.IN, REMOTE2));
+        // nothing is served yet
+        Assert.assertNull(binding.channels.getFirstServed(Direction.OUT, REMOTE1));
+        Assert.assertNull(binding.channels.getFirstServed("Item1", Direction.OUT, REMOTE1));
+    }
+
+    @Test
+    public void testLookupBySocketChannel() throws IOException {
+        AbstractSocketChannelBinding<ChannelBindingProvider>.Channel on = addChannel("Item1", OnOffType.ON,
+                Direction.OUT, REMOTE1);
+        AbstractSocketChannelBinding<ChannelBindingProvider>.Channel off = addChannel("Item1", OnOffType.OFF,
+                Direction.OUT, REMOTE1);
+        SocketChannel first = openSocketChannel();
+        SocketChannel second = openSocketChannel();
+
+        binding.channels.setChannel(off, first);
+        binding.channels.setChannel(on, first);
+
+        // the Channels are kept in the order they were added
+        Assert.assertSame(on, binding.channels.get(first));
+        Assert.assertEquals(Arrays.asList(on, off), binding.channels.getAll(first));
+        Assert.assertSame(on, binding.channels.getFirstServed(Direction.OUT, REMOTE1));
+        Assert.assertSame(on, binding.channels.getFirstServed("Item1", Direction.OUT, REMOTE1));
+
+        binding.channels.setChannel(on, null);
+        Assert.assertEquals(Arrays.asList(off), binding.channels.getAll(first));
+
+        binding.channels.replace(first, second);
+        Assert.assertSame(second, off.channel);
+        Assert.assertTrue(binding.channels.getAll(first).isEmpty());
+        Assert.assertNull(binding.channels.get(first));
+        Assert.assertSame(off, binding.channels.get(second));
+
+        binding.channels.setAllBlocking(second, true);
+        Assert.assertSame(off, binding.channels.getBlocking(second));
+        Assert.assertFalse(on.isBlocking);
+    }
+
+    @Test
+    public void testMaskedChannelMatchesRemote() {
+        AbstractSocketChannelBinding<ChannelBindingProvider>.Channel masked = binding.new Channel("Item1",
+                OnOffType.ON, "*", "5000", Direction.IN, false, null, false, null);
+        binding.channels.add(masked);
+
+        Assert.assertSame(masked, binding.channels.getFirstNotServed(Direction.IN, REMOTE1));
+        Assert.assertSame(masked, binding.channels.getFirstNotServed(Direction.IN, REMOTE2));
+        Assert.assertNull(binding.channels.getFirstNotServed(Direction.IN, new InetSocketAddress("10.0.0.1", 5001)));
+        Assert.assertNull(binding.channels.getFirstNotServed(Direction.OUT, REMOTE1));
+        Assert.assertSame(masked, binding.channels.get("Item1", OnOffType.ON, Direction.IN, "*", "5000"));
+    }
+
+    @Test
+    public void testReconnectJobConnectsNewChannel() throws Exception {
+        AbstractSocketChannelBinding<ChannelBindingProvider>.Channel channel = connect();
+
+        Assert.assertTrue(channel.channel.isConnected());
+        Assert.assertFalse(channel.isReconnecting);
+        Assert.assertSame(channel, binding.channels.get(channel.channel));
+    }
+
+    @Test
+    public void testQueuedWriteWakesSelector() throws Exception {
+        AbstractSocketChannelBinding<ChannelBindingProvider>.Channel channel = connect();
+
+        // the selector thread blocks in select() without a timeout, only the wakeup gets the data written
+        binding.writeBuffer(ByteBuffer.wrap("hello".getBytes()), channel, false, 0);
+        Assert.assertEquals("hello", read(5));
+
+        accepted.getOutputStream().write("world".getBytes());
+        Assert.assertEquals("world", binding.awaitReceived());
+    }
+
+    @Test
+    public void testBlockingWriteReturnsResponse() throws Exception {
+        AbstractSocketChannelBinding<ChannelBindingProvider>.Channel channel = connect();
+
+        Thread responder = new Thread() {
+            @Override
+            public void run() {
+                try {
+                    if ("ping".equals(read(4))) {
+                        accepted.getOutputStream().write("pong".getBytes());
+                    }
+                } catch (IOException e) {
+                    // the assertion below fails
+                }
+            }
+        };
+        responder.start();
+        ByteBuffer response = binding.writeBuffer(ByteBuffer.wrap("ping".getBytes()), channel, true, TIMEOUT);
+        responder.join();
+
+        Assert.assertNotNull(response);
+        Assert.assertEquals("pong", new String(response.array()));
+        Assert.assertFalse(channel.isBlocking);
+    }
+
+    @Test
+    public void testWriteAfterBlockingWriteTimeout() throws Exception {
+        AbstractSocketChannelBinding<ChannelBindingProvider>.Channel channel = connect();
+
+        ByteBuffer response = binding.writeBuffer(ByteBuffer.wrap("ping".getBytes()), channel, true, 200);
+        Assert.assertNull(response);
+        Assert.assertEquals("ping", read(4));
+
+        // the write interest has to be restored after the timeout
+        binding.writeBuffer(ByteBuffer.wrap("next".getBytes()), channel, false, 0);
+        Assert.assertEquals("next", read(4));
+    }
+
+    @Test
+    public void testPartialWriteKeepsRemainder() throws Exception {
+        AbstractSocketChannelBinding<ChannelBindingProvider>.Channel channel = connect();
+
+        // larger than the socket buffers, so the selector can only write a part of it at a time
+        byte[] data = new byte[8 * 1024 * 1024];
+        for (int i = 0; i < data.length; i++) {
+            data[i] = (byte) i;
+        }
+        binding.writeBuffer(ByteBuffer.wrap(data), channel, false, 0);
+        binding.writeBuffer(ByteBuffer.wrap("next".getBytes()), channel, false, 0);
+
+        Assert.assertTrue(Arrays.equals(data, readBytes(data.length)));
+        Assert.assertEquals("next", read(4));
+    }
+
+    /**
+     * Lets the reconnect job connect a Channel with a closed socket channel to
+     * a local server socket.
+     */
+    private AbstractSocketChannelBinding<ChannelBindingProvider>.Channel connect() throws Exception {
+        server = new ServerSocket(0, 1, InetAddress.getLoopbackAddress());
+        server.setSoTimeout(TIMEOUT);
+        binding.activate();
+
+        SocketChannel closed = openSocketChannel();
+        closed.close();
+        AbstractSocketChannelBinding<ChannelBindingProvider>.Channel channel = binding.new Channel("Item1",
+                OnOffType.ON, (InetSocketAddress) server.getLocalSocketAddress(), Direction.OUT, false, null, true,
+                closed);
+        binding.channels.add(channel);
+
+        runReconnectJob(channel);
+        accepted = server.accept();
+        accepted.setSoTimeout(TIMEOUT);
+        socketChannels.add(channel.channel);
+
+        long deadline = System.currentTimeMillis() + TIMEOUT;
+        while ((!channel.channel.isConnected() || channel.isReconnecting) && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        Assert.assertNotSame(closed, channel.channel);
+        return channel;
+    }
+
+    private void runReconnectJob(AbstractSocketChannelBinding<ChannelBindingProvider>.Channel channel)
+            throws JobExecutionException {
+        JobDataMap map = new JobDataMap();
+        map.put("Channel", channel);
+        map.put("Binding", binding);
+        final Object jobDetail = JobBuilder.newJob(AbstractSocketChannelBinding.ReconnectJob.class).usingJobData(map)
+                .build();
+        JobExecutionContext context = (JobExecutionContext) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class<?>[] { JobExecutionContext.class }, new InvocationHandler() {
+                    @Override
+                    public Object invoke(Object proxy, Method method, Object[] args) {
+                        if (method.getName().equals("getJobDetail")) {
+                            return jobDetail;
+                        }
+                        throw new UnsupportedOperationException(method.getName());
+                    }
+                });
+        new AbstractSocketChannelBinding.ReconnectJob().execute(context);
+    }
+
+    private String read(int length) throws IOException {
+        return new String(readBytes(length));
+    }
+
+    private byte[] readBytes(int length) throws IOException {
+        InputStream in = accepted.getInputStream();
+        byte[] data = new byte[length];
+        int read = 0;
+        while (read < length) {
+            int count = in.read(data, read, length - read);
+            if (count < 0) {
+                break;
+            }
+            read += count;
+        }
+        return Arrays.copyOf(data, read);
+    }
+
+    private AbstractSocketChannelBinding<ChannelBindingProvider>.Channel addChannel(String item, Command command,
+            Direction direction, InetSocketAddress remote) {
+        AbstractSocketChannelBinding<ChannelBindingProvider>.Channel channel = binding.new Channel(item, command,
+                remote, direction, false, null, false, null);
+        binding.channels.add(channel);
+        return channel;
+    }
+
+    private SocketChannel openSocketChannel() throws IOException {
+        SocketChannel socketChannel = SocketChannel.open();
+        socketChannels.add(socketChannel);
+        return socketChannel;
+    }
+
+    private static class TestBinding extends AbstractSocketChannelBinding<ChannelBindingProvider> {
+
+        private final List<String> received = new ArrayList<String>();
+
+        @Override
+        protected void configureChannel(Channel channel) {
+        }
+
+        @Override
+        protected boolean internalReceiveChanneledCommand(String itemName, Command command, Channel reference,
+                String commandAsString) {
+            return false;
+        }
+
+        @Override
+        protected synchronized void parseBuffer(String itemName, Command aCommand, Direction theDirection,
+                ByteBuffer byteBuffer) {
+            byte[] data = new byte[byteBuffer.remaining()];
+            byteBuffer.get(data);
+            received.add(new String(data));
+            notifyAll();
+        }
+
+        @Override
+        protected String getName() {
+            return "Test Socket Channel Binding";
+        }
+
+        synchronized String awaitReceived() throws InterruptedException {
+            long deadline = System.currentTimeMillis() + TIMEOUT;
+            while (received.isEmpty() && System.currentTimeMillis() < deadline) {
+                wait(TIMEOUT);
+            }
+            return received.isEmpty() ? null : received.remove(0);
+        }
+    }
+}
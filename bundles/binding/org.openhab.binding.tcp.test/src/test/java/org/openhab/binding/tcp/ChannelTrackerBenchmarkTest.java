@@ -0,0 +1,140 @@
+/**
+ * Copyright (c) 2010-2016 by the respective copyright holders.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.binding.tcp;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Test;
+import org.openhab.core.library.types.OnOffType;
+import org.openhab.core.types.Command;
+
+import junit.framework.Assert;
+
+/**
+ * Times the lookups the selector thread does for every network event on a
+ * {@link AbstractSocketChannelBinding.ChannelTracker} with 10, 100 and 1000
+ * Channels and prints the time per lookup.
+ *
+ * @author Karel Goderis
+ * @since 1.9.0
+ */
+public class ChannelTrackerBenchmarkTest {
+
+    private static final int LOOKUPS = 200000;
+
+    private List<SocketChannel> socketChannels = new ArrayList<SocketChannel>();
+
+    @After
+    public void tearDown() throws IOException {
+        for (SocketChannel socketChannel : socketChannels) {
+            socketChannel.close();
+        }
+    }
+
+    @Test
+    public void testLookups10Channels() throws IOException {
+        benchmark(10);
+    }
+
+    @Test
+    public void testLookups100Channels() throws IOException {
+        benchmark(100);
+    }
+
+    @Test
+    public void testLookups1000Channels() throws IOException {
+        benchmark(1000);
+    }
+
+    private void benchmark(int count) throws IOException {
+        TestBinding binding = new TestBinding();
+        List<AbstractSocketChannelBinding<ChannelBindingProvider>.Channel> all = new ArrayList<AbstractSocketChannelBinding<ChannelBindingProvider>.Channel>();
+        for (int i = 0; i < count; i++) {
+            AbstractSocketChannelBinding<ChannelBindingProvider>.Channel channel = binding.new Channel("Item" + i,
+                    OnOffType.ON, remote(i), Direction.OUT, false, null, false, null);
+            binding.channels.add(channel);
+            SocketChannel socketChannel = SocketChannel.open();
+            socketChannels.add(socketChannel);
+            binding.channels.setChannel(channel, socketChannel);
+            all.add(channel);
+        }
+
+        long start = System.nanoTime();
+        for (int i = 0; i < LOOKUPS; i++) {
+            AbstractSocketChannelBinding<ChannelBindingProvider>.Channel channel = all.get(i % count);
+            if (binding.channels.get(channel.channel) != channel) {
+                Assert.fail("lookup by socket channel failed");
+            }
+        }
+        long bySocketChannel = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        for (int i = 0; i < LOOKUPS; i++) {
+            AbstractSocketChannelBinding<ChannelBindingProvider>.Channel channel = all.get(i % count);
+            if (binding.channels.getFirstServed(Direction.OUT, channel.remote) != channel) {
+                Assert.fail("lookup by remote address failed");
+            }
+        }
+        long byRemote = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        for (int i = 0; i < LOOKUPS; i++) {
+            AbstractSocketChannelBinding<ChannelBindingProvider>.Channel channel = all.get(i % count);
+            if (binding.channels.get(channel.item, OnOffType.ON, Direction.OUT, channel.remote) != channel) {
+                Assert.fail("lookup by item failed");
+            }
+        }
+        long byItem = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        for (int i = 0; i < LOOKUPS; i++) {
+            if (binding.channels.isBlocking(all.get(i % count).channel)) {
+                Assert.fail("no channel is blocking");
+            }
+        }
+        long blocking = System.nanoTime() - start;
+
+        System.out.println("ChannelTracker with " + count + " channels, ns per lookup: by socket channel "
+                + bySocketChannel / LOOKUPS + ", by remote " + byRemote / LOOKUPS + ", by item " + byItem / LOOKUPS
+                + ", isBlocking " + blocking / LOOKUPS);
+    }
+
+    private static InetSocketAddress remote(int index) {
+        return new InetSocketAddress("10.0." + (index / 250) + "." + (index % 250 + 1), 5000);
+    }
+
+    private static class TestBinding extends AbstractSocketChannelBinding<ChannelBindingProvider> {
+
+        @Override
+        protected void configureChannel(Channel channel) {
+        }
+
+        @Override
+        protected boolean internalReceiveChanneledCommand(String itemName, Command command, Channel reference,
+                String commandAsString) {
+            return false;
+        }
+
+        @Override
+        protected void parseBuffer(String itemName, Command aCommand, Direction theDirection,
+                ByteBuffer byteBuffer) {
+        }
+
+        @Override
+        protected String getName() {
+            return "Test Socket Channel Binding";
+        }
+    }
+}
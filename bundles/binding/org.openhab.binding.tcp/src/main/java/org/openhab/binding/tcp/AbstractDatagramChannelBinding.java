@@ -15,17 +15,20 @@ import static org.quartz.TriggerBuilder.newTrigger;
 import java.io.IOException;
 import java.net.InetSocketAddress;
 import java.nio.ByteBuffer;
+import java.nio.channels.CancelledKeyException;
 import java.nio.channels.ClosedChannelException;
+import java.nio.channels.ClosedSelectorException;
 import java.nio.channels.DatagramChannel;
 import java.nio.channels.NotYetConnectedException;
 import java.nio.channels.SelectionKey;
 import java.nio.channels.Selector;
 import java.nio.channels.SocketChannel;
 import java.util.ArrayList;
-import java.util.Collections;
 import java.util.Dictionary;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
 
 import org.apache.commons.lang.StringUtils;
 import org.openhab.core.binding.AbstractActiveBinding;
@@ -88,7 +91,15 @@ public abstract class AbstractDatagramChannelBinding<P extends ChannelBindingPro
     protected SelectionKey listenerKey = null;
 
     // Queue to store BufferElements that need to be written to the network
-    protected List<WriteBufferElement> writeQueue = Collections.synchronizedList(new ArrayList<WriteBufferElement>());
+    protected Queue<WriteBufferElement> writeQueue = new ConcurrentLinkedQueue<WriteBufferElement>();
+
+    // Thread that waits on the selector and processes the network events
+    private Thread selectorThread = null;
+    private volatile boolean selectorRunning = false;
+    // held by threads that register a channel, the selector itself is locked by select() while it blocks
+    private final Object selectorGuard = new Object();
+    // Buffer used for every read, only accessed by the selector thread
+    private ByteBuffer receiveBuffer = null;
 
     // Simple datastructure to track the state of Channels
     protected ChannelTracker<Channel> channels = new ChannelTracker<Channel>();
@@ -687,10 +698,10 @@ public abstract class AbstractDatagramChannelBinding<P extends ChannelBindingPro
 
             logger.info("Listening for incoming data on {}", listenerChannel.getLocalAddress());
 
-            synchronized (selector) {
+            synchronized (selectorGuard) {
                 selector.wakeup();
                 try {
-                    listenerKey = listenerChannel.register(selector, listenerChannel.validOps());
+                    listenerKey = listenerChannel.register(selector, SelectionKey.OP_READ);
                 } catch (ClosedChannelException e1) {
                     logger.error("An exception occurred while registering a selector: {}", e1.getMessage());
                 }
@@ -712,7 +723,18 @@ public abstract class AbstractDatagramChannelBinding<P extends ChannelBindingPro
             selector = Selector.open();
         } catch (IOException e) {
             logger.error("An exception occurred while registering the selector: {}", e.getMessage());
+            return;
         }
+
+        selectorRunning = true;
+        selectorThread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                runSelectorLoop();
+            }
+        }, getName() + " Selector");
+        selectorThread.setDaemon(true);
+        selectorThread.start();
     }
 
     /**
@@ -721,6 +743,17 @@ public abstract class AbstractDatagramChannelBinding<P extends ChannelBindingPro
     @Override
     public void deactivate() {
 
+        selectorRunning = false;
+        if (selectorThread != null) {
+            selector.wakeup();
+            try {
+                selectorThread.join(5000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            selectorThread = null;
+        }
+
         try {
             selector.close();
         } catch (IOException e) {
@@ -1040,19 +1073,25 @@ public abstract class AbstractDatagramChannelBinding<P extends ChannelBindingPro
 
             if (theBuffer != null) {
                 writeQueue.add(new WriteBufferElement(theChannel, theBuffer, true));
+                selector.wakeup();
 
-                long currentElapsedTimeMillis = System.currentTimeMillis();
+                long deadline = System.currentTimeMillis() + timeOut;
 
-                while (theChannel.buffer == null && (System.currentTimeMillis() - currentElapsedTimeMillis) < timeOut) {
-                    try {
-                        Thread.sleep(50);
-                    } catch (InterruptedException e) {
-                        logger.warn("An Exception occurred while waiting during a blocking buffer write");
+                ByteBuffer responseBuffer = null;
+                synchronized (theChannel) {
+                    // the selector thread notifies us as soon as the response has been read
+                    long remaining = timeOut;
+                    while (theChannel.buffer == null && remaining > 0) {
+                        try {
+                            theChannel.wait(remaining);
+                        } catch (InterruptedException e) {
+                            logger.warn("An Exception occurred while waiting during a blocking buffer write");
+                            Thread.currentThread().interrupt();
+                            break;
+                        }
+                        remaining = deadline - System.currentTimeMillis();
                     }
-                }
 
-                ByteBuffer responseBuffer = null;
-                synchronized (this) {
                     responseBuffer = theChannel.buffer;
                     theChannel.buffer = null;
                     theChannel.isBlocking = false;
@@ -1066,6 +1105,7 @@ public abstract class AbstractDatagramChannelBinding<P extends ChannelBindingPro
 
             if (theBuffer != null) {
                 writeQueue.add(new WriteBufferElement(theChannel, theBuffer, false));
+                selector.wakeup();
             }
 
             return theBuffer;
@@ -1121,11 +1161,11 @@ public abstract class AbstractDatagramChannelBinding<P extends ChannelBindingPro
                             logger.error("An exception occurred while configuring a channel: {}", e.getMessage());
                         }
 
-                        synchronized (theBinding.selector) {
+                        synchronized (theBinding.selectorGuard) {
                             theBinding.selector.wakeup();
                             try {
                                 if (theChannel.channel != null) {
-                                    theChannel.channel.register(theBinding.selector, theChannel.channel.validOps());
+                                    theChannel.channel.register(theBinding.selector, SelectionKey.OP_READ);
                                 }
                             } catch (ClosedChannelException e1) {
                                 logger.error("An exception occurred while registering a selector: {}", e1.getMessage());
@@ -1349,10 +1389,10 @@ public abstract class AbstractDatagramChannelBinding<P extends ChannelBindingPro
                                                     e.getMessage());
                                         }
 
-                                        synchronized (selector) {
+                                        synchronized (selectorGuard) {
                                             selector.wakeup();
                                             try {
-                                                newDatagramChannel.register(selector, newDatagramChannel.validOps());
+                                                newDatagramChannel.register(selector, SelectionKey.OP_READ);
                                             } catch (ClosedChannelException e1) {
                                                 logger.error("An exception occurred while registering a selector: {}",
                                                         e1.getMessage());
@@ -1381,15 +1421,85 @@ public abstract class AbstractDatagramChannelBinding<P extends ChannelBindingPro
             }
         }
 
-        // Check on channels for which we have to process data
-        synchronized (selector) {
+    }
+
+    /**
+     * Waits for network events and processes them until the binding is deactivated. Inbound data and queued writes
+     * are therefore handled as soon as they are available instead of on the next refresh.
+     */
+    private void runSelectorLoop() {
+        while (selectorRunning) {
             try {
-                // Wait for an event
-                selector.selectNow();
+                // threads that register a channel hold the guard, wait until they are done
+                synchronized (selectorGuard) {
+                }
+
+                updateWriteInterest();
+                selector.select();
+
+                if (selectorRunning) {
+                    processSelectedKeys();
+                }
+            } catch (ClosedSelectorException e) {
+                break;
             } catch (IOException e) {
                 logger.error("An exception occurred while Selecting ({})", e.getMessage());
+            } catch (RuntimeException e) {
+                logger.error("An exception occurred while processing the network events", e);
             }
         }
+        logger.debug("The selector loop has stopped");
+    }
+
+    /**
+     * Adds the write interest to the keys of all channels that have data queued and are not waiting for the
+     * response to a blocking write. Must only be called from the selector thread.
+     */
+    private void updateWriteInterest() {
+        for (WriteBufferElement element : writeQueue) {
+            DatagramChannel theDatagramChannel = element.channel.channel;
+            if (theDatagramChannel == null || channels.isBlocking(theDatagramChannel)) {
+                continue;
+            }
+            if (theDatagramChannel != listenerChannel && !theDatagramChannel.isConnected()) {
+                continue;
+            }
+            SelectionKey key = theDatagramChannel.keyFor(selector);
+            try {
+                if (key != null && key.isValid()) {
+                    key.interestOps(key.interestOps() | SelectionKey.OP_WRITE);
+                }
+            } catch (CancelledKeyException e) {
+                // the channel has been closed in the meantime
+            }
+        }
+    }
+
+    /**
+     * Returns the buffer to read into. The buffer is reused for every read, so the data has to be copied with
+     * {@link #copyReceivedData(ByteBuffer)} before it is handed on. Must only be called from the selector thread.
+     */
+    private ByteBuffer getReceiveBuffer() {
+        if (receiveBuffer == null || receiveBuffer.capacity() != maximumBufferSize) {
+            receiveBuffer = ByteBuffer.allocateDirect(maximumBufferSize);
+        }
+        receiveBuffer.clear();
+        return receiveBuffer;
+    }
+
+    /**
+     * Copies the data of a flipped buffer into a heap buffer of exactly that size
+     */
+    private static ByteBuffer copyReceivedData(ByteBuffer buffer) {
+        byte[] data = new byte[buffer.remaining()];
+        buffer.get(data);
+        return ByteBuffer.wrap(data);
+    }
+
+    /**
+     * Processes the keys selected by the last select operation
+     */
+    private void processSelectedKeys() {
 
         // Get list of selection keys with pending events
         Iterator<SelectionKey> it = selector.selectedKeys().iterator();
@@ -1399,82 +1509,307 @@ public abstract class AbstractDatagramChannelBinding<P extends ChannelBindingPro
             SelectionKey selKey = it.next();
             it.remove();
 
-            if (selKey.isValid()) {
-                DatagramChannel theDatagramChannel = (DatagramChannel) selKey.channel();
-                Channel theChannel = channels.get(theDatagramChannel);
+            if (!selKey.isValid()) {
+                continue;
+            }
 
-                if (selKey.isReadable()) {
-                    InetSocketAddress clientAddress = null;
-                    ByteBuffer readBuffer = ByteBuffer.allocate(maximumBufferSize);
-                    int numberBytesRead = 0;
-                    boolean error = false;
+            try {
+                processSelectedKey(selKey);
+            } catch (CancelledKeyException e) {
+                logger.debug("The key {} has been cancelled while processing it", selKey);
+            }
+        }
+    }
 
-                    if (selKey == listenerKey) {
-                        try {
-                            clientAddress = (InetSocketAddress) theDatagramChannel.receive(readBuffer);
-                            logger.debug("Received {} on the listener port from {}", new String(readBuffer.array()),
-                                    clientAddress);
-                            numberBytesRead = readBuffer.position();
-                        } catch (Exception e) {
-                            error = true;
+    private void processSelectedKey(SelectionKey selKey) {
+        DatagramChannel theDatagramChannel = (DatagramChannel) selKey.channel();
+        Channel theChannel = channels.get(theDatagramChannel);
+
+        if (selKey.isReadable()) {
+            InetSocketAddress clientAddress = null;
+            ByteBuffer readBuffer = getReceiveBuffer();
+            int numberBytesRead = 0;
+            boolean error = false;
+
+            if (selKey == listenerKey) {
+                try {
+                    clientAddress = (InetSocketAddress) theDatagramChannel.receive(readBuffer);
+                    logger.debug("Received {} bytes on the listener port from {}", readBuffer.position(),
+                            clientAddress);
+                    numberBytesRead = readBuffer.position();
+                } catch (Exception e) {
+                    error = true;
+                }
+
+            } else {
+
+                try {
+                    // TODO: Additional code to split readBuffer in multiple parts, in case the data send by the
+                    // remote end is not correctly fragemented. Could be handed of to implementation class if
+                    // for example, the buffer needs to be split based on a special character like line feed or
+                    // carriage return
+                    numberBytesRead = theDatagramChannel.read(readBuffer);
+                    logger.debug("Received {} bytes on the channel {}->{}", new Object[] { numberBytesRead,
+                            theDatagramChannel.getLocalAddress(), theDatagramChannel.getRemoteAddress() });
+                } catch (NotYetConnectedException e) {
+                    try {
+                        logger.warn("The channel for {} has no connection pending ({})",
+                                theDatagramChannel.getRemoteAddress(), e.getMessage());
+                    } catch (IOException e1) {
+                        logger.error(
+                                "An exception occurred while getting the remote address of channel {} ({})",
+                                theDatagramChannel, e1.getMessage());
+                    }
+                    error = true;
+                } catch (IOException e) {
+                    // If some other I/O error occurs
+                    try {
+                        logger.warn("The channel for {} has encountered an unknown IO Exception: {}",
+                                theDatagramChannel.getRemoteAddress(), e.getMessage());
+                    } catch (IOException e1) {
+                        logger.error(
+                                "An exception occurred while getting the remote address of channel {} ({})",
+                                theDatagramChannel, e1.getMessage());
+                    }
+                    error = true;
+                }
+            }
+
+            if (numberBytesRead == -1) {
+                try {
+                    if (selKey != listenerKey) {
+                        theDatagramChannel.close();
+                    }
+                } catch (IOException e) {
+                    try {
+                        logger.warn("The channel for {} is closed ({})", theDatagramChannel.getRemoteAddress(),
+                                e.getMessage());
+                    } catch (IOException e1) {
+                        logger.error(
+                                "An exception occurred while getting the remote address of channel {} ({})",
+                                theDatagramChannel, e1.getMessage());
+                    }
+                }
+                error = true;
+            }
+
+            if (error) {
+                if (selKey != listenerKey) {
+                    // stop selecting the failed channel, the reconnect job registers a new one
+                    selKey.cancel();
+
+                    Scheduler scheduler = null;
+                    try {
+                        scheduler = StdSchedulerFactory.getDefaultScheduler();
+                    } catch (SchedulerException e1) {
+                        logger.error("An exception occurred while getting the Quartz scheduler: {}",
+                                e1.getMessage());
+                    }
+
+                    JobDataMap map = new JobDataMap();
+                    map.put("Channel", theChannel);
+                    map.put("Binding", this);
+
+                    JobDetail job = null;
+                    Trigger trigger = null;
+
+                    job = newJob(ReconnectJob.class)
+                            .withIdentity(Integer.toHexString(hashCode()) + "-Reconnect-"
+                                    + Long.toString(System.currentTimeMillis()), this.toString())
+                            .usingJobData(map).build();
+
+                    trigger = newTrigger()
+                            .withIdentity(Integer.toHexString(hashCode()) + "-Reconnect-"
+                                    + Long.toString(System.currentTimeMillis()), this.toString())
+                            .startAt(futureDate(reconnectInterval, IntervalUnit.SECOND)).build();
+
+                    try {
+                        if (job != null && trigger != null && selKey != listenerKey) {
+                            if (!theChannel.isReconnecting) {
+                                channels.setAllReconnecting(theDatagramChannel, true);
+                                scheduler.scheduleJob(job, trigger);
+                            }
+                        }
+                    } catch (SchedulerException e) {
+                        logger.error(
+                                "An exception occurred while scheduling a job with the Quartz Scheduler {}",
+                                e.getMessage());
+                    }
+                }
+
+            } else {
+
+                readBuffer.flip();
+                readBuffer = copyReceivedData(readBuffer);
+
+                ArrayList<Channel> channelsToServe = new ArrayList<Channel>();
+
+                if (selKey == listenerKey) {
+                    channelsToServe = channels.getAll(Direction.IN, clientAddress);
+                    if (channelsToServe.size() == 0) {
+                        logger.warn("Received data {} from an undefined remote end {}. We will not process it",
+                                new String(readBuffer.array()), clientAddress);
+                    }
+                } else {
+                    channelsToServe = channels.getAll(theDatagramChannel);
+                }
+
+                if (channelsToServe.size() > 0) {
+
+                    if (channels.isBlocking(theDatagramChannel)) {
+                        // if we are in a blocking operation, we get are now finished and we have to reset the
+                        // flag. The read buffer will be returned to the instance
+                        // that initiated the write opreation - it has to parse the buffer itself
+
+                        // find the Channel with this DGC that is holding a Blocking flag
+                        theChannel = channels.getBlocking(theDatagramChannel);
+                        synchronized (theChannel) {
+                            theChannel.buffer = readBuffer;
+                            theChannel.notifyAll();
                         }
 
                     } else {
+                        for (Channel aChannel : channelsToServe) {
+                            if (useAddressMask) {
+                                aChannel.lastRemote = clientAddress;
+                            }
+                            // if not, then we parse the buffer as ususal
+                            parseChanneledBuffer(aChannel, readBuffer);
+                        }
+                    }
+                } else {
+                    try {
+                        if (selKey == listenerKey) {
+                            logger.warn(
+                                    "No channel is active or defined for the data we received from {}. It will be discarded.",
+                                    clientAddress);
+                        } else {
+                            logger.warn(
+                                    "No channel is active or defined for the data we received from {}. It will be discarded.",
+                                    theDatagramChannel.getRemoteAddress());
+                        }
+                    } catch (IOException e) {
+                        logger.error(
+                                "An exception occurred while getting the remote address of channel {} ({})",
+                                theDatagramChannel, e.getMessage());
+                    }
+                }
+            }
+        } else if (selKey.isWritable()) {
+
+            WriteBufferElement theElement = null;
 
+            if (selKey == listenerKey) {
+                Iterator<WriteBufferElement> iterator = writeQueue.iterator();
+                while (iterator.hasNext()) {
+                    WriteBufferElement anElement = iterator.next();
+                    if (listenerChannel.equals(anElement.channel.channel)) {
+                        theElement = anElement;
+                        break;
+                    }
+                }
+            }
+
+            // check if any of the Channel using the DatagramChannel is blocking the DGC in a R/W operation
+            boolean isBlocking = channels.isBlocking(theDatagramChannel);
+
+            if (isBlocking) {
+                // if this channel is already flagged as being in a blocked write/read operation, we skip this
+                // selKey until the response has been read
+                selKey.interestOps(selKey.interestOps() & ~SelectionKey.OP_WRITE);
+            } else {
+
+                if (selKey != listenerKey) {
+                    Iterator<WriteBufferElement> iterator = writeQueue.iterator();
+                    while (iterator.hasNext()) {
+                        WriteBufferElement anElement = iterator.next();
+                        if (theDatagramChannel.equals(anElement.channel.channel)) {
+                            theElement = anElement;
+                            break;
+                        }
+                    }
+                }
+
+                if (theElement == null) {
+                    // nothing left to write for this channel
+                    selKey.interestOps(selKey.interestOps() & ~SelectionKey.OP_WRITE);
+                }
+
+                if (theElement != null && theElement.buffer != null) {
+
+                    logger.debug("Picked {} from the queue", theElement);
+
+                    if (theElement.isBlocking) {
+                        theElement.channel.isBlocking = true;
+                    }
+
+                    boolean error = false;
+
+                    theElement.buffer.rewind();
+
+                    if (selKey == listenerKey) {
                         try {
-                            // TODO: Additional code to split readBuffer in multiple parts, in case the data send by the
-                            // remote end is not correctly fragemented. Could be handed of to implementation class if
-                            // for example, the buffer needs to be split based on a special character like line feed or
-                            // carriage return
-                            numberBytesRead = theDatagramChannel.read(readBuffer);
-                            logger.debug("Received {} bytes ({}) on the channel {}->{}",
-                                    new Object[] { numberBytesRead, new String(readBuffer.array()),
-                                            theDatagramChannel.getLocalAddress(),
-                                            theDatagramChannel.getRemoteAddress() });
-                        } catch (NotYetConnectedException e) {
-                            try {
-                                logger.warn("The channel for {} has no connection pending ({})",
-                                        theDatagramChannel.getRemoteAddress(), e.getMessage());
-                            } catch (IOException e1) {
-                                logger.error(
-                                        "An exception occurred while getting the remote address of channel {} ({})",
-                                        theDatagramChannel, e1.getMessage());
+                            if (useAddressMask && theElement.channel.remote == null) {
+                                if (theElement.channel.lastRemote != null) {
+                                    logger.debug(
+                                            "Sending {} for the masked inbound channel {}:{} to the remote address {}",
+                                            new Object[] { new String(theElement.buffer.array()),
+                                                    theElement.channel.host, theElement.channel.port,
+                                                    theElement.channel.lastRemote });
+                                    listenerChannel.send(theElement.buffer, theElement.channel.lastRemote);
+                                } else {
+                                    logger.warn("I do not know where to send the data {}",
+                                            new String(theElement.buffer.array()));
+                                }
+                            } else {
+                                logger.debug(
+                                        "Sending {} for the inbound channel {}:{} to the remote address {}",
+                                        new Object[] { new String(theElement.buffer.array()),
+                                                theElement.channel.host, theElement.channel.port,
+                                                theElement.channel.remote });
+                                listenerChannel.send(theElement.buffer, theElement.channel.remote);
                             }
-                            error = true;
                         } catch (IOException e) {
-                            // If some other I/O error occurs
-                            try {
-                                logger.warn("The channel for {} has encountered an unknown IO Exception: {}",
-                                        theDatagramChannel.getRemoteAddress(), e.getMessage());
-                            } catch (IOException e1) {
+                            if (theElement.channel.lastRemote != null) {
+                                logger.error(
+                                        "An exception occurred while sending data to the remote end {} ({})",
+                                        theElement.channel.lastRemote, e.getMessage());
+                            } else {
                                 logger.error(
-                                        "An exception occurred while getting the remote address of channel {} ({})",
-                                        theDatagramChannel, e1.getMessage());
+                                        "An exception occurred while sending data to the remote end {} ({})",
+                                        theElement.channel.remote, e.getMessage());
                             }
-                            error = true;
                         }
-                    }
+                    } else {
 
-                    if (numberBytesRead == -1) {
                         try {
-                            if (selKey != listenerKey) {
-                                theDatagramChannel.close();
-                            }
+                            logger.debug("Sending {} for the outbound channel {}:{} to the remote address {}",
+                                    new Object[] { new String(theElement.buffer.array()),
+                                            theElement.channel.host, theElement.channel.port,
+                                            theElement.channel.remote });
+                            theDatagramChannel.write(theElement.buffer);
+                        } catch (NotYetConnectedException e) {
+                            logger.warn("The channel for {} has no connection pending ({})",
+                                    theElement.channel.remote, e.getMessage());
+                            error = true;
+                        } catch (ClosedChannelException e) {
+                            // If some other I/O error occurs
+                            logger.warn("The channel for {} is closed ({})", theElement.channel.remote,
+                                    e.getMessage());
+                            error = true;
                         } catch (IOException e) {
-                            try {
-                                logger.warn("The channel for {} is closed ({})", theDatagramChannel.getRemoteAddress(),
-                                        e.getMessage());
-                            } catch (IOException e1) {
-                                logger.error(
-                                        "An exception occurred while getting the remote address of channel {} ({})",
-                                        theDatagramChannel, e1.getMessage());
-                            }
+                            // If some other I/O error occurs
+                            logger.warn("The channel for {} has encountered an unknown IO Exception: {}",
+                                    theElement.channel.remote, e.getMessage());
+                            error = true;
                         }
-                        error = true;
                     }
 
                     if (error) {
+
                         if (selKey != listenerKey) {
+                            // stop selecting the failed channel, the reconnect job registers a new one
+                            selKey.cancel();
 
                             Scheduler scheduler = null;
                             try {
@@ -1485,26 +1820,30 @@ public abstract class AbstractDatagramChannelBinding<P extends ChannelBindingPro
                             }
 
                             JobDataMap map = new JobDataMap();
-                            map.put("Channel", theChannel);
+                            map.put("Channel", theElement.channel);
                             map.put("Binding", this);
 
                             JobDetail job = null;
                             Trigger trigger = null;
 
                             job = newJob(ReconnectJob.class)
-                                    .withIdentity(Integer.toHexString(hashCode()) + "-Reconnect-"
-                                            + Long.toString(System.currentTimeMillis()), this.toString())
+                                    .withIdentity(
+                                            Integer.toHexString(hashCode()) + "-Reconnect-"
+                                                    + Long.toString(System.currentTimeMillis()),
+                                            this.toString())
                                     .usingJobData(map).build();
 
                             trigger = newTrigger()
-                                    .withIdentity(Integer.toHexString(hashCode()) + "-Reconnect-"
-                                            + Long.toString(System.currentTimeMillis()), this.toString())
+                                    .withIdentity(
+                                            Integer.toHexString(hashCode()) + "-Reconnect-"
+                                                    + Long.toString(System.currentTimeMillis()),
+                                            this.toString())
                                     .startAt(futureDate(reconnectInterval, IntervalUnit.SECOND)).build();
 
                             try {
                                 if (job != null && trigger != null && selKey != listenerKey) {
-                                    if (!theChannel.isReconnecting) {
-                                        channels.setAllReconnecting(theDatagramChannel, true);
+                                    if (!theElement.channel.isReconnecting) {
+                                        channels.setAllReconnecting(theElement.channel.channel, true);
                                         scheduler.scheduleJob(job, trigger);
                                     }
                                 }
@@ -1514,218 +1853,11 @@ public abstract class AbstractDatagramChannelBinding<P extends ChannelBindingPro
                                         e.getMessage());
                             }
                         }
-
                     } else {
-
-                        ArrayList<Channel> channelsToServe = new ArrayList<Channel>();
-
-                        if (selKey == listenerKey) {
-                            channelsToServe = channels.getAll(Direction.IN, clientAddress);
-                            if (channelsToServe.size() == 0) {
-                                logger.warn("Received data {} from an undefined remote end {}. We will not process it",
-                                        new String(readBuffer.array()), clientAddress);
-                            }
-                        } else {
-                            channelsToServe = channels.getAll(theDatagramChannel);
+                        if (theElement != null) {
+                            writeQueue.remove(theElement);
                         }
 
-                        if (channelsToServe.size() > 0) {
-
-                            readBuffer.flip();
-
-                            if (channels.isBlocking(theDatagramChannel)) {
-                                // if we are in a blocking operation, we get are now finished and we have to reset the
-                                // flag. The read buffer will be returned to the instance
-                                // that initiated the write opreation - it has to parse the buffer itself
-
-                                // find the Channel with this DGC that is holding a Blocking flag
-                                theChannel = channels.getBlocking(theDatagramChannel);
-                                theChannel.buffer = readBuffer;
-
-                            } else {
-                                for (Channel aChannel : channelsToServe) {
-                                    if (useAddressMask) {
-                                        aChannel.lastRemote = clientAddress;
-                                    }
-                                    // if not, then we parse the buffer as ususal
-                                    parseChanneledBuffer(aChannel, readBuffer);
-                                }
-                            }
-                        } else {
-                            try {
-                                if (selKey == listenerKey) {
-                                    logger.warn(
-                                            "No channel is active or defined for the data we received from {}. It will be discarded.",
-                                            clientAddress);
-                                } else {
-                                    logger.warn(
-                                            "No channel is active or defined for the data we received from {}. It will be discarded.",
-                                            theDatagramChannel.getRemoteAddress());
-                                }
-                            } catch (IOException e) {
-                                logger.error(
-                                        "An exception occurred while getting the remote address of channel {} ({})",
-                                        theDatagramChannel, e.getMessage());
-                            }
-                        }
-                    }
-                } else if (selKey.isWritable()) {
-
-                    WriteBufferElement theElement = null;
-
-                    if (selKey == listenerKey) {
-                        Iterator<WriteBufferElement> iterator = writeQueue.iterator();
-                        while (iterator.hasNext()) {
-                            WriteBufferElement anElement = iterator.next();
-                            if (anElement.channel.channel.equals(listenerChannel)) {
-                                theElement = anElement;
-                                break;
-                            }
-                        }
-                    }
-
-                    // check if any of the Channel using the DatagramChannel is blocking the DGC in a R/W operation
-                    boolean isBlocking = channels.isBlocking(theDatagramChannel);
-
-                    if (isBlocking) {
-                        // if this channel is already flagged as being in a blocked write/read operation, we skip this
-                        // selKey
-                    } else {
-
-                        if (selKey != listenerKey) {
-                            Iterator<WriteBufferElement> iterator = writeQueue.iterator();
-                            while (iterator.hasNext()) {
-                                WriteBufferElement anElement = iterator.next();
-                                if (anElement.channel.channel.equals(theDatagramChannel)) {
-                                    theElement = anElement;
-                                    break;
-                                }
-                            }
-                        }
-
-                        if (theElement != null && theElement.buffer != null) {
-
-                            logger.debug("Picked {} from the queue", theElement);
-
-                            if (theElement.isBlocking) {
-                                theElement.channel.isBlocking = true;
-                            }
-
-                            boolean error = false;
-
-                            theElement.buffer.rewind();
-
-                            if (selKey == listenerKey) {
-                                try {
-                                    if (useAddressMask && theElement.channel.remote == null) {
-                                        if (theElement.channel.lastRemote != null) {
-                                            logger.debug(
-                                                    "Sending {} for the masked inbound channel {}:{} to the remote address {}",
-                                                    new Object[] { new String(theElement.buffer.array()),
-                                                            theElement.channel.host, theElement.channel.port,
-                                                            theElement.channel.lastRemote });
-                                            listenerChannel.send(theElement.buffer, theElement.channel.lastRemote);
-                                        } else {
-                                            logger.warn("I do not know where to send the data {}",
-                                                    new String(theElement.buffer.array()));
-                                        }
-                                    } else {
-                                        logger.debug(
-                                                "Sending {} for the inbound channel {}:{} to the remote address {}",
-                                                new Object[] { new String(theElement.buffer.array()),
-                                                        theElement.channel.host, theElement.channel.port,
-                                                        theElement.channel.remote });
-                                        listenerChannel.send(theElement.buffer, theElement.channel.remote);
-                                    }
-                                } catch (IOException e) {
-                                    if (theElement.channel.lastRemote != null) {
-                                        logger.error(
-                                                "An exception occurred while sending data to the remote end {} ({})",
-                                                theElement.channel.lastRemote, e.getMessage());
-                                    } else {
-                                        logger.error(
-                                                "An exception occurred while sending data to the remote end {} ({})",
-                                                theElement.channel.remote, e.getMessage());
-                                    }
-                                }
-                            } else {
-
-                                try {
-                                    logger.debug("Sending {} for the outbound channel {}:{} to the remote address {}",
-                                            new Object[] { new String(theElement.buffer.array()),
-                                                    theElement.channel.host, theElement.channel.port,
-                                                    theElement.channel.remote });
-                                    theDatagramChannel.write(theElement.buffer);
-                                } catch (NotYetConnectedException e) {
-                                    logger.warn("The channel for {} has no connection pending ({})",
-                                            theElement.channel.remote, e.getMessage());
-                                    error = true;
-                                } catch (ClosedChannelException e) {
-                                    // If some other I/O error occurs
-                                    logger.warn("The channel for {} is closed ({})", theElement.channel.remote,
-                                            e.getMessage());
-                                    error = true;
-                                } catch (IOException e) {
-                                    // If some other I/O error occurs
-                                    logger.warn("The channel for {} has encountered an unknown IO Exception: {}",
-                                            theElement.channel.remote, e.getMessage());
-                                    error = true;
-                                }
-                            }
-
-                            if (error) {
-
-                                if (selKey != listenerKey) {
-
-                                    Scheduler scheduler = null;
-                                    try {
-                                        scheduler = StdSchedulerFactory.getDefaultScheduler();
-                                    } catch (SchedulerException e1) {
-                                        logger.error("An exception occurred while getting the Quartz scheduler: {}",
-                                                e1.getMessage());
-                                    }
-
-                                    JobDataMap map = new JobDataMap();
-                                    map.put("Channel", theElement.channel);
-                                    map.put("Binding", this);
-
-                                    JobDetail job = null;
-                                    Trigger trigger = null;
-
-                                    job = newJob(ReconnectJob.class)
-                                            .withIdentity(
-                                                    Integer.toHexString(hashCode()) + "-Reconnect-"
-                                                            + Long.toString(System.currentTimeMillis()),
-                                                    this.toString())
-                                            .usingJobData(map).build();
-
-                                    trigger = newTrigger()
-                                            .withIdentity(
-                                                    Integer.toHexString(hashCode()) + "-Reconnect-"
-                                                            + Long.toString(System.currentTimeMillis()),
-                                                    this.toString())
-                                            .startAt(futureDate(reconnectInterval, IntervalUnit.SECOND)).build();
-
-                                    try {
-                                        if (job != null && trigger != null && selKey != listenerKey) {
-                                            if (!theElement.channel.isReconnecting) {
-                                                channels.setAllReconnecting(theElement.channel.channel, true);
-                                                scheduler.scheduleJob(job, trigger);
-                                            }
-                                        }
-                                    } catch (SchedulerException e) {
-                                        logger.error(
-                                                "An exception occurred while scheduling a job with the Quartz Scheduler {}",
-                                                e.getMessage());
-                                    }
-                                }
-                            } else {
-                                if (theElement != null) {
-                                    writeQueue.remove(theElement);
-                                }
-
-                            }
-                        }
                     }
                 }
             }
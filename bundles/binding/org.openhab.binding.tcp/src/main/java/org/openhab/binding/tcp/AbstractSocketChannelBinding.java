@@ -16,7 +16,9 @@ import static org.quartz.TriggerBuilder.newTrigger;
 import java.io.IOException;
 import java.net.InetSocketAddress;
 import java.nio.ByteBuffer;
+import java.nio.channels.CancelledKeyException;
 import java.nio.channels.ClosedChannelException;
+import java.nio.channels.ClosedSelectorException;
 import java.nio.channels.NoConnectionPendingException;
 import java.nio.channels.NotYetConnectedException;
 import java.nio.channels.SelectionKey;
@@ -28,6 +30,13 @@ import java.util.Collections;
 import java.util.Dictionary;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.apache.commons.lang.StringUtils;
 import org.openhab.core.binding.AbstractActiveBinding;
@@ -91,8 +100,19 @@ public abstract class AbstractSocketChannelBinding<P extends ChannelBindingProvi
     protected ServerSocketChannel listenerChannel = null;
     protected SelectionKey listenerKey = null;
 
-    // Queue to store BufferElements that need to be written to the network
-    protected List<WriteBufferElement> writeQueue = Collections.synchronizedList(new ArrayList<WriteBufferElement>());
+    // Queues to store BufferElements that need to be written to the network, one per Channel, so a writable event
+    // only looks at the Channels of its own SocketChannel
+    protected ConcurrentMap<Channel, Queue<WriteBufferElement>> writeQueues = new ConcurrentHashMap<Channel, Queue<WriteBufferElement>>();
+    // keeps the order of the BufferElements of Channels that share a SocketChannel
+    private final AtomicLong writeSequence = new AtomicLong();
+
+    // Thread that waits on the selector and processes the network events
+    private Thread selectorThread = null;
+    private volatile boolean selectorRunning = false;
+    // held by threads that register a channel, the selector itself is locked by select() while it blocks
+    private final Object selectorGuard = new Object();
+    // Buffer used for every read, only accessed by the selector thread
+    private ByteBuffer receiveBuffer = null;
 
     // Simple datastructure to track the state of Channels
     protected ChannelTracker<Channel> channels = new ChannelTracker<Channel>();
@@ -212,222 +232,180 @@ public abstract class AbstractSocketChannelBinding<P extends ChannelBindingProvi
      * getAll() - return a collection of all the Channels that match the given criteria
      * contains() - return true if a channel that matches the provided criteria exists in the ChannelTracker
      * replace() - replaces the underlying Java NIO channel on the Channels that match the provided criteria
+     * setChannel() - binds a Channel to a Java NIO channel
+     * 
+     * Channels are indexed by their Java NIO channel, by their remote address and by their {Item,Direction}, so
+     * that the selector thread does not have to scan all Channels for every event. The index lists are immutable and
+     * keep the order in which the Channels were added. Lookups therefore do not lock, while modifications are
+     * serialized on the ChannelTracker. The Java NIO channel of a tracked Channel must only be changed through the
+     * ChannelTracker, otherwise the index gets out of date.
      * 
      * @author Karel Goderis
      * @since 1.4.0
      * 
      **/
-    protected class ChannelTracker<C extends Channel> extends ArrayList<C> {
+    protected class ChannelTracker<C extends Channel> {
 
-        private static final long serialVersionUID = 1543958347565096785L;
+        private final List<C> allChannels = new CopyOnWriteArrayList<C>();
 
-        public boolean contains(String item, Command command, Direction direction, InetSocketAddress remote) {
+        private final ConcurrentMap<SocketChannel, List<C>> bySocketChannel = new ConcurrentHashMap<SocketChannel, List<C>>();
+
+        private final ConcurrentMap<InetSocketAddress, List<C>> byRemote = new ConcurrentHashMap<InetSocketAddress, List<C>>();
+
+        private final ConcurrentMap<String, List<C>> byItem = new ConcurrentHashMap<String, List<C>>();
+
+        public boolean add(C aChannel) {
             synchronized (this) {
-                Iterator<C> it = iterator();
-                while (it.hasNext()) {
-                    C aChannel = it.next();
-                    if (item.equals(aChannel.item) && command.equals(aChannel.command)
-                            && direction.equals(aChannel.direction) && remote.equals(aChannel.remote)) {
-                        return true;
-                    }
+                allChannels.add(aChannel);
+                addToIndex(byItem, itemKey(aChannel.item, aChannel.direction), aChannel);
+                if (aChannel.remote != null) {
+                    addToIndex(byRemote, aChannel.remote, aChannel);
                 }
-
-                return false;
+                if (aChannel.channel != null) {
+                    addToIndex(bySocketChannel, aChannel.channel, aChannel);
+                }
+                return true;
             }
         }
 
-        public Channel get(String item, Command command, Direction direction, InetSocketAddress remote) {
+        /**
+         * Binds the given Channel to a Java NIO channel, or unbinds it if the NIO channel is null
+         */
+        public void setChannel(Channel aChannel, SocketChannel channel) {
             synchronized (this) {
-                Iterator<C> it = iterator();
-                while (it.hasNext()) {
-                    C aChannel = it.next();
-                    if (item.equals(aChannel.item) && command.equals(aChannel.command)
-                            && direction.equals(aChannel.direction) && remote.equals(aChannel.remote)) {
-                        return aChannel;
-                    }
+                SocketChannel oldChannel = aChannel.channel;
+                aChannel.channel = channel;
+                if (oldChannel != null && !oldChannel.equals(channel)) {
+                    reindex(oldChannel);
+                }
+                if (channel != null) {
+                    reindex(channel);
                 }
-
-                return null;
             }
         }
 
-        public Channel get(String item, Command command, Direction direction, String host, String port) {
-            synchronized (this) {
-                Iterator<C> it = iterator();
-                while (it.hasNext()) {
-                    C aChannel = it.next();
-                    if (item.equals(aChannel.item) && command.equals(aChannel.command)
-                            && direction.equals(aChannel.direction)) {
-                        if (aChannel.host.equals(host) && aChannel.port.equals(port)) {
-                            return aChannel;
-                        }
-                    }
+        public boolean contains(String item, Command command, Direction direction, InetSocketAddress remote) {
+            return get(item, command, direction, remote) != null;
+        }
+
+        public Channel get(String item, Command command, Direction direction, InetSocketAddress remote) {
+            for (C aChannel : lookup(byItem, itemKey(item, direction))) {
+                if (command.equals(aChannel.command) && remote.equals(aChannel.remote)) {
+                    return aChannel;
                 }
+            }
 
-                return null;
+            return null;
+        }
 
+        public Channel get(String item, Command command, Direction direction, String host, String port) {
+            for (C aChannel : lookup(byItem, itemKey(item, direction))) {
+                if (command.equals(aChannel.command) && aChannel.host.equals(host) && aChannel.port.equals(port)) {
+                    return aChannel;
+                }
             }
+
+            return null;
         }
 
         public Channel get(SocketChannel theChannel) {
-            synchronized (this) {
-                Iterator<C> it = iterator();
-                while (it.hasNext()) {
-                    C aChannel = it.next();
-                    if (theChannel.equals(aChannel.channel)) {
-                        return aChannel;
-                    }
-                }
-                return null;
-            }
+            List<C> selectedChannels = lookup(bySocketChannel, theChannel);
+            return selectedChannels.isEmpty() ? null : selectedChannels.get(0);
         }
 
         public Channel getFirst(Direction direction, InetSocketAddress remoteAddress) {
-            synchronized (this) {
-                Iterator<C> it = iterator();
-                while (it.hasNext()) {
-                    C aChannel = it.next();
-                    if (remoteAddress.equals(aChannel.remote) && aChannel.channel == null
-                            && direction.equals(aChannel.direction)) {
-                        return aChannel;
-                    }
+            List<C> selectedChannels = lookup(byRemote, remoteAddress);
+            for (C aChannel : selectedChannels) {
+                if (aChannel.channel == null && direction.equals(aChannel.direction)) {
+                    return aChannel;
                 }
-
-                Iterator<C> it2 = iterator();
-                while (it2.hasNext()) {
-                    C aChannel = it2.next();
-                    if (remoteAddress.equals(aChannel.remote)) {
-                        return aChannel;
-                    }
-                }
-
-                return null;
             }
+
+            return selectedChannels.isEmpty() ? null : selectedChannels.get(0);
         }
 
         public Channel getFirst(String itemName, Direction direction, InetSocketAddress remoteAddress) {
-            synchronized (this) {
-                Iterator<C> it = iterator();
-                while (it.hasNext()) {
-                    C aChannel = it.next();
-                    if (itemName.equals(aChannel.item) && remoteAddress.equals(aChannel.remote)
-                            && direction.equals(aChannel.direction)) {
-                        return aChannel;
-                    }
+            for (C aChannel : lookup(byItem, itemKey(itemName, direction))) {
+                if (remoteAddress.equals(aChannel.remote)) {
+                    return aChannel;
                 }
-
-                return null;
             }
+
+            return null;
         }
 
         public Channel getFirstServed(String itemName, Direction direction, InetSocketAddress remoteAddress) {
-            synchronized (this) {
-                Iterator<C> it = iterator();
-                while (it.hasNext()) {
-                    C aChannel = it.next();
-                    if (itemName.equals(aChannel.item) && remoteAddress.equals(aChannel.remote)
-                            && aChannel.channel != null && direction.equals(aChannel.direction)) {
-                        return aChannel;
-                    }
+            for (C aChannel : lookup(byItem, itemKey(itemName, direction))) {
+                if (remoteAddress.equals(aChannel.remote) && aChannel.channel != null) {
+                    return aChannel;
                 }
-
-                return null;
             }
+
+            return null;
         }
 
         public void replace(String itemName, Direction direction, SocketChannel oldSocketChannel,
                 SocketChannel channel) {
             synchronized (this) {
-                Iterator<C> it = iterator();
-                while (it.hasNext()) {
-                    C aChannel = it.next();
-                    if (itemName.equals(aChannel.item) && oldSocketChannel.equals(aChannel.channel)
-                            && direction.equals(aChannel.direction)) {
-                        aChannel.channel = channel;
+                for (C aChannel : lookup(bySocketChannel, oldSocketChannel)) {
+                    if (itemName.equals(aChannel.item) && direction.equals(aChannel.direction)) {
+                        setChannel(aChannel, channel);
                     }
                 }
-
             }
         }
 
         public void replace(String itemName, Direction direction, InetSocketAddress remoteAddress,
                 SocketChannel channel) {
             synchronized (this) {
-                Iterator<C> it = iterator();
-                while (it.hasNext()) {
-                    C aChannel = it.next();
+                for (C aChannel : lookup(byItem, itemKey(itemName, direction))) {
                     if (useAddressMask && (aChannel.host.equals("*") || aChannel.port.equals("*"))
-                            && direction.equals(aChannel.direction) && itemName.equals(aChannel.item)
                             && !channel.equals(aChannel.channel)) {
-                        if (aChannel.host.equals("*")
-                                && aChannel.port.equals(Integer.toString(remoteAddress.getPort()))) {
-                            aChannel.channel = channel;
-                        } else if (aChannel.port.equals("*") && aChannel.host.equals(remoteAddress.getHostString())) {
-                            aChannel.channel = channel;
-                        } else if (aChannel.port.equals("*") && aChannel.host.equals("*")) {
-                            aChannel.channel = channel;
+                        if (matchesMask(aChannel, remoteAddress)) {
+                            setChannel(aChannel, channel);
                         }
-                    } else if (itemName.equals(aChannel.item) && remoteAddress.equals(aChannel.remote)
-                            && direction.equals(aChannel.direction) && !channel.equals(aChannel.channel)) {
-                        aChannel.channel = channel;
+                    } else if (remoteAddress.equals(aChannel.remote) && !channel.equals(aChannel.channel)) {
+                        setChannel(aChannel, channel);
                     }
                 }
             }
-
         }
 
         public ArrayList<Channel> getAll(String itemName, Direction direction, SocketChannel theSocketChannel) {
-            synchronized (this) {
-
-                ArrayList<Channel> selectedChannels = new ArrayList<Channel>();
+            ArrayList<Channel> selectedChannels = new ArrayList<Channel>();
 
-                Iterator<C> it = iterator();
-                while (it.hasNext()) {
-                    C aChannel = it.next();
-                    if (itemName.equals(aChannel.item) && theSocketChannel.equals(aChannel.channel)
-                            && direction.equals(aChannel.direction)) {
-                        selectedChannels.add(aChannel);
-                    }
+            for (C aChannel : lookup(bySocketChannel, theSocketChannel)) {
+                if (itemName.equals(aChannel.item) && direction.equals(aChannel.direction)) {
+                    selectedChannels.add(aChannel);
                 }
-
-                return selectedChannels;
             }
+
+            return selectedChannels;
         }
 
         public void setAllBlocking(String itemName, Direction direction, SocketChannel theSocketChannel, boolean b) {
-            synchronized (this) {
-                Iterator<C> it = iterator();
-                while (it.hasNext()) {
-                    C aChannel = it.next();
-                    if (itemName.equals(aChannel.item) && theSocketChannel.equals(aChannel.channel)
-                            && direction.equals(aChannel.direction)) {
-                        aChannel.isBlocking = b;
-                    }
+            for (C aChannel : lookup(bySocketChannel, theSocketChannel)) {
+                if (itemName.equals(aChannel.item) && direction.equals(aChannel.direction)) {
+                    aChannel.isBlocking = b;
                 }
             }
         }
 
         public Channel getFirstServed(InetSocketAddress remoteAddress) {
-            synchronized (this) {
-                Iterator<C> it = iterator();
-                while (it.hasNext()) {
-                    C aChannel = it.next();
-                    if (remoteAddress.equals(aChannel.remote) && aChannel.channel != null) {
-                        return aChannel;
-                    }
+            for (C aChannel : lookup(byRemote, remoteAddress)) {
+                if (aChannel.channel != null) {
+                    return aChannel;
                 }
-
-                return null;
             }
+
+            return null;
         }
 
         public void replace(Direction direction, SocketChannel oldSocketChannel, SocketChannel channel) {
             synchronized (this) {
-                Iterator<C> it = iterator();
-                while (it.hasNext()) {
-                    C aChannel = it.next();
-                    if (oldSocketChannel.equals(aChannel.channel) && direction.equals(aChannel.direction)) {
-                        aChannel.channel = channel;
+                for (C aChannel : lookup(bySocketChannel, oldSocketChannel)) {
+                    if (direction.equals(aChannel.direction)) {
+                        setChannel(aChannel, channel);
                     }
                 }
             }
@@ -435,196 +413,164 @@ public abstract class AbstractSocketChannelBinding<P extends ChannelBindingProvi
 
         public void replace(Direction direction, InetSocketAddress remoteAddress, SocketChannel channel) {
             synchronized (this) {
-                Iterator<C> it = iterator();
-                while (it.hasNext()) {
-                    C aChannel = it.next();
-                    if (useAddressMask && (aChannel.host.equals("*") || aChannel.port.equals("*"))
-                            && remoteAddress.equals(aChannel.remote) && direction.equals(aChannel.direction)
-                            && !channel.equals(aChannel.channel)) {
-                        if (aChannel.host.equals("*")
-                                && aChannel.port.equals(Integer.toString(remoteAddress.getPort()))) {
-                            aChannel.channel = channel;
-                        } else if (aChannel.port.equals("*") && aChannel.host.equals(remoteAddress.getHostString())) {
-                            aChannel.channel = channel;
-                        } else if (aChannel.port.equals("*") && aChannel.host.equals("*")) {
-                            aChannel.channel = channel;
+                for (C aChannel : lookup(byRemote, remoteAddress)) {
+                    if (!direction.equals(aChannel.direction) || channel.equals(aChannel.channel)) {
+                        continue;
+                    }
+                    if (useAddressMask && (aChannel.host.equals("*") || aChannel.port.equals("*"))) {
+                        if (matchesMask(aChannel, remoteAddress)) {
+                            setChannel(aChannel, channel);
                         }
-                    } else if (remoteAddress.equals(aChannel.remote) && direction.equals(aChannel.direction)
-                            && !channel.equals(aChannel.channel)) {
-                        aChannel.channel = channel;
+                    } else {
+                        setChannel(aChannel, channel);
                     }
                 }
             }
         }
 
         public ArrayList<Channel> getAll(Direction direction, SocketChannel theSocketChannel) {
-            synchronized (this) {
-                ArrayList<Channel> selectedChannels = new ArrayList<Channel>();
+            ArrayList<Channel> selectedChannels = new ArrayList<Channel>();
 
-                Iterator<C> it = iterator();
-                while (it.hasNext()) {
-                    C aChannel = it.next();
-                    if (theSocketChannel.equals(aChannel.channel) && direction.equals(aChannel.direction)) {
-                        selectedChannels.add(aChannel);
-                    }
+            for (C aChannel : lookup(bySocketChannel, theSocketChannel)) {
+                if (direction.equals(aChannel.direction)) {
+                    selectedChannels.add(aChannel);
                 }
-
-                return selectedChannels;
             }
+
+            return selectedChannels;
         }
 
         public void setAllBlocking(Direction direction, SocketChannel theSocketChannel, boolean b) {
-            synchronized (this) {
-                Iterator<C> it = iterator();
-                while (it.hasNext()) {
-                    C aChannel = it.next();
-                    if (theSocketChannel.equals(aChannel.channel) && direction.equals(aChannel.direction)) {
-                        aChannel.isBlocking = b;
-                    }
+            for (C aChannel : lookup(bySocketChannel, theSocketChannel)) {
+                if (direction.equals(aChannel.direction)) {
+                    aChannel.isBlocking = b;
                 }
             }
         }
 
         public Channel getFirstServed(Direction direction, InetSocketAddress remoteAddress) {
-            synchronized (this) {
-                Iterator<C> it = iterator();
-                while (it.hasNext()) {
-                    C aChannel = it.next();
-                    if (remoteAddress.equals(aChannel.remote) && aChannel.channel != null
-                            && direction.equals(aChannel.direction)) {
-                        return aChannel;
-                    }
+            for (C aChannel : lookup(byRemote, remoteAddress)) {
+                if (aChannel.channel != null && direction.equals(aChannel.direction)) {
+                    return aChannel;
                 }
-
-                return null;
             }
+
+            return null;
         }
 
         public void replace(SocketChannel oldSocketChannel, SocketChannel channel) {
             synchronized (this) {
-                Iterator<C> it = iterator();
-                while (it.hasNext()) {
-                    C aChannel = it.next();
-                    if (oldSocketChannel.equals(aChannel.channel)) {
-                        aChannel.channel = channel;
-                    }
+                for (C aChannel : lookup(bySocketChannel, oldSocketChannel)) {
+                    setChannel(aChannel, channel);
                 }
-
             }
         }
 
         public void replace(InetSocketAddress remoteAddress, SocketChannel channel) {
             synchronized (this) {
-                Iterator<C> it = iterator();
-                while (it.hasNext()) {
-                    C aChannel = it.next();
+                // masked Channels have no remote address, so all Channels have to be checked when masks are used
+                List<C> candidates = useAddressMask ? allChannels : lookup(byRemote, remoteAddress);
+                for (C aChannel : candidates) {
                     if (useAddressMask && (aChannel.host.equals("*") || aChannel.port.equals("*"))
                             && !channel.equals(aChannel.channel)) {
-                        if (aChannel.host.equals("*")
-                                && aChannel.port.equals(Integer.toString(remoteAddress.getPort()))) {
-                            aChannel.channel = channel;
-                        } else if (aChannel.port.equals("*") && aChannel.host.equals(remoteAddress.getHostString())) {
-                            aChannel.channel = channel;
-                        } else if (aChannel.port.equals("*") && aChannel.host.equals("*")) {
-                            aChannel.channel = channel;
+                        if (matchesMask(aChannel, remoteAddress)) {
+                            setChannel(aChannel, channel);
                         }
                     } else if (remoteAddress.equals(aChannel.remote) && !channel.equals(aChannel.channel)) {
-                        aChannel.channel = channel;
+                        setChannel(aChannel, channel);
                     }
                 }
             }
-
         }
 
         public ArrayList<Channel> getAll(SocketChannel theSocketChannel) {
-            synchronized (this) {
-                ArrayList<Channel> selectedChannels = new ArrayList<Channel>();
-
-                Iterator<C> it = iterator();
-                while (it.hasNext()) {
-                    C aChannel = it.next();
-                    if (theSocketChannel.equals(aChannel.channel)) {
-                        selectedChannels.add(aChannel);
-                    }
-                }
-
-                return selectedChannels;
-            }
+            return new ArrayList<Channel>(lookup(bySocketChannel, theSocketChannel));
         }
 
         public void setAllBlocking(SocketChannel theSocketChannel, boolean b) {
-            synchronized (this) {
-                Iterator<C> it = iterator();
-                while (it.hasNext()) {
-                    C aChannel = it.next();
-                    if (theSocketChannel.equals(aChannel.channel)) {
-                        aChannel.isBlocking = b;
-                    }
-                }
+            for (C aChannel : lookup(bySocketChannel, theSocketChannel)) {
+                aChannel.isBlocking = b;
             }
         }
 
         public void setAllReconnecting(SocketChannel theSocketChannel, boolean b) {
-            synchronized (this) {
-                Iterator<C> it = iterator();
-                while (it.hasNext()) {
-                    C aChannel = it.next();
-                    if (theSocketChannel.equals(aChannel.channel)) {
-                        aChannel.isReconnecting = b;
-                    }
-                }
+            for (C aChannel : lookup(bySocketChannel, theSocketChannel)) {
+                aChannel.isReconnecting = b;
             }
         }
 
         public Channel getFirstNotServed(Direction direction, InetSocketAddress remoteAddress) {
-            synchronized (this) {
-                Iterator<C> it = iterator();
-                while (it.hasNext()) {
-                    C aChannel = it.next();
-                    if (useAddressMask && (aChannel.host.equals("*") || aChannel.port.equals("*"))
-                            && direction.equals(aChannel.direction)
-                            && (aChannel.channel == null || !aChannel.channel.isOpen())) {
-                        if (aChannel.host.equals("*")
-                                && aChannel.port.equals(Integer.toString(remoteAddress.getPort()))) {
-                            return aChannel;
-                        } else if (aChannel.port.equals("*") && aChannel.host.equals(remoteAddress.getHostString())) {
-                            return aChannel;
-                        } else if (aChannel.port.equals("*") && aChannel.host.equals("*")) {
-                            return aChannel;
-                        }
-                    } else if (remoteAddress.equals(aChannel.remote) && direction.equals(aChannel.direction)
-                            && (aChannel.channel == null || !aChannel.channel.isOpen())) {
+            // masked Channels have no remote address, so all Channels have to be checked when masks are used
+            List<C> candidates = useAddressMask ? allChannels : lookup(byRemote, remoteAddress);
+            for (C aChannel : candidates) {
+                if (!direction.equals(aChannel.direction)
+                        || (aChannel.channel != null && aChannel.channel.isOpen())) {
+                    continue;
+                }
+                if (useAddressMask && (aChannel.host.equals("*") || aChannel.port.equals("*"))) {
+                    if (matchesMask(aChannel, remoteAddress)) {
                         return aChannel;
                     }
+                } else if (remoteAddress.equals(aChannel.remote)) {
+                    return aChannel;
                 }
-
-                return null;
             }
+
+            return null;
         }
 
         public boolean isBlocking(SocketChannel theSocketChannel) {
-            synchronized (this) {
-                Iterator<C> it = iterator();
-                while (it.hasNext()) {
-                    C aChannel = it.next();
-                    if (theSocketChannel.equals(aChannel.channel) && aChannel.isBlocking) {
-                        return true;
-                    }
+            return getBlocking(theSocketChannel) != null;
+        }
+
+        public Channel getBlocking(SocketChannel theSocketChannel) {
+            for (C aChannel : lookup(bySocketChannel, theSocketChannel)) {
+                if (aChannel.isBlocking) {
+                    return aChannel;
                 }
-                return false;
             }
+            return null;
         }
 
-        public Channel getBlocking(SocketChannel theSocketChannel) {
-            synchronized (this) {
-                Iterator<C> it = iterator();
-                while (it.hasNext()) {
-                    C aChannel = it.next();
-                    if (theSocketChannel.equals(aChannel.channel) && aChannel.isBlocking) {
-                        return aChannel;
-                    }
+        private boolean matchesMask(Channel aChannel, InetSocketAddress remoteAddress) {
+            if (aChannel.host.equals("*") && aChannel.port.equals(Integer.toString(remoteAddress.getPort()))) {
+                return true;
+            } else if (aChannel.port.equals("*") && aChannel.host.equals(remoteAddress.getHostString())) {
+                return true;
+            } else {
+                return aChannel.port.equals("*") && aChannel.host.equals("*");
+            }
+        }
+
+        private String itemKey(String item, Direction direction) {
+            return item + "#" + direction;
+        }
+
+        private <K> List<C> lookup(ConcurrentMap<K, List<C>> index, K key) {
+            List<C> selectedChannels = index.get(key);
+            return selectedChannels != null ? selectedChannels : Collections.<C> emptyList();
+        }
+
+        private <K> void addToIndex(ConcurrentMap<K, List<C>> index, K key, C aChannel) {
+            List<C> selectedChannels = new ArrayList<C>(lookup(index, key));
+            selectedChannels.add(aChannel);
+            index.put(key, Collections.unmodifiableList(selectedChannels));
+        }
+
+        /**
+         * Rebuilds the index entry of a Java NIO channel, keeping the Channels in the order they were added
+         */
+        private void reindex(SocketChannel theSocketChannel) {
+            List<C> selectedChannels = new ArrayList<C>();
+            for (C aChannel : allChannels) {
+                if (theSocketChannel.equals(aChannel.channel)) {
+                    selectedChannels.add(aChannel);
                 }
-                return null;
+            }
+            if (selectedChannels.isEmpty()) {
+                bySocketChannel.remove(theSocketChannel);
+            } else {
+                bySocketChannel.put(theSocketChannel, Collections.unmodifiableList(selectedChannels));
             }
         }
 
@@ -642,12 +588,17 @@ public abstract class AbstractSocketChannelBinding<P extends ChannelBindingProvi
         public Channel channel;
         public ByteBuffer buffer;
         public boolean isBlocking;
+        // order in which the element was queued
+        public final long sequence;
+        // set once part of the buffer has been written, the rest is written from the current position
+        public boolean isStarted;
 
         public WriteBufferElement(Channel channel, ByteBuffer buffer, boolean isBlocking) {
             super();
             this.channel = channel;
             this.buffer = buffer;
             this.isBlocking = isBlocking;
+            this.sequence = writeSequence.incrementAndGet();
         }
 
         @Override
@@ -682,7 +633,7 @@ public abstract class AbstractSocketChannelBinding<P extends ChannelBindingProvi
 
             logger.info("Listening for incoming connections on {}", listenerChannel.getLocalAddress());
 
-            synchronized (selector) {
+            synchronized (selectorGuard) {
                 selector.wakeup();
                 try {
                     listenerKey = listenerChannel.register(selector, SelectionKey.OP_ACCEPT);
@@ -708,7 +659,18 @@ public abstract class AbstractSocketChannelBinding<P extends ChannelBindingProvi
             selector = Selector.open();
         } catch (IOException e) {
             logger.error("An exception occurred while registering the selector: {}", e.getMessage());
+            return;
         }
+
+        selectorRunning = true;
+        selectorThread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                runSelectorLoop();
+            }
+        }, getName() + " Selector");
+        selectorThread.setDaemon(true);
+        selectorThread.start();
     }
 
     /**
@@ -717,18 +679,31 @@ public abstract class AbstractSocketChannelBinding<P extends ChannelBindingProvi
     @Override
     public void deactivate() {
 
+        selectorRunning = false;
+        if (selectorThread != null) {
+            selector.wakeup();
+            try {
+                selectorThread.join(5000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            selectorThread = null;
+        }
+
         try {
             selector.close();
         } catch (IOException e) {
             logger.error("An exception occurred while closing the selector: {}", e.getMessage());
         }
 
-        try {
-            listenerChannel.close();
-        } catch (IOException e) {
-            logger.error("An exception occurred while closing the Listener Channel on port number {} ({})",
-                    listenerPort, e.getMessage());
+        if (listenerChannel != null) {
+            try {
+                listenerChannel.close();
+            } catch (IOException e) {
+                logger.error("An exception occurred while closing the Listener Channel on port number {} ({})",
+                        listenerPort, e.getMessage());
 
+            }
         }
     }
 
@@ -1058,25 +1033,32 @@ public abstract class AbstractSocketChannelBinding<P extends ChannelBindingProvi
 
             if (theBuffer != null) {
                 if (theSocketChannel.isConnected() || queueUntilConnected) {
-                    writeQueue.add(new WriteBufferElement(theChannel, theBuffer, true));
+                    queueWrite(new WriteBufferElement(theChannel, theBuffer, true));
                 }
 
-                long currentElapsedTimeMillis = System.currentTimeMillis();
+                long deadline = System.currentTimeMillis() + timeOut;
 
-                while (theChannel.buffer == null && (System.currentTimeMillis() - currentElapsedTimeMillis) < timeOut) {
-                    try {
-                        Thread.sleep(100);
-                    } catch (InterruptedException e) {
-                        logger.warn("Exception occurred while waiting during a blocking buffer write");
+                ByteBuffer responseBuffer = null;
+                synchronized (theChannel) {
+                    // the selector thread notifies us as soon as the response has been read
+                    long remaining = timeOut;
+                    while (theChannel.buffer == null && remaining > 0) {
+                        try {
+                            theChannel.wait(remaining);
+                        } catch (InterruptedException e) {
+                            logger.warn("Exception occurred while waiting during a blocking buffer write");
+                            Thread.currentThread().interrupt();
+                            break;
+                        }
+                        remaining = deadline - System.currentTimeMillis();
                     }
-                }
 
-                ByteBuffer responseBuffer = null;
-                synchronized (this) {
                     responseBuffer = theChannel.buffer;
                     theChannel.buffer = null;
                     theChannel.isBlocking = false;
                 }
+                // after a timeout the selector has to add the write interest for the queued data again
+                selector.wakeup();
                 return responseBuffer;
             } else {
                 return theBuffer;
@@ -1086,7 +1068,7 @@ public abstract class AbstractSocketChannelBinding<P extends ChannelBindingProvi
 
             if (theBuffer != null) {
                 if (theSocketChannel.isConnected() || queueUntilConnected) {
-                    writeQueue.add(new WriteBufferElement(theChannel, theBuffer, false));
+                    queueWrite(new WriteBufferElement(theChannel, theBuffer, false));
                 }
             }
 
@@ -1094,6 +1076,44 @@ public abstract class AbstractSocketChannelBinding<P extends ChannelBindingProvi
         }
     }
 
+    /**
+     * Adds a BufferElement to the queue of its Channel and wakes up the selector thread to write it
+     */
+    private void queueWrite(WriteBufferElement element) {
+        Queue<WriteBufferElement> queue = writeQueues.get(element.channel);
+        if (queue == null) {
+            Queue<WriteBufferElement> newQueue = new ConcurrentLinkedQueue<WriteBufferElement>();
+            queue = writeQueues.putIfAbsent(element.channel, newQueue);
+            if (queue == null) {
+                queue = newQueue;
+            }
+        }
+        queue.add(element);
+        selector.wakeup();
+    }
+
+    /**
+     * Returns the BufferElement to write next to the given SocketChannel: one that has been written partially, else
+     * the oldest one of all Channels bound to the SocketChannel. Must only be called from the selector thread.
+     */
+    private WriteBufferElement nextWrite(SocketChannel theSocketChannel) {
+        WriteBufferElement next = null;
+        for (Channel aChannel : channels.getAll(theSocketChannel)) {
+            Queue<WriteBufferElement> queue = writeQueues.get(aChannel);
+            WriteBufferElement head = queue == null ? null : queue.peek();
+            if (head == null) {
+                continue;
+            }
+            if (head.isStarted) {
+                return head;
+            }
+            if (next == null || head.sequence < next.sequence) {
+                next = head;
+            }
+        }
+        return next;
+    }
+
     /**
      * Quartz Job to reconnect a channel
      * 
@@ -1127,7 +1147,7 @@ public abstract class AbstractSocketChannelBinding<P extends ChannelBindingProvi
                     }
 
                     try {
-                        theChannel.channel = SocketChannel.open();
+                        theBinding.channels.setChannel(theChannel, SocketChannel.open());
                     } catch (IOException e) {
                         logger.error("An exception occurred while opening a channel: {}", e.getMessage());
                     }
@@ -1142,21 +1162,9 @@ public abstract class AbstractSocketChannelBinding<P extends ChannelBindingProvi
                         logger.error("An exception occurred while configuring a channel: {}", e.getMessage());
                     }
 
-                    synchronized (theBinding.selector) {
-                        theBinding.selector.wakeup();
-                        int interestSet = SelectionKey.OP_READ | SelectionKey.OP_WRITE | SelectionKey.OP_CONNECT;
-                        try {
-                            if (theChannel.channel != null) {
-                                theChannel.channel.register(theBinding.selector, interestSet);
-                            }
-                        } catch (ClosedChannelException e1) {
-                            logger.error("An exception occurred while registering a selector: {}", e1.getMessage());
-                        }
-                    }
-
                     try {
                         if (theChannel.channel != null) {
-                            theChannel.channel.connect(theChannel.remote);
+                            theBinding.connect(theChannel.channel, theChannel.remote);
                             logger.info("Attempting to reconnect the channel for {}", theChannel.remote);
                         }
                     } catch (Exception e) {
@@ -1244,7 +1252,7 @@ public abstract class AbstractSocketChannelBinding<P extends ChannelBindingProvi
                                 if (itemShareChannels) {
                                     Channel firstChannel = channels.getFirstServed(itemName, direction, remoteAddress);
                                     if (firstChannel != null) {
-                                        newChannel.channel = firstChannel.channel;
+                                        channels.setChannel(newChannel, firstChannel.channel);
                                         assigned = true;
                                     }
                                 }
@@ -1252,7 +1260,7 @@ public abstract class AbstractSocketChannelBinding<P extends ChannelBindingProvi
                                 if (bindingShareChannels) {
                                     Channel firstChannel = channels.getFirstServed(direction, remoteAddress);
                                     if (firstChannel != null) {
-                                        newChannel.channel = firstChannel.channel;
+                                        channels.setChannel(newChannel, firstChannel.channel);
                                         assigned = true;
                                     }
                                 }
@@ -1260,7 +1268,7 @@ public abstract class AbstractSocketChannelBinding<P extends ChannelBindingProvi
                                 if (directionsShareChannels) {
                                     Channel firstChannel = channels.getFirstServed(remoteAddress);
                                     if (firstChannel != null) {
-                                        newChannel.channel = firstChannel.channel;
+                                        channels.setChannel(newChannel, firstChannel.channel);
                                         assigned = true;
                                     }
                                 }
@@ -1295,7 +1303,7 @@ public abstract class AbstractSocketChannelBinding<P extends ChannelBindingProvi
                                         Channel firstChannel = channels.getFirstServed(itemName, direction,
                                                 remoteAddress);
                                         if (firstChannel != null) {
-                                            newChannel.channel = firstChannel.channel;
+                                            channels.setChannel(newChannel, firstChannel.channel);
                                             assigned = true;
                                         }
                                     }
@@ -1303,7 +1311,7 @@ public abstract class AbstractSocketChannelBinding<P extends ChannelBindingProvi
                                     if (bindingShareChannels) {
                                         Channel firstChannel = channels.getFirstServed(direction, remoteAddress);
                                         if (firstChannel != null) {
-                                            newChannel.channel = firstChannel.channel;
+                                            channels.setChannel(newChannel, firstChannel.channel);
                                             assigned = true;
                                         }
                                     }
@@ -1311,7 +1319,7 @@ public abstract class AbstractSocketChannelBinding<P extends ChannelBindingProvi
                                     if (directionsShareChannels) {
                                         Channel firstChannel = channels.getFirstServed(remoteAddress);
                                         if (firstChannel != null) {
-                                            newChannel.channel = firstChannel.channel;
+                                            channels.setChannel(newChannel, firstChannel.channel);
                                             assigned = true;
                                         }
                                     }
@@ -1340,25 +1348,12 @@ public abstract class AbstractSocketChannelBinding<P extends ChannelBindingProvi
                                                         e.getMessage());
                                             }
 
-                                            synchronized (selector) {
-                                                selector.wakeup();
-                                                int interestSet = SelectionKey.OP_READ | SelectionKey.OP_WRITE
-                                                        | SelectionKey.OP_CONNECT;
-                                                try {
-                                                    newSocketChannel.register(selector, interestSet);
-                                                } catch (ClosedChannelException e1) {
-                                                    logger.error(
-                                                            "An exception occurred while registering a selector: {}",
-                                                            e1.getMessage());
-                                                }
-                                            }
-
-                                            newChannel.channel = newSocketChannel;
+                                            channels.setChannel(newChannel, newSocketChannel);
                                             logger.debug("Setting up the outbound channel {}", newChannel);
 
                                             try {
                                                 logger.info("Connecting the channel {} ", newChannel);
-                                                newSocketChannel.connect(remoteAddress);
+                                                connect(newSocketChannel, remoteAddress);
                                             } catch (IOException e) {
                                                 logger.error("An exception occurred while connecting a channel: {}",
                                                         e.getMessage());
@@ -1376,236 +1371,272 @@ public abstract class AbstractSocketChannelBinding<P extends ChannelBindingProvi
             }
         }
 
-        // Check on channels for which we have to process data
-        synchronized (selector) {
+    }
+
+    /**
+     * Waits for network events and processes them until the binding is deactivated. Inbound data and queued writes
+     * are therefore handled as soon as they are available instead of on the next refresh.
+     */
+    private void runSelectorLoop() {
+        while (selectorRunning) {
             try {
-                // Wait for an event
-                selector.selectNow();
+                // threads that register a channel hold the guard, wait until they are done
+                synchronized (selectorGuard) {
+                }
+
+                updateWriteInterest();
+                selector.select();
+
+                if (selectorRunning) {
+                    processSelectedKeys();
+                }
+            } catch (ClosedSelectorException e) {
+                break;
             } catch (IOException e) {
                 logger.error("An exception occurred while Selecting ({})", e.getMessage());
+            } catch (RuntimeException e) {
+                logger.error("An exception occurred while processing the network events", e);
             }
         }
+        logger.debug("The selector loop has stopped");
+    }
 
-        // Get list of selection keys with pending events
-        Iterator<SelectionKey> it = selector.selectedKeys().iterator();
+    /**
+     * Shares a newly connected channel and schedules its configuration and reconnect jobs
+     */
+    private void channelConnected(SelectionKey selKey, SocketChannel theSocketChannel, Channel theChannel) {
+        InetSocketAddress remote = null;
+        try {
+            remote = (InetSocketAddress) theSocketChannel.getRemoteAddress();
+        } catch (IOException e) {
+            logger.error("An exception occurred while getting the remote address of channel {} ({})", theSocketChannel,
+                    e.getMessage());
+        }
 
-        // Process each key at a time
-        while (it.hasNext()) {
-            SelectionKey selKey = it.next();
-            it.remove();
+        logger.info("The channel for {} is now connected", remote);
 
-            if (selKey.isValid()) {
-                if (selKey == listenerKey) {
-                    if (selKey.isAcceptable()) {
+        if (itemShareChannels) {
+            channels.replace(theChannel.item, theChannel.direction, remote, theChannel.channel);
+        }
 
-                        try {
-                            SocketChannel newChannel = listenerChannel.accept();
-                            logger.info("Received connection request from {}", newChannel.getRemoteAddress());
+        if (bindingShareChannels) {
+            channels.replace(theChannel.direction, remote, theChannel.channel);
+        }
 
-                            Channel firstChannel = channels.getFirstNotServed(Direction.IN,
-                                    (InetSocketAddress) newChannel.getRemoteAddress());
+        if (directionsShareChannels) {
+            channels.replace(remote, theChannel.channel);
+        }
 
-                            if (firstChannel != null) {
+        Scheduler scheduler = null;
+        try {
+            scheduler = StdSchedulerFactory.getDefaultScheduler();
+        } catch (SchedulerException e1) {
+            logger.error("An exception occurred while getting the Quartz scheduler: {}", e1.getMessage());
+        }
 
-                                if (firstChannel.direction == Direction.IN) {
+        JobDataMap map = new JobDataMap();
+        map.put("Channel", theChannel);
+        map.put("Binding", this);
 
-                                    if (useAddressMask
-                                            && (firstChannel.host.equals("*") || firstChannel.port.equals("*"))) {
-                                        logger.info(
-                                                "{}:{} is an allowed masked remote end. The channel will now be configured",
-                                                firstChannel.host, firstChannel.port);
-                                    } else {
-                                        logger.info("{} is an allowed remote end. The channel will now be configured",
-                                                firstChannel.remote);
-                                    }
+        JobDetail job = newJob(ConfigureJob.class)
+                .withIdentity(Integer.toHexString(hashCode()) + "-Configure-" + Long.toString(System.currentTimeMillis()),
+                        this.toString())
+                .usingJobData(map).build();
 
-                                    if (firstChannel.channel == null || !firstChannel.channel.isOpen()) {
+        Trigger trigger = newTrigger()
+                .withIdentity(Integer.toHexString(hashCode()) + "-Configure-" + Long.toString(System.currentTimeMillis()),
+                        this.toString())
+                .startNow().build();
 
-                                        firstChannel.channel = newChannel;
-                                        firstChannel.isBlocking = false;
-                                        firstChannel.buffer = null;
+        try {
+            if (job != null && trigger != null && selKey != listenerKey) {
+                scheduler.scheduleJob(job, trigger);
+            }
+        } catch (SchedulerException e) {
+            logger.error("An exception occurred while scheduling a job with the Quartz Scheduler {}", e.getMessage());
+        }
 
-                                        if (itemShareChannels) {
-                                            channels.replace(firstChannel.item, firstChannel.direction,
-                                                    (InetSocketAddress) newChannel.getRemoteAddress(),
-                                                    firstChannel.channel);
-                                        }
+        job = newJob(ReconnectJob.class)
+                .withIdentity(Integer.toHexString(hashCode()) + "-Reconnect-" + Long.toString(System.currentTimeMillis()),
+                        this.toString())
+                .usingJobData(map).build();
 
-                                        if (bindingShareChannels) {
-                                            channels.replace(firstChannel.direction,
-                                                    (InetSocketAddress) newChannel.getRemoteAddress(),
-                                                    firstChannel.channel);
-                                        }
+        trigger = newTrigger()
+                .withIdentity(Integer.toHexString(hashCode()) + "-Reconnect-" + Long.toString(System.currentTimeMillis()),
+                        this.toString())
+                .withSchedule(cronSchedule(reconnectCron)).build();
 
-                                        if (directionsShareChannels) {
-                                            channels.replace((InetSocketAddress) newChannel.getRemoteAddress(),
-                                                    firstChannel.channel);
-                                        }
+        try {
+            if (job != null && trigger != null && selKey != listenerKey) {
+                scheduler.scheduleJob(job, trigger);
+            }
+        } catch (SchedulerException e) {
+            logger.error("An exception occurred while scheduling a job with the Quartz Scheduler {}", e.getMessage());
+        }
+    }
 
-                                        try {
-                                            newChannel.configureBlocking(false);
-                                            // setKeepAlive(true);
-                                        } catch (IOException e) {
-                                            logger.error("An exception occurred while configuring a channel: {}",
-                                                    e.getMessage());
-                                        }
+    /**
+     * Connects a non-blocking channel and registers it with the selector. The channel is selected for OP_CONNECT
+     * only after the connection has been initiated, an unconnected socket would be reported as connectable right
+     * away. A connection to a local address may be established immediately, in which case the selector never reports
+     * the channel as connectable, so it is selected for reads right away.
+     */
+    private void connect(SocketChannel theSocketChannel, InetSocketAddress remote) throws IOException {
+        boolean connected;
+        SelectionKey key;
+        synchronized (selectorGuard) {
+            selector.wakeup();
+            connected = theSocketChannel.connect(remote);
+            // read and write interest is added once the channel is connected
+            int interestSet = connected ? SelectionKey.OP_READ : SelectionKey.OP_CONNECT;
+            key = theSocketChannel.keyFor(selector);
+            if (key != null && key.isValid()) {
+                key.interestOps(interestSet);
+            } else {
+                key = theSocketChannel.register(selector, interestSet);
+            }
+        }
+        if (connected) {
+            channels.setAllReconnecting(theSocketChannel, false);
+            channelConnected(key, theSocketChannel, channels.get(theSocketChannel));
+        }
+    }
 
-                                        synchronized (selector) {
-                                            selector.wakeup();
-                                            try {
-                                                newChannel.register(selector, newChannel.validOps());
-                                            } catch (ClosedChannelException e1) {
-                                                logger.error("An exception occurred while registering a selector: {}",
-                                                        e1.getMessage());
-                                            }
-                                        }
+    /**
+     * Adds the write interest to the keys of all connected channels that have data queued and are not waiting for
+     * the response to a blocking write. Must only be called from the selector thread.
+     */
+    private void updateWriteInterest() {
+        for (Map.Entry<Channel, Queue<WriteBufferElement>> entry : writeQueues.entrySet()) {
+            if (entry.getValue().isEmpty()) {
+                continue;
+            }
+            SocketChannel theSocketChannel = entry.getKey().channel;
+            if (theSocketChannel == null || !theSocketChannel.isConnected()
+                    || channels.isBlocking(theSocketChannel)) {
+                continue;
+            }
+            SelectionKey key = theSocketChannel.keyFor(selector);
+            try {
+                if (key != null && key.isValid()) {
+                    key.interestOps(key.interestOps() | SelectionKey.OP_WRITE);
+                }
+            } catch (CancelledKeyException e) {
+                // the channel has been closed in the meantime
+            }
+        }
+    }
 
-                                        Scheduler scheduler = null;
-                                        try {
-                                            scheduler = StdSchedulerFactory.getDefaultScheduler();
-                                        } catch (SchedulerException e1) {
-                                            logger.error("An exception occurred while getting the Quartz scheduler: {}",
-                                                    e1.getMessage());
-                                        }
+    /**
+     * Returns the buffer to read into. The buffer is reused for every read, so the data has to be copied with
+     * {@link #copyReceivedData(ByteBuffer)} before it is handed on. Must only be called from the selector thread.
+     */
+    private ByteBuffer getReceiveBuffer() {
+        if (receiveBuffer == null || receiveBuffer.capacity() != maximumBufferSize) {
+            receiveBuffer = ByteBuffer.allocateDirect(maximumBufferSize);
+        }
+        receiveBuffer.clear();
+        return receiveBuffer;
+    }
 
-                                        JobDataMap map = new JobDataMap();
-                                        map.put("Channel", firstChannel);
-                                        map.put("Binding", this);
-
-                                        JobDetail job = newJob(ConfigureJob.class)
-                                                .withIdentity(
-                                                        Integer.toHexString(hashCode()) + "-Configure-"
-                                                                + Long.toString(System.currentTimeMillis()),
-                                                        this.toString())
-                                                .usingJobData(map).build();
-
-                                        Trigger trigger = newTrigger()
-                                                .withIdentity(
-                                                        Integer.toHexString(hashCode()) + "-Configure-"
-                                                                + Long.toString(System.currentTimeMillis()),
-                                                        this.toString())
-                                                .startNow().build();
-
-                                        try {
-                                            if (job != null && trigger != null && selKey != listenerKey) {
-                                                scheduler.scheduleJob(job, trigger);
-                                            }
-                                        } catch (SchedulerException e) {
-                                            logger.error(
-                                                    "An exception occurred while scheduling a job with the Quartz Scheduler {}",
-                                                    e.getMessage());
-                                        }
+    /**
+     * Copies the data of a flipped buffer into a heap buffer of exactly that size
+     */
+    private static ByteBuffer copyReceivedData(ByteBuffer buffer) {
+        byte[] data = new byte[buffer.remaining()];
+        buffer.get(data);
+        return ByteBuffer.wrap(data);
+    }
 
-                                    } else {
-                                        logger.info(
-                                                "We previously already accepted a connection from the remote end {} for this channel. Goodbye",
-                                                firstChannel.remote);
-                                        newChannel.close();
-                                    }
-                                } else {
-                                    logger.info(
-                                            "Disconnecting the remote end {} that tries to connect an outbound only port",
-                                            newChannel.getRemoteAddress());
-                                    newChannel.close();
-                                }
-                            } else {
-                                logger.info("Disconnecting the unallowed remote end {}", newChannel.getRemoteAddress());
-                                newChannel.close();
-                            }
+    /**
+     * Processes the keys selected by the last select operation
+     */
+    private void processSelectedKeys() {
 
-                        } catch (IOException e) {
-                            logger.error("An exception occurred while configuring a channel: {}", e.getMessage());
-                        }
-                    }
-                } else {
+        // Get list of selection keys with pending events
+        Iterator<SelectionKey> it = selector.selectedKeys().iterator();
 
-                    SocketChannel theSocketChannel = (SocketChannel) selKey.channel();
-                    Channel theChannel = channels.get(theSocketChannel);
+        // Process each key at a time
+        while (it.hasNext()) {
+            SelectionKey selKey = it.next();
+            it.remove();
 
-                    if (selKey.isConnectable()) {
-                        channels.setAllReconnecting(theSocketChannel, false);
+            if (!selKey.isValid()) {
+                continue;
+            }
 
-                        boolean result = false;
-                        boolean error = false;
-                        try {
-                            result = theSocketChannel.finishConnect();
-                        } catch (NoConnectionPendingException e) {
-                            // this channel is not connected and a connection operation
-                            // has not been initiated
-                            logger.warn("The channel {} has no connection pending ({})", theSocketChannel,
-                                    e.getMessage());
-                            error = true;
-                        } catch (ClosedChannelException e) {
-                            // If some other I/O error occurs
-                            logger.warn("The channel {} is closed ({})", theSocketChannel, e.getMessage());
-                            error = true;
-                        } catch (IOException e) {
-                            // If some other I/O error occurs
-                            logger.warn("The channel {} has encountered an unknown IO Exception: {}", theSocketChannel,
-                                    e.getMessage());
-                            error = true;
-                        }
+            try {
+                processSelectedKey(selKey);
+            } catch (CancelledKeyException e) {
+                logger.debug("The key {} has been cancelled while processing it", selKey);
+            }
+        }
+    }
 
-                        if (error) {
+    private void processSelectedKey(SelectionKey selKey) {
+        if (selKey == listenerKey) {
+            if (selKey.isAcceptable()) {
 
-                            Scheduler scheduler = null;
-                            try {
-                                scheduler = StdSchedulerFactory.getDefaultScheduler();
-                            } catch (SchedulerException e1) {
-                                logger.error("An exception occurred while getting the Quartz scheduler: {}",
-                                        e1.getMessage());
-                            }
+                try {
+                    SocketChannel newChannel = listenerChannel.accept();
+                    logger.info("Received connection request from {}", newChannel.getRemoteAddress());
 
-                            JobDataMap map = new JobDataMap();
-                            map.put("Channel", theChannel);
-                            map.put("Binding", this);
+                    Channel firstChannel = channels.getFirstNotServed(Direction.IN,
+                            (InetSocketAddress) newChannel.getRemoteAddress());
 
-                            JobDetail job = newJob(ReconnectJob.class)
-                                    .withIdentity(Integer.toHexString(hashCode()) + "-Reconnect-"
-                                            + Long.toString(System.currentTimeMillis()), this.toString())
-                                    .usingJobData(map).build();
+                    if (firstChannel != null) {
 
-                            Trigger trigger = newTrigger()
-                                    .withIdentity(Integer.toHexString(hashCode()) + "-Reconnect-"
-                                            + Long.toString(System.currentTimeMillis()), this.toString())
-                                    .startAt(futureDate(reconnectInterval, IntervalUnit.SECOND)).build();
+                        if (firstChannel.direction == Direction.IN) {
 
-                            try {
-                                if (job != null && trigger != null && selKey != listenerKey) {
-                                    if (!theChannel.isReconnecting) {
-                                        channels.setAllReconnecting(theSocketChannel, true);
-                                        scheduler.scheduleJob(job, trigger);
-                                    }
-                                }
-                            } catch (SchedulerException e) {
-                                logger.error(
-                                        "An exception occurred while scheduling a job with the Quartz Scheduler {}",
-                                        e.getMessage());
+                            if (useAddressMask
+                                    && (firstChannel.host.equals("*") || firstChannel.port.equals("*"))) {
+                                logger.info(
+                                        "{}:{} is an allowed masked remote end. The channel will now be configured",
+                                        firstChannel.host, firstChannel.port);
+                            } else {
+                                logger.info("{} is an allowed remote end. The channel will now be configured",
+                                        firstChannel.remote);
                             }
 
-                        } else {
-                            if (result) {
-                                InetSocketAddress remote = null;
-                                try {
-                                    remote = (InetSocketAddress) theSocketChannel.getRemoteAddress();
-                                } catch (IOException e) {
-                                    logger.error(
-                                            "An exception occurred while getting the remote address of channel {} ({})",
-                                            theSocketChannel, e.getMessage());
-                                }
+                            if (firstChannel.channel == null || !firstChannel.channel.isOpen()) {
 
-                                logger.info("The channel for {} is now connected", remote);
+                                channels.setChannel(firstChannel, newChannel);
+                                firstChannel.isBlocking = false;
+                                firstChannel.buffer = null;
 
                                 if (itemShareChannels) {
-                                    channels.replace(theChannel.item, theChannel.direction, remote, theChannel.channel);
+                                    channels.replace(firstChannel.item, firstChannel.direction,
+                                            (InetSocketAddress) newChannel.getRemoteAddress(),
+                                            firstChannel.channel);
                                 }
 
                                 if (bindingShareChannels) {
-                                    channels.replace(theChannel.direction, remote, theChannel.channel);
+                                    channels.replace(firstChannel.direction,
+                                            (InetSocketAddress) newChannel.getRemoteAddress(),
+                                            firstChannel.channel);
                                 }
 
                                 if (directionsShareChannels) {
-                                    channels.replace(remote, theChannel.channel);
+                                    channels.replace((InetSocketAddress) newChannel.getRemoteAddress(),
+                                            firstChannel.channel);
+                                }
+
+                                try {
+                                    newChannel.configureBlocking(false);
+                                    // setKeepAlive(true);
+                                } catch (IOException e) {
+                                    logger.error("An exception occurred while configuring a channel: {}",
+                                            e.getMessage());
+                                }
+
+                                synchronized (selectorGuard) {
+                                    selector.wakeup();
+                                    try {
+                                        newChannel.register(selector, SelectionKey.OP_READ);
+                                    } catch (ClosedChannelException e1) {
+                                        logger.error("An exception occurred while registering a selector: {}",
+                                                e1.getMessage());
+                                    }
                                 }
 
                                 Scheduler scheduler = null;
@@ -1617,17 +1648,21 @@ public abstract class AbstractSocketChannelBinding<P extends ChannelBindingProvi
                                 }
 
                                 JobDataMap map = new JobDataMap();
-                                map.put("Channel", theChannel);
+                                map.put("Channel", firstChannel);
                                 map.put("Binding", this);
 
                                 JobDetail job = newJob(ConfigureJob.class)
-                                        .withIdentity(Integer.toHexString(hashCode()) + "-Configure-"
-                                                + Long.toString(System.currentTimeMillis()), this.toString())
+                                        .withIdentity(
+                                                Integer.toHexString(hashCode()) + "-Configure-"
+                                                        + Long.toString(System.currentTimeMillis()),
+                                                this.toString())
                                         .usingJobData(map).build();
 
                                 Trigger trigger = newTrigger()
-                                        .withIdentity(Integer.toHexString(hashCode()) + "-Configure-"
-                                                + Long.toString(System.currentTimeMillis()), this.toString())
+                                        .withIdentity(
+                                                Integer.toHexString(hashCode()) + "-Configure-"
+                                                        + Long.toString(System.currentTimeMillis()),
+                                                this.toString())
                                         .startNow().build();
 
                                 try {
@@ -1640,46 +1675,271 @@ public abstract class AbstractSocketChannelBinding<P extends ChannelBindingProvi
                                             e.getMessage());
                                 }
 
-                                job = newJob(ReconnectJob.class)
-                                        .withIdentity(Integer.toHexString(hashCode()) + "-Reconnect-"
-                                                + Long.toString(System.currentTimeMillis()), this.toString())
-                                        .usingJobData(map).build();
+                            } else {
+                                logger.info(
+                                        "We previously already accepted a connection from the remote end {} for this channel. Goodbye",
+                                        firstChannel.remote);
+                                newChannel.close();
+                            }
+                        } else {
+                            logger.info(
+                                    "Disconnecting the remote end {} that tries to connect an outbound only port",
+                                    newChannel.getRemoteAddress());
+                            newChannel.close();
+                        }
+                    } else {
+                        logger.info("Disconnecting the unallowed remote end {}", newChannel.getRemoteAddress());
+                        newChannel.close();
+                    }
 
-                                trigger = newTrigger()
-                                        .withIdentity(Integer.toHexString(hashCode()) + "-Reconnect-"
-                                                + Long.toString(System.currentTimeMillis()), this.toString())
-                                        .withSchedule(cronSchedule(reconnectCron)).build();
+                } catch (IOException e) {
+                    logger.error("An exception occurred while configuring a channel: {}", e.getMessage());
+                }
+            }
+        } else {
 
-                                try {
-                                    if (job != null && trigger != null && selKey != listenerKey) {
-                                        scheduler.scheduleJob(job, trigger);
-                                    }
-                                } catch (SchedulerException e) {
-                                    logger.error(
-                                            "An exception occurred while scheduling a job with the Quartz Scheduler {}",
-                                            e.getMessage());
+            SocketChannel theSocketChannel = (SocketChannel) selKey.channel();
+            Channel theChannel = channels.get(theSocketChannel);
+
+            if (selKey.isConnectable()) {
+                channels.setAllReconnecting(theSocketChannel, false);
+
+                boolean result = false;
+                boolean error = false;
+                try {
+                    result = theSocketChannel.finishConnect();
+                } catch (NoConnectionPendingException e) {
+                    // this channel is not connected and a connection operation
+                    // has not been initiated
+                    logger.warn("The channel {} has no connection pending ({})", theSocketChannel,
+                            e.getMessage());
+                    error = true;
+                } catch (ClosedChannelException e) {
+                    // If some other I/O error occurs
+                    logger.warn("The channel {} is closed ({})", theSocketChannel, e.getMessage());
+                    error = true;
+                } catch (IOException e) {
+                    // If some other I/O error occurs
+                    logger.warn("The channel {} has encountered an unknown IO Exception: {}", theSocketChannel,
+                            e.getMessage());
+                    error = true;
+                }
+
+                if (error) {
+                    // stop selecting the failed channel, the reconnect job registers a new one
+                    selKey.cancel();
+
+                    Scheduler scheduler = null;
+                    try {
+                        scheduler = StdSchedulerFactory.getDefaultScheduler();
+                    } catch (SchedulerException e1) {
+                        logger.error("An exception occurred while getting the Quartz scheduler: {}",
+                                e1.getMessage());
+                    }
+
+                    JobDataMap map = new JobDataMap();
+                    map.put("Channel", theChannel);
+                    map.put("Binding", this);
+
+                    JobDetail job = newJob(ReconnectJob.class)
+                            .withIdentity(Integer.toHexString(hashCode()) + "-Reconnect-"
+                                    + Long.toString(System.currentTimeMillis()), this.toString())
+                            .usingJobData(map).build();
+
+                    Trigger trigger = newTrigger()
+                            .withIdentity(Integer.toHexString(hashCode()) + "-Reconnect-"
+                                    + Long.toString(System.currentTimeMillis()), this.toString())
+                            .startAt(futureDate(reconnectInterval, IntervalUnit.SECOND)).build();
+
+                    try {
+                        if (job != null && trigger != null && selKey != listenerKey) {
+                            if (!theChannel.isReconnecting) {
+                                channels.setAllReconnecting(theSocketChannel, true);
+                                scheduler.scheduleJob(job, trigger);
+                            }
+                        }
+                    } catch (SchedulerException e) {
+                        logger.error(
+                                "An exception occurred while scheduling a job with the Quartz Scheduler {}",
+                                e.getMessage());
+                    }
+
+                } else {
+                    if (result) {
+                        // writes are selected by updateWriteInterest() as soon as data is queued
+                        selKey.interestOps(SelectionKey.OP_READ);
+                        channelConnected(selKey, theSocketChannel, theChannel);
+                    }
+                }
+
+            } else if (selKey.isReadable()) {
+
+                ByteBuffer readBuffer = getReceiveBuffer();
+                int numberBytesRead = 0;
+                boolean error = false;
+
+                try {
+                    // TODO: Additional code to split readBuffer in multiple parts, in case the data send by the
+                    // remote end is not correctly fragemented. Could be handed of to implementation class if
+                    // for example, the buffer needs to be split based on a special character like line feed or
+                    // carriage return
+                    numberBytesRead = theSocketChannel.read(readBuffer);
+                } catch (NotYetConnectedException e) {
+                    logger.warn("The channel for {} has no connection pending ({})", theChannel.remote,
+                            e.getMessage());
+                    if (!theSocketChannel.isConnectionPending()) {
+                        error = true;
+                    }
+                } catch (IOException e) {
+                    // If some other I/O error occurs
+                    logger.warn("The channel for {} has encountered an unknown IO Exception: {}",
+                            theChannel.remote, e.getMessage());
+                    error = true;
+                }
+
+                if (numberBytesRead == -1) {
+                    try {
+                        theSocketChannel.close();
+                    } catch (IOException e) {
+                        logger.warn("The channel for {} is closed ({})", theChannel.remote, e.getMessage());
+                    }
+                    error = true;
+                }
+
+                if (error) {
+                    // stop selecting the failed channel
+                    selKey.cancel();
+
+                    if (theChannel.direction == Direction.OUT) {
+
+                        Scheduler scheduler = null;
+                        try {
+                            scheduler = StdSchedulerFactory.getDefaultScheduler();
+                        } catch (SchedulerException e1) {
+                            logger.error("An exception occurred while getting the Quartz scheduler: {}",
+                                    e1.getMessage());
+                        }
+
+                        JobDataMap map = new JobDataMap();
+                        map.put("Channel", theChannel);
+                        map.put("Binding", this);
+
+                        JobDetail job = newJob(ReconnectJob.class).withIdentity(
+                                Integer.toHexString(hashCode()) + "-Reconnect-"
+                                        + Long.toString(System.currentTimeMillis()),
+                                "AbstractSocketChannelBinding").usingJobData(map).build();
+
+                        Trigger trigger = newTrigger()
+                                .withIdentity(
+                                        Integer.toHexString(hashCode()) + "-Reconnect-"
+                                                + Long.toString(System.currentTimeMillis()),
+                                        "AbstractSocketChannelBinding")
+                                .startAt(futureDate(reconnectInterval, IntervalUnit.SECOND)).build();
+
+                        try {
+                            if (job != null && trigger != null && selKey != listenerKey) {
+                                if (!theChannel.isReconnecting) {
+                                    channels.setAllReconnecting(theSocketChannel, true);
+                                    scheduler.scheduleJob(job, trigger);
                                 }
                             }
+                        } catch (SchedulerException e) {
+                            logger.error(
+                                    "An exception occurred while scheduling a job with the Quartz Scheduler {}",
+                                    e.getMessage());
+                        }
+
+                    } else {
+                        channels.setChannel(theChannel, null);
+                    }
+                } else {
+
+                    ArrayList<Channel> channelsToServe = new ArrayList<Channel>();
+
+                    channelsToServe = channels.getAll(theSocketChannel);
+
+                    if (channelsToServe.size() > 0) {
+
+                        readBuffer.flip();
+                        readBuffer = copyReceivedData(readBuffer);
+
+                        boolean isBlocking = channels.isBlocking(theSocketChannel);
+
+                        if (isBlocking) {
+                            // if we are in a blocking operation, we get are now finished and we have to reset
+                            // the flag. The read buffer will be returned to the instance
+                            // that initiated the write opreation - it has to parse the buffer itself
+
+                            theChannel = channels.getBlocking(theSocketChannel);
+                            synchronized (theChannel) {
+                                theChannel.buffer = readBuffer;
+                                theChannel.isBlocking = false;
+                                theChannel.notifyAll();
+                            }
+
+                        } else {
+                            for (Channel aChannel : channelsToServe) {
+                                // if not, then we parse the buffer as ususal
+                                parseChanneledBuffer(aChannel, readBuffer);
+                            }
                         }
+                    } else {
+                        try {
+                            logger.warn(
+                                    "No channel is active or defined for the data we received from {}. It will be discarded.",
+                                    theSocketChannel.getRemoteAddress());
+                        } catch (IOException e) {
+                            logger.error(
+                                    "An exception occurred while getting the remote address of the channel {} ({})",
+                                    theSocketChannel, e.getMessage());
+                        }
+                    }
+                }
+
+            } else if (selKey.isWritable()) {
+
+                boolean isBlocking = channels.isBlocking(theSocketChannel);
 
-                    } else if (selKey.isReadable()) {
+                if (isBlocking) {
+                    // if this channel is already flagged as being in a blocked write/read operation, we skip
+                    // this selKey until the response has been read
+                    selKey.interestOps(selKey.interestOps() & ~SelectionKey.OP_WRITE);
+                } else {
+
+                    // pick up a QueueElement for this channel, if any
+                    WriteBufferElement theElement = nextWrite(theSocketChannel);
+
+                    if (theElement == null) {
+                        // nothing left to write for this channel
+                        selKey.interestOps(selKey.interestOps() & ~SelectionKey.OP_WRITE);
+                    }
+
+                    if (theElement != null && theElement.buffer != null) {
+
+                        logger.debug("Picked {} from the queue", theElement);
 
-                        ByteBuffer readBuffer = ByteBuffer.allocate(maximumBufferSize);
-                        int numberBytesRead = 0;
                         boolean error = false;
 
+                        if (!theElement.isStarted) {
+                            theElement.buffer.rewind();
+                            theElement.isStarted = true;
+                        }
                         try {
-                            // TODO: Additional code to split readBuffer in multiple parts, in case the data send by the
-                            // remote end is not correctly fragemented. Could be handed of to implementation class if
-                            // for example, the buffer needs to be split based on a special character like line feed or
-                            // carriage return
-                            numberBytesRead = theSocketChannel.read(readBuffer);
+                            logger.debug("Sending {} for the outbound channel {}->{}",
+                                    new Object[] { new String(theElement.buffer.array()),
+                                            theElement.channel.channel.getLocalAddress(),
+                                            theElement.channel.channel.getRemoteAddress() });
+                            theSocketChannel.write(theElement.buffer);
                         } catch (NotYetConnectedException e) {
                             logger.warn("The channel for {} has no connection pending ({})", theChannel.remote,
                                     e.getMessage());
                             if (!theSocketChannel.isConnectionPending()) {
                                 error = true;
                             }
+                        } catch (ClosedChannelException e) {
+                            // If some other I/O error occurs
+                            logger.warn("The channel for {} is closed ({})", theChannel.remote, e.getMessage());
+                            error = true;
                         } catch (IOException e) {
                             // If some other I/O error occurs
                             logger.warn("The channel for {} has encountered an unknown IO Exception: {}",
@@ -1687,17 +1947,14 @@ public abstract class AbstractSocketChannelBinding<P extends ChannelBindingProvi
                             error = true;
                         }
 
-                        if (numberBytesRead == -1) {
-                            try {
-                                theSocketChannel.close();
-                            } catch (IOException e) {
-                                logger.warn("The channel for {} is closed ({})", theChannel.remote, e.getMessage());
-                            }
-                            error = true;
-                        }
-
                         if (error) {
-                            if (theChannel.direction == Direction.OUT) {
+                            // the whole buffer is written again once the channel has been reconnected
+                            theElement.isStarted = false;
+
+                            // stop selecting the failed channel
+                            selKey.cancel();
+
+                            if (theElement.channel.direction == Direction.OUT) {
 
                                 Scheduler scheduler = null;
                                 try {
@@ -1708,7 +1965,7 @@ public abstract class AbstractSocketChannelBinding<P extends ChannelBindingProvi
                                 }
 
                                 JobDataMap map = new JobDataMap();
-                                map.put("Channel", theChannel);
+                                map.put("Channel", theElement.channel);
                                 map.put("Binding", this);
 
                                 JobDetail job = newJob(ReconnectJob.class).withIdentity(
@@ -1725,7 +1982,7 @@ public abstract class AbstractSocketChannelBinding<P extends ChannelBindingProvi
 
                                 try {
                                     if (job != null && trigger != null && selKey != listenerKey) {
-                                        if (!theChannel.isReconnecting) {
+                                        if (!theElement.channel.isReconnecting) {
                                             channels.setAllReconnecting(theSocketChannel, true);
                                             scheduler.scheduleJob(job, trigger);
                                         }
@@ -1737,155 +1994,18 @@ public abstract class AbstractSocketChannelBinding<P extends ChannelBindingProvi
                                 }
 
                             } else {
-                                theChannel.channel = null;
-                            }
-                        } else {
-
-                            ArrayList<Channel> channelsToServe = new ArrayList<Channel>();
-
-                            channelsToServe = channels.getAll(theSocketChannel);
-
-                            if (channelsToServe.size() > 0) {
-
-                                readBuffer.flip();
-
-                                boolean isBlocking = channels.isBlocking(theSocketChannel);
-
-                                if (isBlocking) {
-                                    // if we are in a blocking operation, we get are now finished and we have to reset
-                                    // the flag. The read buffer will be returned to the instance
-                                    // that initiated the write opreation - it has to parse the buffer itself
-
-                                    theChannel = channels.getBlocking(theSocketChannel);
-                                    theChannel.buffer = readBuffer;
-                                    theChannel.isBlocking = false;
-
-                                } else {
-                                    for (Channel aChannel : channelsToServe) {
-                                        // if not, then we parse the buffer as ususal
-                                        parseChanneledBuffer(aChannel, readBuffer);
-                                    }
-                                }
-                            } else {
-                                try {
-                                    logger.warn(
-                                            "No channel is active or defined for the data we received from {}. It will be discarded.",
-                                            theSocketChannel.getRemoteAddress());
-                                } catch (IOException e) {
-                                    logger.error(
-                                            "An exception occurred while getting the remote address of the channel {} ({})",
-                                            theSocketChannel, e.getMessage());
-                                }
+                                channels.setChannel(theElement.channel, null);
                             }
-                        }
-
-                    } else if (selKey.isWritable()) {
-
-                        boolean isBlocking = channels.isBlocking(theSocketChannel);
-
-                        if (isBlocking) {
-                            // if this channel is already flagged as being in a blocked write/read operation, we skip
-                            // this selKey
+                        } else if (theElement.buffer.hasRemaining()) {
+                            // the send buffer of the socket is full, the rest is written on the next writable event
+                            logger.trace("Wrote part of {}, {} bytes left", theElement,
+                                    theElement.buffer.remaining());
                         } else {
-
-                            // pick up a QueueElement for this channel, if any
-
-                            WriteBufferElement theElement = null;
-
-                            Iterator<WriteBufferElement> iterator = writeQueue.iterator();
-                            while (iterator.hasNext()) {
-                                WriteBufferElement anElement = iterator.next();
-                                if (anElement.channel.channel.equals(theSocketChannel)) {
-                                    theElement = anElement;
-                                    break;
-                                }
-                            }
-
-                            if (theElement != null && theElement.buffer != null) {
-
-                                logger.debug("Picked {} from the queue", theElement);
-
-                                if (theElement.isBlocking) {
-                                    theElement.channel.isBlocking = true;
-                                }
-
-                                boolean error = false;
-
-                                theElement.buffer.rewind();
-                                try {
-                                    logger.debug("Sending {} for the outbound channel {}->{}",
-                                            new Object[] { new String(theElement.buffer.array()),
-                                                    theElement.channel.channel.getLocalAddress(),
-                                                    theElement.channel.channel.getRemoteAddress() });
-                                    theSocketChannel.write(theElement.buffer);
-                                } catch (NotYetConnectedException e) {
-                                    logger.warn("The channel for {} has no connection pending ({})", theChannel.remote,
-                                            e.getMessage());
-                                    if (!theSocketChannel.isConnectionPending()) {
-                                        error = true;
-                                    }
-                                } catch (ClosedChannelException e) {
-                                    // If some other I/O error occurs
-                                    logger.warn("The channel for {} is closed ({})", theChannel.remote, e.getMessage());
-                                    error = true;
-                                } catch (IOException e) {
-                                    // If some other I/O error occurs
-                                    logger.warn("The channel for {} has encountered an unknown IO Exception: {}",
-                                            theChannel.remote, e.getMessage());
-                                    error = true;
-                                }
-
-                                if (error) {
-
-                                    if (theElement.channel.direction == Direction.OUT) {
-
-                                        Scheduler scheduler = null;
-                                        try {
-                                            scheduler = StdSchedulerFactory.getDefaultScheduler();
-                                        } catch (SchedulerException e1) {
-                                            logger.error("An exception occurred while getting the Quartz scheduler: {}",
-                                                    e1.getMessage());
-                                        }
-
-                                        JobDataMap map = new JobDataMap();
-                                        map.put("Channel", theElement.channel);
-                                        map.put("Binding", this);
-
-                                        JobDetail job = newJob(ReconnectJob.class).withIdentity(
-                                                Integer.toHexString(hashCode()) + "-Reconnect-"
-                                                        + Long.toString(System.currentTimeMillis()),
-                                                "AbstractSocketChannelBinding").usingJobData(map).build();
-
-                                        Trigger trigger = newTrigger()
-                                                .withIdentity(
-                                                        Integer.toHexString(hashCode()) + "-Reconnect-"
-                                                                + Long.toString(System.currentTimeMillis()),
-                                                        "AbstractSocketChannelBinding")
-                                                .startAt(futureDate(reconnectInterval, IntervalUnit.SECOND)).build();
-
-                                        try {
-                                            if (job != null && trigger != null && selKey != listenerKey) {
-                                                if (!theElement.channel.isReconnecting) {
-                                                    channels.setAllReconnecting(theSocketChannel, true);
-                                                    scheduler.scheduleJob(job, trigger);
-                                                }
-                                            }
-                                        } catch (SchedulerException e) {
-                                            logger.error(
-                                                    "An exception occurred while scheduling a job with the Quartz Scheduler {}",
-                                                    e.getMessage());
-                                        }
-
-                                    } else {
-                                        theElement.channel.channel = null;
-                                    }
-                                } else {
-                                    if (theElement != null) {
-                                        writeQueue.remove(theElement);
-                                    }
-
-                                }
+                            if (theElement.isBlocking) {
+                                // the response is read before the next element of this channel is written
+                                theElement.channel.isBlocking = true;
                             }
+                            writeQueues.get(theElement.channel).remove(theElement);
                         }
                     }
                 }
@@ -0,0 +1,233 @@
+/**
+ * Copyright (c) 2010-2016 by the respective copyright holders.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.binding.zwave.internal.protocol;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Test;
+import org.openhab.binding.zwave.internal.protocol.SerialMessage.SerialMessageClass;
+import org.openhab.binding.zwave.internal.protocol.SerialMessage.SerialMessagePriority;
+import org.openhab.binding.zwave.internal.protocol.SerialMessage.SerialMessageType;
+import org.openhab.binding.zwave.internal.protocol.ZWaveTransactionScheduler.TrafficClass;
+
+import junit.framework.Assert;
+
+/**
+ * Tests the order in which the {@link ZWaveTransactionScheduler} hands out messages.
+ *
+ * @author Chris Jackson
+ * @since 1.9.0
+ */
+public class ZWaveTransactionSchedulerTest {
+
+    private ZWaveTransactionScheduler scheduler = new ZWaveTransactionScheduler();
+
+    private Thread taker;
+
+    @After
+    public void tearDown() throws InterruptedException {
+        if (taker != null) {
+            taker.interrupt();
+            taker.join();
+        }
+    }
+
+    @Test
+    public void testTrafficClassesAreServedInOrder() throws InterruptedException {
+        SerialMessage poll = message(2, SerialMessagePriority.Poll, 1);
+        SerialMessage config = message(2, SerialMessagePriority.Config, 2);
+        SerialMessage set = message(2, SerialMessagePriority.Set, 3);
+        scheduler.add(poll, null);
+        scheduler.add(config, null);
+        scheduler.add(set, null);
+
+        Assert.assertEquals(1, scheduler.size(TrafficClass.Poll));
+        Assert.assertEquals(1, scheduler.size(TrafficClass.Initialisation));
+        Assert.assertEquals(1, scheduler.size(TrafficClass.Command));
+        Assert.assertSame(set, scheduler.take());
+        Assert.assertSame(config, scheduler.take());
+        Assert.assertSame(poll, scheduler.take());
+        Assert.assertEquals(0, scheduler.size());
+    }
+
+    @Test
+    public void testSleepingNodeIsServedFirst() throws InterruptedException {
+        ZWaveNode sleepingNode = new ZWaveNode(0, 3, null);
+        sleepingNode.setListening(false);
+        sleepingNode.setFrequentlyListening(false);
+        SerialMessage command = message(2, SerialMessagePriority.Set, 1);
+        SerialMessage wakeUp = message(3, SerialMessagePriority.Config, 2);
+        scheduler.add(command, null);
+        scheduler.add(wakeUp, sleepingNode);
+
+        Assert.assertEquals(1, scheduler.size(TrafficClass.WakeUp));
+        Assert.assertSame(wakeUp, scheduler.take());
+        Assert.assertSame(command, scheduler.take());
+    }
+
+    @Test
+    public void testCommandGetsThroughWakeUpBurst() throws InterruptedException {
+        ZWaveNode sleepingNode = new ZWaveNode(0, 3, null);
+        sleepingNode.setListening(false);
+        sleepingNode.setFrequentlyListening(false);
+        for (int i = 0; i < 3 * ZWaveTransactionScheduler.MAX_WAKEUP_BURST; i++) {
+            scheduler.add(message(3, SerialMessagePriority.Config, i), sleepingNode);
+        }
+        SerialMessage command = message(2, SerialMessagePriority.Set, 1);
+        SerialMessage secondCommand = message(2, SerialMessagePriority.Set, 2);
+        scheduler.add(command, null);
+        scheduler.add(secondCommand, null);
+
+        for (int i = 0; i < ZWaveTransactionScheduler.MAX_WAKEUP_BURST; i++) {
+            Assert.assertEquals(3, scheduler.take().getMessageNode());
+        }
+        Assert.assertSame(command, scheduler.take());
+        for (int i = 0; i < ZWaveTransactionScheduler.MAX_WAKEUP_BURST; i++) {
+            Assert.assertEquals(3, scheduler.take().getMessageNode());
+        }
+        Assert.assertSame(secondCommand, scheduler.take());
+        // without a pending command the wake-up messages are not held back
+        for (int i = 0; i < ZWaveTransactionScheduler.MAX_WAKEUP_BURST; i++) {
+            Assert.assertEquals(3, scheduler.take().getMessageNode());
+        }
+        Assert.assertEquals(0, scheduler.size());
+    }
+
+    @Test
+    public void testNodesAreServedRoundRobin() throws InterruptedException {
+        SerialMessage first = message(2, SerialMessagePriority.Set, 1);
+        SerialMessage second = message(2, SerialMessagePriority.Set, 2);
+        SerialMessage third = message(2, SerialMessagePriority.Set, 3);
+        SerialMessage other = message(3, SerialMessagePriority.Set, 1);
+        scheduler.add(first, null);
+        scheduler.add(second, null);
+        scheduler.add(third, null);
+        scheduler.add(other, null);
+
+        Assert.assertSame(first, scheduler.take());
+        Assert.assertSame(other, scheduler.take());
+        Assert.assertSame(second, scheduler.take());
+        Assert.assertSame(third, scheduler.take());
+    }
+
+    @Test
+    public void testPriorityOrderWithinNode() throws InterruptedException {
+        SerialMessage get = message(2, SerialMessagePriority.Get, 1);
+        SerialMessage set = message(2, SerialMessagePriority.Set, 2);
+        SerialMessage high = message(2, SerialMessagePriority.High, 3);
+        scheduler.add(get, null);
+        scheduler.add(set, null);
+        scheduler.add(high, null);
+
+        Assert.assertSame(high, scheduler.take());
+        Assert.assertSame(set, scheduler.take());
+        Assert.assertSame(get, scheduler.take());
+    }
+
+    @Test
+    public void testIdenticalGetIsDropped() throws InterruptedException {
+        Assert.assertTrue(scheduler.add(message(2, SerialMessagePriority.Get, 1), null));
+        Assert.assertFalse(scheduler.add(message(2, SerialMessagePriority.Get, 1), null));
+        // the same request to another node is not a duplicate
+        Assert.assertTrue(scheduler.add(message(3, SerialMessagePriority.Get, 1), null));
+
+        Assert.assertEquals(2, scheduler.size());
+        Assert.assertTrue(scheduler.getStatistics(), scheduler.getStatistics().contains("deduplicated=1"));
+    }
+
+    @Test
+    public void testIdenticalGetMovesPollForward() throws InterruptedException {
+        SerialMessage command = message(3, SerialMessagePriority.Set, 1);
+        scheduler.add(message(2, SerialMessagePriority.Poll, 1), null);
+        scheduler.add(command, null);
+        SerialMessage get = message(2, SerialMessagePriority.Get, 1);
+
+        Assert.assertTrue(scheduler.add(get, null));
+        Assert.assertEquals(0, scheduler.size(TrafficClass.Poll));
+        Assert.assertEquals(2, scheduler.size(TrafficClass.Command));
+        // the nodes of a class are still served in turn
+        Assert.assertSame(command, scheduler.take());
+        Assert.assertSame(get, scheduler.take());
+        Assert.assertEquals(0, scheduler.size());
+        // a poll identical to a pending get is dropped
+        scheduler.add(message(2, SerialMessagePriority.Get, 1), null);
+        Assert.assertFalse(scheduler.add(message(2, SerialMessagePriority.Poll, 1), null));
+    }
+
+    @Test
+    public void testPollingBudgetHoldsBackPolls() throws InterruptedException {
+        scheduler.setPollingBudget(1);
+        SerialMessage firstPoll = message(2, SerialMessagePriority.Poll, 1);
+        SerialMessage secondPoll = message(3, SerialMessagePriority.Poll, 1);
+        scheduler.add(firstPoll, null);
+        scheduler.add(secondPoll, null);
+
+        Assert.assertSame(firstPoll, scheduler.take());
+        // the poll transaction uses up the budget of 100ms per 10 seconds
+        Thread.sleep(300);
+        BlockingQueue<SerialMessage> taken = startTaker();
+
+        Assert.assertNull(taken.poll(300, TimeUnit.MILLISECONDS));
+        Assert.assertEquals(1, scheduler.size(TrafficClass.Poll));
+
+        // commands are not held back by the polling budget
+        SerialMessage command = message(4, SerialMessagePriority.Set, 1);
+        scheduler.add(command, null);
+        Assert.assertSame(command, taken.poll(5, TimeUnit.SECONDS));
+
+        scheduler.setPollingBudget(100);
+        Assert.assertSame(secondPoll, taken.poll(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testClearAndStatistics() throws InterruptedException {
+        scheduler.add(message(2, SerialMessagePriority.Set, 1), null);
+        scheduler.add(message(2, SerialMessagePriority.Poll, 2), null);
+        scheduler.take();
+        scheduler.clear();
+
+        Assert.assertEquals(0, scheduler.size());
+        Assert.assertEquals(0, scheduler.size(TrafficClass.Poll));
+        Assert.assertTrue(scheduler.getMaxLatency(TrafficClass.Command) >= scheduler
+                .getAverageLatency(TrafficClass.Command));
+        Assert.assertTrue(scheduler.getStatistics(), scheduler.getStatistics().contains("Command[queued=0, sent=1"));
+        Assert.assertTrue(scheduler.getStatistics(), scheduler.getStatistics().contains("Poll[queued=0, sent=0"));
+    }
+
+    /**
+     * Starts a thread that keeps taking messages from the scheduler.
+     */
+    private BlockingQueue<SerialMessage> startTaker() {
+        final BlockingQueue<SerialMessage> taken = new LinkedBlockingQueue<SerialMessage>();
+        taker = new Thread() {
+            @Override
+            public void run() {
+                try {
+                    while (true) {
+                        taken.add(scheduler.take());
+                    }
+                } catch (InterruptedException e) {
+                    // the test is done
+                }
+            }
+        };
+        taker.start();
+        return taken;
+    }
+
+    private static SerialMessage message(int nodeId, SerialMessagePriority priority, int command) {
+        SerialMessage serialMessage = new SerialMessage(nodeId, SerialMessageClass.SendData,
+                SerialMessageType.Request, SerialMessageClass.SendData, priority);
+        serialMessage.setMessagePayload(new byte[] { (byte) nodeId, 2, 0x25, (byte) command });
+        return serialMessage;
+    }
+}
@@ -54,6 +54,8 @@ public class ZWaveActiveBinding extends AbstractActiveBinding<ZWaveBindingProvid
 
     private int pollingQueue = 1;
 
+    private int pollingBudget = 100;
+
     private static final Logger logger = LoggerFactory.getLogger(ZWaveActiveBinding.class);
     private String port;
     private boolean isSUC = false;
@@ -104,15 +106,18 @@ public class ZWaveActiveBinding extends AbstractActiveBinding<ZWaveBindingProvid
         // If we're not currently in a poll cycle, restart the polling table
         if (pollingIterator == null) {
             pollingIterator = pollingList.iterator();
+            if (zController != null) {
+                logger.debug("Send queue statistics: {}", zController.getSendQueueStatistics());
+            }
         }
 
-        // Loop through the polling list. We only allow a certain number of messages
+        // Loop through the polling list. We only allow a certain number of poll messages
         // into the send queue at a time to avoid congestion within the system.
-        // Basically, we don't want the polling to slow down 'important' stuff.
+        // Polls are sent after all other messages, so they don't slow down 'important' stuff.
         // The queue ensures all nodes get a chance - if we always started at the top
         // then the last items might never get polled.
         while (pollingIterator.hasNext()) {
-            if (zController.getSendQueueLength() >= pollingQueue) {
+            if (zController.getPollingQueueLength() >= pollingQueue) {
                 logger.trace("Polling queue full!");
                 break;
             }
@@ -287,6 +292,7 @@ public class ZWaveActiveBinding extends AbstractActiveBinding<ZWaveBindingProvid
             this.setProperlyConfigured(true);
             this.deactivate();
             this.zController = new ZWaveController(masterController, isSUC, port, timeout, softReset);
+            this.zController.setPollingBudget(pollingBudget);
             this.converterHandler = new ZWaveConverterHandler(this.zController, this.eventPublisher);
             zController.addEventListener(this);
 
@@ -364,6 +370,15 @@ public class ZWaveActiveBinding extends AbstractActiveBinding<ZWaveBindingProvid
                 logger.error("Error parsing 'pollingQueue'. This must be a single number time in milliseconds.");
             }
         }
+        if (StringUtils.isNotBlank((String) config.get("pollingBudget"))) {
+            try {
+                pollingBudget = Integer.parseInt((String) config.get("pollingBudget"));
+                logger.info("Update config, pollingBudget = {}", pollingBudget);
+            } catch (NumberFormatException e) {
+                pollingBudget = 100;
+                logger.error("Error parsing 'pollingBudget'. This must be a percentage between 1 and 100.");
+            }
+        }
         if (StringUtils.isNotBlank((String) config.get("aliveCheckPeriod"))) {
             try {
                 aliveCheckPeriod = Integer.parseInt((String) config.get("aliveCheckPeriod"));
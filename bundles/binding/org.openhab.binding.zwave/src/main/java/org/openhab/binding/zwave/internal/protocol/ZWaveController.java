@@ -87,7 +87,6 @@ public class ZWaveController {
 
     private static final int ZWAVE_RESPONSE_TIMEOUT = 5000; // 5000 ms ZWAVE_RESPONSE TIMEOUT
     private static final int ZWAVE_RECEIVE_TIMEOUT = 1000; // 1000 ms ZWAVE_RECEIVE_TIMEOUT
-    private static final int INITIAL_TX_QUEUE_SIZE = 128;
     private static final int INITIAL_RX_QUEUE_SIZE = 8;
     private static final long WATCHDOG_TIMER_PERIOD = 10000; // 10 seconds watchdog timer
 
@@ -96,9 +95,8 @@ public class ZWaveController {
     private static final int TRANSMIT_OPTION_EXPLORE = 0x20;
 
     private final ConcurrentHashMap<Integer, ZWaveNode> zwaveNodes = new ConcurrentHashMap<Integer, ZWaveNode>();
-    private final ArrayList<ZWaveEventListener> zwaveEventListeners = new ArrayList<ZWaveEventListener>();
-    private final PriorityBlockingQueue<SerialMessage> sendQueue = new PriorityBlockingQueue<SerialMessage>(
-            INITIAL_TX_QUEUE_SIZE, new SerialMessage.SerialMessageComparator(this));
+    private final ZWaveEventListenerRegistry zwaveEventListeners = new ZWaveEventListenerRegistry();
+    private final ZWaveTransactionScheduler sendQueue = new ZWaveTransactionScheduler();
     private final PriorityBlockingQueue<SerialMessage> recvQueue = new PriorityBlockingQueue<SerialMessage>(
             INITIAL_RX_QUEUE_SIZE, new SerialMessage.SerialMessageComparator(this));
     private ZWaveSendThread sendThread;
@@ -374,14 +372,7 @@ public class ZWaveController {
         disconnect();
 
         // clear nodes collection and send queue
-        ArrayList<ZWaveEventListener> copy = new ArrayList<ZWaveEventListener>(this.zwaveEventListeners);
-        for (Object listener : copy.toArray()) {
-            if (!(listener instanceof ZWaveNode)) {
-                continue;
-            }
-
-            this.zwaveEventListeners.remove(listener);
-        }
+        this.zwaveEventListeners.removeAll(ZWaveNode.class);
 
         this.zwaveNodes.clear();
         this.sendQueue.clear();
@@ -546,7 +537,8 @@ public class ZWaveController {
 
                         // Handle event handlers
                         if (commandClass instanceof ZWaveEventListener) {
-                            controller.addEventListener((ZWaveEventListener) commandClass);
+                            controller.addEventListener((ZWaveEventListener) commandClass, ZWaveEvent.class,
+                                    nodeId);
                         }
 
                         // If this is the multi-instance class, add all command classes for the endpoints
@@ -560,7 +552,8 @@ public class ZWaveController {
 
                                     // Handle event handlers
                                     if (endpointCommandClass instanceof ZWaveEventListener) {
-                                        controller.addEventListener((ZWaveEventListener) endpointCommandClass);
+                                        controller.addEventListener((ZWaveEventListener) endpointCommandClass,
+                                                ZWaveEvent.class, nodeId);
                                     }
                                 }
                             }
@@ -628,8 +621,9 @@ public class ZWaveController {
         }
 
         // Add the message to the queue
-        this.sendQueue.add(serialMessage);
-        logger.debug("Enqueueing message. Queue length = {}", this.sendQueue.size());
+        if (this.sendQueue.add(serialMessage, node)) {
+            logger.debug("Enqueueing message. Queue length = {}", this.sendQueue.size());
+        }
     }
 
     /**
@@ -639,6 +633,29 @@ public class ZWaveController {
         return this.sendQueue.size();
     }
 
+    /**
+     * Returns the number of poll messages in the send queue.
+     */
+    public int getPollingQueueLength() {
+        return this.sendQueue.size(ZWaveTransactionScheduler.TrafficClass.Poll);
+    }
+
+    /**
+     * Sets the share of the airtime that may be used for polling.
+     *
+     * @param pollingBudget percentage between 1 and 100
+     */
+    public void setPollingBudget(int pollingBudget) {
+        this.sendQueue.setPollingBudget(pollingBudget);
+    }
+
+    /**
+     * Returns the queue length and latency statistics of the send queue per traffic class.
+     */
+    public String getSendQueueStatistics() {
+        return this.sendQueue.getStatistics();
+    }
+
     /**
      * Notify our own event listeners of a Z-Wave event.
      *
@@ -646,8 +663,7 @@ public class ZWaveController {
      */
     public void notifyEventListeners(ZWaveEvent event) {
         logger.debug("Notifying event listeners: {}", event.getClass().getSimpleName());
-        ArrayList<ZWaveEventListener> copy = new ArrayList<ZWaveEventListener>(this.zwaveEventListeners);
-        for (ZWaveEventListener listener : copy) {
+        for (ZWaveEventListener listener : this.zwaveEventListeners.getListeners(event)) {
             listener.ZWaveIncomingEvent(event);
         }
 
@@ -985,9 +1001,20 @@ public class ZWaveController {
      * @param eventListener the event listener to add.
      */
     public void addEventListener(ZWaveEventListener eventListener) {
-        synchronized (this.zwaveEventListeners) {
-            this.zwaveEventListeners.add(eventListener);
-        }
+        this.zwaveEventListeners.add(eventListener);
+    }
+
+    /**
+     * Add a listener for Z-Wave events of a certain class to this controller.
+     * The listener also receives events of that class which are not addressed to a specific node.
+     *
+     * @param eventListener the event listener to add.
+     * @param eventClass the class of the events the listener is interested in.
+     * @param nodeId the node the listener is interested in, or {@link ZWaveEventListenerRegistry#ALL_NODES}.
+     */
+    public void addEventListener(ZWaveEventListener eventListener, Class<? extends ZWaveEvent> eventClass,
+            int nodeId) {
+        this.zwaveEventListeners.add(eventListener, eventClass, nodeId);
     }
 
     /**
@@ -996,9 +1023,7 @@ public class ZWaveController {
      * @param eventListener the event listener to remove.
      */
     public void removeEventListener(ZWaveEventListener eventListener) {
-        synchronized (this.zwaveEventListeners) {
-            this.zwaveEventListeners.remove(eventListener);
-        }
+        this.zwaveEventListeners.remove(eventListener);
     }
 
     /**
@@ -0,0 +1,203 @@
+/**
+ * Copyright (c) 2010-2016 by the respective copyright holders.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.binding.zwave.internal.protocol;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import org.openhab.binding.zwave.internal.protocol.event.ZWaveEvent;
+
+/**
+ * Keeps the event listeners of the controller, indexed by the event class and node they are interested in.
+ * An event is only handed to the listeners registered for its class (or a super class) and its node.
+ *
+ * Listeners registered for a node also receive the events of their class that are not addressed to a specific
+ * node (node ID 255), as controller messages carry the node in their payload.
+ *
+ * Listeners are called in the order they were registered. The index is rebuilt on every change and replaced as a
+ * whole, so events can be dispatched concurrently without locking.
+ *
+ * @author Chris Jackson
+ * @since 1.9.0
+ */
+public class ZWaveEventListenerRegistry {
+
+    /**
+     * Node ID to register a listener for the events of all nodes
+     */
+    public static final int ALL_NODES = -1;
+
+    /**
+     * Node ID of events that are not addressed to a specific node
+     */
+    private static final int NO_NODE = 255;
+
+    private static final Comparator<Registration> REGISTRATION_ORDER = new Comparator<Registration>() {
+        @Override
+        public int compare(Registration arg0, Registration arg1) {
+            return arg0.sequence < arg1.sequence ? -1 : (arg0.sequence == arg1.sequence ? 0 : 1);
+        }
+    };
+
+    private final List<Registration> registrations = new ArrayList<Registration>();
+    private long sequence = 0;
+
+    private volatile Map<Class<?>, ClassListeners> index = Collections.emptyMap();
+
+    /**
+     * Registers a listener for all events.
+     *
+     * @param listener the listener to add
+     */
+    public void add(ZWaveEventListener listener) {
+        add(listener, ZWaveEvent.class, ALL_NODES);
+    }
+
+    /**
+     * Registers a listener for the events of a class and its sub classes.
+     *
+     * @param listener the listener to add
+     * @param eventClass the class of the events to receive
+     * @param nodeId the node of the events to receive, or {@link #ALL_NODES}
+     */
+    public synchronized void add(ZWaveEventListener listener, Class<? extends ZWaveEvent> eventClass, int nodeId) {
+        registrations.add(new Registration(listener, eventClass, nodeId, sequence++));
+        rebuildIndex();
+    }
+
+    /**
+     * Removes the first registration of a listener.
+     *
+     * @param listener the listener to remove
+     */
+    public synchronized void remove(ZWaveEventListener listener) {
+        Iterator<Registration> it = registrations.iterator();
+        while (it.hasNext()) {
+            if (it.next().listener.equals(listener)) {
+                it.remove();
+                rebuildIndex();
+                return;
+            }
+        }
+    }
+
+    /**
+     * Removes all registrations of listeners that are instances of the given class.
+     *
+     * @param listenerClass the class of the listeners to remove
+     */
+    public synchronized void removeAll(Class<?> listenerClass) {
+        Iterator<Registration> it = registrations.iterator();
+        while (it.hasNext()) {
+            if (listenerClass.isInstance(it.next().listener)) {
+                it.remove();
+            }
+        }
+        rebuildIndex();
+    }
+
+    /**
+     * Returns the listeners interested in an event, in the order they were registered.
+     *
+     * @param event the event to dispatch
+     * @return the listeners to call
+     */
+    public List<ZWaveEventListener> getListeners(ZWaveEvent event) {
+        Map<Class<?>, ClassListeners> currentIndex = index;
+        List<Registration> matches = new ArrayList<Registration>();
+        int sources = 0;
+
+        // walk up the class hierarchy of the event, ZWaveEvent itself is the last class
+        Class<?> eventClass = event.getClass();
+        while (ZWaveEvent.class.isAssignableFrom(eventClass)) {
+            ClassListeners classListeners = currentIndex.get(eventClass);
+            if (classListeners != null) {
+                sources += addAll(matches, classListeners.allNodes);
+                if (event.getNodeId() == NO_NODE) {
+                    sources += addAll(matches, classListeners.nodeSpecific);
+                } else {
+                    sources += addAll(matches, classListeners.byNode.get(event.getNodeId()));
+                }
+            }
+            eventClass = eventClass.getSuperclass();
+        }
+
+        if (sources > 1) {
+            Collections.sort(matches, REGISTRATION_ORDER);
+        }
+
+        List<ZWaveEventListener> listeners = new ArrayList<ZWaveEventListener>(matches.size());
+        for (Registration registration : matches) {
+            listeners.add(registration.listener);
+        }
+        return listeners;
+    }
+
+    private static int addAll(List<Registration> matches, List<Registration> registrations) {
+        if (registrations == null || registrations.isEmpty()) {
+            return 0;
+        }
+        matches.addAll(registrations);
+        return 1;
+    }
+
+    private void rebuildIndex() {
+        Map<Class<?>, ClassListeners> newIndex = new HashMap<Class<?>, ClassListeners>();
+        for (Registration registration : registrations) {
+            ClassListeners classListeners = newIndex.get(registration.eventClass);
+            if (classListeners == null) {
+                classListeners = new ClassListeners();
+                newIndex.put(registration.eventClass, classListeners);
+            }
+            if (registration.nodeId == ALL_NODES) {
+                classListeners.allNodes.add(registration);
+            } else {
+                classListeners.nodeSpecific.add(registration);
+                List<Registration> nodeListeners = classListeners.byNode.get(registration.nodeId);
+                if (nodeListeners == null) {
+                    nodeListeners = new ArrayList<Registration>();
+                    classListeners.byNode.put(registration.nodeId, nodeListeners);
+                }
+                nodeListeners.add(registration);
+            }
+        }
+        index = newIndex;
+    }
+
+    /**
+     * A single registration of a listener
+     */
+    private static class Registration {
+        private final ZWaveEventListener listener;
+        private final Class<? extends ZWaveEvent> eventClass;
+        private final int nodeId;
+        private final long sequence;
+
+        Registration(ZWaveEventListener listener, Class<? extends ZWaveEvent> eventClass, int nodeId, long sequence) {
+            this.listener = listener;
+            this.eventClass = eventClass;
+            this.nodeId = nodeId;
+            this.sequence = sequence;
+        }
+    }
+
+    /**
+     * The registrations for one event class. Never modified once the index is published.
+     */
+    private static class ClassListeners {
+        private final List<Registration> allNodes = new ArrayList<Registration>();
+        private final List<Registration> nodeSpecific = new ArrayList<Registration>();
+        private final Map<Integer, List<Registration>> byNode = new HashMap<Integer, List<Registration>>();
+    }
+}
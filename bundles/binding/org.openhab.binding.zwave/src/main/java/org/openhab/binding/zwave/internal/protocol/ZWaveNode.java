@@ -614,8 +614,9 @@ public class ZWaveNode {
                     commandClass.getCommandClass().getLabel());
             supportedCommandClasses.put(key, commandClass);
 
+            // command classes only handle the events of their own node
             if (commandClass instanceof ZWaveEventListener) {
-                this.controller.addEventListener((ZWaveEventListener) commandClass);
+                this.controller.addEventListener((ZWaveEventListener) commandClass, ZWaveEvent.class, nodeId);
             }
         }
     }
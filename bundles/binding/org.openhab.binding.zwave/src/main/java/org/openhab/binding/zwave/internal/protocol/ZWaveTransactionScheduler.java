@@ -0,0 +1,394 @@
+/**
+ * Copyright (c) 2010-2016 by the respective copyright holders.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.binding.zwave.internal.protocol;
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Queue;
+
+import org.openhab.binding.zwave.internal.protocol.SerialMessage.SerialMessagePriority;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Schedules the messages waiting to be sent to the controller.
+ *
+ * Messages are sorted into traffic classes. A class is only served once all classes before it are empty, so
+ * commands never wait behind initialisation or polling traffic. Messages for awake battery devices come first, as
+ * the device goes back to sleep soon, but after {@link #MAX_WAKEUP_BURST} of them in a row a pending command is
+ * served, so a burst of wake-up traffic cannot hold back the commands of the user. Within a class every node has its own queue
+ * ordered by message priority, and the nodes are served round robin, so a node with a lot of pending messages
+ * cannot starve the other nodes.
+ *
+ * A GET that is identical to a message already pending for the same node is dropped. If the pending message is in
+ * a lower class, it is moved to the class of the new message instead.
+ *
+ * Polling can be limited to a share of the airtime. The time from taking a poll message until the next message is
+ * taken is charged to the polling budget, and no polls are sent while the budget is used up.
+ *
+ * @author Chris Jackson
+ * @since 1.9.0
+ */
+public class ZWaveTransactionScheduler {
+
+    private static final Logger logger = LoggerFactory.getLogger(ZWaveTransactionScheduler.class);
+
+    /**
+     * Time in milliseconds over which the polling budget may be spent in one burst
+     */
+    private static final long BUDGET_PERIOD = 10000;
+
+    /**
+     * Number of wake-up messages served in a row while a command is waiting
+     */
+    static final int MAX_WAKEUP_BURST = 4;
+
+    /**
+     * Traffic classes, in the order in which they are served.
+     */
+    public enum TrafficClass {
+        /** messages for battery devices while they are awake */
+        WakeUp,
+        /** commands and requests caused by the user or the controller */
+        Command,
+        /** node initialisation and configuration */
+        Initialisation,
+        /** periodic polling of items */
+        Poll;
+
+        /**
+         * Returns the traffic class of a message.
+         *
+         * @param serialMessage the message to classify
+         * @param node the node the message is sent to, or null
+         */
+        public static TrafficClass classify(SerialMessage serialMessage, ZWaveNode node) {
+            if (node != null && !node.isListening() && !node.isFrequentlyListening()) {
+                return WakeUp;
+            }
+            switch (serialMessage.getPriority()) {
+                case Config:
+                    return Initialisation;
+                case Poll:
+                    return Poll;
+                default:
+                    return Command;
+            }
+        }
+    }
+
+    private final ClassQueue[] classQueues = new ClassQueue[TrafficClass.values().length];
+
+    private long sequence = 0;
+    private int size = 0;
+
+    private int pollingBudget = 100;
+    private long pollingTokens = BUDGET_PERIOD;
+    private long lastRefill = System.currentTimeMillis();
+
+    private TrafficClass activeClass = null;
+    private long activeStart = 0;
+    private int wakeUpBurst = 0;
+
+    public ZWaveTransactionScheduler() {
+        for (TrafficClass trafficClass : TrafficClass.values()) {
+            classQueues[trafficClass.ordinal()] = new ClassQueue(trafficClass);
+        }
+    }
+
+    /**
+     * Sets the share of the airtime that may be used for polling.
+     *
+     * @param pollingBudget percentage between 1 and 100. 100 does not limit polling.
+     */
+    public synchronized void setPollingBudget(int pollingBudget) {
+        this.pollingBudget = Math.max(1, Math.min(100, pollingBudget));
+        this.pollingTokens = Math.min(pollingTokens, getBucketSize());
+        notifyAll();
+    }
+
+    /**
+     * Adds a message to the queue of its node.
+     *
+     * @param serialMessage the message to add
+     * @param node the node the message is sent to, or null if it is a controller message
+     * @return false if the message was dropped as an identical GET is already pending
+     */
+    public synchronized boolean add(SerialMessage serialMessage, ZWaveNode node) {
+        TrafficClass trafficClass = TrafficClass.classify(serialMessage, node);
+        ClassQueue classQueue = classQueues[trafficClass.ordinal()];
+        int nodeId = serialMessage.getMessageNode();
+
+        if (isGet(serialMessage)) {
+            for (ClassQueue pendingQueue : classQueues) {
+                Entry pending = pendingQueue.find(nodeId, serialMessage);
+                if (pending == null) {
+                    continue;
+                }
+                if (pendingQueue.trafficClass.ordinal() <= trafficClass.ordinal()) {
+                    classQueue.deduplicated++;
+                    logger.debug("NODE {}: Identical message already queued, dropping it", nodeId);
+                    return false;
+                }
+                // move the pending message forward, but keep the time it was queued
+                pendingQueue.remove(nodeId, pending);
+                size--;
+                classQueue.deduplicated++;
+                classQueue.add(nodeId, new Entry(serialMessage, pending.queued, sequence++));
+                size++;
+                notifyAll();
+                return true;
+            }
+        }
+
+        classQueue.add(nodeId, new Entry(serialMessage, System.currentTimeMillis(), sequence++));
+        size++;
+        notifyAll();
+        return true;
+    }
+
+    /**
+     * Takes the next message to send, waiting until one is available.
+     * Calling this method also marks the end of the transaction of the previously taken message.
+     *
+     * @return the next message to send
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public synchronized SerialMessage take() throws InterruptedException {
+        long now = System.currentTimeMillis();
+        if (activeClass == TrafficClass.Poll) {
+            refill(now);
+            pollingTokens -= now - activeStart;
+        }
+        activeClass = null;
+
+        while (true) {
+            now = System.currentTimeMillis();
+            refill(now);
+
+            for (ClassQueue classQueue : classQueues) {
+                if (classQueue.trafficClass == TrafficClass.Poll && pollingTokens <= 0) {
+                    continue;
+                }
+                if (classQueue.trafficClass == TrafficClass.WakeUp && wakeUpBurst >= MAX_WAKEUP_BURST
+                        && classQueues[TrafficClass.Command.ordinal()].size > 0) {
+                    continue;
+                }
+                Entry entry = classQueue.next();
+                if (entry == null) {
+                    continue;
+                }
+                wakeUpBurst = classQueue.trafficClass == TrafficClass.WakeUp ? wakeUpBurst + 1 : 0;
+                size--;
+                classQueue.recordLatency(now - entry.queued);
+                activeClass = classQueue.trafficClass;
+                activeStart = now;
+                return entry.serialMessage;
+            }
+
+            if (size == 0) {
+                wait();
+            } else {
+                // only polls are pending, wait until the budget allows the next one
+                long rate = Math.max(1, pollingBudget);
+                wait(Math.max(1, (-pollingTokens + 1) * 100 / rate));
+            }
+        }
+    }
+
+    /**
+     * Removes all pending messages.
+     */
+    public synchronized void clear() {
+        for (ClassQueue classQueue : classQueues) {
+            classQueue.clear();
+        }
+        size = 0;
+    }
+
+    /**
+     * Returns the number of pending messages.
+     */
+    public synchronized int size() {
+        return size;
+    }
+
+    /**
+     * Returns the number of pending messages in a traffic class.
+     */
+    public synchronized int size(TrafficClass trafficClass) {
+        return classQueues[trafficClass.ordinal()].size;
+    }
+
+    /**
+     * Returns the average time in milliseconds the messages of a traffic class waited in the queue.
+     */
+    public synchronized long getAverageLatency(TrafficClass trafficClass) {
+        ClassQueue classQueue = classQueues[trafficClass.ordinal()];
+        return classQueue.sent == 0 ? 0 : classQueue.totalLatency / classQueue.sent;
+    }
+
+    /**
+     * Returns the longest time in milliseconds a message of a traffic class waited in the queue.
+     */
+    public synchronized long getMaxLatency(TrafficClass trafficClass) {
+        return classQueues[trafficClass.ordinal()].maxLatency;
+    }
+
+    /**
+     * Returns the queue length and latency statistics of all traffic classes.
+     */
+    public synchronized String getStatistics() {
+        StringBuilder statistics = new StringBuilder();
+        for (ClassQueue classQueue : classQueues) {
+            if (statistics.length() > 0) {
+                statistics.append(", ");
+            }
+            statistics.append(classQueue.trafficClass).append("[queued=").append(classQueue.size).append(", sent=")
+                    .append(classQueue.sent).append(", deduplicated=").append(classQueue.deduplicated)
+                    .append(", avgLatency=").append(classQueue.sent == 0 ? 0 : classQueue.totalLatency / classQueue.sent)
+                    .append("ms, maxLatency=").append(classQueue.maxLatency).append("ms]");
+        }
+        return statistics.toString();
+    }
+
+    private long getBucketSize() {
+        return BUDGET_PERIOD * pollingBudget / 100;
+    }
+
+    private void refill(long now) {
+        if (pollingBudget >= 100) {
+            pollingTokens = BUDGET_PERIOD;
+        } else {
+            pollingTokens = Math.min(getBucketSize(), pollingTokens + (now - lastRefill) * pollingBudget / 100);
+        }
+        lastRefill = now;
+    }
+
+    private static boolean isGet(SerialMessage serialMessage) {
+        return serialMessage.getPriority() == SerialMessagePriority.Get
+                || serialMessage.getPriority() == SerialMessagePriority.Poll;
+    }
+
+    /**
+     * A queued message
+     */
+    private static class Entry implements Comparable<Entry> {
+        private final SerialMessage serialMessage;
+        private final long queued;
+        private final long sequence;
+
+        Entry(SerialMessage serialMessage, long queued, long sequence) {
+            this.serialMessage = serialMessage;
+            this.queued = queued;
+            this.sequence = sequence;
+        }
+
+        @Override
+        public int compareTo(Entry other) {
+            int res = serialMessage.getPriority().compareTo(other.serialMessage.getPriority());
+            if (res == 0) {
+                res = sequence < other.sequence ? -1 : (sequence == other.sequence ? 0 : 1);
+            }
+            return res;
+        }
+    }
+
+    /**
+     * The node queues of a traffic class
+     */
+    private static class ClassQueue {
+        private final TrafficClass trafficClass;
+        private final Map<Integer, Queue<Entry>> nodeQueues = new HashMap<Integer, Queue<Entry>>();
+        private final Queue<Integer> ring = new ArrayDeque<Integer>();
+        private int size = 0;
+
+        private long sent = 0;
+        private long deduplicated = 0;
+        private long totalLatency = 0;
+        private long maxLatency = 0;
+
+        ClassQueue(TrafficClass trafficClass) {
+            this.trafficClass = trafficClass;
+        }
+
+        void add(int nodeId, Entry entry) {
+            Queue<Entry> nodeQueue = nodeQueues.get(nodeId);
+            if (nodeQueue == null) {
+                nodeQueue = new PriorityQueue<Entry>();
+                nodeQueues.put(nodeId, nodeQueue);
+                ring.add(nodeId);
+            }
+            nodeQueue.add(entry);
+            size++;
+        }
+
+        Entry next() {
+            Integer nodeId = ring.poll();
+            if (nodeId == null) {
+                return null;
+            }
+            Queue<Entry> nodeQueue = nodeQueues.get(nodeId);
+            Entry entry = nodeQueue.poll();
+            if (nodeQueue.isEmpty()) {
+                nodeQueues.remove(nodeId);
+            } else {
+                ring.add(nodeId);
+            }
+            size--;
+            return entry;
+        }
+
+        Entry find(int nodeId, SerialMessage serialMessage) {
+            Queue<Entry> nodeQueue = nodeQueues.get(nodeId);
+            if (nodeQueue == null) {
+                return null;
+            }
+            for (Entry entry : nodeQueue) {
+                if (entry.serialMessage.equals(serialMessage)) {
+                    return entry;
+                }
+            }
+            return null;
+        }
+
+        void remove(int nodeId, Entry entry) {
+            Queue<Entry> nodeQueue = nodeQueues.get(nodeId);
+            if (nodeQueue == null || !nodeQueue.remove(entry)) {
+                return;
+            }
+            size--;
+            if (nodeQueue.isEmpty()) {
+                nodeQueues.remove(nodeId);
+                Iterator<Integer> it = ring.iterator();
+                while (it.hasNext()) {
+                    if (it.next() == nodeId) {
+                        it.remove();
+                        break;
+                    }
+                }
+            }
+        }
+
+        void recordLatency(long latency) {
+            sent++;
+            totalLatency += latency;
+            maxLatency = Math.max(maxLatency, latency);
+        }
+
+        void clear() {
+            nodeQueues.clear();
+            ring.clear();
+            size = 0;
+        }
+    }
+}
@@ -26,6 +26,7 @@ import org.openhab.binding.zwave.internal.protocol.ZWaveController;
 import org.openhab.binding.zwave.internal.protocol.ZWaveDeviceClass.Specific;
 import org.openhab.binding.zwave.internal.protocol.ZWaveEndpoint;
 import org.openhab.binding.zwave.internal.protocol.ZWaveEventListener;
+import org.openhab.binding.zwave.internal.protocol.ZWaveEventListenerRegistry;
 import org.openhab.binding.zwave.internal.protocol.ZWaveNode;
 import org.openhab.binding.zwave.internal.protocol.commandclass.ZWaveAssociationCommandClass;
 import org.openhab.binding.zwave.internal.protocol.commandclass.ZWaveCommandClass;
@@ -178,8 +179,9 @@ public class ZWaveNodeStageAdvancer implements ZWaveEventListener {
 
         wakeupCount = 0;
 
-        // Set an event callback so we get notification of events
-        controller.addEventListener(this);
+        // Set an event callback so we get notification of events. The transaction completions of other nodes
+        // are needed as well, they end the WAIT stage once the send queue has drained.
+        controller.addEventListener(this, ZWaveEvent.class, ZWaveEventListenerRegistry.ALL_NODES);
 
         // Get things moving...
         advanceNodeStage(null);
@@ -0,0 +1,207 @@
+/**
+ * Copyright (c) 2010-2016 by the respective copyright holders.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.io.transport.cul.internal;
+
+import static org.junit.Assert.*;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.openhab.io.transport.cul.CULFrame;
+import org.openhab.io.transport.cul.CULFrameListener;
+import org.openhab.io.transport.cul.CULListener;
+
+public class CULReceiveDispatcherTest {
+
+    private static final int FRAMES = 500;
+
+    private CULReceiveDispatcher sut;
+
+    private CountDownLatch done;
+
+    @Before
+    public void setUp() {
+        sut = new CULReceiveDispatcher("test");
+    }
+
+    @After
+    public void tearDown() {
+        sut.shutdown();
+    }
+
+    @Test
+    public void dispatch_keepsOrderPerListener() throws Exception {
+        done = new CountDownLatch(3 * FRAMES);
+        RecordingListener fast = new RecordingListener(0);
+        RecordingListener slow = new RecordingListener(1);
+        RecordingListener other = new RecordingListener(0);
+        sut.addListener(fast);
+        sut.addListener(slow);
+        sut.addListener(other);
+
+        for (int i = 0; i < FRAMES; i++) {
+            sut.dispatch("F1234" + i);
+        }
+
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+        for (RecordingListener listener : new RecordingListener[] { fast, slow, other }) {
+            assertEquals(FRAMES, listener.received.size());
+            for (int i = 0; i < FRAMES; i++) {
+                assertEquals("F1234" + i, listener.received.get(i));
+            }
+        }
+        String statistics = sut.getStatistics();
+        assertTrue(statistics, statistics.startsWith("received=" + FRAMES + ", dropped=0, delivered=" + 3 * FRAMES + ","));
+    }
+
+    @Test
+    public void dispatch_passesSameFrameToFrameListeners() throws Exception {
+        done = new CountDownLatch(3);
+        final List<CULFrame> frames = new CopyOnWriteArrayList<CULFrame>();
+        CULFrameListener listener = new RecordingFrameListener(frames);
+        CULFrameListener otherListener = new RecordingFrameListener(frames);
+        RecordingListener rawListener = new RecordingListener(0);
+        sut.addListener(listener);
+        sut.addListener(otherListener);
+        sut.addListener(rawListener);
+
+        sut.dispatch("E0101");
+
+        assertTrue(done.await(1, TimeUnit.SECONDS));
+        assertSame(frames.get(0), frames.get(1));
+        assertEquals('E', frames.get(0).getType());
+        assertEquals("0101", frames.get(0).getPayload());
+        assertEquals("E0101", rawListener.received.get(0));
+    }
+
+    @Test
+    public void removeListener_dropsWaitingFrames() throws Exception {
+        done = new CountDownLatch(1);
+        RecordingListener listener = new RecordingListener(200);
+        sut.addListener(listener);
+        sut.dispatch("F12340111");
+        sut.dispatch("F12340100");
+
+        assertTrue(done.await(1, TimeUnit.SECONDS));
+        sut.removeListener(listener);
+        Thread.sleep(400);
+
+        assertEquals(1, listener.received.size());
+        assertFalse(sut.hasListeners());
+        assertTrue(sut.getStatistics(), sut.getStatistics().startsWith("received=2, dropped=1, delivered=1,"));
+    }
+
+    @Test
+    public void dispatch_dropsOldestFramesOfSlowListener() throws Exception {
+        final CountDownLatch release = new CountDownLatch(1);
+        done = new CountDownLatch(CULReceiveDispatcher.MAX_QUEUE_SIZE + 1);
+        RecordingListener listener = new RecordingListener(0) {
+
+            @Override
+            public void dataReceived(String data) {
+                try {
+                    release.await(10, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                super.dataReceived(data);
+            }
+        };
+        sut.addListener(listener);
+
+        // the first frame is being passed, the others wait in the queue
+        for (int i = 0; i < CULReceiveDispatcher.MAX_QUEUE_SIZE + 2; i++) {
+            sut.dispatch("F1234" + i);
+        }
+        release.countDown();
+
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+        assertEquals("F12340", listener.received.get(0));
+        assertEquals("F12342", listener.received.get(1));
+        String statistics = sut.getStatistics();
+        assertTrue(statistics, statistics.startsWith("received=" + (CULReceiveDispatcher.MAX_QUEUE_SIZE + 2)
+                + ", dropped=1, delivered=" + (CULReceiveDispatcher.MAX_QUEUE_SIZE + 1) + ","));
+        assertTrue(statistics, statistics.endsWith("maxQueued=" + CULReceiveDispatcher.MAX_QUEUE_SIZE));
+    }
+
+    @Test
+    public void dispatch_reportsLatency() throws Exception {
+        done = new CountDownLatch(2);
+        sut.addListener(new RecordingListener(200));
+        sut.dispatch("F12340111");
+        sut.dispatch("F12340100");
+
+        assertTrue(done.await(1, TimeUnit.SECONDS));
+        String statistics = sut.getStatistics();
+        // the second line waited for the first one
+        Matcher matcher = Pattern.compile("maxLatency=(\\d+) ms").matcher(statistics);
+        assertTrue(statistics, matcher.find());
+        assertTrue(statistics, Long.parseLong(matcher.group(1)) >= 150);
+        assertTrue(statistics, statistics.endsWith("maxQueued=1"));
+    }
+
+    private class RecordingListener implements CULListener {
+
+        private final List<String> received = new CopyOnWriteArrayList<String>();
+
+        private final long delay;
+
+        public RecordingListener(long delay) {
+            this.delay = delay;
+        }
+
+        @Override
+        public void dataReceived(String data) {
+            received.add(data);
+            done.countDown();
+            if (delay > 0) {
+                try {
+                    Thread.sleep(delay);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+
+        @Override
+        public void error(Exception e) {
+        }
+    }
+
+    private class RecordingFrameListener implements CULFrameListener {
+
+        private final List<CULFrame> frames;
+
+        public RecordingFrameListener(List<CULFrame> frames) {
+            this.frames = frames;
+        }
+
+        @Override
+        public void frameReceived(CULFrame frame) {
+            frames.add(frame);
+            done.countDown();
+        }
+
+        @Override
+        public void dataReceived(String data) {
+            fail("raw data passed to frame listener");
+        }
+
+        @Override
+        public void error(Exception e) {
+        }
+    }
+}
@@ -0,0 +1,132 @@
+/**
+ * Copyright (c) 2010-2016 by the respective copyright holders.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.io.transport.cul.internal;
+
+import static org.junit.Assert.*;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.openhab.io.transport.cul.CULPriority;
+
+public class CULSendSchedulerTest {
+
+    private volatile long now = 1000000;
+
+    private CULSendScheduler sut;
+
+    private ExecutorService executor;
+
+    @Before
+    public void setUp() {
+        sut = new CULSendScheduler() {
+            @Override
+            protected long currentTimeMillis() {
+                return now;
+            }
+        };
+        executor = Executors.newSingleThreadExecutor();
+    }
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void estimateAirtime() {
+        assertEquals(0, CULSendScheduler.estimateAirtime("V"));
+        assertEquals(20, CULSendScheduler.estimateAirtime("F12340111\r\n"));
+        assertEquals(20, CULSendScheduler.estimateAirtime("T12344142"));
+        // setting the FHT housecode and reading the FHT buffer don't send a frame
+        assertEquals(0, CULSendScheduler.estimateAirtime("T011234\r\n"));
+        assertEquals(0, CULSendScheduler.estimateAirtime("T02"));
+        assertTrue(CULSendScheduler.estimateAirtime("Zs0B0100401234560000000000") > 100);
+        assertTrue(CULSendScheduler.estimateAirtime("As0B01B4101234560000000000") > 36);
+        assertTrue(CULSendScheduler.estimateAirtime("As0B01A0101234560000000000") < 36);
+    }
+
+    @Test
+    public void take_higherPriorityFirst() throws Exception {
+        sut.add("F12340111", CULPriority.LOW);
+        sut.add("F12340211", CULPriority.NORMAL);
+        sut.add("V", CULPriority.HIGH);
+
+        assertEquals("V", take());
+        now += CULSendScheduler.MIN_SEND_INTERVAL;
+        assertEquals("F12340211", take());
+        now += CULSendScheduler.MIN_SEND_INTERVAL;
+        assertEquals("F12340111", take());
+        assertEquals(0, sut.getQueueSize());
+    }
+
+    @Test
+    public void take_defersFrameWithoutCredit() throws Exception {
+        sut.creditReported(30);
+        sut.add("F12340111", CULPriority.NORMAL);
+        sut.add("F12340211", CULPriority.NORMAL);
+
+        assertEquals("F12340111", take());
+        now += CULSendScheduler.MIN_SEND_INTERVAL;
+        Future<String> next = executor.submit(new Callable<String>() {
+            @Override
+            public String call() throws Exception {
+                return sut.take();
+            }
+        });
+        try {
+            next.get(200, TimeUnit.MILLISECONDS);
+            fail("frame sent without credit");
+        } catch (TimeoutException e) {
+            // expected
+        }
+        assertEquals(1, sut.getDeferredFrames());
+        assertEquals(1, sut.getQueueSize());
+
+        // new credit report wakes up the scheduler
+        sut.creditReported(100);
+        assertEquals("F12340211", next.get(1, TimeUnit.SECONDS));
+        assertEquals(1, sut.getDeferredFrames());
+    }
+
+    @Test
+    public void take_commandsWithoutAirtimeAreNotDeferred() throws Exception {
+        sut.creditReported(0);
+        sut.add("V", CULPriority.NORMAL);
+        assertEquals("V", take());
+        assertEquals(0, sut.getDeferredFrames());
+    }
+
+    @Test
+    public void add_mergesLowPriorityCommandsForSameDevice() throws Exception {
+        sut.add("F12340111", CULPriority.LOW);
+        sut.add("F12340211", CULPriority.LOW);
+        sut.add("F12340100", CULPriority.LOW);
+
+        assertEquals(2, sut.getQueueSize());
+        assertEquals(1, sut.getMergedFrames());
+        assertEquals("F12340100", take());
+    }
+
+    private String take() throws Exception {
+        return executor.submit(new Callable<String>() {
+            @Override
+            public String call() throws Exception {
+                return sut.take();
+            }
+        }).get(1, TimeUnit.SECONDS);
+    }
+}
@@ -0,0 +1,70 @@
+/**
+ * Copyright (c) 2010-2016 by the respective copyright holders.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.io.transport.cul;
+
+/**
+ * A line received from the CUL. It is parsed once and the same instance is
+ * passed to all listeners, so it must not be changed.
+ *
+ * @author Till Klocke
+ * @since 1.9.0
+ */
+public final class CULFrame {
+
+    private final String data;
+
+    private final char type;
+
+    private final String payload;
+
+    private final long receiveTime;
+
+    public CULFrame(String data, long receiveTime) {
+        this.data = data;
+        this.type = data.isEmpty() ? 0 : data.charAt(0);
+        this.payload = data.isEmpty() ? data : data.substring(1);
+        this.receiveTime = receiveTime;
+    }
+
+    /**
+     * Returns the line as it was received from the CUL.
+     */
+    public String getData() {
+        return data;
+    }
+
+    /**
+     * Returns the first character of the line which identifies the protocol,
+     * e.g. 'F' for FS20, 'E' for EM, 'H' for HMS, 'K' for S300TH, 'T' for FHT
+     * and 'Z' for MAX!.
+     */
+    public char getType() {
+        return type;
+    }
+
+    /**
+     * Returns the line without the protocol character.
+     */
+    public String getPayload() {
+        return payload;
+    }
+
+    /**
+     * Returns the time in milliseconds when the line was read from the CUL.
+     */
+    public long getReceiveTime() {
+        return receiveTime;
+    }
+
+    @Override
+    public String toString() {
+        return data;
+    }
+
+}
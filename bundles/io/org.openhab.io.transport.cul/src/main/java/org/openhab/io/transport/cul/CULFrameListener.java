@@ -0,0 +1,23 @@
+/**
+ * Copyright (c) 2010-2016 by the respective copyright holders.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.io.transport.cul;
+
+/**
+ * A {@link CULListener} which receives the parsed {@link CULFrame} instead of
+ * the raw line. {@link #dataReceived(String)} isn't called for listeners
+ * implementing this interface.
+ *
+ * @author Till Klocke
+ * @since 1.9.0
+ */
+public interface CULFrameListener extends CULListener {
+
+    public void frameReceived(CULFrame frame);
+
+}
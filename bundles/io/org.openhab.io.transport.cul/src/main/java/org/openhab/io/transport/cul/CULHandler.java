@@ -19,6 +19,8 @@ public interface CULHandler {
 
     /**
      * Register a listener to receive data and get notified about exceptions.
+     * Every listener receives the data in the order it was received, listeners
+     * implementing {@link CULFrameListener} receive the parsed frames.
      *
      * @param listener
      */
@@ -41,6 +43,18 @@ public interface CULHandler {
      */
     public void send(String command) throws CULCommunicationException;
 
+    /**
+     * Send a String representing a culfw command to the CULHandler with the
+     * given priority. Commands are sent when the duty cycle credit of the CUL
+     * allows it. Note that Strings changing the RF mode will be discarded
+     * silently.
+     *
+     * @param command
+     * @param priority
+     * @throws CULCommunicationException
+     */
+    public void send(String command, CULPriority priority) throws CULCommunicationException;
+
     /**
      * Get the number of transmit credits remaining. This
      * value is updated every time data is RX'd or TX'd
@@ -49,4 +63,19 @@ public interface CULHandler {
      */
     public int getCredit10ms();
 
+    /**
+     * Get the number of commands waiting to be sent.
+     *
+     * @return number of queued commands
+     */
+    public int getSendQueueSize();
+
+    /**
+     * Get the number of frames which had to wait because the transmit credit
+     * was exhausted.
+     *
+     * @return number of deferred frames
+     */
+    public long getDeferredFrames();
+
 }
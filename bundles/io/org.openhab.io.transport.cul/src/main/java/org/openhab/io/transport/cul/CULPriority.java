@@ -0,0 +1,37 @@
+/**
+ * Copyright (c) 2010-2016 by the respective copyright holders.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.io.transport.cul;
+
+/**
+ * The priority with which a command is sent to the CUL. Commands of a higher
+ * priority are sent first, commands of the same priority in the order they
+ * were sent.
+ *
+ * @author Till Klocke
+ * @since 1.9.0
+ */
+public enum CULPriority {
+
+    /**
+     * Sent as soon as possible, even if the duty cycle credit is exhausted.
+     * Used for configuration commands of the CUL itself.
+     */
+    HIGH,
+    /**
+     * Sent as soon as the remaining duty cycle credit allows it.
+     */
+    NORMAL,
+    /**
+     * Sent after all other commands and only if some credit is left for them.
+     * A waiting command for the same device is replaced by the newer one, so
+     * use this only for commands which set an absolute state.
+     */
+    LOW
+
+}
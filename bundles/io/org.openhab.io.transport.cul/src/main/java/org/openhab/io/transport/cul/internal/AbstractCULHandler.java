@@ -12,16 +12,13 @@ import java.io.BufferedReader;
 import java.io.BufferedWriter;
 import java.io.IOException;
 import java.net.SocketException;
-import java.util.ArrayList;
 import java.util.List;
-import java.util.Queue;
-import java.util.concurrent.ConcurrentLinkedQueue;
-import java.util.concurrent.Executor;
-import java.util.concurrent.Executors;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 import org.openhab.io.transport.cul.CULCommunicationException;
 import org.openhab.io.transport.cul.CULDeviceException;
 import org.openhab.io.transport.cul.CULListener;
+import org.openhab.io.transport.cul.CULPriority;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -37,7 +34,8 @@ public abstract class AbstractCULHandler<T extends CULConfig> implements CULHand
     private final static Logger log = LoggerFactory.getLogger(AbstractCULHandler.class);
 
     /**
-     * Thread which sends all queued commands to the CUL.
+     * Thread which sends all queued commands to the CUL when the
+     * {@link CULSendScheduler} allows it.
      *
      * @author Till Klocke
      * @since 1.4.0
@@ -50,75 +48,51 @@ public abstract class AbstractCULHandler<T extends CULConfig> implements CULHand
         @Override
         public void run() {
             while (!isInterrupted()) {
-                String command = sendQueue.poll();
-                if (command != null) {
-                    if (!command.endsWith("\r\n")) {
-                        command = command + "\r\n";
-                    }
-                    try {
-                        writeMessage(command);
-                    } catch (CULCommunicationException e) {
-                        logger.error("Error while writing command to CUL", e);
-                    }
-                }
+                String command;
                 try {
-                    Thread.sleep(10);
+                    command = sendScheduler.take();
                 } catch (InterruptedException e) {
-                    logger.debug("Error while sleeping in SendThread", e);
+                    logger.debug("SendThread has been interrupted");
+                    break;
+                }
+                if (!command.endsWith("\r\n")) {
+                    command = command + "\r\n";
+                }
+                try {
+                    writeMessage(command);
+                } catch (CULCommunicationException e) {
+                    logger.error("Error while writing command to CUL", e);
                 }
             }
         }
     }
 
     /**
-     * Wrapper class wraps a CULListener and a received Strings and gets
-     * executed by a executor in its own thread.
-     *
-     * @author Till Klocke
-     * @since 1.4.0
-     *
-     */
-    private static class NotifyDataReceivedRunner implements Runnable {
-
-        private String message;
-        private CULListener listener;
-
-        public NotifyDataReceivedRunner(CULListener listener, String message) {
-            this.message = message;
-            this.listener = listener;
-        }
-
-        @Override
-        public void run() {
-            listener.dataReceived(message);
-        }
-
-    }
-
-    /**
-     * Executor to handle received messages. Every listern should be called in
-     * its own thread.
+     * Dispatcher to pass received data to the listeners. Every listener
+     * receives the data in order, different listeners concurrently.
      */
-    protected Executor receiveExecutor = Executors.newCachedThreadPool();
+    protected CULReceiveDispatcher receiveDispatcher;
     protected SendThread sendThread = new SendThread();
 
     protected T config;
 
-    protected List<CULListener> listeners = new ArrayList<CULListener>();
+    protected List<CULListener> listeners = new CopyOnWriteArrayList<CULListener>();
 
-    protected Queue<String> sendQueue = new ConcurrentLinkedQueue<String>();
+    protected CULSendScheduler sendScheduler = new CULSendScheduler();
     protected int credit10ms = 0;
     protected BufferedReader br;
     protected BufferedWriter bw;
 
     protected AbstractCULHandler(T config) {
         this.config = config;
+        this.receiveDispatcher = new CULReceiveDispatcher(config.getDeviceAddress());
     }
 
     @Override
     public void registerListener(CULListener listener) {
         if (listener != null) {
             listeners.add(listener);
+            receiveDispatcher.addListener(listener);
         }
     }
 
@@ -126,6 +100,7 @@ public abstract class AbstractCULHandler<T extends CULConfig> implements CULHand
     public void unregisterListener(CULListener listener) {
         if (listener != null) {
             listeners.remove(listener);
+            receiveDispatcher.removeListener(listener);
         }
     }
 
@@ -144,6 +119,8 @@ public abstract class AbstractCULHandler<T extends CULConfig> implements CULHand
     public void close() {
         sendThread.interrupt();
         closeHardware();
+        receiveDispatcher.shutdown();
+        log.debug("Receive statistics of {}: {}", config.getDeviceAddress(), receiveDispatcher.getStatistics());
     }
 
     /**
@@ -160,14 +137,29 @@ public abstract class AbstractCULHandler<T extends CULConfig> implements CULHand
 
     @Override
     public void send(String command) {
+        send(command, CULPriority.NORMAL);
+    }
+
+    @Override
+    public void send(String command, CULPriority priority) {
         if (isMessageAllowed(command)) {
-            sendQueue.add(command);
+            sendScheduler.add(command, priority);
         }
     }
 
     @Override
     public void sendWithoutCheck(String message) throws CULCommunicationException {
-        sendQueue.add(message);
+        sendScheduler.add(message, CULPriority.HIGH);
+    }
+
+    @Override
+    public int getSendQueueSize() {
+        return sendScheduler.getQueueSize();
+    }
+
+    @Override
+    public long getDeferredFrames() {
+        return sendScheduler.getDeferredFrames();
     }
 
     /**
@@ -188,14 +180,12 @@ public abstract class AbstractCULHandler<T extends CULConfig> implements CULHand
     }
 
     /**
-     * Notifies each CULListener about the received data in its own thread.
+     * Queues the received data for each CULListener.
      *
      * @param data
      */
     protected void notifyDataReceived(String data) {
-        for (final CULListener listener : listeners) {
-            receiveExecutor.execute(new NotifyDataReceivedRunner(listener, data));
-        }
+        receiveDispatcher.dispatch(data);
     }
 
     protected void notifyError(Exception e) {
@@ -260,7 +250,9 @@ public abstract class AbstractCULHandler<T extends CULConfig> implements CULHand
         // Credit report received
         String[] report = data.split(" ");
         credit10ms = Integer.parseInt(report[report.length - 1]);
-        log.debug("credit10ms = " + credit10ms);
+        sendScheduler.creditReported(credit10ms);
+        log.debug("credit10ms = " + credit10ms + ", queued commands = " + sendScheduler.getQueueSize()
+                + ", deferred frames = " + sendScheduler.getDeferredFrames());
     }
 
     /**
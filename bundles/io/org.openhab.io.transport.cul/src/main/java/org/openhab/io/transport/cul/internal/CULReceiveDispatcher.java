@@ -0,0 +1,175 @@
+/**
+ * Copyright (c) 2010-2016 by the respective copyright holders.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.io.transport.cul.internal;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.openhab.io.transport.cul.CULFrame;
+import org.openhab.io.transport.cul.CULFrameListener;
+import org.openhab.io.transport.cul.CULListener;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Passes the data received from the CUL to the listeners. A line is parsed
+ * into a {@link CULFrame} once and the same frame is passed to every
+ * {@link CULFrameListener}, the other listeners receive the raw line.
+ *
+ * Every listener has its own thread, which passes the data in the order it
+ * was received, so a slow listener doesn't delay the others. If a listener
+ * falls more than {@link #MAX_QUEUE_SIZE} lines behind, its oldest lines are
+ * dropped. The time lines wait for their listener and the longest queue are
+ * reported in the statistics.
+ *
+ * @author Till Klocke
+ * @since 1.9.0
+ */
+public class CULReceiveDispatcher {
+
+    private static final Logger logger = LoggerFactory.getLogger(CULReceiveDispatcher.class);
+
+    /** Number of waiting lines per listener from which the oldest lines are dropped */
+    static final int MAX_QUEUE_SIZE = 1000;
+
+    private final String deviceName;
+
+    private final Map<CULListener, ThreadPoolExecutor> executors = new LinkedHashMap<CULListener, ThreadPoolExecutor>();
+
+    private long received = 0;
+    private long dropped = 0;
+    private long delivered = 0;
+    private long totalLatency = 0;
+    private long maxLatency = 0;
+    private int maxQueued = 0;
+
+    public CULReceiveDispatcher(String deviceName) {
+        this.deviceName = deviceName;
+    }
+
+    public synchronized void addListener(final CULListener listener) {
+        if (executors.containsKey(listener)) {
+            return;
+        }
+        final String name = "CUL receiver " + deviceName + " " + listener.getClass().getSimpleName();
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<Runnable>(MAX_QUEUE_SIZE), new ThreadFactory() {
+
+                    @Override
+                    public Thread newThread(Runnable r) {
+                        Thread thread = new Thread(r, name);
+                        thread.setDaemon(true);
+                        return thread;
+                    }
+                }, new RejectedExecutionHandler() {
+
+                    @Override
+                    public void rejectedExecution(Runnable r, ThreadPoolExecutor executor) {
+                        if (!executor.isShutdown()) {
+                            executor.getQueue().poll();
+                            droppedData(name);
+                            executor.execute(r);
+                        }
+                    }
+                });
+        executors.put(listener, executor);
+    }
+
+    /**
+     * Removes the listener, data still waiting for it is dropped.
+     */
+    public synchronized void removeListener(CULListener listener) {
+        ThreadPoolExecutor executor = executors.remove(listener);
+        if (executor != null) {
+            stop(executor);
+        }
+    }
+
+    public synchronized boolean hasListeners() {
+        return !executors.isEmpty();
+    }
+
+    /**
+     * Queues the data behind the waiting data of every listener.
+     */
+    public void dispatch(String data) {
+        dispatch(new CULFrame(data, System.currentTimeMillis()));
+    }
+
+    /**
+     * Queues the frame behind the waiting frames of every listener.
+     */
+    public synchronized void dispatch(final CULFrame frame) {
+        received++;
+        for (Map.Entry<CULListener, ThreadPoolExecutor> entry : executors.entrySet()) {
+            final CULListener listener = entry.getKey();
+            ThreadPoolExecutor executor = entry.getValue();
+            executor.execute(new Runnable() {
+
+                @Override
+                public void run() {
+                    deliveredData(System.currentTimeMillis() - frame.getReceiveTime());
+                    try {
+                        if (listener instanceof CULFrameListener) {
+                            ((CULFrameListener) listener).frameReceived(frame);
+                        } else {
+                            listener.dataReceived(frame.getData());
+                        }
+                    } catch (RuntimeException ex) {
+                        logger.error("Listener " + listener.getClass().getSimpleName() + " couldn't process '"
+                                + frame + "'", ex);
+                    }
+                }
+            });
+            maxQueued = Math.max(maxQueued, executor.getQueue().size());
+        }
+    }
+
+    /**
+     * Stops the threads, data which is still waiting is dropped.
+     */
+    public synchronized void shutdown() {
+        for (ThreadPoolExecutor executor : executors.values()) {
+            stop(executor);
+        }
+    }
+
+    /**
+     * Returns the number of received and dropped lines, the time in
+     * milliseconds the lines waited for their listeners and the most lines
+     * which were waiting for a listener.
+     */
+    public synchronized String getStatistics() {
+        return "received=" + received + ", dropped=" + dropped + ", delivered=" + delivered + ", avgLatency="
+                + (delivered == 0 ? 0 : totalLatency / delivered) + " ms, maxLatency=" + maxLatency
+                + " ms, maxQueued=" + maxQueued;
+    }
+
+    private void stop(ThreadPoolExecutor executor) {
+        executor.shutdown();
+        dropped += executor.getQueue().drainTo(new ArrayList<Runnable>());
+    }
+
+    private synchronized void deliveredData(long latency) {
+        delivered++;
+        totalLatency += latency;
+        maxLatency = Math.max(maxLatency, latency);
+    }
+
+    private synchronized void droppedData(String name) {
+        dropped++;
+        logger.warn("{} is too slow, dropping the oldest line", name);
+    }
+}
@@ -0,0 +1,288 @@
+/**
+ * Copyright (c) 2010-2016 by the respective copyright holders.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.io.transport.cul.internal;
+
+import java.util.EnumMap;
+import java.util.LinkedList;
+import java.util.ListIterator;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.openhab.io.transport.cul.CULPriority;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Decides when the queued commands are sent to the CUL, so the 1% duty cycle
+ * limit of the culfw isn't exceeded. The culfw drops frames for which it has
+ * no credit left ("LOVF").
+ *
+ * The remaining credit is estimated from the last credit report of the CUL,
+ * the credit regained since then (one 10ms unit per second) and the estimated
+ * airtime of the frames sent since then. A frame which doesn't fit into the
+ * remaining credit waits until enough credit has been regained, frames of a
+ * lower priority wait behind it.
+ *
+ * @author Till Klocke
+ * @since 1.9.0
+ */
+public class CULSendScheduler {
+
+    private static final Logger logger = LoggerFactory.getLogger(CULSendScheduler.class);
+
+    /** The maximum credit of the culfw: 36s per hour in 10ms units */
+    static final int MAX_CREDIT = 3600;
+
+    /** Time in milliseconds to regain one 10ms unit of credit */
+    static final long CREDIT_REGENERATION_TIME = 1000;
+
+    /** Credit which is kept for normal priority frames */
+    static final int LOW_PRIORITY_RESERVE = 100;
+
+    /** Minimum time in milliseconds between two commands, to not overrun the CUL */
+    static final long MIN_SEND_INTERVAL = 10;
+
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private final Condition changed = lock.newCondition();
+
+    private final Map<CULPriority, LinkedList<String>> queues = new EnumMap<CULPriority, LinkedList<String>>(
+            CULPriority.class);
+
+    /** The first frame of a queue which was deferred, to count it only once */
+    private final Map<CULPriority, String> deferredFrames = new EnumMap<CULPriority, String>(CULPriority.class);
+
+    private boolean creditKnown = false;
+    private int reportedCredit;
+    private long reportTime;
+    private int spentCredit;
+    private long lastSend;
+
+    private long deferred = 0;
+    private long merged = 0;
+
+    public CULSendScheduler() {
+        for (CULPriority priority : CULPriority.values()) {
+            queues.put(priority, new LinkedList<String>());
+        }
+    }
+
+    /**
+     * Queues a command. A low priority command replaces a waiting low priority
+     * command for the same device.
+     */
+    public void add(String command, CULPriority priority) {
+        lock.lock();
+        try {
+            LinkedList<String> queue = queues.get(priority);
+            if (priority == CULPriority.LOW) {
+                String key = getMergeKey(command);
+                for (ListIterator<String> it = queue.listIterator(); it.hasNext();) {
+                    if (getMergeKey(it.next()).equals(key)) {
+                        it.set(command);
+                        merged++;
+                        logger.debug("Replaced waiting command for '{}' by '{}'", key, command);
+                        return;
+                    }
+                }
+            }
+            queue.add(command);
+            changed.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Updates the remaining credit with a credit report of the CUL.
+     *
+     * @param credit10ms the remaining credit in 10ms units
+     */
+    public void creditReported(int credit10ms) {
+        lock.lock();
+        try {
+            creditKnown = true;
+            reportedCredit = credit10ms;
+            reportTime = currentTimeMillis();
+            spentCredit = 0;
+            changed.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Waits until the next command can be sent and removes it from the queue.
+     *
+     * @return the command to send
+     * @throws InterruptedException if the thread has been interrupted
+     */
+    public String take() throws InterruptedException {
+        lock.lockInterruptibly();
+        try {
+            while (true) {
+                long now = currentTimeMillis();
+                long wait = lastSend + MIN_SEND_INTERVAL - now;
+                if (wait <= 0) {
+                    wait = 0;
+                    for (CULPriority priority : CULPriority.values()) {
+                        LinkedList<String> queue = queues.get(priority);
+                        String command = queue.peek();
+                        if (command == null) {
+                            continue;
+                        }
+
+                        int airtime = estimateAirtime(command);
+                        int required = airtime + (priority == CULPriority.LOW ? LOW_PRIORITY_RESERVE : 0);
+                        int credit = getEstimatedCredit(now);
+                        if (priority == CULPriority.HIGH || airtime == 0 || !creditKnown || credit >= required) {
+                            queue.poll();
+                            spentCredit += airtime;
+                            lastSend = now;
+                            return command;
+                        }
+
+                        if (deferredFrames.get(priority) != command) {
+                            deferredFrames.put(priority, command);
+                            deferred++;
+                            logger.debug("Deferring '{}', it needs {} of the remaining {} credits", command.trim(),
+                                    required, credit);
+                        }
+                        // lower priorities wait behind the deferred frame
+                        wait = (required - credit) * CREDIT_REGENERATION_TIME;
+                        break;
+                    }
+                }
+
+                if (wait > 0) {
+                    changed.await(wait, TimeUnit.MILLISECONDS);
+                } else {
+                    changed.await();
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Returns the number of commands waiting to be sent.
+     */
+    public int getQueueSize() {
+        lock.lock();
+        try {
+            int size = 0;
+            for (LinkedList<String> queue : queues.values()) {
+                size += queue.size();
+            }
+            return size;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Returns the number of frames which had to wait for credit.
+     */
+    public long getDeferredFrames() {
+        lock.lock();
+        try {
+            return deferred;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Returns the number of low priority frames replaced by a newer one.
+     */
+    public long getMergedFrames() {
+        lock.lock();
+        try {
+            return merged;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    protected long currentTimeMillis() {
+        return System.currentTimeMillis();
+    }
+
+    private int getEstimatedCredit(long now) {
+        long regained = (now - reportTime) / CREDIT_REGENERATION_TIME;
+        return (int) Math.min(MAX_CREDIT, reportedCredit + regained) - spentCredit;
+    }
+
+    /**
+     * Estimates the airtime of a culfw command in 10ms units, commands which
+     * don't send a frame need no airtime.
+     */
+    static int estimateAirtime(String command) {
+        String frame = command.trim();
+        if (frame.startsWith("F") || isFhtFrame(frame)) {
+            // FS20 and FHT frames are repeated, about 60ms each
+            return 20;
+        } else if (frame.startsWith("is")) {
+            // Intertechno frames are repeated six times
+            return 10;
+        } else if (frame.startsWith("As")) {
+            // AskSin at 10kBit/s, a burst frame wakes up the device with a 360ms preamble
+            int airtime = getFrameAirtime(frame);
+            try {
+                if (frame.length() >= 8 && (Integer.parseInt(frame.substring(6, 8), 16) & 0x10) != 0) {
+                    airtime += 36;
+                }
+            } catch (NumberFormatException e) {
+                airtime += 36;
+            }
+            return airtime;
+        } else if (frame.startsWith("Zs")) {
+            // MAX! at 10kBit/s with a preamble of one second
+            return 100 + getFrameAirtime(frame);
+        } else if (frame.startsWith("Zf")) {
+            // MAX! fast send without preamble
+            return getFrameAirtime(frame);
+        }
+        return 0;
+    }
+
+    /**
+     * FHT frames consist of the housecode and at least one command and
+     * argument, shorter commands like <code>T01</code> followed by the
+     * housecode only configure the CUL.
+     */
+    private static boolean isFhtFrame(String frame) {
+        return frame.startsWith("T") && frame.length() >= 9;
+    }
+
+    /**
+     * Estimates the airtime of a frame in hex notation at 10kBit/s, including
+     * preamble, sync word and checksum.
+     */
+    private static int getFrameAirtime(String frame) {
+        int bytes = (frame.length() - 2) / 2 + 8;
+        return (bytes * 8 + 99) / 100;
+    }
+
+    /**
+     * FS20 commands are merged per device (house code and address), FHT
+     * register writes per device and first register, all other commands only
+     * if they are equal.
+     */
+    private static String getMergeKey(String command) {
+        String frame = command.trim();
+        if (frame.startsWith("F") && frame.length() >= 7) {
+            return frame.substring(0, 7);
+        }
+        return frame;
+    }
+}
@@ -0,0 +1,179 @@
+/**
+ * Copyright (c) 2010-2016 by the respective copyright holders.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.io.transport.mqtt.internal;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.openhab.core.events.EventPublisher;
+import org.openhab.io.transport.mqtt.MqttMessageConsumer;
+
+public class MqttTopicTrieTest {
+
+    private MqttTopicTrie sut;
+
+    private List<MqttMessageConsumer> matches;
+
+    @Before
+    public void setUp() {
+        sut = new MqttTopicTrie();
+        matches = new ArrayList<MqttMessageConsumer>();
+    }
+
+    @Test
+    public void collectMatches_matchesExactTopic() {
+        Consumer consumer = add("home/kitchen/temperature");
+        add("home/kitchen/humidity");
+        add("home/kitchen");
+
+        assertMatches("home/kitchen/temperature", consumer);
+        assertMatches("home/kitchen/temperature/raw");
+        assertMatches("home/kitchen/temp");
+        assertMatches("home/kitchen/temperatures");
+    }
+
+    @Test
+    public void collectMatches_singleLevelWildcardMatchesOneLevel() {
+        Consumer consumer = add("home/+/temperature");
+        Consumer exact = add("home/kitchen/temperature");
+
+        assertMatches("home/kitchen/temperature", exact, consumer);
+        assertMatches("home/cellar/temperature", consumer);
+        assertMatches("home//temperature", consumer);
+        assertMatches("home/temperature");
+        assertMatches("home/kitchen/cellar/temperature");
+    }
+
+    @Test
+    public void collectMatches_singleLevelWildcardAtEnd() {
+        Consumer consumer = add("home/+");
+
+        assertMatches("home/kitchen", consumer);
+        assertMatches("home/", consumer);
+        assertMatches("home");
+        assertMatches("home/kitchen/temperature");
+    }
+
+    @Test
+    public void collectMatches_multiLevelWildcardMatchesAllLevelsAndParent() {
+        Consumer consumer = add("home/#");
+
+        assertMatches("home", consumer);
+        assertMatches("home/kitchen", consumer);
+        assertMatches("home/kitchen/temperature", consumer);
+        assertMatches("homes/kitchen");
+        assertMatches("office/home");
+    }
+
+    @Test
+    public void collectMatches_combinesWildcards() {
+        Consumer all = add("#");
+        Consumer combined = add("+/kitchen/#");
+        Consumer other = add("+/cellar/+");
+
+        assertMatches("home/kitchen/temperature", all, combined);
+        assertMatches("home/kitchen", all, combined);
+        assertMatches("home/cellar/temperature", all, other);
+        assertMatches("home/cellar", all);
+    }
+
+    @Test
+    public void collectMatches_findsManySiblings() {
+        List<Consumer> consumers = new ArrayList<Consumer>();
+        for (int i = 0; i < 100; i++) {
+            consumers.add(add("home/item" + i + "/state"));
+        }
+
+        for (int i = 0; i < 100; i++) {
+            assertMatches("home/item" + i + "/state", consumers.get(i));
+        }
+        assertMatches("home/item100/state");
+    }
+
+    @Test
+    public void remove_removesOnlyGivenConsumer() {
+        Consumer first = add("home/+/temperature");
+        Consumer second = add("home/+/temperature");
+        Consumer multiLevel = add("home/#");
+
+        assertTrue(sut.remove("home/+/temperature", first));
+        assertFalse(sut.remove("home/+/temperature", first));
+        assertMatches("home/kitchen/temperature", multiLevel, second);
+
+        assertTrue(sut.remove("home/#", multiLevel));
+        assertTrue(sut.remove("home/+/temperature", second));
+        assertMatches("home/kitchen/temperature");
+        assertTrue(sut.isEmpty());
+    }
+
+    @Test
+    public void remove_keepsSiblings() {
+        List<Consumer> consumers = new ArrayList<Consumer>();
+        for (int i = 0; i < 20; i++) {
+            consumers.add(add("home/item" + i));
+        }
+        for (int i = 0; i < 20; i += 2) {
+            assertTrue(sut.remove("home/item" + i, consumers.get(i)));
+        }
+
+        for (int i = 0; i < 20; i++) {
+            if (i % 2 == 0) {
+                assertMatches("home/item" + i);
+            } else {
+                assertMatches("home/item" + i, consumers.get(i));
+            }
+        }
+    }
+
+    private Consumer add(String topic) {
+        Consumer consumer = new Consumer(topic);
+        sut.add(topic, consumer);
+        return consumer;
+    }
+
+    private void assertMatches(String topic, MqttMessageConsumer... expected) {
+        matches.clear();
+        sut.collectMatches(topic, matches);
+        assertEquals(topic, expected.length, matches.size());
+        for (MqttMessageConsumer consumer : expected) {
+            assertTrue(topic, matches.contains(consumer));
+        }
+    }
+
+    private static class Consumer implements MqttMessageConsumer {
+
+        private String topic;
+
+        public Consumer(String topic) {
+            this.topic = topic;
+        }
+
+        @Override
+        public void processMessage(String topic, byte[] payload) {
+        }
+
+        @Override
+        public String getTopic() {
+            return topic;
+        }
+
+        @Override
+        public void setTopic(String topic) {
+            this.topic = topic;
+        }
+
+        @Override
+        public void setEventPublisher(EventPublisher eventPublisher) {
+        }
+    }
+}
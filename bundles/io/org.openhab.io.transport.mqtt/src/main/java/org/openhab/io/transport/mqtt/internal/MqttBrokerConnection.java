@@ -9,6 +9,7 @@
 package org.openhab.io.transport.mqtt.internal;
 
 import java.security.cert.X509Certificate;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Properties;
 import java.util.Timer;
@@ -77,6 +78,14 @@ public class MqttBrokerConnection implements MqttCallback {
 
     private List<MqttMessageConsumer> consumers = new CopyOnWriteArrayList<MqttMessageConsumer>();
 
+    private MqttTopicTrie subscriptions = new MqttTopicTrie();
+
+    /**
+     * consumers matching the current message, only used by the callback
+     * thread of the client which delivers one message after another
+     */
+    private final List<MqttMessageConsumer> matches = new ArrayList<MqttMessageConsumer>();
+
     private List<MqttMessageProducer> producers = new CopyOnWriteArrayList<MqttMessageProducer>();
 
     private Timer reconnectTimer;
@@ -445,6 +454,7 @@ public class MqttBrokerConnection implements MqttCallback {
      */
     public synchronized void addConsumer(MqttMessageConsumer subscriber) {
         consumers.add(subscriber);
+        subscriptions.add(subscriber.getTopic(), subscriber);
         if (started) {
             startConsumer(subscriber);
         }
@@ -497,6 +507,7 @@ public class MqttBrokerConnection implements MqttCallback {
             logger.error("Error unsubscribing topic from broker", e);
         }
         consumers.remove(subscriber);
+        subscriptions.remove(subscriber.getTopic(), subscriber);
 
     }
 
@@ -546,45 +557,17 @@ public class MqttBrokerConnection implements MqttCallback {
     @Override
     public void messageArrived(String topic, MqttMessage message) throws Exception {
 
-        logger.trace("Received message on topic '{}' : {}", topic, new String(message.getPayload()));
-        for (MqttMessageConsumer consumer : consumers) {
-            if (isTopicMatch(topic, consumer.getTopic())) {
-                consumer.processMessage(topic, message.getPayload());
-            }
-        }
-    }
-
-    /**
-     * Check if the topic on which a message was received matches provided
-     * target topic. The matching will take into account the + and # wildcards.
-     * 
-     * @param source
-     *            topic from received message
-     * @param target
-     *            topic as defined with possible wildcards.
-     * @return true if both topics match.
-     */
-    private boolean isTopicMatch(String source, String target) {
-        if (source.equals(target)) {
-            return true;
+        if (logger.isTraceEnabled()) {
+            logger.trace("Received message on topic '{}' : {}", topic, new String(message.getPayload()));
         }
-        if (target.indexOf('+') == -1 && target.indexOf('#') == -1) {
-            return false;
-        } else {
-
-            String regex = target;
-            regex = StringUtils.replace(regex, "+", "[^/]*");
-            regex = StringUtils.replace(regex, "#", ".*");
-            boolean result = source.matches(regex);
-            if (result) {
-                logger.trace("Topic match for '{}' and '{}' using regex {}", source, target, regex);
-                return true;
-            } else {
-                logger.trace("No topic match for '{}' and '{}' using regex {}", source, target, regex);
-                return false;
+        subscriptions.collectMatches(topic, matches);
+        try {
+            for (int i = 0; i < matches.size(); i++) {
+                matches.get(i).processMessage(topic, message.getPayload());
             }
+        } finally {
+            matches.clear();
         }
-
     }
 
     /**
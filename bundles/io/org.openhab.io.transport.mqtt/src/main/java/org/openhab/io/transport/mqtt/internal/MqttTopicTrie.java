@@ -0,0 +1,301 @@
+/**
+ * Copyright (c) 2010-2016 by the respective copyright holders.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.io.transport.mqtt.internal;
+
+import java.util.Arrays;
+import java.util.Collection;
+
+import org.openhab.io.transport.mqtt.MqttMessageConsumer;
+
+/**
+ * Subscription tree which maps MQTT topic filters to the consumers that
+ * subscribed to them. Every level of a topic filter is a node in the tree,
+ * the + and # wildcards have their own nodes. Matching a topic therefore only
+ * walks the levels of the topic instead of testing every subscription.
+ *
+ * Matching works on the topic string by index and doesn't allocate, the
+ * nodes are copied on modification instead. Lookups are safe to run
+ * concurrently with modifications. Modifications themselves must be
+ * serialized by the caller.
+ *
+ * @author Davy Vanherbergen
+ * @since 1.9.0
+ */
+public class MqttTopicTrie {
+
+    private static final String SINGLE_LEVEL_WILDCARD = "+";
+
+    private static final String MULTI_LEVEL_WILDCARD = "#";
+
+    private static final MqttMessageConsumer[] NO_CONSUMERS = new MqttMessageConsumer[0];
+
+    private static final Node[] NO_CHILDREN = new Node[0];
+
+    private final Node root = new Node(null);
+
+    /**
+     * Register a consumer for the given topic filter.
+     *
+     * @param topicFilter
+     *            topic, may contain + or # wildcards.
+     * @param consumer
+     *            to register.
+     */
+    public void add(String topicFilter, MqttMessageConsumer consumer) {
+        if (topicFilter == null) {
+            return;
+        }
+        Node node = root;
+        for (String level : topicFilter.split("/", -1)) {
+            if (MULTI_LEVEL_WILDCARD.equals(level)) {
+                node.multiLevelConsumers = add(node.multiLevelConsumers, consumer);
+                return;
+            }
+            node = node.getOrAddChild(level);
+        }
+        node.consumers = add(node.consumers, consumer);
+    }
+
+    /**
+     * Remove a consumer which was previously registered for the given topic
+     * filter.
+     *
+     * @param topicFilter
+     *            topic as used during registration.
+     * @param consumer
+     *            to remove.
+     * @return true if the consumer was found and removed.
+     */
+    public boolean remove(String topicFilter, MqttMessageConsumer consumer) {
+        if (topicFilter == null) {
+            return false;
+        }
+        return remove(root, topicFilter.split("/", -1), 0, consumer);
+    }
+
+    private boolean remove(Node node, String[] levels, int index, MqttMessageConsumer consumer) {
+        if (index == levels.length) {
+            MqttMessageConsumer[] consumers = node.consumers;
+            node.consumers = remove(consumers, consumer);
+            return node.consumers != consumers;
+        }
+        if (MULTI_LEVEL_WILDCARD.equals(levels[index])) {
+            MqttMessageConsumer[] consumers = node.multiLevelConsumers;
+            node.multiLevelConsumers = remove(consumers, consumer);
+            return node.multiLevelConsumers != consumers;
+        }
+        Node child = node.getChild(levels[index]);
+        if (child == null) {
+            return false;
+        }
+        boolean removed = remove(child, levels, index + 1, consumer);
+        if (child.isEmpty()) {
+            node.removeChild(child);
+        }
+        return removed;
+    }
+
+    /**
+     * Collect all consumers whose topic filter matches the given topic.
+     *
+     * @param topic
+     *            topic of a received message, without wildcards.
+     * @param result
+     *            collection to which the matching consumers are added.
+     */
+    public void collectMatches(String topic, Collection<MqttMessageConsumer> result) {
+        collectMatches(root, topic, 0, result);
+    }
+
+    /**
+     * @param start
+     *            index of the first character of the next topic level, or -1
+     *            if all levels of the topic have been consumed.
+     */
+    private void collectMatches(Node node, String topic, int start, Collection<MqttMessageConsumer> result) {
+        // # also matches the parent level itself
+        addAll(node.multiLevelConsumers, result);
+        if (start < 0) {
+            addAll(node.consumers, result);
+            return;
+        }
+
+        int end = topic.indexOf('/', start);
+        int next = end < 0 ? -1 : end + 1;
+        if (end < 0) {
+            end = topic.length();
+        }
+
+        Node child = node.findChild(topic, start, end);
+        if (child != null) {
+            collectMatches(child, topic, next, result);
+        }
+        Node wildcard = node.wildcardChild;
+        if (wildcard != null) {
+            collectMatches(wildcard, topic, next, result);
+        }
+    }
+
+    /**
+     * @return true if no consumers are registered.
+     */
+    public boolean isEmpty() {
+        return root.isEmpty();
+    }
+
+    private static void addAll(MqttMessageConsumer[] consumers, Collection<MqttMessageConsumer> result) {
+        for (int i = 0; i < consumers.length; i++) {
+            result.add(consumers[i]);
+        }
+    }
+
+    private static MqttMessageConsumer[] add(MqttMessageConsumer[] consumers, MqttMessageConsumer consumer) {
+        MqttMessageConsumer[] copy = Arrays.copyOf(consumers, consumers.length + 1);
+        copy[consumers.length] = consumer;
+        return copy;
+    }
+
+    /**
+     * @return the consumers without the first occurrence of the given one, or
+     *         the same array if it doesn't contain it.
+     */
+    private static MqttMessageConsumer[] remove(MqttMessageConsumer[] consumers, MqttMessageConsumer consumer) {
+        for (int i = 0; i < consumers.length; i++) {
+            if (consumers[i].equals(consumer)) {
+                if (consumers.length == 1) {
+                    return NO_CONSUMERS;
+                }
+                MqttMessageConsumer[] copy = new MqttMessageConsumer[consumers.length - 1];
+                System.arraycopy(consumers, 0, copy, 0, i);
+                System.arraycopy(consumers, i + 1, copy, i, copy.length - i);
+                return copy;
+            }
+        }
+        return consumers;
+    }
+
+    /**
+     * Computes the same hash as {@link String#hashCode()} for a part of the
+     * topic.
+     */
+    private static int hash(String topic, int start, int end) {
+        int hash = 0;
+        for (int i = start; i < end; i++) {
+            hash = 31 * hash + topic.charAt(i);
+        }
+        return hash;
+    }
+
+    private static class Node {
+
+        private final String level;
+
+        private volatile MqttMessageConsumer[] consumers = NO_CONSUMERS;
+
+        private volatile MqttMessageConsumer[] multiLevelConsumers = NO_CONSUMERS;
+
+        /** the child for the + wildcard */
+        private volatile Node wildcardChild;
+
+        /**
+         * all other children in an open addressing hash table which is
+         * replaced on every modification, its length is a power of two
+         */
+        private volatile Node[] children = NO_CHILDREN;
+
+        private int childCount = 0;
+
+        public Node(String level) {
+            this.level = level;
+        }
+
+        private Node findChild(String topic, int start, int end) {
+            Node[] table = children;
+            if (table.length == 0) {
+                return null;
+            }
+            int length = end - start;
+            int mask = table.length - 1;
+            for (int i = hash(topic, start, end) & mask;; i = (i + 1) & mask) {
+                Node child = table[i];
+                if (child == null) {
+                    return null;
+                }
+                if (child.level.length() == length && topic.regionMatches(start, child.level, 0, length)) {
+                    return child;
+                }
+            }
+        }
+
+        private Node getChild(String level) {
+            if (SINGLE_LEVEL_WILDCARD.equals(level)) {
+                return wildcardChild;
+            }
+            return findChild(level, 0, level.length());
+        }
+
+        private Node getOrAddChild(String level) {
+            Node child = getChild(level);
+            if (child == null) {
+                child = new Node(level);
+                if (SINGLE_LEVEL_WILDCARD.equals(level)) {
+                    wildcardChild = child;
+                } else {
+                    childCount++;
+                    children = rehash(children, child, null);
+                }
+            }
+            return child;
+        }
+
+        private void removeChild(Node child) {
+            if (child == wildcardChild) {
+                wildcardChild = null;
+            } else {
+                childCount--;
+                children = rehash(children, null, child);
+            }
+        }
+
+        /**
+         * Builds a new table, which has at least twice as many slots as
+         * children.
+         */
+        private Node[] rehash(Node[] table, Node added, Node removed) {
+            if (childCount == 0) {
+                return NO_CHILDREN;
+            }
+            int size = Integer.highestOneBit(childCount * 2 - 1) << 1;
+            Node[] copy = new Node[size];
+            for (Node child : table) {
+                if (child != null && child != removed) {
+                    insert(copy, child);
+                }
+            }
+            if (added != null) {
+                insert(copy, added);
+            }
+            return copy;
+        }
+
+        private void insert(Node[] table, Node child) {
+            int mask = table.length - 1;
+            int i = child.level.hashCode() & mask;
+            while (table[i] != null) {
+                i = (i + 1) & mask;
+            }
+            table[i] = child;
+        }
+
+        private boolean isEmpty() {
+            return childCount == 0 && wildcardChild == null && consumers.length == 0
+                    && multiLevelConsumers.length == 0;
+        }
+    }
+}
@@ -0,0 +1,256 @@
+/**
+ * Copyright (c) 2010-2016 by the respective copyright holders.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.persistence.jdbc.internal;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.After;
+import org.junit.Test;
+import org.openhab.persistence.jdbc.db.JdbcBaseDAO;
+import org.openhab.persistence.jdbc.model.ItemVO;
+
+import junit.framework.Assert;
+
+/**
+ * Runs the write-behind queue against a DAO stub which records the batches
+ * and fails on request.
+ *
+ * @author Helmut Lehmeyer
+ * @since 1.9.0
+ */
+public class JdbcWriteBehindQueueTest {
+
+    private static final long TIMEOUT = 5000;
+
+    private StubDAO dao = new StubDAO();
+
+    private JdbcWriteBehindQueue queue;
+
+    @After
+    public void tearDown() {
+        if (queue != null) {
+            queue.stop();
+        }
+    }
+
+    @Test
+    public void testBatchSizeTriggersFlush() throws InterruptedException {
+        start(3, 60000, 100);
+
+        Assert.assertTrue(queue.offer(value("item0001", 1, 10)));
+        Assert.assertTrue(queue.offer(value("item0001", 2, 20)));
+        Assert.assertTrue(queue.offer(value("item0001", 3, 30)));
+
+        dao.awaitBatches(1);
+        Assert.assertEquals("item0001=[10, 20, 30]", dao.getBatch(0));
+    }
+
+    @Test
+    public void testIntervalFlushesOneBatchPerTable() throws InterruptedException {
+        start(100, 50, 100);
+
+        queue.offer(value("item0001", 1, 10));
+        queue.offer(value("item0002", 2, 20));
+        queue.offer(value("item0001", 3, 30));
+
+        dao.awaitBatches(2);
+        Assert.assertEquals("item0001=[10, 30]", dao.getBatch(0));
+        Assert.assertEquals("item0002=[20]", dao.getBatch(1));
+    }
+
+    @Test
+    public void testFailedTableIsRetriedBeforeNewerValues() throws InterruptedException {
+        start(100, 50, 100);
+        dao.failures = 1;
+
+        queue.offer(value("item0001", 1, 10));
+        dao.awaitAttempts(1);
+        queue.offer(value("item0001", 2, 20));
+
+        dao.awaitBatches(1);
+        Assert.assertEquals("item0001=[10, 20]", dao.getBatch(0));
+        Assert.assertTrue(queue.getStatistics(), queue.getStatistics().contains("retried=1,"));
+        Assert.assertTrue(queue.getStatistics(), queue.getStatistics().contains("failed=0,"));
+    }
+
+    @Test
+    public void testGivesUpAfterMaxAttempts() throws InterruptedException {
+        start(100, 20, 100);
+        dao.failures = JdbcWriteBehindQueue.MAX_ATTEMPTS;
+
+        queue.offer(value("item0001", 1, 10));
+        dao.awaitAttempts(JdbcWriteBehindQueue.MAX_ATTEMPTS);
+        queue.stop();
+
+        Assert.assertEquals(JdbcWriteBehindQueue.MAX_ATTEMPTS, dao.attempts);
+        Assert.assertTrue(dao.batches.isEmpty());
+        Assert.assertTrue(queue.getStatistics(), queue.getStatistics().contains("failed=1,"));
+    }
+
+    @Test
+    public void testFailedBatchIsStoredOneByOne() throws InterruptedException {
+        start(3, 60000, 100);
+        dao.rejected = 20;
+
+        queue.offer(value("item0001", 1, 10));
+        queue.offer(value("item0001", 2, 20));
+        queue.offer(value("item0001", 3, 30));
+
+        // the batch and then each value on its own
+        dao.awaitAttempts(4);
+        dao.awaitBatches(2);
+        Assert.assertEquals("item0001=[10]", dao.getBatch(0));
+        Assert.assertEquals("item0001=[30]", dao.getBatch(1));
+        Assert.assertTrue(queue.getStatistics(), queue.getStatistics().contains("stored=2,"));
+        Assert.assertTrue(queue.getStatistics(), queue.getStatistics().contains("retried=1,"));
+    }
+
+    @Test
+    public void testStopInterruptsSlowWrite() throws InterruptedException {
+        start(1, 60000, 100);
+        dao.blocking = true;
+
+        queue.offer(value("item0001", 1, 10));
+        dao.awaitAttempts(1);
+        long start = System.currentTimeMillis();
+        queue.stop();
+
+        Assert.assertTrue(System.currentTimeMillis() - start < JdbcWriteBehindQueue.STOP_TIMEOUT);
+        // the interrupted value is written by the last flush of the background thread
+        Assert.assertEquals(1, dao.batches.size());
+        Assert.assertEquals("item0001=[10]", dao.getBatch(0));
+    }
+
+    @Test
+    public void testFullQueueRefusesValues() {
+        start(100, 60000, 2);
+
+        Assert.assertTrue(queue.offer(value("item0001", 1, 10)));
+        Assert.assertTrue(queue.offer(value("item0002", 2, 20)));
+        Assert.assertFalse(queue.offer(value("item0001", 3, 30)));
+        Assert.assertTrue(queue.getStatistics(), queue.getStatistics().contains("refused=1,"));
+
+        // the pending values are written on stop
+        queue.stop();
+        Assert.assertEquals(2, dao.batches.size());
+        Assert.assertEquals("item0001=[10]", dao.getBatch(0));
+        Assert.assertEquals("item0002=[20]", dao.getBatch(1));
+    }
+
+    @Test
+    public void testStoppedQueueRefusesValues() {
+        queue = new JdbcWriteBehindQueue(configuration(100, 60000, 100));
+        Assert.assertFalse(queue.offer(value("item0001", 1, 10)));
+
+        queue.start();
+        queue.stop();
+        Assert.assertFalse(queue.offer(value("item0001", 2, 20)));
+    }
+
+    @Test
+    public void testSameMillisecondReplacesValue() {
+        start(100, 60000, 100);
+
+        queue.offer(value("item0001", 1, 10));
+        queue.offer(value("item0001", 1, 20));
+        queue.stop();
+
+        Assert.assertEquals("item0001=[20]", dao.getBatch(0));
+        Assert.assertTrue(queue.getStatistics(), queue.getStatistics().contains("replaced=1"));
+    }
+
+    private void start(int batchSize, long interval, int queueSize) {
+        queue = new JdbcWriteBehindQueue(configuration(batchSize, interval, queueSize));
+        queue.start();
+    }
+
+    private JdbcConfiguration configuration(int batchSize, long interval, int queueSize) {
+        Map<Object, Object> configuration = new HashMap<Object, Object>();
+        configuration.put("url", "jdbc:h2:./testH2");
+        configuration.put("writeBehind", "true");
+        configuration.put("writeBehindBatchSize", String.valueOf(batchSize));
+        configuration.put("writeBehindInterval", String.valueOf(interval));
+        configuration.put("writeBehindQueueSize", String.valueOf(queueSize));
+        return new JdbcConfiguration(configuration) {
+            @Override
+            public JdbcBaseDAO getDBDAO() {
+                return dao;
+            }
+        };
+    }
+
+    private static ItemVO value(String table, long time, int value) {
+        ItemVO vo = new ItemVO(table, null);
+        vo.setTime(new Date(time));
+        vo.setValue(value);
+        return vo;
+    }
+
+    private static class StubDAO extends JdbcBaseDAO {
+        private final List<List<ItemVO>> batches = new ArrayList<List<ItemVO>>();
+        private volatile int failures = 0;
+        private volatile Object rejected;
+        private volatile boolean blocking = false;
+        private int attempts = 0;
+
+        @Override
+        public synchronized void doStoreItemValues(List<ItemVO> vol) throws SQLException {
+            attempts++;
+            notifyAll();
+            if (failures > 0) {
+                failures--;
+                throw new SQLException("database is down");
+            }
+            if (blocking) {
+                blocking = false;
+                try {
+                    wait();
+                } catch (InterruptedException e) {
+                    throw new SQLException("interrupted");
+                }
+            }
+            for (ItemVO vo : vol) {
+                if (vo.getValue().equals(rejected)) {
+                    throw new SQLException("duplicate key value");
+                }
+            }
+            batches.add(new ArrayList<ItemVO>(vol));
+        }
+
+        synchronized String getBatch(int index) {
+            List<ItemVO> batch = batches.get(index);
+            List<Object> values = new ArrayList<Object>();
+            for (ItemVO vo : batch) {
+                values.add(vo.getValue());
+            }
+            return batch.get(0).getTableName() + "=" + values;
+        }
+
+        synchronized void awaitBatches(int count) throws InterruptedException {
+            long deadline = System.currentTimeMillis() + TIMEOUT;
+            while (batches.size() < count && System.currentTimeMillis() < deadline) {
+                wait(TIMEOUT);
+            }
+            Assert.assertEquals(count, batches.size());
+        }
+
+        synchronized void awaitAttempts(int count) throws InterruptedException {
+            long deadline = System.currentTimeMillis() + TIMEOUT;
+            while (attempts < count && System.currentTimeMillis() < deadline) {
+                wait(TIMEOUT);
+            }
+            Assert.assertEquals(count, attempts);
+        }
+    }
+}
@@ -9,6 +9,9 @@
 package org.openhab.persistence.jdbc.db;
 
 import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
 import java.sql.Timestamp;
 import java.util.ArrayList;
 import java.util.Calendar;
@@ -67,6 +70,7 @@ public class JdbcBaseDAO {
     protected String SQL_GET_ITEM_TABLES;
     protected String SQL_CREATE_ITEM_TABLE;
     protected String SQL_INSERT_ITEM_VALUE;
+    protected String SQL_INSERT_ITEM_VALUE_AT;
 
     /********
      * INIT *
@@ -99,6 +103,7 @@ public class JdbcBaseDAO {
         SQL_GET_ITEM_TABLES = "SELECT table_name FROM information_schema.tables WHERE table_type='BASE TABLE' AND table_schema=#jdbcUriDatabaseName# AND NOT table_name=#itemsManageTable#";
         SQL_CREATE_ITEM_TABLE = "CREATE TABLE IF NOT EXISTS #tableName# (time TIMESTAMP NOT NULL, value #dbType#, PRIMARY KEY(time))";
         SQL_INSERT_ITEM_VALUE = "INSERT INTO #tableName# (TIME, VALUE) VALUES( NOW(), ? ) ON DUPLICATE KEY UPDATE VALUE= ?";
+        SQL_INSERT_ITEM_VALUE_AT = "INSERT INTO #tableName# (TIME, VALUE) VALUES( ?, ? ) ON DUPLICATE KEY UPDATE VALUE= ?";
     }
 
     /**
@@ -268,14 +273,58 @@ public class JdbcBaseDAO {
     }
 
     public void doStoreItemValue(Item item, ItemVO vo) {
-        vo = storeItemValueProvider(item, vo);
-        String sql = StringUtilsExt.replaceArrayMerge(SQL_INSERT_ITEM_VALUE, new String[] { "#tableName#" },
-                new String[] { vo.getTableName() });
-        Object[] params = new Object[] { vo.getValue(), vo.getValue() };
+        doStoreItemValue(storeItemValueProvider(item, vo));
+    }
+
+    public void doStoreItemValue(ItemVO vo) {
+        String sql = storeItemValueSqlProvider(vo);
+        Object[] params = storeItemValueParamsProvider(vo);
         logger.debug("JDBC::doStoreItemValue sql={} value='{}'", sql, vo.getValue());
         Yank.execute(sql, params);
     }
 
+    /**
+     * Stores already converted values of one item table as one JDBC batch
+     * within one transaction. Either all values are stored or none.
+     */
+    public void doStoreItemValues(List<ItemVO> vol) throws SQLException {
+        String sql = storeItemValueSqlProvider(vol.get(0));
+        logger.debug("JDBC::doStoreItemValues sql={} values={}", sql, vol.size());
+
+        Connection con = Yank.getDataSource().getConnection();
+        try {
+            con.setAutoCommit(false);
+            PreparedStatement ps = con.prepareStatement(sql);
+            try {
+                for (ItemVO vo : vol) {
+                    Object[] params = storeItemValueParamsProvider(vo);
+                    for (int i = 0; i < params.length; i++) {
+                        ps.setObject(i + 1, params[i]);
+                    }
+                    ps.addBatch();
+                }
+                ps.executeBatch();
+            } finally {
+                ps.close();
+            }
+            con.commit();
+        } catch (SQLException e) {
+            try {
+                con.rollback();
+            } catch (SQLException re) {
+                logger.warn("JDBC::doStoreItemValues: rollback failed: {}", re.getMessage());
+            }
+            throw e;
+        } finally {
+            try {
+                con.setAutoCommit(true);
+                con.close();
+            } catch (SQLException ce) {
+                logger.warn("JDBC::doStoreItemValues: unable to release connection: {}", ce.getMessage());
+            }
+        }
+    }
+
     public List<HistoricItem> doGetHistItemFilterQuery(Item item, FilterCriteria filter, int numberDecimalcount,
             String table, String name) {
         String sql = histItemFilterQueryProvider(filter, numberDecimalcount, table, name);
@@ -336,7 +385,46 @@ public class JdbcBaseDAO {
         return queryString;
     }
 
-    protected ItemVO storeItemValueProvider(Item item, ItemVO vo) {
+    protected String storeItemValueSqlProvider(ItemVO vo) {
+        return StringUtilsExt.replaceArrayMerge(insertItemValueSql(vo), new String[] { "#tableName#" },
+                new String[] { vo.getTableName() });
+    }
+
+    /**
+     * Values without a time are stored with the time of the database,
+     * values with a time (queued by the write-behind queue) with that time.
+     */
+    protected String insertItemValueSql(ItemVO vo) {
+        return vo.getTime() == null ? SQL_INSERT_ITEM_VALUE : SQL_INSERT_ITEM_VALUE_AT;
+    }
+
+    protected Object[] storeItemValueParamsProvider(ItemVO vo) {
+        return storeItemValueParams(vo, vo.getValue(), vo.getValue());
+    }
+
+    /**
+     * Prepends the time parameter to the value parameters if the value has a
+     * time.
+     */
+    protected Object[] storeItemValueParams(ItemVO vo, Object... values) {
+        if (vo.getTime() == null) {
+            return values;
+        }
+        Object[] params = new Object[values.length + 1];
+        params[0] = storeItemTimeProvider(vo);
+        System.arraycopy(values, 0, params, 1, values.length);
+        return params;
+    }
+
+    /**
+     * Returns the time the item state was stored, as parameter for the TIME
+     * column.
+     */
+    protected Object storeItemTimeProvider(ItemVO vo) {
+        return new Timestamp(vo.getTime().getTime());
+    }
+
+    public ItemVO storeItemValueProvider(Item item, ItemVO vo) {
         String itemType = getItemType(item);
 
         logger.debug("JDBC::storeItemValueProvider: item '{}' as Type '{}' in '{}' with state '{}'", item.getName(),
@@ -9,7 +9,6 @@
 package org.openhab.persistence.jdbc.db;
 
 import org.knowm.yank.Yank;
-import org.openhab.core.items.Item;
 import org.openhab.persistence.jdbc.model.ItemVO;
 import org.openhab.persistence.jdbc.model.ItemsVO;
 import org.openhab.persistence.jdbc.utils.StringUtilsExt;
@@ -49,6 +48,9 @@ public class JdbcHsqldbDAO extends JdbcBaseDAO {
         SQL_INSERT_ITEM_VALUE = "MERGE INTO #tableName# "
                 + "USING (VALUES NOW(), CAST( ? as #dbType#)) temp (TIME, VALUE) ON (#tableName#.TIME=temp.TIME) "
                 + "WHEN NOT MATCHED THEN INSERT (TIME, VALUE) VALUES (temp.TIME, temp.VALUE)";
+        SQL_INSERT_ITEM_VALUE_AT = "MERGE INTO #tableName# "
+                + "USING (VALUES CAST( ? as TIMESTAMP), CAST( ? as #dbType#)) temp (TIME, VALUE) ON (#tableName#.TIME=temp.TIME) "
+                + "WHEN NOT MATCHED THEN INSERT (TIME, VALUE) VALUES (temp.TIME, temp.VALUE)";
     }
 
     /**
@@ -101,14 +103,15 @@ public class JdbcHsqldbDAO extends JdbcBaseDAO {
      * ITEM DAOs *
      *************/
     @Override
-    public void doStoreItemValue(Item item, ItemVO vo) {
-        vo = storeItemValueProvider(item, vo);
-        String sql = StringUtilsExt.replaceArrayMerge(SQL_INSERT_ITEM_VALUE,
+    protected String storeItemValueSqlProvider(ItemVO vo) {
+        return StringUtilsExt.replaceArrayMerge(insertItemValueSql(vo),
                 new String[] { "#tableName#", "#dbType#", "#tableName#" },
                 new String[] { vo.getTableName(), vo.getDbType(), vo.getTableName() });
-        Object[] params = new Object[] { vo.getValue() };
-        logger.debug("JDBC::doStoreItemValue sql={} value='{}'", sql, vo.getValue());
-        Yank.execute(sql, params);
+    }
+
+    @Override
+    protected Object[] storeItemValueParamsProvider(ItemVO vo) {
+        return storeItemValueParams(vo, vo.getValue());
     }
 
     /****************************
@@ -8,8 +8,10 @@
  */
 package org.openhab.persistence.jdbc.db;
 
+import org.joda.time.DateTimeZone;
+import org.joda.time.format.DateTimeFormat;
+import org.joda.time.format.DateTimeFormatter;
 import org.knowm.yank.Yank;
-import org.openhab.core.items.Item;
 import org.openhab.persistence.jdbc.model.ItemVO;
 import org.openhab.persistence.jdbc.model.ItemsVO;
 import org.openhab.persistence.jdbc.utils.StringUtilsExt;
@@ -25,6 +27,9 @@ import org.slf4j.LoggerFactory;
  * @since 1.8.0
  */
 public class JdbcSqliteDAO extends JdbcBaseDAO {
+    private static final DateTimeFormatter utcDateFormat = DateTimeFormat.forPattern("yyyy-MM-dd HH:mm:ss")
+            .withZone(DateTimeZone.UTC);
+
     private static final Logger logger = LoggerFactory.getLogger(JdbcSqliteDAO.class);
 
     /********
@@ -42,6 +47,7 @@ public class JdbcSqliteDAO extends JdbcBaseDAO {
         SQL_IF_TABLE_EXISTS = "SELECT name FROM sqlite_master WHERE type='table' AND name='#searchTable#'";
         SQL_CREATE_ITEMS_TABLE_IF_NOT = "CREATE TABLE IF NOT EXISTS #itemsManageTable# (ItemId INTEGER PRIMARY KEY AUTOINCREMENT, #colname# #coltype# NOT NULL)";
         SQL_INSERT_ITEM_VALUE = "INSERT OR IGNORE INTO #tableName# (TIME, VALUE) VALUES( DATETIME('now'), CAST( ? as #dbType#) )";
+        SQL_INSERT_ITEM_VALUE_AT = "INSERT OR IGNORE INTO #tableName# (TIME, VALUE) VALUES( DATETIME(?), CAST( ? as #dbType#) )";
     }
 
     /**
@@ -78,13 +84,22 @@ public class JdbcSqliteDAO extends JdbcBaseDAO {
      * ITEM DAOs *
      *************/
     @Override
-    public void doStoreItemValue(Item item, ItemVO vo) {
-        vo = storeItemValueProvider(item, vo);
-        String sql = StringUtilsExt.replaceArrayMerge(SQL_INSERT_ITEM_VALUE, new String[] { "#tableName#", "#dbType#" },
+    protected String storeItemValueSqlProvider(ItemVO vo) {
+        return StringUtilsExt.replaceArrayMerge(insertItemValueSql(vo), new String[] { "#tableName#", "#dbType#" },
                 new String[] { vo.getTableName(), vo.getDbType() });
-        Object[] params = new Object[] { vo.getValue() };
-        logger.debug("JDBC::doStoreItemValue sql={} value='{}'", sql, vo.getValue());
-        Yank.execute(sql, params);
+    }
+
+    @Override
+    protected Object[] storeItemValueParamsProvider(ItemVO vo) {
+        return storeItemValueParams(vo, vo.getValue());
+    }
+
+    /**
+     * DATETIME('now') stored the time as UTC text, keep that format.
+     */
+    @Override
+    protected Object storeItemTimeProvider(ItemVO vo) {
+        return utcDateFormat.print(vo.getTime().getTime());
     }
 
     /****************************
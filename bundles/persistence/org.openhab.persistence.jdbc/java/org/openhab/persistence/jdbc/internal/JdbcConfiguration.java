@@ -52,6 +52,11 @@ public class JdbcConfiguration {
 
     private int errReconnectThreshold = 0;
 
+    private boolean writeBehind = false;
+    private int writeBehindBatchSize = 100;
+    private long writeBehindInterval = 1000;
+    private int writeBehindQueueSize = 1000;
+
     public int timerCount = 0;
     public int time1000Statements = 0;
     public long timer1000 = 0;
@@ -194,6 +199,30 @@ public class JdbcConfiguration {
             rebuildTableNames = "true".equals(rt) ? Boolean.parseBoolean(rt) : false;
             logger.debug("JDBC::updateConfig: rebuildTableNames={}", rebuildTableNames);
         }
+        String wb = (String) configuration.get("writeBehind");
+        if (StringUtils.isNotBlank(wb)) {
+            writeBehind = "true".equals(wb) ? Boolean.parseBoolean(wb) : false;
+            logger.debug("JDBC::updateConfig: writeBehind={}", writeBehind);
+        }
+
+        String wbs = (String) configuration.get("writeBehindBatchSize");
+        if (StringUtils.isNotBlank(wbs)) {
+            writeBehindBatchSize = Math.max(1, Integer.parseInt(wbs));
+            logger.debug("JDBC::updateConfig: writeBehindBatchSize={}", writeBehindBatchSize);
+        }
+
+        String wbi = (String) configuration.get("writeBehindInterval");
+        if (StringUtils.isNotBlank(wbi)) {
+            writeBehindInterval = Math.max(1, Long.parseLong(wbi));
+            logger.debug("JDBC::updateConfig: writeBehindInterval={}", writeBehindInterval);
+        }
+
+        String wbq = (String) configuration.get("writeBehindQueueSize");
+        if (StringUtils.isNotBlank(wbq)) {
+            writeBehindQueueSize = Math.max(1, Integer.parseInt(wbq));
+            logger.debug("JDBC::updateConfig: writeBehindQueueSize={}", writeBehindQueueSize);
+        }
+
         // undocumented
         String ac = (String) configuration.get("maximumPoolSize");
         if (StringUtils.isNotBlank(ac)) {
@@ -294,6 +323,22 @@ public class JdbcConfiguration {
         return rebuildTableNames;
     }
 
+    public boolean getWriteBehind() {
+        return writeBehind;
+    }
+
+    public int getWriteBehindBatchSize() {
+        return writeBehindBatchSize;
+    }
+
+    public long getWriteBehindInterval() {
+        return writeBehindInterval;
+    }
+
+    public int getWriteBehindQueueSize() {
+        return writeBehindQueueSize;
+    }
+
     public int getNumberDecimalcount() {
         return numberDecimalcount;
     }
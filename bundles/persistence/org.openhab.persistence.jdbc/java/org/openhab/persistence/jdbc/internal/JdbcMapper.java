@@ -9,6 +9,7 @@
 package org.openhab.persistence.jdbc.internal;
 
 import java.util.ArrayList;
+import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -30,6 +31,7 @@ public class JdbcMapper {
     protected boolean initialized = false;
     protected JdbcConfiguration conf = null;
     protected Map<String, String> sqlTables = new HashMap<String, String>();
+    protected volatile JdbcWriteBehindQueue writeBehindQueue = null;
     private long afterAccessMin = 10000;
     private long afterAccessMax = 0;
     private static final String ITEM_NAME_PATTERN = "[^a-zA-Z_0-9\\-]";
@@ -137,6 +139,35 @@ public class JdbcMapper {
         return item;
     }
 
+    /**
+     * Converts the item state and hands it to the write-behind queue.
+     *
+     * @return true if the value was queued, false if it was stored
+     *         synchronously
+     */
+    public boolean queueItemValue(Item item, Date time) {
+        logger.debug("JDBC::queueItemValue: Item={}", item.toString());
+        String tableName = getTable(item);
+        if (tableName == null) {
+            logger.error("JDBC::store: Unable to store item '{}'.", item.getName());
+            return false;
+        }
+        ItemVO vo = new ItemVO(tableName, null);
+        vo.setTime(time);
+        vo = conf.getDBDAO().storeItemValueProvider(item, vo);
+        JdbcWriteBehindQueue queue = writeBehindQueue;
+        if (queue != null && queue.offer(vo)) {
+            return true;
+        }
+        // queue is full or stopped, store on the caller thread with the time of the database
+        vo.setTime(null);
+        long timerStart = System.currentTimeMillis();
+        conf.getDBDAO().doStoreItemValue(vo);
+        logTime("storeItemValue", timerStart, System.currentTimeMillis());
+        errCnt = 0;
+        return false;
+    }
+
     public List<HistoricItem> getHistItemFilterQuery(FilterCriteria filter, int numberDecimalcount, String table,
             Item item) {
         logger.debug(
@@ -390,6 +421,9 @@ public class JdbcMapper {
                     me, timerDiff, conf.timeAverage50arr.getAverageInteger(),
                     conf.timeAverage100arr.getAverageInteger(), conf.timeAverage200arr.getAverageInteger(),
                     afterAccessMin, afterAccessMax, conf.time1000Statements, conf.timerCount);
+            if (writeBehindQueue != null) {
+                logger.info("JDBC::logTime: writeBehind {}", writeBehindQueue.getStatistics());
+            }
         }
     }
 
@@ -10,6 +10,7 @@ package org.openhab.persistence.jdbc.internal;
 
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.Date;
 import java.util.List;
 import java.util.Map;
 
@@ -81,6 +82,7 @@ public class JdbcPersistenceService extends JdbcMapper implements QueryablePersi
     public void deactivate(final int reason) {
         logger.debug("JDBC::deactivate:  persistence bundle stopping. Disconnecting from database. reason={}", reason);
         // closeConnection();
+        stopWriteBehindQueue();
         this.bundleContext = null;
         initialized = false;
     }
@@ -130,9 +132,18 @@ public class JdbcPersistenceService extends JdbcMapper implements QueryablePersi
             return;
         }
         long timerStart = System.currentTimeMillis();
-        storeItemValue(item);
+        Date time = new Date(timerStart);
+        if (writeBehindQueue != null) {
+            if (queueItemValue(item, time)) {
+                logger.debug("JDBC: Queued item '{}' as '{}' for SQL database at {}.", item.getName(),
+                        item.getState().toString(), time.toString());
+                return;
+            }
+        } else {
+            storeItemValue(item);
+        }
         logger.debug("JDBC: Stored item '{}' as '{}' in SQL database at {} in {}ms.", item.getName(),
-                item.getState().toString(), (new java.util.Date()).toString(), System.currentTimeMillis() - timerStart);
+                item.getState().toString(), time.toString(), System.currentTimeMillis() - timerStart);
     }
 
     /**
@@ -214,6 +225,7 @@ public class JdbcPersistenceService extends JdbcMapper implements QueryablePersi
     public void updateConfig(Map<Object, Object> configuration) {
         logger.debug("JDBC::updateConfig");
 
+        stopWriteBehindQueue();
         conf = new JdbcConfiguration(configuration);
         if (checkDBAccessability()) {
             checkDBSchema();
@@ -223,6 +235,21 @@ public class JdbcPersistenceService extends JdbcMapper implements QueryablePersi
             initialized = false;
         }
 
+        if (conf.getWriteBehind()) {
+            writeBehindQueue = new JdbcWriteBehindQueue(conf);
+            writeBehindQueue.start();
+        }
+
         logger.debug("JDBC::updateConfig: configuration complete for service={}.", getName());
     }
+
+    /**
+     * Writes all pending values of the write-behind queue and stops it.
+     */
+    private void stopWriteBehindQueue() {
+        if (writeBehindQueue != null) {
+            writeBehindQueue.stop();
+            writeBehindQueue = null;
+        }
+    }
 }
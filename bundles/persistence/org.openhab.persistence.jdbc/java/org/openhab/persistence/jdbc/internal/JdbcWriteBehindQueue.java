@@ -0,0 +1,313 @@
+/**
+ * Copyright (c) 2010-2016 by the respective copyright holders.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.persistence.jdbc.internal;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.openhab.persistence.jdbc.db.JdbcBaseDAO;
+import org.openhab.persistence.jdbc.model.ItemVO;
+import org.openhab.persistence.jdbc.utils.MovingAverage;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Write-behind queue for item values. Values are collected per item table and
+ * written by a background thread as soon as 'writeBehindBatchSize' values are
+ * pending or 'writeBehindInterval' milliseconds have passed. The values of one
+ * table are written as one JDBC batch, with the time they were stored at.
+ *
+ * If 'writeBehindQueueSize' values are pending, {@link #offer(ItemVO)} refuses
+ * new values and the caller has to store them synchronously. The values of a
+ * table which could not be written are queued again and retried after the next
+ * interval, up to {@link #MAX_ATTEMPTS} times. If a batch fails, its values
+ * are written one by one, so a single bad value (e.g. a duplicate time on
+ * PostgreSQL) doesn't take the others with it.
+ *
+ * @author Helmut Lehmeyer
+ * @since 1.9.0
+ */
+public class JdbcWriteBehindQueue implements Runnable {
+    private static final Logger logger = LoggerFactory.getLogger(JdbcWriteBehindQueue.class);
+
+    /** number of times the values of a table are tried to be written */
+    static final int MAX_ATTEMPTS = 3;
+
+    /** time in milliseconds {@link #stop()} waits for the last values to be written */
+    static final long STOP_TIMEOUT = 5000;
+
+    private final JdbcConfiguration conf;
+    private final Map<String, List<ItemVO>> pending = new LinkedHashMap<String, List<ItemVO>>();
+    private final Map<String, Integer> failedAttempts = new HashMap<String, Integer>();
+    private final MovingAverage flushTimeAverage = new MovingAverage(50);
+    private final Object flushLock = new Object();
+    private Thread thread;
+    private boolean running = false;
+
+    private int queueDepth = 0;
+    private int maxQueueDepth = 0;
+    private long flushCount = 0;
+    private long storedCount = 0;
+    private long retriedCount = 0;
+    private long failedCount = 0;
+    private long refusedCount = 0;
+    private long replacedCount = 0;
+
+    public JdbcWriteBehindQueue(JdbcConfiguration conf) {
+        this.conf = conf;
+    }
+
+    public synchronized void start() {
+        if (running) {
+            return;
+        }
+        logger.debug("JDBC::JdbcWriteBehindQueue: start with batchSize={} interval={}ms queueSize={}",
+                conf.getWriteBehindBatchSize(), conf.getWriteBehindInterval(), conf.getWriteBehindQueueSize());
+        running = true;
+        thread = new Thread(this, "JDBC write-behind");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Stops the background thread, which writes all values that are still
+     * pending before it ends. A write in progress is interrupted, and a slow
+     * database is waited for at most {@link #STOP_TIMEOUT} milliseconds.
+     */
+    public void stop() {
+        Thread t;
+        synchronized (this) {
+            if (!running) {
+                return;
+            }
+            running = false;
+            t = thread;
+            thread = null;
+            // cuts a wait or a write on a slow database short, the thread then writes the rest
+            t.interrupt();
+            notifyAll();
+        }
+        try {
+            t.join(STOP_TIMEOUT);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (t.isAlive()) {
+            logger.warn("JDBC::JdbcWriteBehindQueue: background thread is still writing, not waiting for it");
+        }
+    }
+
+    /**
+     * Queues a converted item value.
+     *
+     * @return false if the queue is stopped or full and the value has to be
+     *         stored synchronously
+     */
+    public synchronized boolean offer(ItemVO vo) {
+        if (!running) {
+            return false;
+        }
+        if (queueDepth >= conf.getWriteBehindQueueSize()) {
+            refusedCount++;
+            logger.debug("JDBC::JdbcWriteBehindQueue: queue full, value for table '{}' is stored synchronously",
+                    vo.getTableName());
+            return false;
+        }
+        List<ItemVO> values = pending.get(vo.getTableName());
+        if (values == null) {
+            values = new ArrayList<ItemVO>();
+            pending.put(vo.getTableName(), values);
+        }
+        int last = values.size() - 1;
+        if (last >= 0 && vo.getTime() != null && vo.getTime().equals(values.get(last).getTime())) {
+            // the time is the primary key, a newer state of the same millisecond replaces the older one
+            values.set(last, vo);
+            replacedCount++;
+            logger.debug("JDBC::JdbcWriteBehindQueue: value for table '{}' at {} replaced by a newer one",
+                    vo.getTableName(), vo.getTime().getTime());
+            return true;
+        }
+        values.add(vo);
+        queueDepth++;
+        if (queueDepth > maxQueueDepth) {
+            maxQueueDepth = queueDepth;
+        }
+        if (queueDepth >= conf.getWriteBehindBatchSize()) {
+            notifyAll();
+        }
+        return true;
+    }
+
+    @Override
+    public void run() {
+        boolean retry = false;
+        while (true) {
+            Map<String, List<ItemVO>> batch;
+            synchronized (this) {
+                long deadline = System.currentTimeMillis() + conf.getWriteBehindInterval();
+                long remaining = conf.getWriteBehindInterval();
+                // after a failure wait for the whole interval, the requeued values fill the batch
+                while (running && (retry || queueDepth < conf.getWriteBehindBatchSize()) && remaining > 0) {
+                    try {
+                        wait(remaining);
+                    } catch (InterruptedException e) {
+                        // stop() interrupts, the loop ends below
+                    }
+                    remaining = deadline - System.currentTimeMillis();
+                }
+                if (!running) {
+                    break;
+                }
+                batch = drain();
+            }
+            retry = flush(batch);
+        }
+
+        // clear the interrupt of stop(), the last values are written without it
+        Thread.interrupted();
+        if (flush(drain())) {
+            // last attempt, the database may have been back in the meantime
+            flush(drain());
+        }
+        synchronized (this) {
+            // a restarted queue keeps its values
+            if (!running && queueDepth > 0) {
+                logger.error("JDBC::JdbcWriteBehindQueue: {} item values could not be stored", queueDepth);
+                failedCount += queueDepth;
+                pending.clear();
+                queueDepth = 0;
+            }
+        }
+        logger.debug("JDBC::JdbcWriteBehindQueue: stopped. {}", getStatistics());
+    }
+
+    private synchronized Map<String, List<ItemVO>> drain() {
+        Map<String, List<ItemVO>> batch = new LinkedHashMap<String, List<ItemVO>>(pending);
+        pending.clear();
+        queueDepth = 0;
+        return batch;
+    }
+
+    /**
+     * Writes the values table by table. The values of a table which fails are
+     * queued again in front of newer values of the same table. Only one flush
+     * runs at a time, so the background threads of a stopped and a restarted
+     * queue never write the same table concurrently.
+     *
+     * @return true if values were queued again
+     */
+    private boolean flush(Map<String, List<ItemVO>> batch) {
+        if (batch.isEmpty()) {
+            return false;
+        }
+        synchronized (flushLock) {
+            return flushTables(batch);
+        }
+    }
+
+    private boolean flushTables(Map<String, List<ItemVO>> batch) {
+        JdbcBaseDAO dao = conf.getDBDAO();
+        boolean requeued = false;
+        int values = 0;
+        long timerStart = System.currentTimeMillis();
+        for (Map.Entry<String, List<ItemVO>> entry : batch.entrySet()) {
+            String table = entry.getKey();
+            List<ItemVO> vol = entry.getValue();
+            values += vol.size();
+            try {
+                dao.doStoreItemValues(vol);
+                synchronized (this) {
+                    storedCount += vol.size();
+                    failedAttempts.remove(table);
+                }
+            } catch (Exception e) {
+                if (vol.size() == 1) {
+                    requeued |= requeue(table, vol, e);
+                } else {
+                    requeued |= storeOneByOne(dao, table, vol, e);
+                }
+            }
+        }
+        int timerDiff = (int) (System.currentTimeMillis() - timerStart);
+        synchronized (this) {
+            flushCount++;
+            flushTimeAverage.add(timerDiff);
+        }
+        if (conf.enableLogTime) {
+            logger.info("JDBC::JdbcWriteBehindQueue: flushed {} values of {} tables in {} ms. {}", values,
+                    batch.size(), timerDiff, getStatistics());
+        }
+        return requeued;
+    }
+
+    /**
+     * Writes the values of a failed batch one by one, the ones which fail
+     * again are queued again.
+     *
+     * @return true if values were queued again
+     */
+    private boolean storeOneByOne(JdbcBaseDAO dao, String table, List<ItemVO> vol, Exception batchError) {
+        logger.debug("JDBC::JdbcWriteBehindQueue: batch of {} values for table '{}' failed, storing them one by one: {}",
+                vol.size(), table, batchError.getMessage());
+        List<ItemVO> failed = new ArrayList<ItemVO>();
+        Exception error = batchError;
+        for (ItemVO vo : vol) {
+            try {
+                dao.doStoreItemValues(Collections.singletonList(vo));
+            } catch (Exception e) {
+                failed.add(vo);
+                error = e;
+            }
+        }
+        synchronized (this) {
+            storedCount += vol.size() - failed.size();
+        }
+        return !failed.isEmpty() && requeue(table, failed, error);
+    }
+
+    private synchronized boolean requeue(String table, List<ItemVO> vol, Exception e) {
+        Integer attempts = failedAttempts.get(table);
+        attempts = attempts == null ? 1 : attempts + 1;
+        if (attempts >= MAX_ATTEMPTS) {
+            logger.error("JDBC::JdbcWriteBehindQueue: unable to store {} values in table '{}', giving up: {}",
+                    vol.size(), table, e.getMessage());
+            failedAttempts.remove(table);
+            failedCount += vol.size();
+            return false;
+        }
+        logger.warn("JDBC::JdbcWriteBehindQueue: unable to store {} values in table '{}', retrying: {}", vol.size(),
+                table, e.getMessage());
+        failedAttempts.put(table, attempts);
+        List<ItemVO> newer = pending.get(table);
+        List<ItemVO> values = new ArrayList<ItemVO>(vol);
+        if (newer != null) {
+            values.addAll(newer);
+            pending.remove(table);
+        }
+        // keep the failed table in front of the other tables
+        Map<String, List<ItemVO>> others = new LinkedHashMap<String, List<ItemVO>>(pending);
+        pending.clear();
+        pending.put(table, values);
+        pending.putAll(others);
+        queueDepth += vol.size();
+        retriedCount += vol.size();
+        return true;
+    }
+
+    public synchronized String getStatistics() {
+        return "queueDepth=" + queueDepth + ", maxQueueDepth=" + maxQueueDepth + ", flushTimeAverage50="
+                + flushTimeAverage.getAverageInteger() + " ms, flushes=" + flushCount + ", stored=" + storedCount
+                + ", retried=" + retriedCount + ", failed=" + failedCount + ", refused=" + refusedCount + ", replaced="
+                + replacedCount;
+    }
+}
@@ -0,0 +1,200 @@
+/**
+ * Copyright (c) 2010-2016 by the respective copyright holders.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.persistence.rrd4j.internal;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.locks.Lock;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.openhab.core.library.items.NumberItem;
+import org.openhab.core.library.types.DecimalType;
+import org.openhab.core.persistence.FilterCriteria;
+import org.openhab.core.persistence.FilterCriteria.Ordering;
+import org.openhab.core.persistence.HistoricItem;
+import org.rrd4j.core.RrdDb;
+
+import junit.framework.Assert;
+
+/**
+ * Tests the cache of open databases of the {@link RRD4jService}.
+ *
+ * @author Kai Kreuzer
+ * @since 1.9.0
+ */
+public class RRD4jServiceTest {
+
+    private static final String USERDATA = "./target/userdata";
+
+    private RRD4jService service;
+
+    @BeforeClass
+    public static void setUpClass() {
+        // RRD4jService.DB_FOLDER is computed from this when the class is loaded
+        System.setProperty("smarthome.userdata", USERDATA);
+    }
+
+    @Before
+    public void setUp() throws IOException {
+        File folder = new File(RRD4jService.DB_FOLDER);
+        folder.mkdirs();
+        FileUtils.cleanDirectory(folder);
+        service = new RRD4jService();
+    }
+
+    @After
+    public void tearDown() {
+        service.deactivate();
+    }
+
+    @Test
+    public void testStoreAndQueryKeepDatabaseOpen() {
+        service.activate(null);
+        NumberItem item = new NumberItem("Temperature");
+        item.setState(new DecimalType(21));
+
+        service.store(item);
+        RrdDb db = getDB("Temperature");
+
+        FilterCriteria filter = new FilterCriteria();
+        filter.setItemName("Temperature");
+        filter.setOrdering(Ordering.DESCENDING);
+        filter.setPageSize(1);
+        Iterator<HistoricItem> result = service.query(filter).iterator();
+        Assert.assertTrue(result.hasNext());
+        Assert.assertEquals(21.0, ((DecimalType) result.next().getState()).doubleValue(), 0.001);
+
+        Assert.assertSame(db, getDB("Temperature"));
+        Assert.assertFalse(db.isClosed());
+    }
+
+    @Test
+    public void testLeastRecentlyUsedDatabaseIsClosed() {
+        service.activate(cacheConfig("2", "300"));
+
+        RrdDb first = getDB("first");
+        RrdDb second = getDB("second");
+        getDB("first");
+        getDB("third");
+
+        Assert.assertFalse(first.isClosed());
+        Assert.assertTrue(second.isClosed());
+        // a closed database is opened again on the next access
+        RrdDb reopened = getDB("second");
+        Assert.assertNotSame(second, reopened);
+        Assert.assertFalse(reopened.isClosed());
+    }
+
+    @Test
+    public void testDatabaseInUseIsNotClosed() throws InterruptedException {
+        service.activate(cacheConfig("1", "300"));
+        String[] aliases = aliasesWithDistinctLocks(3);
+
+        RrdDb used = getDB(aliases[0]);
+        final Lock lock = service.getLock(aliases[0]);
+        final CountDownLatch locked = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        Thread user = new Thread() {
+            @Override
+            public void run() {
+                lock.lock();
+                try {
+                    locked.countDown();
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    lock.unlock();
+                }
+            }
+        };
+        user.start();
+        locked.await();
+        try {
+            RrdDb unused = getDB(aliases[1]);
+            getDB(aliases[2]);
+
+            Assert.assertFalse(used.isClosed());
+            Assert.assertTrue(unused.isClosed());
+        } finally {
+            release.countDown();
+            user.join();
+        }
+    }
+
+    @Test
+    public void testIdleDatabaseIsClosed() throws InterruptedException {
+        service.activate(cacheConfig("10", "1"));
+
+        RrdDb db = getDB("idle");
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!db.isClosed() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(100);
+        }
+        Assert.assertTrue(db.isClosed());
+    }
+
+    @Test
+    public void testDeactivateClosesDatabases() {
+        service.activate(null);
+        RrdDb first = getDB("first");
+        RrdDb second = getDB("second");
+
+        service.deactivate();
+
+        Assert.assertTrue(first.isClosed());
+        Assert.assertTrue(second.isClosed());
+    }
+
+    private RrdDb getDB(String alias) {
+        Lock lock = service.getLock(alias);
+        lock.lock();
+        try {
+            RrdDb db = service.getDB(alias);
+            Assert.assertNotNull(db);
+            return db;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private static Map<String, Object> cacheConfig(String size, String idleTimeout) {
+        Map<String, Object> config = new HashMap<String, Object>();
+        config.put("option.cache.size", size);
+        config.put("option.cache.idletimeout", idleTimeout);
+        return config;
+    }
+
+    /**
+     * Returns aliases which are guarded by different lock stripes.
+     */
+    private String[] aliasesWithDistinctLocks(int count) {
+        String[] aliases = new String[count];
+        int found = 0;
+        for (int i = 0; found < count; i++) {
+            String alias = "item" + i;
+            boolean distinct = true;
+            for (int j = 0; j < found; j++) {
+                distinct &= service.getLock(aliases[j]) != service.getLock(alias);
+            }
+            if (distinct) {
+                aliases[found++] = alias;
+            }
+        }
+        return aliases;
+    }
+}
@@ -13,8 +13,8 @@ import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Date;
-import java.util.HashMap;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
@@ -25,6 +25,8 @@ import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
 
 import org.apache.commons.lang.StringUtils;
 import org.openhab.core.items.Item;
@@ -77,7 +79,40 @@ public class RRD4jService implements QueryablePersistenceService {
 
     private static final Logger logger = LoggerFactory.getLogger(RRD4jService.class);
 
-    private Map<String, ScheduledFuture<?>> scheduledJobs = new HashMap<String, ScheduledFuture<?>>();
+    private Map<String, ScheduledFuture<?>> scheduledJobs = new ConcurrentHashMap<String, ScheduledFuture<?>>();
+
+    /**
+     * prefix of the cache options; it has one more segment than the
+     * 'name.configkey' format of the definitions, so it can't hide a definition
+     */
+    private static final String CACHE_CONFIG_PREFIX = "option.cache.";
+
+    private static final int LOCK_STRIPES = 32;
+
+    /** all access to a database happens while holding its lock, see {@link #getLock(String)} */
+    private final Lock[] locks = new Lock[LOCK_STRIPES];
+
+    /**
+     * open databases in least recently used order, guarded by itself. The
+     * default NIO backend of rrd4j writes to a memory mapped file, which it
+     * syncs to disk every 5 minutes and on close. Values written to a database
+     * that is kept open therefore survive a crash of openHAB, but may be lost
+     * if the system crashes or loses power before the next sync.
+     */
+    private final LinkedHashMap<String, CachedRrdDb> openDbs = new LinkedHashMap<String, CachedRrdDb>(16, 0.75f,
+	    true);
+
+    private int cacheSize = 256;
+
+    private long cacheIdleTimeout = 300000;
+
+    private ScheduledFuture<?> idleCloseJob;
+
+    public RRD4jService() {
+	for (int i = 0; i < LOCK_STRIPES; i++) {
+	    locks[i] = new ReentrantLock();
+	}
+    }
 
     protected ItemRegistry itemRegistry;
 
@@ -101,9 +136,18 @@ public class RRD4jService implements QueryablePersistenceService {
      * @{inheritDoc}
      */
     @Override
-    public synchronized void store(final Item item, final String alias) {
+    public void store(final Item item, final String alias) {
 	final String name = alias == null ? item.getName() : alias;
-	RrdDb db = getDB(name);
+	Lock lock = getLock(name);
+	lock.lock();
+	try {
+	    store(item, name, getDB(name));
+	} finally {
+	    lock.unlock();
+	}
+    }
+
+    private void store(final Item item, final String name, RrdDb db) {
 	if (db != null) {
 	    ConsolFun function = getConsolidationFunction(db);
 	    long now = System.currentTimeMillis() / 1000;
@@ -160,7 +204,7 @@ public class RRD4jService implements QueryablePersistenceService {
 		    };
 		    ScheduledFuture<?> job = scheduledJobs.get(name);
 		    if (job != null) {
-			job.cancel(true);
+			job.cancel(false);
 			scheduledJobs.remove(name);
 		    }
 		    job = scheduler.schedule(task, 1, TimeUnit.SECONDS);
@@ -171,11 +215,6 @@ public class RRD4jService implements QueryablePersistenceService {
 	    } catch (Exception e) {
 		logger.warn("Could not persist '{}' to rrd4j database: {}", new String[] { name, e.getMessage() });
 	    }
-	    try {
-		db.close();
-	    } catch (IOException e) {
-		logger.debug("Error closing rrd4j database: {}", e.getMessage());
-	    }
 	}
     }
 
@@ -190,7 +229,16 @@ public class RRD4jService implements QueryablePersistenceService {
     @Override
     public Iterable<HistoricItem> query(FilterCriteria filter) {
 	String itemName = filter.getItemName();
-	RrdDb db = getDB(itemName);
+	Lock lock = getLock(itemName);
+	lock.lock();
+	try {
+	    return query(filter, itemName, getDB(itemName));
+	} finally {
+	    lock.unlock();
+	}
+    }
+
+    private Iterable<HistoricItem> query(FilterCriteria filter, String itemName, RrdDb db) {
 	if (db != null) {
 	    ConsolFun consolidationFunction = getConsolidationFunction(db);
 	    long start = 0L;
@@ -250,7 +298,42 @@ public class RRD4jService implements QueryablePersistenceService {
 	return Collections.emptyList();
     }
 
-    protected synchronized RrdDb getDB(String alias) {
+    /**
+     * Returns the lock which guards all access to the database of the given
+     * alias.
+     */
+    protected Lock getLock(String alias) {
+	return locks[(alias.hashCode() & Integer.MAX_VALUE) % LOCK_STRIPES];
+    }
+
+    /**
+     * Returns the open database for the given alias. The database is kept open
+     * in a cache and must not be closed by the caller. The caller must hold the
+     * lock returned by {@link #getLock(String)}.
+     */
+    protected RrdDb getDB(String alias) {
+	RrdDb db = null;
+	synchronized (openDbs) {
+	    CachedRrdDb cached = openDbs.get(alias);
+	    if (cached != null) {
+		cached.lastAccess = System.currentTimeMillis();
+		db = cached.db;
+	    }
+	}
+	if (db != null && !db.isClosed()) {
+	    return db;
+	}
+	db = openDB(alias);
+	if (db != null) {
+	    synchronized (openDbs) {
+		openDbs.put(alias, new CachedRrdDb(db));
+	    }
+	    evictDBs(alias);
+	}
+	return db;
+    }
+
+    private RrdDb openDB(String alias) {
 	RrdDb db = null;
 	File file = new File(DB_FOLDER + File.separator + alias + ".rrd");
 	try {
@@ -277,6 +360,91 @@ public class RRD4jService implements QueryablePersistenceService {
 	return db;
     }
 
+    /**
+     * Closes the least recently used databases if there are more than
+     * 'option.cache.size' open ones. Databases which are currently in use by another
+     * thread are skipped.
+     *
+     * @param currentAlias the alias of the database the caller is about to use
+     */
+    private void evictDBs(String currentAlias) {
+	List<String> aliases;
+	synchronized (openDbs) {
+	    if (openDbs.size() <= cacheSize) {
+		return;
+	    }
+	    aliases = new ArrayList<String>(openDbs.keySet());
+	}
+	int toClose = aliases.size() - cacheSize;
+	for (String alias : aliases) {
+	    if (toClose <= 0) {
+		break;
+	    }
+	    if (!alias.equals(currentAlias) && closeDB(alias, 0)) {
+		toClose--;
+	    }
+	}
+    }
+
+    /**
+     * Closes all databases which have not been accessed for
+     * 'option.cache.idletimeout' seconds.
+     */
+    private void closeIdleDBs() {
+	List<String> aliases;
+	synchronized (openDbs) {
+	    aliases = new ArrayList<String>(openDbs.keySet());
+	}
+	for (String alias : aliases) {
+	    closeDB(alias, cacheIdleTimeout);
+	}
+    }
+
+    /**
+     * Closes the database of the given alias if it is not in use and has not
+     * been accessed for the given time.
+     *
+     * @return true if the database has been closed
+     */
+    private boolean closeDB(String alias, long idleTimeout) {
+	Lock lock = getLock(alias);
+	if (!lock.tryLock()) {
+	    return false;
+	}
+	try {
+	    synchronized (openDbs) {
+		CachedRrdDb cached = openDbs.get(alias);
+		if (cached == null || System.currentTimeMillis() - cached.lastAccess < idleTimeout) {
+		    return false;
+		}
+	    }
+	    closeDB(alias);
+	    return true;
+	} finally {
+	    lock.unlock();
+	}
+    }
+
+    /**
+     * Removes the database of the given alias from the cache and closes it. The
+     * caller must hold the lock returned by {@link #getLock(String)}.
+     */
+    private void closeDB(String alias) {
+	CachedRrdDb cached;
+	synchronized (openDbs) {
+	    cached = openDbs.remove(alias);
+	}
+	if (cached == null) {
+	    return;
+	}
+	try {
+	    cached.db.close();
+	    logger.trace("Closed rrd4j database '{}'", alias);
+	} catch (IOException e) {
+	    logger.debug("Error closing rrd4j database: {}", e.getMessage());
+	}
+    }
+
     private RrdDefConfig getRrdDefConfig(String itemName) {
 	RrdDefConfig useRdc = null;
 	for (Map.Entry<String, RrdDefConfig> e : rrdDefs.entrySet()) { // try to
@@ -380,6 +548,7 @@ public class RRD4jService implements QueryablePersistenceService {
 
 	if ((config == null) || config.isEmpty()) {
 	    logger.debug("using default configuration only");
+	    scheduleIdleClose();
 	    return;
 	}
 
@@ -395,6 +564,11 @@ public class RRD4jService implements QueryablePersistenceService {
 		continue;
 	    }
 
+	    if (key.toLowerCase().startsWith(CACHE_CONFIG_PREFIX)) {
+		updateCacheConfig(key, config.get(key));
+		continue;
+	    }
+
 	    String[] subkeys = key.split("\\.");
 	    if (subkeys.length != 2) {
 		logger.debug("config '{}' should have the format 'name.configkey'", key);
@@ -444,6 +618,75 @@ public class RRD4jService implements QueryablePersistenceService {
 		rrdDefs.remove(rrdDef.name);
 	    }
 	}
+	logger.debug("Keeping up to {} rrd4j databases open, idle timeout {} s", cacheSize, cacheIdleTimeout / 1000);
+	scheduleIdleClose();
+    }
+
+    private void updateCacheConfig(String key, Object v) {
+	if (!(v instanceof String) || StringUtils.isBlank((String) v)) {
+	    logger.trace("Config is empty: {}", key);
+	    return;
+	}
+	String value = ((String) v).trim();
+	String property = key.substring(CACHE_CONFIG_PREFIX.length()).toLowerCase();
+	try {
+	    if (property.equals("size")) {
+		cacheSize = Math.max(1, Integer.parseInt(value));
+	    } else if (property.equals("idletimeout")) {
+		cacheIdleTimeout = Math.max(1, Long.parseLong(value)) * 1000;
+	    } else {
+		logger.debug("Unknown property {} : {}", key, value);
+	    }
+	} catch (NumberFormatException e) {
+	    logger.warn("Ignoring illegal configuration: {} = {}", key, value);
+	}
+    }
+
+    /**
+     * Stops the idle check and closes all open databases, so their values are written to disk.
+     */
+    public void deactivate() {
+	if (idleCloseJob != null) {
+	    idleCloseJob.cancel(false);
+	    idleCloseJob = null;
+	}
+	List<String> aliases;
+	synchronized (openDbs) {
+	    aliases = new ArrayList<String>(openDbs.keySet());
+	}
+	for (String alias : aliases) {
+	    // wait for a store or query which is still using the database
+	    Lock lock = getLock(alias);
+	    lock.lock();
+	    try {
+		closeDB(alias);
+	    } finally {
+		lock.unlock();
+	    }
+	}
+    }
+
+    private void scheduleIdleClose() {
+	if (idleCloseJob != null) {
+	    idleCloseJob.cancel(false);
+	}
+	long period = Math.max(1000, cacheIdleTimeout / 2);
+	idleCloseJob = scheduler.scheduleWithFixedDelay(new Runnable() {
+	    @Override
+	    public void run() {
+		closeIdleDBs();
+	    }
+	}, period, period, TimeUnit.MILLISECONDS);
+    }
+
+    private static class CachedRrdDb {
+	public final RrdDb db;
+	public long lastAccess;
+
+	public CachedRrdDb(RrdDb db) {
+	    this.db = db;
+	    this.lastAccess = System.currentTimeMillis();
+	}
     }
 
     private class RrdArchiveDef {